@@ -0,0 +1,166 @@
+package assignment;
+
+import java.util.Locale;
+
+/**
+ * Decides how many pages a crawl works on at once, from the fetch
+ * latencies and throughput it observes, so the number of threads does not
+ * have to be tuned for each site. The fetches are grouped into windows of
+ * at least as many fetches as the current limit; after each window the
+ * limit is adjusted AIMD style:
+ *
+ * - while the average latency stays within a tolerance of the lowest
+ *   latency seen, and throughput did not drop after the last increase, the
+ *   limit grows: doubling at first, then by one per window;
+ * - otherwise the servers (or the local CPU) are saturated, and the limit
+ *   is cut by a quarter.
+ *
+ * Per-host limits of the frontier still apply on top of this limit.
+ */
+public class AdaptiveConcurrency {
+	private static final int MIN_SAMPLES = 5;
+	private static final long MIN_WINDOW_NANOS = 100000000L;
+	private static final double TOLERANCE = 2.0;
+	private static final double DECREASE = 0.75;
+
+	// the lowest window latency is forgotten slowly, so one lucky window does not stick
+	private static final double BASELINE_DRIFT = 0.05;
+
+	private final int minLimit;
+	private final int maxLimit;
+
+	// all guarded by this
+	private int limit;
+	private boolean slowStart = true;
+	private long windowStart;
+	private int samples;
+	private long windowNanos;
+	private double baselineNanos;
+	private double lastThroughput;
+	private boolean increased;
+	private long increases;
+	private long decreases;
+
+	/**
+	 * @param minLimit - fewest pages worked on at once, and the starting limit
+	 * @param maxLimit - most pages worked on at once, usually the number of threads
+	 */
+	public AdaptiveConcurrency(int minLimit, int maxLimit) {
+		if (minLimit < 1 || maxLimit < minLimit)
+			throw new IllegalArgumentException("Invalid limits: " + minLimit + ", " + maxLimit);
+
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		limit = minLimit;
+	}
+
+	/**
+	 * Records how long a fetch took, failed fetches included, and adjusts
+	 * the limit at the end of a window.
+	 *
+	 * @param latencyNanos - duration of the fetch
+	 */
+	public synchronized void record(long latencyNanos) {
+		long now = System.nanoTime();
+		if (windowStart == 0)
+			windowStart = now - latencyNanos;
+		samples++;
+		windowNanos += latencyNanos;
+
+		long elapsed = now - windowStart;
+		if (samples < Math.max(limit, MIN_SAMPLES) || elapsed < MIN_WINDOW_NANOS)
+			return;
+
+		double latency = (double)windowNanos / samples;
+		double throughput = samples * 1e9 / elapsed;
+		adjust(latency, throughput);
+
+		// the next window starts after the adjustment, which may have loaded the event classes
+		windowStart = System.nanoTime();
+		samples = 0;
+		windowNanos = 0;
+	}
+
+	private void adjust(double latency, double throughput) {
+		if (baselineNanos == 0 || latency < baselineNanos)
+			baselineNanos = latency;
+		else
+			baselineNanos += (latency - baselineNanos) * BASELINE_DRIFT;
+
+		boolean congested = latency > baselineNanos * TOLERANCE;
+		boolean noGain = increased && throughput < lastThroughput * 0.9;
+		int oldLimit = limit;
+		if (congested || noGain) {
+			slowStart = false;
+			limit = Math.max(minLimit, (int)(limit * DECREASE));
+		} else if (slowStart) {
+			limit = Math.min(maxLimit, limit * 2);
+		} else {
+			limit = Math.min(maxLimit, limit + 1);
+		}
+		increased = limit > oldLimit;
+		lastThroughput = throughput;
+
+		if (limit > oldLimit)
+			increases++;
+		else if (limit < oldLimit)
+			decreases++;
+
+		if (limit != oldLimit) {
+			CrawlEvents.Concurrency event = new CrawlEvents.Concurrency();
+			if (event.shouldCommit()) {
+				event.oldLimit = oldLimit;
+				event.newLimit = limit;
+				event.latencyMillis = latency / 1e6;
+				event.pagesPerSecond = throughput;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * Returns how many pages may be worked on at once.
+	 *
+	 * @return the current limit
+	 */
+	public synchronized int getLimit() {
+		return limit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	/**
+	 * Returns how many times the limit was raised.
+	 *
+	 * @return number of increases
+	 */
+	public synchronized long getIncreases() {
+		return increases;
+	}
+
+	/**
+	 * Returns how many times the limit was lowered.
+	 *
+	 * @return number of decreases
+	 */
+	public synchronized long getDecreases() {
+		return decreases;
+	}
+
+	/**
+	 * Returns the latency the current windows are compared against.
+	 *
+	 * @return the baseline fetch latency, in milliseconds
+	 */
+	public synchronized double getBaselineMillis() {
+		return baselineNanos / 1e6;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(Locale.ROOT, "concurrency %d of %d (%d up, %d down, baseline %.1f ms)",
+				limit, maxLimit, increases, decreases, baselineNanos / 1e6);
+	}
+}
@@ -0,0 +1,135 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Rebuilds a WebIndex from a WARC archive written during a crawl, without
+ * fetching any page again. Each segment is read sequentially and indexed
+ * on its own thread into an index of its own; the segment indexes are then
+ * merged in the order the segments were written, so the result does not
+ * depend on the number of threads.
+ *
+ * A page archived more than once, for instance by incremental crawls
+ * appending to the same archive, is indexed from its latest record.
+ * Duplicate pages are indexed rather than recorded as aliases.
+ */
+public class ArchiveIndexer {
+	private final int numThreads;
+	private long records;
+
+	/**
+	 * @param numThreads - number of segments indexed at once, usually the
+	 * 					   number of cores
+	 */
+	public ArchiveIndexer(int numThreads) {
+		if (numThreads < 1)
+			throw new IllegalArgumentException("Need at least one thread: " + numThreads);
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Indexes every page of an archive.
+	 *
+	 * @param archiveDir - directory of segments written by a WarcWriter
+	 * @return an index of the archived pages
+	 * @throws IOException if a segment cannot be read
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	public WebIndex reindex(Path archiveDir) throws IOException, InterruptedException {
+		List<Path> segments = WarcWriter.segments(archiveDir);
+		synchronized (this) {
+			records = 0;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		List<Future<WebIndex>> parts = new ArrayList<Future<WebIndex>>();
+		for (final Path segment : segments) {
+			parts.add(pool.submit(new Callable<WebIndex>() {
+				@Override
+				public WebIndex call() throws IOException {
+					return indexSegment(segment);
+				}
+			}));
+		}
+		pool.shutdown();
+
+		WebIndex index = new WebIndex();
+		HashSet<String> indexed = new HashSet<String>();
+		try {
+			for (Future<WebIndex> part : parts) {
+				WebIndex segmentIndex = part.get();
+
+				// a later copy of a page replaces the earlier one
+				for (String url : segmentIndex.getURLList()) {
+					if (url != null && !indexed.add(url))
+						index.removeDocument(url);
+				}
+				for (Map.Entry<String, String> alias : segmentIndex.getAliases().entrySet()) {
+					if (!indexed.add(alias.getKey()))
+						index.removeDocument(alias.getKey());
+				}
+				index.merge(segmentIndex);
+			}
+		} catch (ExecutionException e) {
+			pool.shutdownNow();
+			if (e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+			throw new IOException(e.getCause());
+		}
+		index.purgeRemoved();
+		return index;
+	}
+
+	/**
+	 * Returns how many archived pages were indexed by the last reindex.
+	 *
+	 * @return number of records indexed
+	 */
+	public synchronized long getRecords() {
+		return records;
+	}
+
+	private synchronized void countRecords(long n) {
+		records += n;
+	}
+
+	/**
+	 * Indexes the pages of one segment, in the order they were archived.
+	 */
+	private WebIndex indexSegment(Path segment) throws IOException {
+		WebIndex index = new WebIndex();
+		WebCrawler crawler = new WebCrawler(index, new HeapFingerprintSet());
+		HashSet<String> urls = new HashSet<String>();
+		long n = 0;
+
+		try (WarcReader reader = new WarcReader(segment)) {
+			FetchResult page;
+			while ((page = reader.next()) != null) {
+				if (!urls.add(page.getURL().toString()))
+					index.removeDocument(page.getURL().toString());
+				try {
+					crawler.index(crawler.parse(page));
+					n++;
+				} catch (SAXException e) {
+					System.out.println(e);
+				} catch (IOException e) {
+					System.out.println(e);
+				}
+			}
+		}
+		index.purgeRemoved();
+		countRecords(n);
+		return index;
+	}
+}
@@ -0,0 +1,29 @@
+package assignment;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Fetcher that appends every page downloaded by another fetcher to a
+ * WARC archive before handing it on.
+ */
+public class ArchivingFetcher implements Fetcher {
+	private Fetcher fetcher;
+	private WarcWriter archive;
+
+	/**
+	 * @param fetcher - the fetcher that downloads the pages
+	 * @param archive - where the pages are archived
+	 */
+	public ArchivingFetcher(Fetcher fetcher, WarcWriter archive) {
+		this.fetcher = fetcher;
+		this.archive = archive;
+	}
+
+	@Override
+	public FetchResult fetch(URL url, PageState previous) throws IOException {
+		FetchResult page = fetcher.fetch(url, previous);
+		archive.write(page);
+		return page;
+	}
+}
@@ -0,0 +1,243 @@
+package assignment;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Frontier that hands out the most important URL first, scoring URLs
+ * online from the links found as the crawl goes on. A URL that is linked
+ * again while it is still queued moves up, so a budgeted crawl of a large
+ * site reaches its most-linked pages early.
+ *
+ * The queue is a binary heap that knows where each URL sits in it, so
+ * adding a URL, raising its score and polling all take O(log n).
+ */
+public class BestFirstFrontier extends DedupFrontier {
+
+	/**
+	 * How the score of a queued URL is computed.
+	 */
+	public enum Scoring {
+		/** Number of crawled pages linking to the URL. */
+		IN_LINKS,
+
+		/**
+		 * On-line Page Importance Computation: every seed starts with one
+		 * unit of cash, and a crawled page splits its cash evenly among the
+		 * URLs it links to. URLs are crawled in order of the cash they hold.
+		 */
+		OPIC
+	}
+
+	private Scoring scoring;
+	private ArrayList<Node> heap;
+	private long nextSequence;
+
+	// queued URLs, to find them in the heap when they are linked again
+	private HashMap<String, Node> queued;
+
+	// pages handed out whose links have not been added yet, with the score
+	// they had; under OPIC that is the cash they pass on to their links
+	private HashMap<String, Node> handedOut;
+
+	public BestFirstFrontier(Scoring scoring) {
+		this(scoring, new HeapFingerprintSet());
+	}
+
+	/**
+	 * @param scoring - how URLs are scored
+	 * @param seen - set used to remember every URL ever added
+	 */
+	public BestFirstFrontier(Scoring scoring, SeenSet seen) {
+		super(seen);
+		this.scoring = scoring;
+		heap = new ArrayList<Node>();
+		queued = new HashMap<String, Node>();
+		handedOut = new HashMap<String, Node>();
+	}
+
+	@Override
+	protected void enqueue(URL url) {
+		push(new Node(url, nextSequence++));
+	}
+
+	/**
+	 * Queues a URL that was handed out and put aside again, with the score
+	 * it had when it was handed out.
+	 */
+	@Override
+	protected void requeue(URL url) {
+		Node node = handedOut.remove(url.toString());
+		if (node == null)
+			node = new Node(url, nextSequence++);
+		push(node);
+	}
+
+	private void push(Node node) {
+		queued.put(node.url.toString(), node);
+		node.index = heap.size();
+		heap.add(node);
+		siftUp(node.index);
+	}
+
+	@Override
+	protected URL dequeue() {
+		if (heap.isEmpty())
+			return null;
+
+		Node first = heap.get(0);
+		Node last = heap.remove(heap.size() - 1);
+		if (last != first) {
+			last.index = 0;
+			heap.set(0, last);
+			siftDown(0);
+		}
+
+		String key = first.url.toString();
+		queued.remove(key);
+		handedOut.put(key, first);
+		return first.url;
+	}
+
+	/**
+	 * Adds a URL that was not found through a crawled page, such as a seed.
+	 * Under OPIC it starts with one unit of cash.
+	 */
+	@Override
+	public boolean add(URL url) {
+		if (!super.add(url))
+			return false;
+
+		if (scoring == Scoring.OPIC) {
+			Node node = queued.get(url.toString());
+			node.score = 1;
+			siftUp(node.index);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the links of a crawled page, crediting each distinct URL it
+	 * links to, whether the URL is new or still queued. Links to pages
+	 * already handed out are only counted as duplicates.
+	 */
+	@Override
+	public List<URL> addLinks(URL source, List<URL> links) {
+		String sourceKey = source.toString();
+		HashSet<String> distinct = new HashSet<String>();
+		for (URL link : links) {
+			String key = link.toString();
+			if (!key.equals(sourceKey))
+				distinct.add(key);
+		}
+
+		Node sourceNode = handedOut.remove(sourceKey);
+		double credit = 1;
+		if (scoring == Scoring.OPIC)
+			credit = sourceNode == null || distinct.isEmpty() ? 0 : sourceNode.score / distinct.size();
+
+		List<URL> added = new ArrayList<URL>();
+		for (URL link : links) {
+			if (super.add(link))
+				added.add(link);
+
+			// each page credits a URL once, however often it links to it
+			String key = link.toString();
+			if (distinct.remove(key)) {
+				Node node = queued.get(key);
+				if (node != null && credit > 0) {
+					node.score += credit;
+					siftUp(node.index);
+				}
+			}
+		}
+		return added;
+	}
+
+	@Override
+	public int size() {
+		return heap.size();
+	}
+
+	/**
+	 * Returns the current score of a queued URL.
+	 *
+	 * @param url - a URL in the frontier
+	 * @return its score, or NaN if the URL is not queued
+	 */
+	public double getScore(URL url) {
+		Node node = queued.get(url.toString());
+		return node == null ? Double.NaN : node.score;
+	}
+
+	/**
+	 * Moves the node at the given heap position up until its parent ranks
+	 * ahead of it.
+	 */
+	private void siftUp(int index) {
+		Node node = heap.get(index);
+		while (index > 0) {
+			int parentIndex = (index - 1) / 2;
+			Node parent = heap.get(parentIndex);
+			if (!node.before(parent))
+				break;
+			parent.index = index;
+			heap.set(index, parent);
+			index = parentIndex;
+		}
+		node.index = index;
+		heap.set(index, node);
+	}
+
+	/**
+	 * Moves the node at the given heap position down until it ranks ahead
+	 * of both its children.
+	 */
+	private void siftDown(int index) {
+		Node node = heap.get(index);
+		int size = heap.size();
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && heap.get(child + 1).before(heap.get(child)))
+				child++;
+			Node next = heap.get(child);
+			if (!next.before(node))
+				break;
+			next.index = index;
+			heap.set(index, next);
+			index = child;
+		}
+		node.index = index;
+		heap.set(index, node);
+	}
+
+	/**
+	 * A queued URL with its score, the order in which it was added and
+	 * its position in the heap.
+	 */
+	private static class Node {
+		URL url;
+		double score;
+		long sequence;
+		int index;
+
+		Node(URL url, long sequence) {
+			this.url = url;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Higher scores go first; equal scores in the order they were added.
+		 */
+		boolean before(Node other) {
+			if (score != other.score)
+				return score > other.score;
+			return sequence < other.sequence;
+		}
+	}
+}
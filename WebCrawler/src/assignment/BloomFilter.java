@@ -0,0 +1,103 @@
+package assignment;
+
+/**
+ * SeenSet backed by a Bloom filter: a bit array in which every URL sets a
+ * few bits chosen by independent hash functions. It uses far less memory
+ * than storing fingerprints, at the cost of a false positive rate that
+ * grows as more URLs are added than it was sized for.
+ */
+public class BloomFilter implements SeenSet {
+	public static final long DEFAULT_EXPECTED = 1 << 20;
+	
+	private long[] bits;
+	private long numBits;
+	private int numHashes;
+	private long size;
+	
+	/**
+	 * Creates a Bloom filter sized for the given number of URLs.
+	 * 
+	 * @param expected - number of URLs the filter should hold
+	 * @param falsePositiveRate - desired false positive rate once full
+	 */
+	public BloomFilter(long expected, double falsePositiveRate) {
+		if (expected < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1)
+			throw new IllegalArgumentException("Invalid Bloom filter size");
+		
+		// standard optimal sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+		double ln2 = Math.log(2);
+		long m = (long)Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+		numBits = Math.max(64, (m + 63) / 64 * 64);
+		numHashes = Math.max(1, (int)Math.round((double)numBits / expected * ln2));
+		bits = new long[(int)(numBits / 64)];
+	}
+	
+	@Override
+	public boolean add(String url) {
+		return addFingerprint(FingerprintSet.fingerprint(url));
+	}
+
+	@Override
+	public boolean contains(String url) {
+		return containsFingerprint(FingerprintSet.fingerprint(url));
+	}
+	
+	/**
+	 * Sets the bits for a precomputed fingerprint.
+	 * 
+	 * @param fp - a fingerprint returned by {@link FingerprintSet#fingerprint(CharSequence)}
+	 * @return true if at least one of the bits was not already set
+	 */
+	public synchronized boolean addFingerprint(long fp) {
+		boolean changed = false;
+		
+		// derive the k bit positions from the two halves of the fingerprint
+		long h1 = fp & 0xffffffffL;
+		long h2 = fp >>> 32;
+		for (int i = 0; i < numHashes; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+			long mask = 1L << bit;
+			int word = (int)(bit >>> 6);
+			if ((bits[word] & mask) == 0) {
+				bits[word] |= mask;
+				changed = true;
+			}
+		}
+		
+		if (changed)
+			size++;
+		return changed;
+	}
+	
+	/**
+	 * Checks the bits for a precomputed fingerprint.
+	 * 
+	 * @param fp - a fingerprint returned by {@link FingerprintSet#fingerprint(CharSequence)}
+	 * @return true if all of the bits are set
+	 */
+	public synchronized boolean containsFingerprint(long fp) {
+		long h1 = fp & 0xffffffffL;
+		long h2 = fp >>> 32;
+		for (int i = 0; i < numHashes; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+			if ((bits[(int)(bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public synchronized long size() {
+		return size;
+	}
+
+	@Override
+	public long memoryBytes() {
+		return 16 + numBits / 8;
+	}
+
+	@Override
+	public synchronized double falsePositiveRate() {
+		return Math.pow(1 - Math.exp(-numHashes * (double)size / numBits), numHashes);
+	}
+}
@@ -0,0 +1,220 @@
+package assignment;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Frontier that enforces a CrawlBudget on another frontier. Links deeper
+ * than the maximum depth, and links to hosts whose page budget is used up,
+ * are dropped without being queued. Once the page or byte budget is used
+ * up the frontier reports itself empty, so the crawl ends as soon as the
+ * pages already handed out are finished.
+ *
+ * The depth of a URL is only known if it was added through addLinks or as
+ * a seed; URLs restored from a checkpoint count as seeds.
+ */
+public class BudgetedFrontier implements Frontier {
+	private Frontier frontier;
+	private CrawlBudget budget;
+
+	// depth of every URL queued or being crawled whose links are not added yet
+	private HashMap<String, Integer> depths;
+
+	private HashMap<String, Integer> pagesPerHost;
+
+	// taken from the wrapped frontier by isEmpty or delayMillis, not handed out yet
+	private URL next;
+	private long pagesTaken;
+	private long dropped;
+
+	/**
+	 * @param frontier - the frontier whose URLs are limited
+	 * @param budget - the limits to enforce, also given to the crawlers so
+	 * 				   they can report the bytes they download
+	 */
+	public BudgetedFrontier(Frontier frontier, CrawlBudget budget) {
+		this.frontier = frontier;
+		this.budget = budget;
+		depths = new HashMap<String, Integer>();
+		pagesPerHost = new HashMap<String, Integer>();
+	}
+
+	@Override
+	public boolean add(URL url) {
+		if (!hostAllowed(url)) {
+			dropped++;
+			return false;
+		}
+
+		boolean added = frontier.add(url);
+		if (added && tracksDepth())
+			depths.put(url.toString(), 0);
+		return added;
+	}
+
+	@Override
+	public List<URL> addLinks(URL source, List<URL> links) {
+		int depth = 1;
+		if (tracksDepth()) {
+			Integer sourceDepth = depths.remove(source.toString());
+			depth = sourceDepth == null ? 1 : sourceDepth + 1;
+		}
+
+		// links that are too deep are not marked seen, a shorter path may still come
+		List<URL> allowed = new ArrayList<URL>(links.size());
+		for (URL link : links) {
+			if (depth <= budget.getMaxDepth() && hostAllowed(link))
+				allowed.add(link);
+			else
+				dropped++;
+		}
+
+		List<URL> added = frontier.addLinks(source, allowed);
+		if (tracksDepth()) {
+			for (URL link : added) {
+				depths.put(link.toString(), depth);
+			}
+		}
+		return added;
+	}
+
+	@Override
+	public URL canonicalize(URL url) {
+		return frontier.canonicalize(url);
+	}
+
+	@Override
+	public void markSeen(URL url) {
+		frontier.markSeen(url);
+	}
+
+	@Override
+	public URL poll() {
+		if (isExhausted())
+			return null;
+
+		URL url = peek();
+		if (url == null) {
+			url = frontier.poll();
+			if (url == null || !allow(url))
+				return null;
+		}
+		next = null;
+
+		String host = url.getHost();
+		pagesPerHost.put(host, pagesPerHost.getOrDefault(host, 0) + 1);
+		pagesTaken++;
+		return url;
+	}
+
+	/**
+	 * Takes the next ready URL whose host still has budget from the wrapped
+	 * frontier, dropping those whose host used up its budget since they
+	 * were queued. This way isEmpty and delayMillis never report URLs that
+	 * poll would drop, which would leave a crawler waiting for a page that
+	 * is never handed out.
+	 *
+	 * @return the next URL to hand out, or null if none is ready
+	 */
+	private URL peek() {
+		while (next == null && !frontier.isEmpty() && frontier.delayMillis() == 0) {
+			URL url = frontier.poll();
+			if (url == null)
+				break;
+			if (allow(url))
+				next = url;
+		}
+		return next;
+	}
+
+	/**
+	 * Checks a URL taken from the wrapped frontier against its host's
+	 * budget, dropping it if the budget is used up.
+	 */
+	private boolean allow(URL url) {
+		if (hostAllowed(url))
+			return true;
+		frontier.done(url);
+		depths.remove(url.toString());
+		dropped++;
+		return false;
+	}
+
+	@Override
+	public void done(URL url) {
+		frontier.done(url);
+	}
+
+	@Override
+	public long delayMillis() {
+		if (isExhausted())
+			return Long.MAX_VALUE;
+		return peek() != null ? 0 : frontier.delayMillis();
+	}
+
+	@Override
+	public int size() {
+		return isExhausted() ? 0 : frontier.size() + (next == null ? 0 : 1);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return isExhausted() || (peek() == null && frontier.isEmpty());
+	}
+
+	@Override
+	public long getDedupHits() {
+		return frontier.getDedupHits();
+	}
+
+	@Override
+	public long getNumQueued() {
+		return frontier.getNumQueued();
+	}
+
+	/**
+	 * Returns whether the page or byte budget is used up.
+	 *
+	 * @return true if no more URLs will be handed out
+	 */
+	public boolean isExhausted() {
+		return pagesTaken >= budget.getMaxPages() || budget.getBytes() >= budget.getMaxBytes();
+	}
+
+	/**
+	 * Returns how many URLs were handed out to be crawled.
+	 *
+	 * @return number of pages taken from the budget
+	 */
+	public long getPagesTaken() {
+		return pagesTaken;
+	}
+
+	/**
+	 * Returns how many URLs were dropped for being too deep or for
+	 * belonging to a host that used up its budget.
+	 *
+	 * @return number of URLs dropped
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	public CrawlBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Depths are only remembered when there is a depth limit.
+	 */
+	private boolean tracksDepth() {
+		return budget.getMaxDepth() != Integer.MAX_VALUE;
+	}
+
+	private boolean hostAllowed(URL url) {
+		Integer count = pagesPerHost.get(url.getHost());
+		return count == null || count < budget.getMaxPagesPerHost();
+	}
+}
@@ -0,0 +1,150 @@
+package assignment;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Frontier that canonicalizes every URL before handing it to another
+ * frontier, so that the other frontier's duplicate check sees all spellings
+ * of a page as the same URL. Also counts how many fetches this saved:
+ * distinct rewritten spellings that the other frontier turned down because
+ * their canonical form was already seen. Without canonicalization each of
+ * them would have been fetched once, so the rewritten spellings are
+ * remembered in a set of their own, and a repeated one is not counted again.
+ */
+public class CanonicalizingFrontier implements Frontier {
+	private Frontier frontier;
+	private UrlCanonicalizer canonicalizer;
+	
+	// every rewritten spelling, as found before canonicalization
+	private SeenSet originals;
+	
+	private long rewrites;
+	private long savedFetches;
+	
+	/**
+	 * @param frontier - the frontier canonical URLs are added to
+	 * @param canonicalizer - the canonicalizer to apply
+	 */
+	public CanonicalizingFrontier(Frontier frontier, UrlCanonicalizer canonicalizer) {
+		this(frontier, canonicalizer, new HeapFingerprintSet());
+	}
+	
+	/**
+	 * @param frontier - the frontier canonical URLs are added to
+	 * @param canonicalizer - the canonicalizer to apply
+	 * @param originals - an empty set to remember the rewritten spellings
+	 */
+	public CanonicalizingFrontier(Frontier frontier, UrlCanonicalizer canonicalizer,
+			SeenSet originals) {
+		this.frontier = frontier;
+		this.canonicalizer = canonicalizer;
+		this.originals = originals;
+	}
+
+	@Override
+	public boolean add(URL url) {
+		URL canonical = canonicalizer.canonicalize(url);
+		if (canonical == url)
+			return frontier.add(url);
+		
+		rewrites++;
+		boolean newSpelling = originals.add(url.toString());
+		boolean added = frontier.add(canonical);
+		if (!added && newSpelling)
+			savedFetches++;
+		return added;
+	}
+
+	@Override
+	public List<URL> addLinks(URL source, List<URL> links) {
+		List<URL> canonicalLinks = new ArrayList<URL>(links.size());
+		
+		// links rewritten from a new spelling, saved if they are not queued
+		Set<URL> rewritten = Collections.newSetFromMap(new IdentityHashMap<URL, Boolean>());
+		for (URL link : links) {
+			URL canonical = canonicalizer.canonicalize(link);
+			if (canonical != link) {
+				rewrites++;
+				if (originals.add(link.toString()))
+					rewritten.add(canonical);
+			}
+			canonicalLinks.add(canonical);
+		}
+		
+		List<URL> added = frontier.addLinks(source, canonicalLinks);
+		for (URL link : added) {
+			rewritten.remove(link);
+		}
+		savedFetches += rewritten.size();
+		return added;
+	}
+
+	@Override
+	public URL canonicalize(URL url) {
+		return frontier.canonicalize(canonicalizer.canonicalize(url));
+	}
+
+	@Override
+	public void markSeen(URL url) {
+		frontier.markSeen(canonicalizer.canonicalize(url));
+	}
+
+	@Override
+	public URL poll() {
+		return frontier.poll();
+	}
+
+	@Override
+	public void done(URL url) {
+		frontier.done(url);
+	}
+
+	@Override
+	public long delayMillis() {
+		return frontier.delayMillis();
+	}
+
+	@Override
+	public int size() {
+		return frontier.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return frontier.isEmpty();
+	}
+
+	@Override
+	public long getDedupHits() {
+		return frontier.getDedupHits();
+	}
+
+	@Override
+	public long getNumQueued() {
+		return frontier.getNumQueued();
+	}
+	
+	/**
+	 * Returns how many URLs were changed by the canonicalizer.
+	 * 
+	 * @return number of URLs rewritten
+	 */
+	public long getRewrites() {
+		return rewrites;
+	}
+	
+	/**
+	 * Returns how many pages would have been fetched again under a different
+	 * spelling without canonicalization: one for each distinct spelling.
+	 * 
+	 * @return number of fetches saved
+	 */
+	public long getSavedFetches() {
+		return savedFetches;
+	}
+}
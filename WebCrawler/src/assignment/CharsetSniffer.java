@@ -0,0 +1,184 @@
+package assignment;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+
+/**
+ * Works out the character encoding of a page from, in order of precedence,
+ * a byte order mark, the charset parameter of its Content-Type header, and
+ * a meta charset or http-equiv tag near the start of the document. This is
+ * a simplified version of the HTML5 encoding sniffing algorithm that does
+ * not copy the page.
+ */
+public class CharsetSniffer {
+	/** Number of bytes searched for a meta tag, as in the HTML5 prescan. */
+	public static final int PRESCAN_BYTES = 1024;
+	
+	private CharsetSniffer() {
+	}
+	
+	/**
+	 * Returns the declared encoding of a page.
+	 * 
+	 * @param body - the raw bytes of the page, from position to limit
+	 * @param contentType - value of the Content-Type header, or null
+	 * @return the encoding, or null if the page does not declare one
+	 */
+	public static Charset detect(ByteBuffer body, String contentType) {
+		Charset charset = fromByteOrderMark(body);
+		if (charset == null)
+			charset = fromContentType(contentType);
+		if (charset == null)
+			charset = fromMeta(body);
+		return charset;
+	}
+	
+	/**
+	 * Returns the encoding given by a byte order mark at the start of a page.
+	 * 
+	 * @param body - the raw bytes of the page, from position to limit
+	 * @return the encoding, or null if there is no byte order mark
+	 */
+	public static Charset fromByteOrderMark(ByteBuffer body) {
+		int p = body.position();
+		int length = body.remaining();
+		if (length >= 3 && (body.get(p) & 0xff) == 0xef && (body.get(p + 1) & 0xff) == 0xbb
+				&& (body.get(p + 2) & 0xff) == 0xbf)
+			return StandardCharsets.UTF_8;
+		if (length >= 2 && (body.get(p) & 0xff) == 0xfe && (body.get(p + 1) & 0xff) == 0xff)
+			return StandardCharsets.UTF_16BE;
+		if (length >= 2 && (body.get(p) & 0xff) == 0xff && (body.get(p + 1) & 0xff) == 0xfe)
+			return StandardCharsets.UTF_16LE;
+		return null;
+	}
+	
+	/**
+	 * Returns the encoding named by the charset parameter of a Content-Type
+	 * header, such as "text/html; charset=ISO-8859-1".
+	 * 
+	 * @param contentType - value of the header, or null
+	 * @return the encoding, or null if none is named or it is not supported
+	 */
+	public static Charset fromContentType(String contentType) {
+		if (contentType == null)
+			return null;
+		
+		int start = contentType.toLowerCase().indexOf("charset=");
+		if (start == -1)
+			return null;
+		start += "charset=".length();
+		
+		int end = contentType.indexOf(';', start);
+		String name = contentType.substring(start, end == -1 ? contentType.length() : end).trim();
+		if (name.length() >= 2 && (name.charAt(0) == '"' || name.charAt(0) == '\''))
+			name = name.substring(1, name.length() - 1);
+		return forName(name);
+	}
+	
+	/**
+	 * Returns the encoding declared by a meta tag within the first
+	 * PRESCAN_BYTES bytes of a page, either as &lt;meta charset="..."&gt; or as
+	 * &lt;meta http-equiv="Content-Type" content="text/html; charset=..."&gt;.
+	 * 
+	 * @param body - the raw bytes of the page, from position to limit
+	 * @return the encoding, or null if none is declared or it is not supported
+	 */
+	public static Charset fromMeta(ByteBuffer body) {
+		int limit = body.position() + Math.min(body.remaining(), PRESCAN_BYTES);
+		int i = body.position();
+		
+		while ((i = indexOf(body, i, limit, "<meta")) != -1) {
+			i += "<meta".length();
+			int end = indexOf(body, i, limit, ">");
+			if (end == -1)
+				end = limit;
+			
+			int charset = indexOf(body, i, end, "charset");
+			if (charset != -1) {
+				// skip "=", spaces and an opening quote
+				int start = charset + "charset".length();
+				while (start < end && (body.get(start) == '=' || body.get(start) == ' '
+						|| body.get(start) == '"' || body.get(start) == '\''))
+					start++;
+				int stop = start;
+				while (stop < end && body.get(stop) != '"' && body.get(stop) != '\''
+						&& body.get(stop) != ';' && body.get(stop) != ' ' && body.get(stop) != '/')
+					stop++;
+				
+				StringBuilder name = new StringBuilder(stop - start);
+				for (int j = start; j < stop; j++) {
+					name.append((char)(body.get(j) & 0x7f));
+				}
+				Charset found = forName(name.toString());
+				if (found != null) {
+					// a page that can be read as ASCII cannot really be UTF-16
+					if (found.name().startsWith("UTF-16"))
+						return StandardCharsets.UTF_8;
+					return found;
+				}
+			}
+			i = end;
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns whether a page looks like binary data rather than text: one
+	 * of its first PRESCAN_BYTES bytes is a control character that never
+	 * appears in text, as in the HTML5 MIME sniffing algorithm. Decoding
+	 * such a page as text only fills the index with garbage words.
+	 * 
+	 * @param body - the raw bytes of the page, from position to limit
+	 * @return true if the page is binary
+	 */
+	public static boolean looksBinary(ByteBuffer body) {
+		// UTF-16 text is full of zero bytes
+		if (fromByteOrderMark(body) != null)
+			return false;
+		
+		int limit = body.position() + Math.min(body.remaining(), PRESCAN_BYTES);
+		for (int i = body.position(); i < limit; i++) {
+			int b = body.get(i) & 0xff;
+			if (b <= 0x08 || b == 0x0b || (b >= 0x0e && b <= 0x1a) || (b >= 0x1c && b <= 0x1f))
+				return true;
+		}
+		return false;
+	}
+	
+	private static Charset forName(String name) {
+		try {
+			return name.isEmpty() ? null : Charset.forName(name);
+		} catch (IllegalCharsetNameException e) {
+			return null;
+		} catch (UnsupportedCharsetException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Finds an ASCII string in a range of bytes, ignoring case.
+	 * 
+	 * @param data - the bytes
+	 * @param from - first index searched
+	 * @param to - end of the range searched, exclusive
+	 * @param lowercase - the string, in lowercase
+	 * @return index of the first match, or -1
+	 */
+	private static int indexOf(ByteBuffer data, int from, int to, String lowercase) {
+		outer:
+		for (int i = from; i + lowercase.length() <= to; i++) {
+			for (int j = 0; j < lowercase.length(); j++) {
+				int b = data.get(i + j);
+				if (b >= 'A' && b <= 'Z')
+					b += 'a' - 'A';
+				if (b != lowercase.charAt(j))
+					continue outer;
+			}
+			return i;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,192 @@
+package assignment;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Periodically saves the state of a crawl to a directory, so that a crawl
+ * that was interrupted can be resumed instead of restarted.
+ * 
+ * The directory holds an append-only journal and a series of index
+ * segments. Each checkpoint appends the URLs queued and crawled since the
+ * previous checkpoint to the journal, writes the pages indexed since then
+ * as a new segment, and finally appends a commit line. Writing a checkpoint
+ * therefore costs time proportional to what changed, not to the size of
+ * the crawl. Anything after the last commit line is ignored when resuming.
+ * 
+ * Journal lines are "Q url" for a URL added to the frontier, "D url" for a
+ * URL handed to a worker, "S file" for an index segment and "C" for a commit.
+ */
+public class Checkpointer {
+	private static final String JOURNAL = "journal.log";
+	
+	private Path dir;
+	private ArrayList<String> lines;
+	private int numSegments;
+	
+	/**
+	 * @param dir - directory to store checkpoints in, created if missing
+	 * @throws IOException if the directory cannot be created
+	 */
+	public Checkpointer(Path dir) throws IOException {
+		this.dir = dir;
+		Files.createDirectories(dir);
+		lines = new ArrayList<String>();
+	}
+	
+	/**
+	 * Records that a URL was added to the frontier.
+	 */
+	public void queued(URL url) {
+		lines.add("Q " + url);
+	}
+	
+	/**
+	 * Records that a URL was removed from the frontier to be crawled.
+	 */
+	public void done(URL url) {
+		lines.add("D " + url);
+	}
+	
+	/**
+	 * Writes a checkpoint. No page may be in the middle of being parsed,
+	 * since the checkpoint must not contain half of a page.
+	 * 
+	 * @param index - the index being built, with change tracking enabled
+	 * @throws IOException if the checkpoint could not be written
+	 */
+	public void checkpoint(WebIndex index) throws IOException {
+		WebIndex delta = index.drainChanges();
+		if (!delta.getURLList().isEmpty() || !delta.getAliases().isEmpty()) {
+			String segment = String.format("segment-%05d.db", numSegments + 1);
+			Path segmentPath = dir.resolve(segment);
+			delta.save(segmentPath.toString());
+			force(segmentPath);
+			
+			numSegments++;
+			lines.add("S " + segment);
+		}
+		lines.add("C");
+		
+		Path journal = dir.resolve(JOURNAL);
+		try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			Writer out = new BufferedWriter(new OutputStreamWriter(
+					Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+			for (String line : lines) {
+				out.write(line);
+				out.write('\n');
+			}
+			out.flush();
+			channel.force(true);
+		}
+		lines.clear();
+	}
+	
+	/**
+	 * Restores the state saved by the last complete checkpoint, if any.
+	 * Pages that were queued but not crawled go back into the frontier,
+	 * crawled pages are marked as seen and visited, and the saved index
+	 * segments are merged into the index.
+	 * 
+	 * @param index - an empty index to restore the pages into
+	 * @param frontier - an empty frontier
+	 * @param visitedPages - an empty set of visited pages
+	 * @return true if a checkpoint was found
+	 * @throws IOException if the checkpoint could not be read
+	 */
+	public boolean restore(WebIndex index, Frontier frontier, SeenSet visitedPages) 
+			throws IOException {
+		Path journal = dir.resolve(JOURNAL);
+		if (!Files.exists(journal))
+			return false;
+		
+		// first pass: find the last commit and the pages crawled before it
+		HeapFingerprintSet crawled = new HeapFingerprintSet();
+		ArrayList<String> crawledSinceCommit = new ArrayList<String>();
+		ArrayList<String> segments = new ArrayList<String>();
+		ArrayList<String> segmentsSinceCommit = new ArrayList<String>();
+		long committedBytes = 0;
+		long bytes = 0;
+		
+		try (BufferedReader in = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				bytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+				
+				if (line.startsWith("D ")) {
+					crawledSinceCommit.add(line.substring(2));
+				} else if (line.startsWith("S ")) {
+					segmentsSinceCommit.add(line.substring(2));
+				} else if (line.equals("C")) {
+					for (String url : crawledSinceCommit) {
+						crawled.add(url);
+					}
+					segments.addAll(segmentsSinceCommit);
+					crawledSinceCommit.clear();
+					segmentsSinceCommit.clear();
+					committedBytes = bytes;
+				}
+			}
+		}
+		
+		// second pass: rebuild the frontier from the committed part
+		long read = 0;
+		try (BufferedReader in = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+			String line;
+			while (read < committedBytes && (line = in.readLine()) != null) {
+				read += line.getBytes(StandardCharsets.UTF_8).length + 1;
+				
+				if (line.startsWith("Q ")) {
+					// older journals hold seeds as they were typed
+					URL url = frontier.canonicalize(new URL(line.substring(2)));
+					if (crawled.contains(url.toString())) {
+						frontier.markSeen(url);
+					} else {
+						frontier.add(url);
+					}
+				} else if (line.startsWith("D ")) {
+					visitedPages.add(line.substring(2));
+				}
+			}
+		}
+		
+		for (String segment : segments) {
+			try {
+				WebIndex delta = (WebIndex)Index.load(dir.resolve(segment).toUri().toURL());
+				index.merge(delta);
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Corrupt index segment: " + segment, e);
+			}
+		}
+		
+		// drop anything written after the last commit
+		try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+			channel.truncate(committedBytes);
+		}
+		numSegments = segments.size();
+		lines.clear();
+		return true;
+	}
+	
+	/**
+	 * Forces a file to disk, so that the journal never commits a segment
+	 * that could still be lost.
+	 */
+	private static void force(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+	}
+}
@@ -0,0 +1,256 @@
+package assignment;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetcher that stops fetching from a host after a number of failed or
+ * slow fetches in a row, so one broken host cannot tie up the workers of
+ * a crawl. While a host's circuit is open its pages fail at once without
+ * a request being made. After a cool-down a single trial fetch is let
+ * through: if it succeeds the host is fetched from again, otherwise the
+ * circuit stays open for another cool-down.
+ *
+ * A frontier given the breaker with DedupFrontier.setCircuitBreaker asks
+ * admit before handing out a URL, and puts the URLs of a host whose
+ * circuit is open aside until the cool-down ends, so they are crawled late
+ * instead of failing. Fetches admitted that way are let through even if
+ * the circuit opens before they start. The admission belongs to the
+ * admitted page alone, and is given back with release if the page turns
+ * out not to be fetched.
+ *
+ * Missing pages (404 and 410) are answers from a working host and do not
+ * count as failures. Local URLs without a host, such as file: URLs, are
+ * never stopped. Safe for concurrent use.
+ */
+public class CircuitBreakerFetcher implements Fetcher {
+	public static final int DEFAULT_MAX_FAILURES = 5;
+	public static final Duration DEFAULT_SLOW = Duration.ofSeconds(10);
+	public static final Duration DEFAULT_COOL_DOWN = Duration.ofSeconds(60);
+
+	private final Fetcher fetcher;
+	private final int maxFailures;
+	private final long slowNanos;
+	private final long coolDownNanos;
+
+	private final ConcurrentHashMap<String, Circuit> circuits = new ConcurrentHashMap<String, Circuit>();
+	private final AtomicLong trips = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * @param fetcher - the fetcher that downloads the pages
+	 * @param maxFailures - failed or slow fetches in a row that open a host's circuit
+	 * @param slow - fetches taking longer than this count as failures
+	 * @param coolDown - how long an open circuit rejects fetches before a trial
+	 */
+	public CircuitBreakerFetcher(Fetcher fetcher, int maxFailures, Duration slow, Duration coolDown) {
+		if (maxFailures < 1)
+			throw new IllegalArgumentException("Invalid number of failures: " + maxFailures);
+
+		this.fetcher = fetcher;
+		this.maxFailures = maxFailures;
+		slowNanos = slow.toNanos();
+		coolDownNanos = coolDown.toNanos();
+	}
+
+	/**
+	 * Asks whether a page may be fetched now. If it may, its fetch is let
+	 * through even if the circuit opens in the meantime, and if the
+	 * circuit's cool-down has ended it is the trial.
+	 *
+	 * @param url - the page about to be handed out
+	 * @return 0 if the page may be fetched now, otherwise the number of
+	 * 		   milliseconds until its host may be tried again
+	 */
+	public long admit(URL url) {
+		if (isLocal(url))
+			return 0;
+		long wait = circuit(url.getHost()).admit(url.toString(), System.nanoTime());
+		if (wait > 0)
+			rejected.incrementAndGet();
+		return (wait + 999999) / 1000000;
+	}
+
+	/**
+	 * Gives back the admission of a page, if it was not used by a fetch.
+	 * Called once the page is done, so a page admitted but then skipped,
+	 * for instance because robots.txt disallows it, does not keep its
+	 * admission.
+	 *
+	 * @param url - a page passed to admit
+	 */
+	public void release(URL url) {
+		if (isLocal(url))
+			return;
+		Circuit circuit = circuits.get(url.getHost());
+		if (circuit != null)
+			circuit.release(url.toString());
+	}
+
+	@Override
+	public FetchResult fetch(URL url, PageState previous) throws IOException {
+		if (isLocal(url))
+			return fetcher.fetch(url, previous);
+
+		Circuit circuit = circuit(url.getHost());
+		if (!circuit.allow(url.toString(), System.nanoTime())) {
+			rejected.incrementAndGet();
+			throw new IOException("Circuit open for host " + url.getHost() + ", skipped " + url);
+		}
+
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			FetchResult page = fetcher.fetch(url, previous);
+			failed = false;
+			return page;
+		} catch (FileNotFoundException e) {
+			failed = false;
+			throw e;
+		} finally {
+			long end = System.nanoTime();
+			if (failed || end - start > slowNanos) {
+				if (circuit.failure(end))
+					trips.incrementAndGet();
+			} else {
+				circuit.success();
+			}
+		}
+	}
+
+	private static boolean isLocal(URL url) {
+		return url.getHost() == null || url.getHost().isEmpty();
+	}
+
+	private Circuit circuit(String host) {
+		Circuit circuit = circuits.get(host);
+		if (circuit == null) {
+			circuit = new Circuit();
+			Circuit previous = circuits.putIfAbsent(host, circuit);
+			if (previous != null)
+				circuit = previous;
+		}
+		return circuit;
+	}
+
+	/**
+	 * Returns whether fetches from a host are currently rejected.
+	 *
+	 * @param host - the host name
+	 * @return true if the host's circuit is open
+	 */
+	public boolean isOpen(String host) {
+		Circuit circuit = circuits.get(host);
+		return circuit != null && circuit.isOpen();
+	}
+
+	/**
+	 * Returns how many times a circuit was opened.
+	 *
+	 * @return number of trips
+	 */
+	public long getTrips() {
+		return trips.get();
+	}
+
+	/**
+	 * Returns how many fetches were rejected or deferred by open circuits.
+	 *
+	 * @return number of pages skipped or put off
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	/**
+	 * The state of one host.
+	 */
+	private class Circuit {
+		private int failures;
+		private long openUntil;
+		private boolean open;
+		private boolean trial;
+		private long trialStart;
+
+		// pages admitted whose fetch has not started yet
+		private final HashSet<String> admitted = new HashSet<String>();
+
+		synchronized long admit(String url, long now) {
+			long wait = waitNanos(now);
+			if (wait == 0) {
+				start(now);
+				admitted.add(url);
+			}
+			return wait;
+		}
+
+		synchronized boolean allow(String url, long now) {
+			if (admitted.remove(url))
+				return true;
+			if (waitNanos(now) > 0)
+				return false;
+			start(now);
+			return true;
+		}
+
+		/**
+		 * Returns how long until a fetch may start. A trial that takes
+		 * longer than a slow fetch will count as a failure, so another
+		 * trial may start then.
+		 */
+		private long waitNanos(long now) {
+			if (!open)
+				return 0;
+			if (now - openUntil < 0)
+				return openUntil - now;
+			long trialEnd = trialStart + Math.min(slowNanos, coolDownNanos);
+			if (trial && now - trialEnd < 0)
+				return trialEnd - now;
+			return 0;
+		}
+
+		synchronized void release(String url) {
+			admitted.remove(url);
+		}
+
+		private void start(long now) {
+			if (open) {
+				trial = true;
+				trialStart = now;
+			}
+		}
+
+		synchronized void success() {
+			failures = 0;
+			open = false;
+			trial = false;
+		}
+
+		/**
+		 * Counts a failure, returning true if it opened the circuit.
+		 */
+		synchronized boolean failure(long now) {
+			failures++;
+			if (trial) {
+				trial = false;
+				openUntil = now + coolDownNanos;
+				return false;
+			}
+			if (!open && failures >= maxFailures) {
+				open = true;
+				openUntil = now + coolDownNanos;
+				return true;
+			}
+			return false;
+		}
+
+		synchronized boolean isOpen() {
+			return open;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package assignment;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hard limits on how much a crawl may do: how deep it may follow links
+ * from the seeds, how many pages it may crawl in total and per host, and
+ * how many bytes it may download. Every limit starts out unlimited.
+ *
+ * The limits are enforced by a BudgetedFrontier, which stops handing out
+ * URLs once a limit is reached. Pages already being crawled at that point
+ * are finished, so the byte limit may be overshot by a few pages.
+ */
+public class CrawlBudget {
+	private int maxDepth = Integer.MAX_VALUE;
+	private long maxPages = Long.MAX_VALUE;
+	private int maxPagesPerHost = Integer.MAX_VALUE;
+	private long maxBytes = Long.MAX_VALUE;
+
+	// added to by every crawler thread without holding the frontier's lock
+	private final AtomicLong bytes = new AtomicLong();
+
+	/**
+	 * @param maxDepth - number of links that may be followed from a seed,
+	 * 					 where 0 crawls only the seeds
+	 */
+	public void setMaxDepth(int maxDepth) {
+		if (maxDepth < 0)
+			throw new IllegalArgumentException("Invalid maximum depth: " + maxDepth);
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * @param maxPages - number of pages that may be crawled
+	 */
+	public void setMaxPages(long maxPages) {
+		if (maxPages < 0)
+			throw new IllegalArgumentException("Invalid maximum number of pages: " + maxPages);
+		this.maxPages = maxPages;
+	}
+
+	/**
+	 * @param maxPagesPerHost - number of pages of one host that may be crawled
+	 */
+	public void setMaxPagesPerHost(int maxPagesPerHost) {
+		if (maxPagesPerHost < 0)
+			throw new IllegalArgumentException("Invalid maximum pages per host: " + maxPagesPerHost);
+		this.maxPagesPerHost = maxPagesPerHost;
+	}
+
+	/**
+	 * @param maxBytes - number of bytes of page content that may be downloaded
+	 */
+	public void setMaxBytes(long maxBytes) {
+		if (maxBytes < 0)
+			throw new IllegalArgumentException("Invalid maximum number of bytes: " + maxBytes);
+		this.maxBytes = maxBytes;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public long getMaxPages() {
+		return maxPages;
+	}
+
+	public int getMaxPagesPerHost() {
+		return maxPagesPerHost;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Records that a page has been downloaded. Safe to call from any thread.
+	 *
+	 * @param numBytes - size of the page content
+	 */
+	public void addBytes(long numBytes) {
+		bytes.addAndGet(numBytes);
+	}
+
+	/**
+	 * Returns how many bytes of page content have been downloaded so far.
+	 *
+	 * @return number of bytes downloaded
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+}
@@ -0,0 +1,117 @@
+package assignment;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events emitted by a crawl, so its progress can be
+ * lined up with GC pauses and CPU use in the same recording. The events
+ * cost next to nothing unless a recording has them enabled, for example:
+ *
+ *     java -XX:StartFlightRecording=filename=crawl.jfr assignment.WebCrawler ...
+ */
+final class CrawlEvents {
+
+	private CrawlEvents() {
+	}
+
+	@Name("webcrawler.Fetch")
+	@Label("Page Fetch")
+	@Category("WebCrawler")
+	@StackTrace(false)
+	static class Fetch extends Event {
+		@Label("URL")
+		String url;
+
+		@Label("Host")
+		String host;
+
+		@Label("Size")
+		@DataAmount
+		long bytes;
+	}
+
+	@Name("webcrawler.Parse")
+	@Label("Page Parse")
+	@Category("WebCrawler")
+	@StackTrace(false)
+	static class Parse extends Event {
+		@Label("URL")
+		String url;
+
+		@Label("Words")
+		int words;
+
+		@Label("Links")
+		int links;
+	}
+
+	@Name("webcrawler.Index")
+	@Label("Page Index")
+	@Category("WebCrawler")
+	@StackTrace(false)
+	static class Index extends Event {
+		@Label("URL")
+		String url;
+
+		@Label("Words")
+		int words;
+	}
+
+	@Name("webcrawler.Progress")
+	@Label("Crawl Progress")
+	@Category("WebCrawler")
+	@Description("Totals of the running crawl, taken periodically")
+	@Period("1 s")
+	@StackTrace(false)
+	static class Progress extends Event {
+		@Label("Pages")
+		long pages;
+
+		@Label("Downloaded")
+		@DataAmount
+		long bytes;
+
+		@Label("Pages per Second")
+		double pagesPerSecond;
+
+		@Label("Bytes per Second")
+		@DataAmount(DataAmount.BYTES)
+		double bytesPerSecond;
+
+		@Label("Frontier Size")
+		int frontierSize;
+
+		@Label("Dedup Hits")
+		long dedupHits;
+
+		@Label("Concurrency")
+		@Description("Pages worked on at once, 0 if the thread count is fixed")
+		int concurrency;
+	}
+
+	@Name("webcrawler.Concurrency")
+	@Label("Concurrency Change")
+	@Category("WebCrawler")
+	@Description("The adaptive concurrency limit was raised or lowered")
+	@StackTrace(false)
+	static class Concurrency extends Event {
+		@Label("Old Limit")
+		int oldLimit;
+
+		@Label("New Limit")
+		int newLimit;
+
+		@Label("Window Latency (ms)")
+		double latencyMillis;
+
+		@Label("Pages per Second")
+		double pagesPerSecond;
+	}
+}
@@ -0,0 +1,291 @@
+package assignment;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live metrics of a crawl: pages and bytes downloaded, and latency
+ * histograms of fetching, parsing and indexing pages, both overall and
+ * per host. Shared by every crawler thread of a crawl.
+ *
+ * Safe for concurrent use.
+ */
+public class CrawlMetrics {
+
+	/**
+	 * The steps every page goes through.
+	 */
+	public enum Phase {
+		FETCH, PARSE, INDEX
+	}
+
+	private final long startNanos = System.nanoTime();
+	private final AtomicLong pages = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final LatencyHistogram[] phases = newHistograms();
+	private final ConcurrentHashMap<String, HostMetrics> hosts =
+			new ConcurrentHashMap<String, HostMetrics>();
+
+	// limit on pages worked on at once, or null if the thread count is fixed
+	private volatile AdaptiveConcurrency concurrency;
+
+	// totals at the last progress line, to report the rates since then
+	private long lastNanos = startNanos;
+	private long lastPages;
+	private long lastBytes;
+
+	/**
+	 * Records that a page was downloaded, or failed to be.
+	 *
+	 * @param url - the page
+	 * @param startNanos - value of System.nanoTime() when the download started
+	 * @param numBytes - size of the page content, 0 if there was none
+	 */
+	public void recordFetch(URL url, long startNanos, long numBytes) {
+		pages.incrementAndGet();
+		bytes.addAndGet(numBytes);
+
+		HostMetrics host = host(url);
+		host.pages.incrementAndGet();
+		host.bytes.addAndGet(numBytes);
+		record(Phase.FETCH, host, startNanos);
+	}
+
+	/**
+	 * Records that a page was parsed or indexed.
+	 *
+	 * @param phase - PARSE or INDEX
+	 * @param url - the page
+	 * @param startNanos - value of System.nanoTime() when the phase started
+	 */
+	public void record(Phase phase, URL url, long startNanos) {
+		record(phase, host(url), startNanos);
+	}
+
+	private void record(Phase phase, HostMetrics host, long startNanos) {
+		long nanos = System.nanoTime() - startNanos;
+		phases[phase.ordinal()].record(nanos);
+		host.phases[phase.ordinal()].record(nanos);
+	}
+
+	private HostMetrics host(URL url) {
+		String name = url.getHost();
+		HostMetrics host = hosts.get(name);
+		if (host == null) {
+			host = new HostMetrics();
+			HostMetrics previous = hosts.putIfAbsent(name, host);
+			if (previous != null)
+				host = previous;
+		}
+		return host;
+	}
+
+	/**
+	 * Makes the metrics report the limit of an adaptive crawl.
+	 *
+	 * @param concurrency - the crawl's limit, or null if the thread count is fixed
+	 */
+	public void setConcurrency(AdaptiveConcurrency concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public long getPages() {
+		return pages.get();
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	public double getElapsedSeconds() {
+		return (System.nanoTime() - startNanos) / 1e9;
+	}
+
+	/**
+	 * Returns the latencies of one phase over all hosts.
+	 *
+	 * @param phase - the phase
+	 * @return its histogram
+	 */
+	public LatencyHistogram getLatencies(Phase phase) {
+		return phases[phase.ordinal()];
+	}
+
+	/**
+	 * Returns the latencies of one phase for the pages of one host.
+	 *
+	 * @param host - the host name, empty for file: URLs
+	 * @param phase - the phase
+	 * @return its histogram, or null if no page of the host was crawled
+	 */
+	public LatencyHistogram getLatencies(String host, Phase phase) {
+		HostMetrics metrics = hosts.get(host);
+		return metrics == null ? null : metrics.phases[phase.ordinal()];
+	}
+
+	/**
+	 * Returns a line describing the progress of the crawl, with the rates
+	 * since the previous call.
+	 *
+	 * @param frontierSize - number of URLs waiting to be crawled
+	 * @param dedupHits - number of duplicate URLs dropped by the frontier
+	 * @return a one-line summary
+	 */
+	public synchronized String progressLine(int frontierSize, long dedupHits) {
+		long now = System.nanoTime();
+		long totalPages = pages.get();
+		long totalBytes = bytes.get();
+		double seconds = Math.max(now - lastNanos, 1) / 1e9;
+
+		String line = String.format(Locale.ROOT,
+				"[%6.1f s] %d pages, %.1f pages/s, %.1f KB/s, frontier %d, %d duplicates, "
+				+ "fetch p50 %.1f ms p99 %.1f ms",
+				getElapsedSeconds(), totalPages, (totalPages - lastPages) / seconds,
+				(totalBytes - lastBytes) / 1024.0 / seconds, frontierSize, dedupHits,
+				getLatencies(Phase.FETCH).getPercentileMillis(50),
+				getLatencies(Phase.FETCH).getPercentileMillis(99));
+
+		AdaptiveConcurrency limit = concurrency;
+		if (limit != null)
+			line += ", " + limit;
+
+		lastNanos = now;
+		lastPages = totalPages;
+		lastBytes = totalBytes;
+		return line;
+	}
+
+	/**
+	 * Fills in a progress event with the totals of the crawl so far.
+	 */
+	void fill(CrawlEvents.Progress event, int frontierSize, long dedupHits) {
+		double seconds = Math.max(getElapsedSeconds(), 1e-9);
+		event.pages = pages.get();
+		event.bytes = bytes.get();
+		event.pagesPerSecond = event.pages / seconds;
+		event.bytesPerSecond = event.bytes / seconds;
+		event.frontierSize = frontierSize;
+		event.dedupHits = dedupHits;
+		AdaptiveConcurrency limit = concurrency;
+		event.concurrency = limit == null ? 0 : limit.getLimit();
+	}
+
+	/**
+	 * Writes all metrics as JSON, so that runs can be compared by scripts.
+	 *
+	 * @param file - where to write the metrics
+	 * @param frontierSize - number of URLs left in the frontier
+	 * @param dedupHits - number of duplicate URLs dropped by the frontier
+	 * @throws IOException if the file could not be written
+	 */
+	public void save(Path file, int frontierSize, long dedupHits) throws IOException {
+		double seconds = Math.max(getElapsedSeconds(), 1e-9);
+		try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			out.write("{\n");
+			out.write(String.format(Locale.ROOT, "  \"elapsedSeconds\": %.3f,\n", seconds));
+			out.write("  \"pages\": " + pages.get() + ",\n");
+			out.write("  \"bytes\": " + bytes.get() + ",\n");
+			out.write(String.format(Locale.ROOT, "  \"pagesPerSecond\": %.3f,\n", pages.get() / seconds));
+			out.write(String.format(Locale.ROOT, "  \"bytesPerSecond\": %.1f,\n", bytes.get() / seconds));
+			out.write("  \"frontierSize\": " + frontierSize + ",\n");
+			out.write("  \"dedupHits\": " + dedupHits + ",\n");
+			AdaptiveConcurrency limit = concurrency;
+			if (limit != null) {
+				out.write("  \"concurrency\": {\"limit\": " + limit.getLimit() + ", \"max\": "
+						+ limit.getMaxLimit() + ", \"increases\": " + limit.getIncreases()
+						+ ", \"decreases\": " + limit.getDecreases() + "},\n");
+			}
+			out.write("  \"latencies\": ");
+			writeLatencies(out, phases, "  ");
+			out.write(",\n  \"hosts\": {");
+
+			List<String> names = new ArrayList<String>(hosts.keySet());
+			Collections.sort(names);
+			for (int i = 0; i < names.size(); i++) {
+				HostMetrics host = hosts.get(names.get(i));
+				out.write(i == 0 ? "\n" : ",\n");
+				out.write("    " + quote(names.get(i)) + ": {\"pages\": " + host.pages.get()
+						+ ", \"bytes\": " + host.bytes.get() + ", \"latencies\": ");
+				writeLatencies(out, host.phases, "    ");
+				out.write("}");
+			}
+			out.write(names.isEmpty() ? "}\n}\n" : "\n  }\n}\n");
+		}
+	}
+
+	private static void writeLatencies(BufferedWriter out, LatencyHistogram[] histograms,
+			String indent) throws IOException {
+		out.write("{");
+		for (Phase phase : Phase.values()) {
+			LatencyHistogram histogram = histograms[phase.ordinal()];
+			out.write(phase.ordinal() == 0 ? "\n" : ",\n");
+			out.write(String.format(Locale.ROOT,
+					"%s  \"%s\": {\"count\": %d, \"meanMs\": %.3f, \"p50Ms\": %.3f, "
+					+ "\"p90Ms\": %.3f, \"p99Ms\": %.3f, \"maxMs\": %.3f}",
+					indent, phase.name().toLowerCase(Locale.ROOT), histogram.getCount(),
+					histogram.getMeanMillis(), histogram.getPercentileMillis(50),
+					histogram.getPercentileMillis(90), histogram.getPercentileMillis(99),
+					histogram.getMaxMillis()));
+		}
+		out.write("\n" + indent + "}");
+	}
+
+	/**
+	 * Quotes a string for JSON.
+	 */
+	private static String quote(String s) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\')
+				quoted.append('\\').append(c);
+			else if (c < ' ')
+				quoted.append(String.format("\\u%04x", (int)c));
+			else
+				quoted.append(c);
+		}
+		return quoted.append('"').toString();
+	}
+
+	private static LatencyHistogram[] newHistograms() {
+		LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new LatencyHistogram();
+		}
+		return histograms;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		for (Phase phase : Phase.values()) {
+			if (s.length() > 0)
+				s.append('\n');
+			s.append(String.format("%-6s", phase.name().toLowerCase(Locale.ROOT)))
+					.append(getLatencies(phase));
+		}
+		AdaptiveConcurrency limit = concurrency;
+		if (limit != null)
+			s.append('\n').append(limit);
+		return s.toString();
+	}
+
+	/**
+	 * Metrics of the pages of one host.
+	 */
+	private static class HostMetrics {
+		final AtomicLong pages = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+		final LatencyHistogram[] phases = newHistograms();
+	}
+}
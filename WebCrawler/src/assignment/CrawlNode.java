@@ -0,0 +1,482 @@
+package assignment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One node of a crawl spread over several processes. Every node owns the
+ * hosts whose name hashes to its number, crawls only those into a WebIndex
+ * shard of its own, and sends the links it finds to other hosts to their
+ * owners over a socket, in batches. The shards can be merged afterwards.
+ *
+ * Node 0 also detects the end of the crawl: it repeatedly asks every node
+ * whether it is idle and how many URLs it has sent and received, and stops
+ * all nodes once two rounds in a row find every node idle with as many
+ * URLs received as sent, so that no batch can still be on its way.
+ */
+public class CrawlNode implements Closeable {
+	private static final byte LINKS = 1;
+	private static final byte STATUS_REQUEST = 2;
+	private static final byte STATUS = 3;
+	private static final byte STOP = 4;
+
+	private static final long FLUSH_MILLIS = 20;
+	private static final long ROUND_MILLIS = 50;
+	private static final long CONNECT_TIMEOUT_MILLIS = 30000;
+
+	// writeUTF cannot send longer strings
+	private static final int MAX_URL_LENGTH = 16384;
+
+	private final int id;
+	private final List<InetSocketAddress> nodes;
+	private final ServerSocket server;
+	private final Peer[] peers;
+	private final List<Socket> sockets = new ArrayList<Socket>();
+	private ParallelCrawler crawler;
+
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong received = new AtomicLong();
+
+	// URLs handed to forward but not yet sent
+	private final AtomicLong pending = new AtomicLong();
+	private volatile boolean stopped;
+
+	// replies to the current round of status requests, used by node 0 and guarded by this
+	private int round;
+	private int replies;
+	private boolean allIdle;
+	private long totalSent;
+	private long totalReceived;
+
+	/**
+	 * Starts listening for the other nodes.
+	 *
+	 * @param id - number of this node, an index into nodes
+	 * @param nodes - addresses of all nodes, in the same order on every node
+	 * @throws IOException if this node's address cannot be bound
+	 */
+	public CrawlNode(int id, List<InetSocketAddress> nodes) throws IOException {
+		if (id < 0 || id >= nodes.size())
+			throw new IllegalArgumentException("Invalid node " + id + " of " + nodes.size());
+
+		this.id = id;
+		this.nodes = nodes;
+		peers = new Peer[nodes.size()];
+		server = new ServerSocket();
+		server.setReuseAddress(true);
+		server.bind(nodes.get(id));
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the node that owns a URL.
+	 *
+	 * @param url - the URL
+	 * @return number of the node that crawls it
+	 */
+	public int owner(URL url) {
+		return owner(url, nodes.size());
+	}
+
+	/**
+	 * Returns the node that owns a URL: the one its host hashes to. URLs
+	 * without a host, such as file: URLs, are spread by directory instead,
+	 * so a local mirror can be crawled by several nodes too.
+	 *
+	 * @param url - the URL
+	 * @param numNodes - number of nodes
+	 * @return number of the node that crawls the URL
+	 */
+	public static int owner(URL url, int numNodes) {
+		String key = url.getHost().toLowerCase();
+		if (key.isEmpty()) {
+			String path = url.getPath();
+			key = path.substring(0, path.lastIndexOf('/') + 1);
+		}
+		return Math.floorMod(key.hashCode(), numNodes);
+	}
+
+	/**
+	 * Wraps a frontier so that it only keeps the URLs owned by this node
+	 * and forwards the others.
+	 *
+	 * @param frontier - an empty frontier for the URLs of this node
+	 * @return the frontier to crawl with
+	 */
+	public PartitionedFrontier partition(Frontier frontier) {
+		return new PartitionedFrontier(frontier, this);
+	}
+
+	/**
+	 * Queues a URL to be sent to the node that owns it. Never blocks on
+	 * the network, so it is safe to call while holding the crawler's lock.
+	 *
+	 * @param owner - number of the owning node
+	 * @param url - the URL
+	 */
+	void forward(int owner, URL url) {
+		String urlString = url.toString();
+		if (urlString.length() > MAX_URL_LENGTH)
+			return;
+
+		pending.incrementAndGet();
+		peers[owner].add(urlString);
+	}
+
+	/**
+	 * Crawls this node's partition, starting from the given seeds, until
+	 * node 0 finds that every node is done. Every node may be given the same
+	 * seeds; each only crawls those it owns.
+	 *
+	 * @param crawler - a crawler whose frontier was made by partition
+	 * @param seeds - URLs the crawl starts from
+	 * @throws IOException if the other nodes cannot be reached
+	 * @throws InterruptedException if interrupted while crawling
+	 */
+	public void crawl(ParallelCrawler crawler, List<URL> seeds) throws IOException, InterruptedException {
+		this.crawler = crawler;
+		crawler.holdOpen();
+
+		// messages are only read once every peer is connected, so a reply
+		// always has a connection to go out on; until then the other nodes'
+		// connections wait in the server socket's backlog
+		connect();
+		start("accept-" + id, new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		});
+		start("flush-" + id, new Runnable() {
+			@Override
+			public void run() {
+				flushLoop();
+			}
+		});
+		if (id == 0) {
+			start("coordinate", new Runnable() {
+				@Override
+				public void run() {
+					coordinate();
+				}
+			});
+		}
+
+		crawler.crawl(seeds);
+	}
+
+	/**
+	 * Returns how many URLs this node sent to others.
+	 *
+	 * @return number of URLs sent
+	 */
+	public long getSent() {
+		return sent.get();
+	}
+
+	/**
+	 * Returns how many URLs this node received from others.
+	 *
+	 * @return number of URLs received
+	 */
+	public long getReceived() {
+		return received.get();
+	}
+
+	private static void start(String name, Runnable task) {
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Opens a connection to every other node, retrying while they start up.
+	 */
+	private void connect() throws IOException, InterruptedException {
+		long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+		for (int i = 0; i < nodes.size(); i++) {
+			if (i == id)
+				continue;
+
+			while (true) {
+				Socket socket = new Socket();
+				try {
+					socket.connect(nodes.get(i), 1000);
+					socket.setTcpNoDelay(true);
+					synchronized (sockets) {
+						sockets.add(socket);
+					}
+					peers[i] = new Peer(socket);
+					break;
+				} catch (IOException e) {
+					socket.close();
+					if (System.currentTimeMillis() > deadline)
+						throw new IOException("Cannot reach node " + i + " at " + nodes.get(i), e);
+					Thread.sleep(100);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Accepts the connections of the other nodes and reads each on its own thread.
+	 */
+	private void accept() {
+		try {
+			for (int i = 1; i < nodes.size(); i++) {
+				final Socket socket = server.accept();
+				synchronized (sockets) {
+					sockets.add(socket);
+				}
+				start("receive-" + id, new Runnable() {
+					@Override
+					public void run() {
+						receive(socket);
+					}
+				});
+			}
+		} catch (IOException e) {
+			if (!stopped)
+				System.out.println(e);
+		}
+	}
+
+	/**
+	 * Handles the messages from one other node until it disconnects.
+	 */
+	private void receive(Socket socket) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			while (true) {
+				byte type = in.readByte();
+				if (type == LINKS) {
+					int n = in.readInt();
+					List<URL> urls = new ArrayList<URL>(n);
+					for (int i = 0; i < n; i++) {
+						String url = in.readUTF();
+						try {
+							urls.add(new URL(url));
+						} catch (MalformedURLException e) {
+							System.out.println(e);
+						}
+					}
+					crawler.offer(urls);
+					received.addAndGet(n);
+				} else if (type == STATUS_REQUEST) {
+					int requested = in.readInt();
+					peers[0].sendStatus(requested, isIdle(), sent.get(), received.get());
+				} else if (type == STATUS) {
+					int reply = in.readInt();
+					boolean idle = in.readBoolean();
+					long s = in.readLong();
+					long r = in.readLong();
+					addStatus(reply, idle, s, r);
+				} else if (type == STOP) {
+					stop();
+				} else {
+					throw new IOException("Unknown message " + type);
+				}
+			}
+		} catch (EOFException e) {
+			// the other node is done
+		} catch (SocketException e) {
+			if (!stopped)
+				System.out.println(e);
+		} catch (IOException e) {
+			System.out.println(e);
+		} catch (RuntimeException e) {
+			System.out.println(e);
+		}
+	}
+
+	private boolean isIdle() {
+		return pending.get() == 0 && crawler.isIdle();
+	}
+
+	/**
+	 * Sends the batches of forwarded URLs until the crawl is stopped.
+	 */
+	private void flushLoop() {
+		try {
+			while (!stopped) {
+				for (Peer peer : peers) {
+					if (peer != null)
+						peer.flush();
+				}
+				Thread.sleep(FLUSH_MILLIS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			if (!stopped)
+				System.out.println(e);
+		}
+	}
+
+	/**
+	 * Runs rounds of status requests on node 0 until the crawl is done.
+	 */
+	private void coordinate() {
+		try {
+			boolean wasDone = false;
+			long previousSent = -1;
+			while (!stopped) {
+				Thread.sleep(ROUND_MILLIS);
+
+				synchronized (this) {
+					round++;
+					replies = 1;
+					allIdle = isIdle();
+					totalSent = sent.get();
+					totalReceived = received.get();
+				}
+				for (Peer peer : peers) {
+					if (peer != null)
+						peer.sendStatusRequest(round);
+				}
+
+				boolean done;
+				long roundSent;
+				synchronized (this) {
+					while (replies < nodes.size() && !stopped)
+						wait(1000);
+					done = allIdle && totalSent == totalReceived;
+					roundSent = totalSent;
+				}
+
+				// nothing may have been sent in between, or a node may have become busy again
+				if (done && wasDone && roundSent == previousSent) {
+					for (Peer peer : peers) {
+						if (peer != null)
+							peer.sendStop();
+					}
+					stop();
+					return;
+				}
+				wasDone = done;
+				previousSent = roundSent;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+	}
+
+	private synchronized void addStatus(int reply, boolean idle, long s, long r) {
+		if (reply != round)
+			return;
+		replies++;
+		allIdle &= idle;
+		totalSent += s;
+		totalReceived += r;
+		notifyAll();
+	}
+
+	private void stop() {
+		stopped = true;
+		synchronized (this) {
+			notifyAll();
+		}
+		crawler.release();
+	}
+
+	/**
+	 * Closes the connections to the other nodes. Called after crawl.
+	 */
+	@Override
+	public void close() throws IOException {
+		stopped = true;
+		server.close();
+		synchronized (sockets) {
+			for (Socket socket : sockets) {
+				socket.close();
+			}
+		}
+	}
+
+	/**
+	 * The connection to another node, with the URLs waiting to be sent to it.
+	 */
+	private class Peer {
+		private final DataOutputStream out;
+		private ArrayList<String> batch = new ArrayList<String>();
+
+		Peer(Socket socket) throws IOException {
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+		}
+
+		synchronized void add(String url) {
+			batch.add(url);
+		}
+
+		private synchronized ArrayList<String> takeBatch() {
+			ArrayList<String> urls = batch;
+			batch = new ArrayList<String>();
+			return urls;
+		}
+
+		/**
+		 * Sends the URLs queued so far, outside the lock taken by add.
+		 */
+		void flush() throws IOException {
+			ArrayList<String> urls = takeBatch();
+			if (urls.isEmpty())
+				return;
+
+			synchronized (out) {
+				out.writeByte(LINKS);
+				out.writeInt(urls.size());
+				for (String url : urls) {
+					out.writeUTF(url);
+				}
+				out.flush();
+			}
+			sent.addAndGet(urls.size());
+			pending.addAndGet(-urls.size());
+		}
+
+		void sendStatusRequest(int requested) throws IOException {
+			synchronized (out) {
+				out.writeByte(STATUS_REQUEST);
+				out.writeInt(requested);
+				out.flush();
+			}
+		}
+
+		void sendStatus(int requested, boolean idle, long s, long r) throws IOException {
+			synchronized (out) {
+				out.writeByte(STATUS);
+				out.writeInt(requested);
+				out.writeBoolean(idle);
+				out.writeLong(s);
+				out.writeLong(r);
+				out.flush();
+			}
+		}
+
+		void sendStop() throws IOException {
+			synchronized (out) {
+				out.writeByte(STOP);
+				out.flush();
+			}
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package assignment;
+
+import java.net.URL;
+import java.util.PriorityQueue;
+
+/**
+ * Base class for frontiers that reject URLs seen before at enqueue time.
+ * Subclasses only have to provide the queue itself.
+ * 
+ * Given a circuit breaker, the frontier puts aside the URLs of hosts whose
+ * circuit is open when they come up, and queues them again once the host
+ * may be tried, so they are crawled late rather than failing.
+ */
+public abstract class DedupFrontier implements Frontier {
+	private SeenSet seen;
+	private long dedupHits;
+	private long numQueued;
+	
+	private CircuitBreakerFetcher breaker;
+	
+	// URLs of hosts with an open circuit, ordered by when they may be queued again
+	private PriorityQueue<Deferred> deferred = new PriorityQueue<Deferred>();
+	private long numDeferred;
+	
+	public DedupFrontier() {
+		this(new HeapFingerprintSet());
+	}
+	
+	/**
+	 * @param seen - set used to remember every URL ever added
+	 */
+	public DedupFrontier(SeenSet seen) {
+		this.seen = seen;
+	}
+	
+	/**
+	 * Puts a URL that has not been seen before into the queue.
+	 * 
+	 * @param url - the new URL
+	 */
+	protected abstract void enqueue(URL url);
+	
+	/**
+	 * Removes the next URL from the queue.
+	 * 
+	 * @return the next URL, or null if the queue is empty
+	 */
+	protected abstract URL dequeue();
+	
+	/**
+	 * Puts a URL that was dequeued and then deferred back into the queue.
+	 * Frontiers that rank URLs override this to keep the URL's rank.
+	 * 
+	 * @param url - the deferred URL
+	 */
+	protected void requeue(URL url) {
+		enqueue(url);
+	}
+	
+	@Override
+	public boolean add(URL url) {
+		if (!seen.add(url.toString())) {
+			dedupHits++;
+			return false;
+		}
+		
+		numQueued++;
+		enqueue(url);
+		return true;
+	}
+	
+	@Override
+	public void markSeen(URL url) {
+		seen.add(url.toString());
+	}
+	
+	@Override
+	public URL poll() {
+		requeueDeferred();
+		URL url;
+		while ((url = dequeue()) != null) {
+			long wait = breaker == null ? 0 : breaker.admit(url);
+			if (wait == 0)
+				return url;
+			
+			// give back anything the queue reserved for the URL
+			done(url);
+			deferred.add(new Deferred(url, currentTimeNanos() + wait * 1000000));
+			numDeferred++;
+		}
+		return null;
+	}
+	
+	/**
+	 * Gives back the circuit breaker's admission of a URL that was handed
+	 * out but not fetched. Subclasses that override this must call it.
+	 */
+	@Override
+	public void done(URL url) {
+		if (breaker != null)
+			breaker.release(url);
+	}
+	
+	@Override
+	public long delayMillis() {
+		requeueDeferred();
+		long delay = queueDelayMillis();
+		if (!deferred.isEmpty()) {
+			long wait = deferred.peek().until - currentTimeNanos();
+			delay = Math.min(delay, Math.max(0, (wait + 999999) / 1000000));
+		}
+		return delay;
+	}
+	
+	/**
+	 * Returns how long until dequeue can return a URL, as delayMillis
+	 * would without deferred URLs.
+	 * 
+	 * @return 0 if dequeue will return a URL now, the number of milliseconds
+	 * 		   to wait otherwise, or Long.MAX_VALUE if the queue is empty or
+	 * 		   waits for a URL to be done
+	 */
+	protected long queueDelayMillis() {
+		return size() == 0 ? Long.MAX_VALUE : 0;
+	}
+	
+	/**
+	 * Returns whether no URL is queued or deferred.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size() == 0 && deferred.isEmpty();
+	}
+	
+	/**
+	 * Makes the frontier defer URLs whose host's circuit is open. The
+	 * breaker must be the one that fetches the pages handed out.
+	 * 
+	 * @param breaker - the circuit breaker, or null to hand out every URL
+	 */
+	public void setCircuitBreaker(CircuitBreakerFetcher breaker) {
+		this.breaker = breaker;
+	}
+	
+	/**
+	 * Returns how many times a URL was put aside because its host's
+	 * circuit was open.
+	 * 
+	 * @return number of URLs deferred
+	 */
+	public long getNumDeferred() {
+		return numDeferred;
+	}
+	
+	/**
+	 * Returns the current time. Tests override this to control the clock.
+	 * 
+	 * @return time in nanoseconds, from an arbitrary origin
+	 */
+	protected long currentTimeNanos() {
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Queues the deferred URLs whose host may be tried again.
+	 */
+	private void requeueDeferred() {
+		long now = currentTimeNanos();
+		while (!deferred.isEmpty() && deferred.peek().until - now <= 0) {
+			requeue(deferred.poll().url);
+		}
+	}
+	
+	@Override
+	public long getDedupHits() {
+		return dedupHits;
+	}
+	
+	@Override
+	public long getNumQueued() {
+		return numQueued;
+	}
+	
+	/**
+	 * Returns the set of every URL ever added to this frontier.
+	 * 
+	 * @return the seen-set used for deduplication
+	 */
+	public SeenSet getSeenSet() {
+		return seen;
+	}
+	
+	/**
+	 * A deferred URL and when it may be queued again.
+	 */
+	private static class Deferred implements Comparable<Deferred> {
+		final URL url;
+		final long until;
+		
+		Deferred(URL url, long until) {
+			this.url = url;
+			this.until = until;
+		}
+		
+		@Override
+		public int compareTo(Deferred other) {
+			return Long.compare(until - other.until, 0);
+		}
+	}
+	
+	/**
+	 * Creates a frontier from its name as given on the command line.
+	 * 
+	 * @param order - one of "bfs", "dfs", "priority", "inlinks" or "opic"
+	 * @param seen - an empty set used to remember every URL ever added
+	 * @return an empty frontier handing out URLs in that order
+	 */
+	public static DedupFrontier create(String order, SeenSet seen) {
+		switch (order.toLowerCase()) {
+		case "bfs": return new FifoFrontier(seen);
+		case "dfs": return new LifoFrontier(seen);
+		case "priority": return new PriorityFrontier(PriorityFrontier.SHALLOW_FIRST, seen);
+		case "inlinks": return new BestFirstFrontier(BestFirstFrontier.Scoring.IN_LINKS, seen);
+		case "opic": return new BestFirstFrontier(BestFirstFrontier.Scoring.OPIC, seen);
+		default: throw new IllegalArgumentException("Unknown crawl order: " + order);
+		}
+	}
+}
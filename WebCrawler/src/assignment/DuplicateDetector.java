@@ -0,0 +1,141 @@
+package assignment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Finds pages whose text is identical or nearly identical to a page that
+ * was already indexed, so that they can be recorded as aliases instead of
+ * being indexed again.
+ * 
+ * Exact duplicates are found by a hash of the page's words. Near duplicates
+ * are found by SimHash: each page gets a 64-bit fingerprint in which similar
+ * pages differ in only a few bits. The fingerprint is split into bands of 16
+ * bits, and two fingerprints within MAX_DISTANCE bits of each other must agree
+ * on at least one band, so only pages sharing a band have to be compared.
+ * 
+ * Safe for concurrent use.
+ */
+public class DuplicateDetector {
+	/** Largest number of differing SimHash bits for two pages to be near duplicates. */
+	public static final int MAX_DISTANCE = 3;
+	
+	/** Pages with fewer words are only checked for exact duplicates. */
+	public static final int MIN_WORDS = 20;
+	
+	private static final int BANDS = MAX_DISTANCE + 1;
+	private static final int BAND_BITS = 64 / BANDS;
+	
+	private HashMap<Long, String> exact;
+	private ArrayList<HashMap<Integer, ArrayList<Page>>> bands;
+	
+	private int exactDuplicates;
+	private int nearDuplicates;
+	
+	public DuplicateDetector() {
+		exact = new HashMap<Long, String>();
+		bands = new ArrayList<HashMap<Integer, ArrayList<Page>>>();
+		for (int i = 0; i < BANDS; i++) {
+			bands.add(new HashMap<Integer, ArrayList<Page>>());
+		}
+	}
+	
+	/**
+	 * Records a page, unless it duplicates a page recorded earlier.
+	 * 
+	 * @param url - URL of the page
+	 * @param contentHash - hash of the page's words, in order
+	 * @param simHash - SimHash of the page's words
+	 * @param numWords - number of words on the page
+	 * @return the URL of the page this one duplicates, or null if it is new
+	 */
+	public synchronized String register(String url, long contentHash, long simHash, int numWords) {
+		String original = exact.get(contentHash);
+		if (original != null) {
+			exactDuplicates++;
+			return original;
+		}
+		
+		if (numWords >= MIN_WORDS) {
+			for (int band = 0; band < BANDS; band++) {
+				ArrayList<Page> candidates = bands.get(band).get(bandValue(simHash, band));
+				if (candidates == null)
+					continue;
+				
+				for (Page candidate : candidates) {
+					if (Long.bitCount(candidate.simHash ^ simHash) <= MAX_DISTANCE) {
+						nearDuplicates++;
+						return candidate.url;
+					}
+				}
+			}
+		}
+		
+		exact.put(contentHash, url);
+		if (numWords >= MIN_WORDS) {
+			Page page = new Page(url, simHash);
+			for (int band = 0; band < BANDS; band++) {
+				int value = bandValue(simHash, band);
+				ArrayList<Page> pages = bands.get(band).get(value);
+				if (pages == null) {
+					pages = new ArrayList<Page>(1);
+					bands.get(band).put(value, pages);
+				}
+				pages.add(page);
+			}
+		}
+		return null;
+	}
+	
+	private static int bandValue(long simHash, int band) {
+		return (int)(simHash >>> (band * BAND_BITS)) & ((1 << BAND_BITS) - 1);
+	}
+	
+	/**
+	 * Adds a word to the SimHash weights of a page: every bit set in the
+	 * word's fingerprint increments the weight of that bit, every bit
+	 * clear decrements it.
+	 * 
+	 * @param weights - the 64 weights of the page
+	 * @param wordFingerprint - fingerprint of the word
+	 */
+	public static void addToSimHash(int[] weights, long wordFingerprint) {
+		for (int bit = 0; bit < 64; bit++) {
+			weights[bit] += ((wordFingerprint >>> bit) & 1) == 0 ? -1 : 1;
+		}
+	}
+	
+	/**
+	 * Turns SimHash weights into the page's fingerprint: each bit is set if
+	 * its weight is positive.
+	 * 
+	 * @param weights - the 64 weights of the page
+	 * @return the SimHash
+	 */
+	public static long simHash(int[] weights) {
+		long simHash = 0;
+		for (int bit = 0; bit < 64; bit++) {
+			if (weights[bit] > 0)
+				simHash |= 1L << bit;
+		}
+		return simHash;
+	}
+	
+	public synchronized int getExactDuplicates() {
+		return exactDuplicates;
+	}
+	
+	public synchronized int getNearDuplicates() {
+		return nearDuplicates;
+	}
+	
+	private static class Page {
+		final String url;
+		final long simHash;
+		
+		Page(String url, long simHash) {
+			this.url = url;
+			this.simHash = simHash;
+		}
+	}
+}
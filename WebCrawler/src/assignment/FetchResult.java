@@ -0,0 +1,131 @@
+package assignment;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * The response to fetching a page: its raw bytes along with the headers
+ * the crawler cares about. A conditional fetch of a page that has not
+ * changed has no body. Pages fetched over HTTP also keep the status line
+ * and every header of the response, for the archive.
+ * 
+ * The bytes are held in a ByteBuffer, which may be a heap buffer or a
+ * file mapped into memory. Readers use absolute gets or duplicates, so
+ * the buffer's position is never changed.
+ */
+public class FetchResult {
+	private URL url;
+	private ByteBuffer content;
+	private String contentType;
+	private String etag;
+	private String lastModified;
+	private boolean notModified;
+	private String statusLine;
+	private List<String> headerLines;
+	
+	/**
+	 * @param url - the URL that was fetched
+	 * @param body - the raw bytes of the page
+	 * @param contentType - value of the Content-Type header, or null
+	 * @param etag - value of the ETag header, or null
+	 * @param lastModified - value of the Last-Modified header, or null
+	 */
+	public FetchResult(URL url, byte[] body, String contentType, String etag, String lastModified) {
+		this(url, body == null ? null : ByteBuffer.wrap(body), contentType, etag, lastModified);
+	}
+	
+	/**
+	 * @param url - the URL that was fetched
+	 * @param content - the raw bytes of the page, from its position to its limit
+	 * @param contentType - value of the Content-Type header, or null
+	 * @param etag - value of the ETag header, or null
+	 * @param lastModified - value of the Last-Modified header, or null
+	 */
+	public FetchResult(URL url, ByteBuffer content, String contentType, String etag, String lastModified) {
+		this.url = url;
+		this.content = content;
+		this.contentType = contentType;
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+	
+	/**
+	 * Creates the result of a conditional fetch whose page has not changed.
+	 * 
+	 * @param url - the URL that was fetched
+	 * @return a result without a body
+	 */
+	public static FetchResult notModified(URL url) {
+		FetchResult result = new FetchResult(url, (ByteBuffer)null, null, null, null);
+		result.notModified = true;
+		return result;
+	}
+	
+	public URL getURL() {
+		return url;
+	}
+	
+	/**
+	 * Returns the raw bytes of the page, between the buffer's position and
+	 * its limit. Callers must not change the position.
+	 * 
+	 * @return the content, or null if the page was not modified
+	 */
+	public ByteBuffer getContent() {
+		return content;
+	}
+	
+	public String getContentType() {
+		return contentType;
+	}
+	
+	public String getETag() {
+		return etag;
+	}
+	
+	public String getLastModified() {
+		return lastModified;
+	}
+	
+	/**
+	 * Records the status line and headers of the HTTP response the page
+	 * came in.
+	 * 
+	 * @param statusLine - the status line, such as "HTTP/1.1 200 OK"
+	 * @param headerLines - every header, as a "Name: value" line
+	 */
+	public void setResponseHeaders(String statusLine, List<String> headerLines) {
+		this.statusLine = statusLine;
+		this.headerLines = headerLines;
+	}
+	
+	/**
+	 * Returns the status line of the HTTP response.
+	 * 
+	 * @return the status line, or null if the page did not come over HTTP
+	 */
+	public String getStatusLine() {
+		return statusLine;
+	}
+	
+	/**
+	 * Returns the headers of the HTTP response, in the order the fetcher
+	 * got them.
+	 * 
+	 * @return "Name: value" lines, or null if the page did not come over HTTP
+	 */
+	public List<String> getHeaderLines() {
+		return headerLines;
+	}
+	
+	/**
+	 * Returns whether the server reported that the page is unchanged since
+	 * the previous fetch (HTTP 304).
+	 * 
+	 * @return true if the page has not been modified
+	 */
+	public boolean isNotModified() {
+		return notModified;
+	}
+}
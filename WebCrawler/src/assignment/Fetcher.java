@@ -0,0 +1,21 @@
+package assignment;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Downloads the raw bytes of a page.
+ */
+public interface Fetcher {
+	
+	/**
+	 * Fetches a page. If the state of a previous fetch is given, the fetcher
+	 * may ask the server to skip the body when the page has not changed.
+	 * 
+	 * @param url - the page to fetch
+	 * @param previous - what was known about the page after its last fetch, or null
+	 * @return the response
+	 * @throws IOException if the page could not be fetched
+	 */
+	public FetchResult fetch(URL url, PageState previous) throws IOException;
+}
@@ -0,0 +1,35 @@
+package assignment;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+
+/**
+ * Frontier that hands out URLs in the order they were added,
+ * giving a breadth-first crawl.
+ */
+public class FifoFrontier extends DedupFrontier {
+	private ArrayDeque<URL> queue = new ArrayDeque<URL>();
+
+	public FifoFrontier() {
+		super();
+	}
+	
+	public FifoFrontier(SeenSet seen) {
+		super(seen);
+	}
+
+	@Override
+	protected void enqueue(URL url) {
+		queue.addLast(url);
+	}
+
+	@Override
+	protected URL dequeue() {
+		return queue.pollFirst();
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+}
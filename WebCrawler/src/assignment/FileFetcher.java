@@ -0,0 +1,141 @@
+package assignment;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Fetcher for file: URLs that reads pages straight from the file system.
+ * A file is read with a single FileChannel read into a buffer of exactly
+ * its size, or mapped into memory if it is large, so its bytes are never
+ * copied before they are decoded. Other URLs are passed to a fallback
+ * fetcher.
+ * 
+ * Like a web server, it gives each file an ETag made from its size and
+ * modification time, so an incremental crawl can skip an unchanged file
+ * without reading it.
+ */
+public class FileFetcher implements Fetcher {
+	/** Files at least this large are mapped into memory instead of read. */
+	public static final int MAP_THRESHOLD = 256 * 1024;
+	
+	private Fetcher fallback;
+	
+	/**
+	 * Creates a fetcher that passes URLs other than file: ones to a UrlFetcher.
+	 */
+	public FileFetcher() {
+		this(new UrlFetcher());
+	}
+	
+	/**
+	 * @param fallback - fetcher for URLs that are not local files
+	 */
+	public FileFetcher(Fetcher fallback) {
+		this.fallback = fallback;
+	}
+	
+	@Override
+	public FetchResult fetch(URL url, PageState previous) throws IOException {
+		if (!url.getProtocol().equals("file"))
+			return fallback.fetch(url, previous);
+		
+		Path path;
+		try {
+			path = Paths.get(url.toURI());
+		} catch (URISyntaxException e) {
+			// URLs with unescaped characters are left to the fallback to decode
+			return fallback.fetch(url, previous);
+		} catch (IllegalArgumentException e) {
+			return fallback.fetch(url, previous);
+		}
+		
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(path.toString());
+		}
+		
+		// a directory is fetched as a listing of its files, as URLConnection does
+		if (attributes.isDirectory())
+			return fallback.fetch(url, previous);
+		
+		long modified = attributes.lastModifiedTime().toMillis();
+		String etag = "\"" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(modified) + "\"";
+		if (previous != null && etag.equals(previous.getETag()))
+			return FetchResult.notModified(url);
+		
+		String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+				Instant.ofEpochMilli(modified).atOffset(ZoneOffset.UTC));
+		return new FetchResult(url, read(path), URLConnection.guessContentTypeFromName(path.toString()),
+				etag, lastModified);
+	}
+	
+	/**
+	 * Reads a whole file, mapping it into memory if it is large.
+	 * 
+	 * @param path - the file
+	 * @return its content, from position 0 to the limit
+	 * @throws IOException if the file cannot be read
+	 */
+	static ByteBuffer read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("File too large: " + path);
+			
+			if (size >= MAP_THRESHOLD)
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			
+			ByteBuffer content = ByteBuffer.allocate((int)size);
+			while (content.hasRemaining() && channel.read(content) != -1)
+				;
+			content.flip();
+			return content;
+		}
+	}
+	
+	/**
+	 * Lists every HTML file under a directory, so that a local mirror can be
+	 * crawled without relying on links to discover its pages.
+	 * 
+	 * @param root - the directory to walk
+	 * @return URLs of the .html and .htm files below it, in sorted order
+	 * @throws IOException if the directory cannot be read
+	 */
+	public static List<URL> walk(Path root) throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		try (Stream<Path> paths = Files.walk(root)) {
+			paths.forEach(path -> {
+				String name = path.getFileName().toString().toLowerCase();
+				if ((name.endsWith(".html") || name.endsWith(".htm")) && Files.isRegularFile(path))
+					files.add(path);
+			});
+		}
+		Collections.sort(files);
+		
+		List<URL> urls = new ArrayList<URL>(files.size());
+		for (Path file : files) {
+			urls.add(file.toUri().toURL());
+		}
+		return urls;
+	}
+}
@@ -0,0 +1,230 @@
+package assignment;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SeenSet that stores a 64-bit fingerprint of every URL in an open
+ * addressing hash table with linear probing. The URL strings themselves
+ * are never kept. Two different URLs are only confused if their
+ * fingerprints collide, which for n URLs happens with probability about
+ * n / 2^64.
+ * 
+ * Subclasses decide where the table of fingerprints lives.
+ */
+public abstract class FingerprintSet implements SeenSet {
+	// table is grown once it is two thirds full
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	
+	// fingerprint 0 marks an empty slot
+	private static final long EMPTY = 0L;
+	
+	private int capacity;
+	private long size;
+	
+	public FingerprintSet() {
+		capacity = INITIAL_CAPACITY;
+		allocate(capacity);
+	}
+	
+	/**
+	 * Allocates a new, empty table. The table it replaces stays readable
+	 * through {@link #getPrevious(int)} until {@link #dropPrevious()}.
+	 * 
+	 * @param capacity - number of slots, a power of two
+	 */
+	protected abstract void allocate(int capacity);
+	
+	protected abstract long getPrevious(int slot);
+	
+	protected abstract void dropPrevious();
+	
+	protected abstract long get(int slot);
+	
+	protected abstract void set(int slot, long fingerprint);
+	
+	/**
+	 * Number of bytes used by each slot of the table, plus any fixed cost,
+	 * for a table with the given number of slots.
+	 */
+	protected abstract long tableBytes(int capacity);
+	
+	/**
+	 * Computes the 64-bit fingerprint of a string: FNV-1a over its characters,
+	 * followed by the MurmurHash3 finalizer so that every bit of the result
+	 * depends on every character.
+	 * 
+	 * @param s - the string
+	 * @return its fingerprint, never 0
+	 */
+	public static long fingerprint(CharSequence s) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < s.length(); i++) {
+			h ^= s.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return finish(h);
+	}
+	
+	/**
+	 * Computes the 64-bit fingerprint of a run of bytes, in the same way as
+	 * for a string. Used to tell whether the content of a page changed.
+	 * 
+	 * @param data - the bytes
+	 * @param offset - index of the first byte
+	 * @param length - number of bytes
+	 * @return their fingerprint, never 0
+	 */
+	public static long fingerprint(byte[] data, int offset, int length) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = offset; i < offset + length; i++) {
+			h ^= data[i] & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return finish(h);
+	}
+	
+	/**
+	 * Computes the 64-bit fingerprint of the bytes between the position and
+	 * the limit of a buffer, without changing its position.
+	 * 
+	 * @param data - the bytes
+	 * @return their fingerprint, the same as for an array of the same bytes
+	 */
+	public static long fingerprint(ByteBuffer data) {
+		if (data.hasArray())
+			return fingerprint(data.array(), data.arrayOffset() + data.position(), data.remaining());
+		
+		long h = 0xcbf29ce484222325L;
+		for (int i = data.position(); i < data.limit(); i++) {
+			h ^= data.get(i) & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return finish(h);
+	}
+	
+	private static long finish(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		
+		return h == EMPTY ? 1 : h;
+	}
+	
+	@Override
+	public boolean add(String url) {
+		return addFingerprint(fingerprint(url));
+	}
+	
+	@Override
+	public boolean contains(String url) {
+		return containsFingerprint(fingerprint(url));
+	}
+	
+	/**
+	 * Adds a precomputed fingerprint to the set.
+	 * 
+	 * @param fp - a fingerprint returned by {@link #fingerprint(CharSequence)}
+	 * @return true if the fingerprint was not in the set before
+	 */
+	public synchronized boolean addFingerprint(long fp) {
+		int mask = capacity - 1;
+		int slot = (int)fp & mask;
+		long current;
+		
+		while ((current = get(slot)) != EMPTY) {
+			if (current == fp)
+				return false;
+			slot = (slot + 1) & mask;
+		}
+		
+		set(slot, fp);
+		size++;
+		
+		if (size * 3 >= (long)capacity * 2)
+			grow();
+		return true;
+	}
+	
+	/**
+	 * Checks whether a precomputed fingerprint is in the set.
+	 * 
+	 * @param fp - a fingerprint returned by {@link #fingerprint(CharSequence)}
+	 * @return true if the fingerprint was added before
+	 */
+	public synchronized boolean containsFingerprint(long fp) {
+		int mask = capacity - 1;
+		int slot = (int)fp & mask;
+		long current;
+		
+		while ((current = get(slot)) != EMPTY) {
+			if (current == fp)
+				return true;
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+	
+	/**
+	 * Doubles the size of the table and reinserts every fingerprint.
+	 */
+	private void grow() {
+		if (capacity >= 1 << 30)
+			throw new IllegalStateException("Fingerprint table is full: " + size + " URLs");
+		
+		int oldCapacity = capacity;
+		capacity *= 2;
+		allocate(capacity);
+		
+		int mask = capacity - 1;
+		for (int i = 0; i < oldCapacity; i++) {
+			long fp = getPrevious(i);
+			if (fp == EMPTY)
+				continue;
+			
+			int slot = (int)fp & mask;
+			while (get(slot) != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			set(slot, fp);
+		}
+		dropPrevious();
+	}
+	
+	@Override
+	public synchronized long size() {
+		return size;
+	}
+	
+	@Override
+	public synchronized long memoryBytes() {
+		return tableBytes(capacity);
+	}
+	
+	@Override
+	public synchronized double falsePositiveRate() {
+		return size / Math.pow(2, 64);
+	}
+	
+	/**
+	 * Creates a seen-set from its name as given on the command line.
+	 * 
+	 * @param kind - "heap" for a table on the Java heap, or "offheap" for
+	 * 				 a table in native memory
+	 * @param bloomFront - whether to put a Bloom filter in front of the table
+	 * @return an empty SeenSet
+	 */
+	public static SeenSet create(String kind, boolean bloomFront) {
+		FingerprintSet table;
+		switch (kind.toLowerCase()) {
+		case "heap": table = new HeapFingerprintSet(); break;
+		case "offheap": table = new OffHeapFingerprintSet(); break;
+		default: throw new IllegalArgumentException("Unknown seen-set: " + kind);
+		}
+		
+		if (bloomFront)
+			return new LayeredSeenSet(new BloomFilter(BloomFilter.DEFAULT_EXPECTED, 0.01), table);
+		return table;
+	}
+}
@@ -0,0 +1,114 @@
+package assignment;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The set of URLs waiting to be crawled. A Frontier remembers every URL
+ * that was ever added to it, so a page is only handed out once no matter
+ * how many pages link to it. Implementations decide the order in which
+ * URLs are handed out.
+ * 
+ * Implementations are not safe for concurrent use; callers that share a
+ * Frontier between threads must synchronize on it themselves.
+ */
+public interface Frontier {
+	
+	/**
+	 * Adds a URL to the frontier unless it has already been added before,
+	 * whether it is still queued or was already handed out.
+	 * 
+	 * @param url - the URL to crawl
+	 * @return true if the URL was queued, false if it was a duplicate
+	 */
+	public boolean add(URL url);
+	
+	/**
+	 * Adds the links found on a crawled page. Called once for every URL
+	 * handed out by poll, with no links if the page could not be crawled,
+	 * so frontiers that score or limit URLs by the page linking to them
+	 * can do so. By default each link is simply added.
+	 * 
+	 * @param source - the crawled page, as returned by poll
+	 * @param links - links found on the page
+	 * @return the links that were queued
+	 */
+	public default List<URL> addLinks(URL source, List<URL> links) {
+		List<URL> added = new ArrayList<URL>();
+		for (URL link : links) {
+			if (add(link))
+				added.add(link);
+		}
+		return added;
+	}
+	
+	/**
+	 * Returns a URL in the form this frontier queues and hands it out, which
+	 * is what add records as seen. By default the URL itself.
+	 * 
+	 * @param url - a URL
+	 * @return the URL as it would be handed out by poll
+	 */
+	public default URL canonicalize(URL url) {
+		return url;
+	}
+	
+	/**
+	 * Records a URL as already crawled without queueing it, so that later
+	 * attempts to add it are treated as duplicates. Used when a crawl is
+	 * resumed.
+	 * 
+	 * @param url - a URL that was crawled before
+	 */
+	public void markSeen(URL url);
+	
+	/**
+	 * Removes and returns the next URL to crawl.
+	 * 
+	 * @return the next URL, or null if the frontier is empty
+	 */
+	public URL poll();
+	
+	/**
+	 * Tells the frontier that a URL handed out by poll has been crawled,
+	 * whether successfully or not.
+	 * 
+	 * @param url - a URL returned by poll
+	 */
+	public void done(URL url);
+	
+	/**
+	 * Returns how long until poll can hand out a URL. A frontier may hold
+	 * URLs that it will not hand out yet, for example to be polite to a host.
+	 * 
+	 * @return 0 if poll will return a URL now, the number of milliseconds to
+	 * 		   wait otherwise, or Long.MAX_VALUE if no URL will be ready until
+	 * 		   more are added or a crawled URL is reported done
+	 */
+	public long delayMillis();
+	
+	/**
+	 * Returns the number of URLs currently waiting to be crawled.
+	 * 
+	 * @return number of queued URLs
+	 */
+	public int size();
+	
+	public boolean isEmpty();
+	
+	/**
+	 * Returns how many URLs were rejected by add because they had already
+	 * been seen.
+	 * 
+	 * @return number of duplicate URLs rejected
+	 */
+	public long getDedupHits();
+	
+	/**
+	 * Returns how many distinct URLs have been queued so far.
+	 * 
+	 * @return number of URLs accepted by add
+	 */
+	public long getNumQueued();
+}
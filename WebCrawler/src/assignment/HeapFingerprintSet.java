@@ -0,0 +1,41 @@
+package assignment;
+
+/**
+ * FingerprintSet whose table is a long array on the Java heap.
+ */
+public class HeapFingerprintSet extends FingerprintSet {
+	private long[] table;
+	private long[] previous;
+
+	@Override
+	protected void allocate(int capacity) {
+		previous = table;
+		table = new long[capacity];
+	}
+
+	@Override
+	protected long getPrevious(int slot) {
+		return previous[slot];
+	}
+
+	@Override
+	protected void dropPrevious() {
+		previous = null;
+	}
+
+	@Override
+	protected long get(int slot) {
+		return table[slot];
+	}
+
+	@Override
+	protected void set(int slot, long fingerprint) {
+		table[slot] = fingerprint;
+	}
+
+	@Override
+	protected long tableBytes(int capacity) {
+		// array header plus one long per slot
+		return 16 + 8L * capacity;
+	}
+}
@@ -0,0 +1,184 @@
+package assignment;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Frontier that keeps one queue per host and only hands out a URL when
+ * crawling it would be polite: no more than a set number of pages of the
+ * same host may be crawled at once, and requests to a host start at least
+ * a set delay apart (or the host's robots.txt crawl-delay, if longer).
+ * Hosts are handed out in order of when they become ready, so a slow or
+ * rate-limited host never holds up the others.
+ * 
+ * Local URLs without a host, such as file: URLs, are not rate limited.
+ */
+public class HostScheduler extends DedupFrontier {
+	private int maxPerHost;
+	private long minDelayNanos;
+	private RobotsCache robots;
+	
+	private HashMap<String, HostQueue> hosts;
+	
+	// hosts that have queued URLs and a free slot, ordered by when they are ready
+	private PriorityQueue<HostQueue> ready;
+	private int size;
+	
+	/**
+	 * @param maxPerHost - number of pages of one host that may be crawled at once
+	 * @param minDelayMillis - minimum time between the start of two requests to a host
+	 * @param robots - source of robots.txt crawl delays, or null to ignore them
+	 */
+	public HostScheduler(int maxPerHost, long minDelayMillis, RobotsCache robots) {
+		this(maxPerHost, minDelayMillis, robots, new HeapFingerprintSet());
+	}
+	
+	public HostScheduler(int maxPerHost, long minDelayMillis, RobotsCache robots, SeenSet seen) {
+		super(seen);
+		if (maxPerHost < 1 || minDelayMillis < 0)
+			throw new IllegalArgumentException("Invalid politeness limits");
+		
+		this.maxPerHost = maxPerHost;
+		this.minDelayNanos = minDelayMillis * 1000000;
+		this.robots = robots;
+		hosts = new HashMap<String, HostQueue>();
+		ready = new PriorityQueue<HostQueue>();
+	}
+	
+	@Override
+	protected void enqueue(URL url) {
+		String key = hostKey(url);
+		HostQueue host = hosts.get(key);
+		if (host == null) {
+			host = new HostQueue(key, isLocal(url), currentTimeNanos());
+			hosts.put(key, host);
+		}
+		
+		host.urls.addLast(url);
+		size++;
+		schedule(host);
+	}
+
+	@Override
+	protected URL dequeue() {
+		HostQueue host = ready.peek();
+		if (host == null || host.nextStart - currentTimeNanos() > 0)
+			return null;
+		
+		ready.poll();
+		host.scheduled = false;
+		
+		URL url = host.urls.pollFirst();
+		size--;
+		host.active++;
+		if (!host.local)
+			host.nextStart = currentTimeNanos() + delayNanos(host);
+		
+		schedule(host);
+		return url;
+	}
+	
+	@Override
+	public void done(URL url) {
+		super.done(url);
+		HostQueue host = hosts.get(hostKey(url));
+		if (host == null || host.active == 0)
+			return;
+		
+		host.active--;
+		schedule(host);
+		
+		// forget idle hosts so the map only holds hosts with work
+		if (host.active == 0 && host.urls.isEmpty() && host.nextStart - currentTimeNanos() <= 0)
+			hosts.remove(host.key);
+	}
+	
+	@Override
+	protected long queueDelayMillis() {
+		if (size == 0)
+			return Long.MAX_VALUE;
+		
+		HostQueue host = ready.peek();
+		if (host == null)
+			return Long.MAX_VALUE;
+		
+		long wait = host.nextStart - currentTimeNanos();
+		if (wait <= 0)
+			return 0;
+		
+		// round up so a caller sleeping this long finds the host ready
+		return (wait + 999999) / 1000000;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the number of hosts with queued or active pages.
+	 * 
+	 * @return number of hosts being tracked
+	 */
+	public int numHosts() {
+		return hosts.size();
+	}
+	
+	/**
+	 * Puts a host in the ready queue if it has URLs and a free slot.
+	 */
+	private void schedule(HostQueue host) {
+		if (host.scheduled || host.urls.isEmpty())
+			return;
+		if (!host.local && host.active >= maxPerHost)
+			return;
+		
+		ready.add(host);
+		host.scheduled = true;
+	}
+	
+	/**
+	 * Returns the delay between requests to a host: the configured minimum,
+	 * or the crawl-delay from its robots.txt if that is longer.
+	 */
+	private long delayNanos(HostQueue host) {
+		long delay = minDelayNanos;
+		if (robots != null)
+			delay = Math.max(delay, robots.getCrawlDelayMillis(host.key) * 1000000);
+		return delay;
+	}
+	
+	private static boolean isLocal(URL url) {
+		return url.getHost() == null || url.getHost().isEmpty();
+	}
+	
+	private static String hostKey(URL url) {
+		return isLocal(url) ? "" : RobotsCache.hostKey(url);
+	}
+	
+	/**
+	 * The queued URLs of one host and its politeness state.
+	 */
+	private static class HostQueue implements Comparable<HostQueue> {
+		String key;
+		boolean local;
+		ArrayDeque<URL> urls;
+		int active;
+		long nextStart;
+		boolean scheduled;
+		
+		HostQueue(String key, boolean local, long now) {
+			this.key = key;
+			this.local = local;
+			urls = new ArrayDeque<URL>();
+			nextStart = now;
+		}
+
+		@Override
+		public int compareTo(HostQueue other) {
+			return Long.compare(nextStart, other.nextStart);
+		}
+	}
+}
@@ -0,0 +1,340 @@
+package assignment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Fetcher for http: and https: URLs built on java.net.http.HttpClient.
+ * The client keeps a pool of open connections per host and uses HTTP/2
+ * when the server offers it, so many pages from one host share a few
+ * connections. Responses are requested gzip-compressed and decompressed
+ * while they are read. Other URLs are passed to a fallback fetcher.
+ * 
+ * A slow or oversized response cannot hold up a worker: the body must
+ * arrive within a read timeout, only its first bytes up to a maximum size
+ * are kept, and a response that is not HTML is dropped as soon as its
+ * headers arrive. Dropped responses are returned with an empty body, so
+ * the page is visited but nothing of it is indexed.
+ * 
+ * One HttpFetcher, and so one connection pool, should be shared by every
+ * worker of a crawl. It is safe for concurrent use.
+ */
+public class HttpFetcher implements Fetcher {
+	public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+	public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+	public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(30);
+	public static final int DEFAULT_MAX_BODY_BYTES = 4 << 20;
+	
+	private static final byte[] EMPTY = new byte[0];
+	
+	private static HttpFetcher shared;
+	
+	private final HttpClient client;
+	private final Duration requestTimeout;
+	private final Duration readTimeout;
+	private final int maxBodyBytes;
+	private final Fetcher fallback;
+	
+	private final AtomicLong truncated = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	
+	/**
+	 * Creates a fetcher with its own connection pool, the default read
+	 * timeout and the default maximum body size.
+	 * 
+	 * @param connectTimeout - longest wait for a connection to be established
+	 * @param requestTimeout - longest wait for the response headers of a request
+	 * @param fallback - fetcher for URLs that are not http: or https:
+	 */
+	public HttpFetcher(Duration connectTimeout, Duration requestTimeout, Fetcher fallback) {
+		this(connectTimeout, requestTimeout, DEFAULT_READ_TIMEOUT, DEFAULT_MAX_BODY_BYTES, fallback);
+	}
+	
+	/**
+	 * Creates a fetcher with its own connection pool.
+	 * 
+	 * @param connectTimeout - longest wait for a connection to be established
+	 * @param requestTimeout - longest wait for the response headers of a request
+	 * @param readTimeout - longest wait for the body, on top of the request timeout
+	 * @param maxBodyBytes - number of bytes of a body kept, the rest is not downloaded
+	 * @param fallback - fetcher for URLs that are not http: or https:
+	 */
+	public HttpFetcher(Duration connectTimeout, Duration requestTimeout, Duration readTimeout,
+			int maxBodyBytes, Fetcher fallback) {
+		if (maxBodyBytes < 1)
+			throw new IllegalArgumentException("Invalid maximum body size: " + maxBodyBytes);
+		
+		client = HttpClient.newBuilder()
+				.connectTimeout(connectTimeout)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.build();
+		this.requestTimeout = requestTimeout;
+		this.readTimeout = readTimeout;
+		this.maxBodyBytes = maxBodyBytes;
+		this.fallback = fallback;
+	}
+	
+	/**
+	 * Returns a fetcher with the default timeouts whose connection pool is
+	 * shared by every caller, for crawlers that are not given a fetcher.
+	 * 
+	 * @return the shared fetcher
+	 */
+	public static synchronized HttpFetcher getShared() {
+		if (shared == null)
+			shared = new HttpFetcher(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, new UrlFetcher());
+		return shared;
+	}
+	
+	@Override
+	public FetchResult fetch(URL url, PageState previous) throws IOException {
+		String protocol = url.getProtocol();
+		if (!protocol.equals("http") && !protocol.equals("https"))
+			return fallback.fetch(url, previous);
+		
+		HttpRequest.Builder request;
+		try {
+			request = HttpRequest.newBuilder(url.toURI());
+		} catch (URISyntaxException e) {
+			// URLs with unescaped characters are left to the fallback
+			return fallback.fetch(url, previous);
+		} catch (IllegalArgumentException e) {
+			return fallback.fetch(url, previous);
+		}
+		
+		request.timeout(requestTimeout)
+				.header("User-Agent", RobotsCache.USER_AGENT)
+				.header("Accept-Encoding", "gzip");
+		if (previous != null) {
+			if (previous.getETag() != null)
+				request.header("If-None-Match", previous.getETag());
+			if (previous.getLastModified() != null)
+				request.header("If-Modified-Since", previous.getLastModified());
+		}
+		
+		CompletableFuture<HttpResponse<byte[]>> future =
+				client.sendAsync(request.GET().build(), this::subscribe);
+		HttpResponse<byte[]> response;
+		try {
+			response = future.get(requestTimeout.plus(readTimeout).toMillis(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			throw new HttpTimeoutException("Timed out reading " + url);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while fetching " + url, e);
+		}
+		
+		int status = response.statusCode();
+		if (status == 304)
+			return FetchResult.notModified(url);
+		if (status == 404 || status == 410)
+			throw new FileNotFoundException(url.toString());
+		if (status >= 400)
+			throw new IOException("Server returned HTTP response code: " + status + " for URL: " + url);
+		
+		HttpHeaders headers = response.headers();
+		byte[] body = decode(response.body(), headers);
+		FetchResult page = new FetchResult(url, body, headers.firstValue("Content-Type").orElse(null),
+				headers.firstValue("ETag").orElse(null),
+				headers.firstValue("Last-Modified").orElse(null));
+		page.setResponseHeaders(statusLine(response), headerLines(headers));
+		return page;
+	}
+	
+	/**
+	 * Returns the status line of a response. HttpClient does not keep the
+	 * reason phrase, and HTTP/2 has none, so only the version and code are
+	 * given.
+	 */
+	private static String statusLine(HttpResponse<?> response) {
+		String version = response.version() == HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1";
+		return version + " " + response.statusCode();
+	}
+	
+	/**
+	 * Returns every header of a response as a "Name: value" line. HttpClient
+	 * groups headers by name, in alphabetical order.
+	 */
+	private static List<String> headerLines(HttpHeaders headers) {
+		List<String> lines = new ArrayList<String>();
+		for (Map.Entry<String, List<String>> header : headers.map().entrySet()) {
+			// HTTP/2 pseudo-headers are not headers of the response
+			if (header.getKey().startsWith(":"))
+				continue;
+			for (String value : header.getValue()) {
+				lines.add(header.getKey() + ": " + value);
+			}
+		}
+		return lines;
+	}
+	
+	/**
+	 * Chooses how a response body is read once its headers arrived. The
+	 * bodies of errors are read and thrown away, so the connection can be
+	 * reused; a page that is not HTML is not read at all.
+	 */
+	private HttpResponse.BodySubscriber<byte[]> subscribe(HttpResponse.ResponseInfo info) {
+		int status = info.statusCode();
+		if (status < 200 || status >= 300)
+			return HttpResponse.BodySubscribers.replacing(EMPTY);
+		
+		if (!isHtml(info.headers().firstValue("Content-Type").orElse(null))) {
+			skipped.incrementAndGet();
+			return new CappedSubscriber(0);
+		}
+		return new CappedSubscriber(maxBodyBytes);
+	}
+	
+	/**
+	 * Returns whether a Content-Type is one the crawler can parse. Pages
+	 * without one are assumed to be HTML.
+	 * 
+	 * @param contentType - value of the Content-Type header, or null
+	 * @return true for HTML and XHTML
+	 */
+	public static boolean isHtml(String contentType) {
+		if (contentType == null)
+			return true;
+		
+		int semicolon = contentType.indexOf(';');
+		String mediaType = (semicolon == -1 ? contentType : contentType.substring(0, semicolon))
+				.trim().toLowerCase(Locale.ROOT);
+		return mediaType.isEmpty() || mediaType.equals("text/html")
+				|| mediaType.equals("application/xhtml+xml");
+	}
+	
+	/**
+	 * Returns how many bodies were cut off at the maximum size.
+	 * 
+	 * @return number of truncated pages
+	 */
+	public long getTruncated() {
+		return truncated.get();
+	}
+	
+	/**
+	 * Returns how many pages were dropped because they were not HTML.
+	 * 
+	 * @return number of skipped pages
+	 */
+	public long getSkipped() {
+		return skipped.get();
+	}
+	
+	/**
+	 * Decompresses a response body if the server compressed it, keeping
+	 * at most the maximum body size. A body cut off while it was read
+	 * decompresses to as much as it holds.
+	 */
+	private byte[] decode(byte[] body, HttpHeaders headers) throws IOException {
+		String encoding = headers.firstValue("Content-Encoding").orElse("");
+		if (body.length == 0
+				|| !(encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")))
+			return body;
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 4);
+		byte[] buffer = new byte[8192];
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body), 8192)) {
+			int read;
+			while (out.size() < maxBodyBytes
+					&& (read = in.read(buffer, 0, Math.min(buffer.length, maxBodyBytes - out.size()))) != -1) {
+				out.write(buffer, 0, read);
+			}
+			if (out.size() == maxBodyBytes && in.read() != -1)
+				truncated.incrementAndGet();
+		} catch (EOFException e) {
+			// the compressed body was truncated
+		}
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Collects a response body up to a number of bytes, then cancels the
+	 * rest of the download, which closes the connection.
+	 */
+	private class CappedSubscriber implements HttpResponse.BodySubscriber<byte[]> {
+		private final int maxBytes;
+		private final CompletableFuture<byte[]> body = new CompletableFuture<byte[]>();
+		private ByteArrayOutputStream out;
+		private Flow.Subscription subscription;
+		
+		CappedSubscriber(int maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+		
+		@Override
+		public CompletionStage<byte[]> getBody() {
+			return body;
+		}
+		
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (maxBytes == 0) {
+				subscription.cancel();
+				body.complete(EMPTY);
+				return;
+			}
+			out = new ByteArrayOutputStream(Math.min(maxBytes, 8192));
+			subscription.request(1);
+		}
+		
+		@Override
+		public void onNext(List<ByteBuffer> buffers) {
+			for (ByteBuffer buffer : buffers) {
+				int n = Math.min(buffer.remaining(), maxBytes - out.size());
+				byte[] bytes = new byte[n];
+				buffer.get(bytes);
+				out.write(bytes, 0, n);
+				if (buffer.hasRemaining()) {
+					truncated.incrementAndGet();
+					subscription.cancel();
+					body.complete(out.toByteArray());
+					return;
+				}
+			}
+			subscription.request(1);
+		}
+		
+		@Override
+		public void onError(Throwable throwable) {
+			body.completeExceptionally(throwable);
+		}
+		
+		@Override
+		public void onComplete() {
+			body.complete(out == null ? EMPTY : out.toByteArray());
+		}
+	}
+}
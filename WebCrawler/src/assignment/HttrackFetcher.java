@@ -0,0 +1,340 @@
+package assignment;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Fetcher that replays the pages of an HTTrack capture from its cache
+ * (the hts-cache directory of a mirror), so a crawl can be repeated over
+ * exactly the captured bytes without touching the network. The cache
+ * file new.dat is mapped into memory and each page is handed out as a
+ * slice of it.
+ *
+ * new.dat holds one entry per URL: a header of length-prefixed strings
+ * ("length\nbytes") ending with "HTS", then the length of the body and the
+ * body itself. Bodies that HTTrack only saved to the mirror, such as most
+ * images, are read from the mirror instead. new.ndx holds the offset of
+ * every entry, but it is not used: a cache whose line endings were
+ * converted after the capture, like the one checked in with superspoof,
+ * has every offset and body length after the first page shifted. new.dat
+ * is therefore scanned once when the fetcher is created, and a body whose
+ * length is wrong ends where the next valid header starts.
+ */
+public class HttrackFetcher implements Fetcher {
+	private static final int MAX_REDIRECTS = 5;
+	private static final int MAX_HEADER_FIELDS = 40;
+
+	// fields of an entry header before the "HTS" marker
+	private static final int STATUS = 0;
+	private static final int CONTENT_TYPE = 3;
+	private static final int CHARSET = 4;
+	private static final int LAST_MODIFIED = 5;
+	private static final int ETAG = 6;
+	private static final int LOCATION = 7;
+	private static final int HOST = 9;
+	private static final int PATH = 10;
+	private static final int LOCAL_FILE = 11;
+	private static final int NUM_FIELDS = 12;
+
+	private Path mirror;
+	private Fetcher fallback;
+	private ByteBuffer data;
+	private HashMap<String, Entry> entries;
+
+	/**
+	 * Reads the index of a cache into memory.
+	 *
+	 * @param cacheDir - the hts-cache directory, inside the mirror
+	 * @param fallback - fetcher for URLs not in the cache, or null to treat
+	 * 					 them as not found
+	 * @throws IOException if new.dat cannot be read or is not an HTTrack cache
+	 */
+	public HttrackFetcher(Path cacheDir, Fetcher fallback) throws IOException {
+		this.mirror = cacheDir.toAbsolutePath().getParent();
+		this.fallback = fallback;
+		entries = new HashMap<String, Entry>();
+
+		Path file = cacheDir.resolve("new.dat");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Cache too large: " + file);
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		scan(file);
+	}
+
+	@Override
+	public FetchResult fetch(URL url, PageState previous) throws IOException {
+		Entry entry = entries.get(key(url));
+		if (entry == null) {
+			if (fallback == null)
+				throw new FileNotFoundException(url.toString());
+			return fallback.fetch(url, previous);
+		}
+
+		// the page is returned under the URL asked for, as HttpFetcher does
+		URL location = url;
+		for (int redirects = 0; isRedirect(entry.status); redirects++) {
+			if (redirects == MAX_REDIRECTS || entry.location.isEmpty())
+				throw new IOException("Too many redirects: " + url);
+			location = new URL(location, entry.location);
+			entry = entries.get(key(location));
+			if (entry == null)
+				throw new FileNotFoundException(location.toString());
+		}
+
+		if (entry.status == 404 || entry.status == 410)
+			throw new FileNotFoundException(url.toString());
+		if (entry.status >= 400)
+			throw new IOException("HTTP " + entry.status + " for " + url);
+
+		String etag = entry.etag.isEmpty() ? null : entry.etag;
+		String lastModified = entry.lastModified.isEmpty() ? null : entry.lastModified;
+		if (previous != null && (etag != null ? etag.equals(previous.getETag())
+				: lastModified != null && lastModified.equals(previous.getLastModified())))
+			return FetchResult.notModified(url);
+
+		String contentType = entry.contentType.isEmpty() ? null : entry.contentType;
+		if (contentType != null && !entry.charset.isEmpty())
+			contentType += "; charset=" + entry.charset;
+		return new FetchResult(url, content(entry, url), contentType, etag, lastModified);
+	}
+
+	/**
+	 * Returns the URLs of every HTML page in the cache, so a crawl can be
+	 * seeded with the whole capture.
+	 *
+	 * @return URLs of the pages, in sorted order
+	 */
+	public List<URL> getURLs() {
+		List<String> keys = new ArrayList<String>();
+		for (Entry entry : entries.values()) {
+			if (entry.status == 200 && entry.contentType.startsWith("text/html"))
+				keys.add(entry.key);
+		}
+		Collections.sort(keys);
+
+		List<URL> urls = new ArrayList<URL>(keys.size());
+		for (String key : keys) {
+			try {
+				urls.add(new URL("http://" + key));
+			} catch (MalformedURLException e) {
+				System.out.println(e);
+			}
+		}
+		return urls;
+	}
+
+	/**
+	 * Returns the number of URLs in the cache.
+	 *
+	 * @return number of cached URLs, including redirects and errors
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the body of an entry: a slice of the cache, or the file saved
+	 * in the mirror if the body was not kept in the cache.
+	 */
+	private ByteBuffer content(Entry entry, URL url) throws IOException {
+		if (entry.length > 0 || entry.localFile.isEmpty()) {
+			ByteBuffer content = data.duplicate();
+			content.limit(entry.offset + entry.length);
+			content.position(entry.offset);
+			return content.slice();
+		}
+
+		Path saved = mirror.resolve(entry.localFile).normalize();
+		if (!saved.startsWith(mirror))
+			throw new FileNotFoundException(url.toString());
+		try {
+			return FileFetcher.read(saved);
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(url.toString());
+		}
+	}
+
+	/**
+	 * Reads every entry of the cache. A later entry for the same URL, left
+	 * by an update of the mirror, replaces the earlier one.
+	 */
+	private void scan(Path file) throws IOException {
+		int limit = data.limit();
+		int[] position = {0};
+		String version = readString(position);
+		if (version == null || !version.startsWith("CACHE-1."))
+			throw new IOException("Not an HTTrack cache: " + file);
+
+		int pos = position[0];
+		Entry entry = readHeader(pos);
+		if (entry == null && pos < limit)
+			throw new IOException("Unreadable HTTrack cache: " + file);
+
+		while (entry != null) {
+			int end = entry.offset + entry.length;
+			Entry next = end < limit ? readHeader(end) : null;
+			if (end > limit || (end < limit && next == null)) {
+				// the body length is wrong, so it ends at the next header
+				end = entry.offset;
+				while (end < limit && (next = readHeader(end)) == null)
+					end++;
+				entry.length = trimChecksums(entry.offset, end) - entry.offset;
+			}
+
+			entries.put(entry.key, entry);
+			entry = next;
+		}
+	}
+
+	/**
+	 * Returns where a resynchronized body really ends: converted caches
+	 * have a "2\n32" followed by a 32 digit hex checksum between some
+	 * entries, which is not part of either.
+	 */
+	private int trimChecksums(int start, int end) {
+		while (end - start >= 36 && data.get(end - 36) == '2' && data.get(end - 35) == '\n'
+				&& data.get(end - 34) == '3' && data.get(end - 33) == '2' && isHex(end - 32, end)) {
+			end -= 36;
+		}
+		return end;
+	}
+
+	private boolean isHex(int start, int end) {
+		for (int i = start; i < end; i++) {
+			byte b = data.get(i);
+			if (!(b >= '0' && b <= '9' || b >= 'a' && b <= 'f'))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the header of an entry.
+	 *
+	 * @param start - offset the header should start at
+	 * @return the entry, or null if there is no valid header at the offset
+	 */
+	private Entry readHeader(int start) {
+		// cheap check first, since a resync tries every offset
+		if (start + 5 > data.limit() || data.get(start) != '3' || data.get(start + 1) != '\n')
+			return null;
+
+		int[] position = {start};
+		String[] fields = new String[NUM_FIELDS];
+		int numFields = 0;
+		while (true) {
+			String field = readString(position);
+			if (field == null || numFields == MAX_HEADER_FIELDS)
+				return null;
+			if (field.equals("HTS"))
+				break;
+			if (numFields < NUM_FIELDS)
+				fields[numFields] = field;
+			numFields++;
+		}
+
+		String length = readString(position);
+		if (numFields < NUM_FIELDS || length == null || !isNumber(length) || !isNumber(fields[STATUS]))
+			return null;
+
+		Entry entry = new Entry();
+		entry.key = fields[HOST].toLowerCase() + fields[PATH];
+		entry.status = Integer.parseInt(fields[STATUS]);
+		entry.contentType = fields[CONTENT_TYPE];
+		entry.charset = fields[CHARSET];
+		entry.lastModified = fields[LAST_MODIFIED];
+		entry.etag = fields[ETAG];
+		entry.location = fields[LOCATION];
+		entry.localFile = fields[LOCAL_FILE];
+		entry.offset = position[0];
+		long declared = Long.parseLong(length);
+		entry.length = (int)Math.min(declared, data.limit() + 1L - entry.offset);
+		return entry;
+	}
+
+	/**
+	 * Reads a length-prefixed string and moves the position past it.
+	 *
+	 * @return the string, or null if there is none at the position
+	 */
+	private String readString(int[] position) {
+		int pos = position[0];
+		int limit = data.limit();
+		long length = 0;
+		int digits = 0;
+		while (pos < limit && data.get(pos) != '\n') {
+			byte b = data.get(pos++);
+			if (b < '0' || b > '9' || ++digits > 9)
+				return null;
+			length = length * 10 + (b - '0');
+		}
+		if (digits == 0 || pos == limit || pos + 1 + length > limit)
+			return null;
+		pos++;
+
+		byte[] bytes = new byte[(int)length];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = data.get(pos + i);
+		}
+		position[0] = pos + bytes.length;
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	private static boolean isNumber(String s) {
+		if (s.isEmpty() || s.length() > 18)
+			return false;
+		for (int i = 0; i < s.length(); i++) {
+			if (!Character.isDigit(s.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isRedirect(int status) {
+		return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+	}
+
+	/**
+	 * Returns the key of a URL in the cache, which HTTrack stores as the
+	 * host (and port, if not the default) followed by the path and query.
+	 */
+	private static String key(URL url) {
+		String file = url.getFile().isEmpty() ? "/" : url.getFile();
+		String host = url.getHost().toLowerCase();
+		if (url.getPort() != -1 && url.getPort() != url.getDefaultPort())
+			host += ":" + url.getPort();
+		return host + file;
+	}
+
+	/**
+	 * One URL in the cache.
+	 */
+	private static class Entry {
+		String key;
+		int status;
+		String contentType;
+		String charset;
+		String lastModified;
+		String etag;
+		String location;
+		String localFile;
+
+		// where the body is in the cache, and how long it is
+		int offset;
+		int length;
+	}
+}
@@ -6,43 +6,23 @@ import java.net.URL;
 public class Index implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Loads an index written by save. Index files in the binary format of
+     * IndexFormat are read section by section; older indexes, written with
+     * Java serialization, are still read as before.
+     */
     public static Index load(URL url) throws IOException, ClassNotFoundException {
-        InputStream fin = null;
-        ObjectInputStream oin = null;
-        Index result = null;
-        try {
-            fin = url.openStream();
-            oin = new ObjectInputStream(fin);
-            result = (Index)oin.readObject();
-        } finally {
-            try {
-                if (oin != null)
-                    oin.close();
-                else if (fin != null)
-                    fin.close();
-            } catch (IOException e) {
-            }
+        try (InputStream in = new BufferedInputStream(url.openStream())) {
+            if (IndexFormat.isIndexFile(in))
+                return IndexFormat.read(in);
+            return (Index)new ObjectInputStream(in).readObject();
         }
-        return result;
     }
 
     public void save(String filename) throws IOException {
-        FileOutputStream fout = null;
-        ObjectOutputStream oout = null;
-        try {
-            fout = new FileOutputStream(filename);
-            oout = new ObjectOutputStream(fout);
+        try (ObjectOutputStream oout = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename)))) {
             oout.writeObject(this);
-        } catch (IOException e) {
-            System.out.println(e);
-        } finally {
-            try {
-                if (oout != null)
-                    oout.close();
-                else if (fout != null)
-                    fout.close();
-            } catch (IOException e) {
-            }
         }
     }
 }
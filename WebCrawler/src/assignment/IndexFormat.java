@@ -0,0 +1,503 @@
+package assignment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary file format of a WebIndex. Unlike Java serialization it does
+ * not depend on the layout of the classes, does not hold a second copy of
+ * the index while writing, and can be read one section at a time.
+ *
+ * A file is a fixed size header followed by five sections, in this order:
+ *
+ * - header: magic number, version, number of documents, terms and aliases,
+ *   then the offset in the file of each section and of the end of the file;
+ * - dictionary: the terms, as written by TermDictionary, followed by
+ *   the term table: for each term in dictionary order, and once more at
+ *   the end, the number of documents it occurs in and where its postings
+ *   and its positions start in their sections, as 4 byte integers;
+ * - postings: for each term, its document ids as varint gaps;
+ * - positions: for each term, the encoded positions of PostingList;
+ * - documents: the URL of each document, or nothing for a removed one;
+ * - aliases: pairs of duplicate and original URLs.
+ *
+ * Numbers in the header, dictionary and term table are fixed size and
+ * big-endian, all other numbers are unsigned varints and strings are a
+ * varint length and UTF-8 bytes. A reader that maps the file can find the
+ * postings of a term from its ordinal without reading anything else.
+ *
+ * Version 1 files, whose dictionary held each term as a string followed by
+ * varint counts and lengths, can still be read in one pass, but not mapped.
+ */
+public final class IndexFormat {
+	public static final int MAGIC = 0x57494458; // "WIDX"
+	public static final int VERSION = 2;
+
+	// magic, version, 3 counts, then the offsets of 5 sections and of the end
+	static final int HEADER_SIZE = 5 * 4 + 6 * 8;
+	static final int SECTIONS = 5;
+
+	static final int DICTIONARY = 0;
+	static final int POSTINGS = 1;
+	static final int POSITIONS = 2;
+	static final int DOCUMENTS = 3;
+	static final int ALIASES = 4;
+
+	private IndexFormat() {
+	}
+
+	/**
+	 * Writes an index to a file, replacing it if it exists. The index must
+	 * not change while it is written.
+	 *
+	 * @param index - the index to save, in memory or mapped
+	 * @param file - the file to write
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(QueryableIndex index, Path file) throws IOException {
+		String[] terms = TermDictionary.sort(index.getWords());
+		TermDictionary dictionary = new TermDictionary(terms);
+		PostingList[] postings = new PostingList[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			postings[i] = index.getWordPositions(terms[i]);
+		}
+		List<String> urls = index.getURLList();
+		Map<String, String> aliases = index.getAliases();
+
+		long[] offsets = new long[SECTIONS + 1];
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.position(HEADER_SIZE);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					Channels.newOutputStream(channel), 1 << 16));
+
+			offsets[DICTIONARY] = HEADER_SIZE;
+			dictionary.write(out);
+			long postingsLength = 0;
+			long positionsLength = 0;
+			for (int i = 0; i <= terms.length; i++) {
+				if (postingsLength > Integer.MAX_VALUE || positionsLength > Integer.MAX_VALUE)
+					throw new IOException("Index too large: postings exceed 2 GB");
+				out.writeInt(i < terms.length ? postings[i].encodedDocs().length : 0);
+				out.writeInt((int)postingsLength);
+				out.writeInt((int)positionsLength);
+				if (i < terms.length) {
+					postingsLength += gapsLength(postings[i].encodedDocs());
+					positionsLength += postings[i].encodedPositions().length;
+				}
+			}
+			offsets[POSTINGS] = position(out, channel);
+
+			byte[] gaps = new byte[64];
+			for (PostingList list : postings) {
+				int[] docs = list.encodedDocs();
+				if (gaps.length < docs.length * 5)
+					gaps = new byte[docs.length * 5];
+				out.write(gaps, 0, encodeGaps(docs, gaps));
+			}
+			offsets[POSITIONS] = position(out, channel);
+
+			for (PostingList list : postings) {
+				out.write(list.encodedPositions());
+			}
+			offsets[DOCUMENTS] = position(out, channel);
+
+			for (String url : urls) {
+				// 0 marks a removed page, other lengths are shifted by one
+				if (url == null) {
+					writeVarint(out, 0);
+				} else {
+					byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+					writeVarint(out, bytes.length + 1);
+					out.write(bytes);
+				}
+			}
+			offsets[ALIASES] = position(out, channel);
+
+			for (Map.Entry<String, String> alias : aliases.entrySet()) {
+				writeString(out, alias.getKey());
+				writeString(out, alias.getValue());
+			}
+			offsets[SECTIONS] = position(out, channel);
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION);
+			header.putInt(urls.size()).putInt(terms.length).putInt(aliases.size());
+			for (long offset : offsets) {
+				header.putLong(offset);
+			}
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+		}
+	}
+
+	/**
+	 * Returns where the next byte written will go, after flushing.
+	 */
+	private static long position(DataOutputStream out, FileChannel channel) throws IOException {
+		out.flush();
+		return channel.position();
+	}
+
+	/**
+	 * Reads an index from a stream, in one pass. The stream must be
+	 * positioned at the start of the file.
+	 *
+	 * @param stream - the contents of an index file
+	 * @return the index
+	 * @throws IOException if the stream could not be read, or is not a valid index
+	 */
+	public static WebIndex read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+		Header header = Header.read(in);
+
+		String[] terms;
+		int[] numDocs = new int[header.numTerms];
+		int[] gapsLength = new int[header.numTerms];
+		int[] positionsLength = new int[header.numTerms];
+		if (header.version == 1) {
+			terms = new String[header.numTerms];
+			for (int i = 0; i < terms.length; i++) {
+				terms[i] = readString(in);
+				numDocs[i] = readVarint(in);
+				gapsLength[i] = readVarint(in);
+				positionsLength[i] = readVarint(in);
+			}
+		} else {
+			TermDictionary dictionary = TermDictionary.read(in);
+			if (dictionary.size() != header.numTerms)
+				throw new IOException("Corrupt index: dictionary does not match header");
+			terms = dictionary.terms();
+
+			TermTable table = new TermTable(in, header.numTerms);
+			for (int i = 0; i < terms.length; i++) {
+				numDocs[i] = table.numDocs(i);
+				gapsLength[i] = table.postingsStart(i + 1) - table.postingsStart(i);
+				positionsLength[i] = table.positionsStart(i + 1) - table.positionsStart(i);
+			}
+		}
+
+		int[][] docs = new int[terms.length][];
+		for (int i = 0; i < terms.length; i++) {
+			byte[] gaps = new byte[gapsLength[i]];
+			in.readFully(gaps);
+			docs[i] = decodeGaps(gaps, 0, numDocs[i]);
+		}
+
+		HashMap<String, PostingList> index = new HashMap<String, PostingList>(terms.length * 2);
+		for (int i = 0; i < terms.length; i++) {
+			byte[] positions = new byte[positionsLength[i]];
+			in.readFully(positions);
+			index.put(terms[i], postingList(terms[i], docs[i], positions));
+			docs[i] = null;
+		}
+
+		ArrayList<String> urls = new ArrayList<String>(header.numDocs);
+		for (int i = 0; i < header.numDocs; i++) {
+			int length = readVarint(in);
+			if (length == 0) {
+				urls.add(null);
+			} else {
+				byte[] bytes = new byte[length - 1];
+				in.readFully(bytes);
+				urls.add(new String(bytes, StandardCharsets.UTF_8));
+			}
+		}
+
+		HashMap<String, String> aliases = new HashMap<String, String>();
+		for (int i = 0; i < header.numAliases; i++) {
+			aliases.put(readString(in), readString(in));
+		}
+
+		return new WebIndex(index, urls, aliases);
+	}
+
+	/**
+	 * Returns whether a stream starts like an index file, without consuming
+	 * anything.
+	 *
+	 * @param in - a stream supporting mark and reset
+	 * @return true if the stream starts with the magic number
+	 * @throws IOException if the stream could not be read
+	 */
+	static boolean isIndexFile(InputStream in) throws IOException {
+		return version(in) > 0;
+	}
+
+	/**
+	 * Returns the format version of a stream that starts like an index
+	 * file, without consuming anything.
+	 *
+	 * @param in - a stream supporting mark and reset
+	 * @return the version, or 0 if the stream does not start with the magic number
+	 * @throws IOException if the stream could not be read
+	 */
+	static int version(InputStream in) throws IOException {
+		in.mark(8);
+		try {
+			byte[] start = new byte[8];
+			int n = 0;
+			while (n < 8) {
+				int read = in.read(start, n, 8 - n);
+				if (read < 0)
+					return 0;
+				n += read;
+			}
+			ByteBuffer header = ByteBuffer.wrap(start);
+			return header.getInt() == MAGIC ? Math.max(header.getInt(), 1) : 0;
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * Creates a term's posting list, reporting inconsistent data as a corrupt file.
+	 */
+	static PostingList postingList(String term, int[] docs, byte[] positions) throws IOException {
+		try {
+			return new PostingList(docs, positions);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Corrupt postings for term " + term + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Decodes document ids stored as varint gaps.
+	 */
+	static int[] decodeGaps(byte[] bytes, int offset, int count) throws IOException {
+		int[] docs = new int[count];
+		int doc = 0;
+		int at = offset;
+		try {
+			for (int i = 0; i < count; i++) {
+				int gap = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = bytes[at++];
+					gap |= (b & 0x7f) << shift;
+					shift += 7;
+				} while (b < 0);
+				doc += gap;
+				docs[i] = doc;
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Corrupt index: postings end early");
+		}
+		return docs;
+	}
+
+	/**
+	 * Encodes document ids as varint gaps, returning the number of bytes used.
+	 */
+	private static int encodeGaps(int[] docs, byte[] bytes) {
+		int length = 0;
+		int previous = 0;
+		for (int doc : docs) {
+			int gap = doc - previous;
+			while ((gap & ~0x7f) != 0) {
+				bytes[length++] = (byte)((gap & 0x7f) | 0x80);
+				gap >>>= 7;
+			}
+			bytes[length++] = (byte)gap;
+			previous = doc;
+		}
+		return length;
+	}
+
+	private static int gapsLength(int[] docs) {
+		int length = 0;
+		int previous = 0;
+		for (int doc : docs) {
+			length += varintLength(doc - previous);
+			previous = doc;
+		}
+		return length;
+	}
+
+	static int varintLength(int value) {
+		int length = 1;
+		while ((value & ~0x7f) != 0) {
+			value >>>= 7;
+			length++;
+		}
+		return length;
+	}
+
+	static void writeVarint(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	static int readVarint(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = in.readByte();
+			value |= (b & 0x7f) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new IOException("Corrupt index: invalid number");
+	}
+
+	/**
+	 * Reads a varint at the position of a buffer, such as a mapped section.
+	 */
+	static int readVarint(ByteBuffer in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7f) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new IOException("Corrupt index: invalid number");
+	}
+
+	static String readString(ByteBuffer in) throws IOException {
+		byte[] bytes = new byte[readVarint(in)];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutput out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarint(out, bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[readVarint(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The term table of a version 2 file: for each term ordinal, the number
+	 * of documents and the start of the term's postings and positions. Read
+	 * into memory when streaming, and used in place when mapping.
+	 */
+	static class TermTable {
+		static final int ENTRY_SIZE = 12;
+
+		private final ByteBuffer table;
+		private final int numTerms;
+
+		/**
+		 * Uses a table in a buffer, and advances the buffer past it. Only
+		 * the ends are checked, so that opening a mapped file stays cheap;
+		 * the reader must check the entries it uses.
+		 */
+		TermTable(ByteBuffer in, int numTerms) throws IOException {
+			if ((long)(numTerms + 1) * ENTRY_SIZE > in.remaining())
+				throw new IOException("Corrupt index: term table ends early");
+			ByteBuffer table = in.slice();
+			table.limit((numTerms + 1) * ENTRY_SIZE);
+			in.position(in.position() + table.limit());
+			this.table = table.slice();
+			this.numTerms = numTerms;
+			if (postingsStart(0) != 0 || positionsStart(0) != 0)
+				throw new IOException("Corrupt index: bad term table");
+		}
+
+		/**
+		 * Reads a table from a stream.
+		 */
+		TermTable(DataInput in, int numTerms) throws IOException {
+			byte[] bytes = new byte[(numTerms + 1) * ENTRY_SIZE];
+			in.readFully(bytes);
+			table = ByteBuffer.wrap(bytes);
+			this.numTerms = numTerms;
+			check();
+		}
+
+		/**
+		 * Checks that the starts never go backwards, so every length is valid.
+		 */
+		private void check() throws IOException {
+			for (int i = 0; i < numTerms; i++) {
+				if (numDocs(i) < 0 || postingsStart(i + 1) < postingsStart(i)
+						|| positionsStart(i + 1) < positionsStart(i))
+					throw new IOException("Corrupt index: bad term table entry " + i);
+			}
+			if (postingsStart(0) != 0 || positionsStart(0) != 0)
+				throw new IOException("Corrupt index: bad term table");
+		}
+
+		int numDocs(int ordinal) {
+			return table.getInt(ordinal * ENTRY_SIZE);
+		}
+
+		int postingsStart(int ordinal) {
+			return table.getInt(ordinal * ENTRY_SIZE + 4);
+		}
+
+		int positionsStart(int ordinal) {
+			return table.getInt(ordinal * ENTRY_SIZE + 8);
+		}
+	}
+
+	/**
+	 * The header of an index file.
+	 */
+	static class Header {
+		int version;
+		int numDocs;
+		int numTerms;
+		int numAliases;
+		final long[] offsets = new long[SECTIONS + 1];
+
+		/**
+		 * Reads and checks a header.
+		 *
+		 * @throws IOException if the header is not that of a valid index
+		 */
+		static Header read(DataInput in) throws IOException {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not an index file");
+			int version = in.readInt();
+			if (version < 1 || version > VERSION)
+				throw new IOException("Unsupported index version " + version
+						+ ", expected at most " + VERSION);
+
+			Header header = new Header();
+			header.version = version;
+			header.numDocs = in.readInt();
+			header.numTerms = in.readInt();
+			header.numAliases = in.readInt();
+			for (int i = 0; i < header.offsets.length; i++) {
+				header.offsets[i] = in.readLong();
+			}
+
+			if (header.numDocs < 0 || header.numTerms < 0 || header.numAliases < 0
+					|| header.offsets[DICTIONARY] != HEADER_SIZE)
+				throw new IOException("Corrupt index header");
+			for (int i = 1; i < header.offsets.length; i++) {
+				if (header.offsets[i] < header.offsets[i - 1])
+					throw new IOException("Corrupt index header");
+			}
+			return header;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package assignment;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with power-of-two buckets: bucket i counts the
+ * latencies of at least 2^(i-1) but less than 2^i microseconds. Percentiles
+ * are therefore only accurate to within a factor of two, which is plenty
+ * to spot a slow host or a regression, and recording stays a couple of
+ * atomic increments.
+ *
+ * Safe for concurrent use.
+ */
+public class LatencyHistogram {
+	private static final int NUM_BUCKETS = 40;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Records one latency.
+	 *
+	 * @param nanos - the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+
+		long micros = nanos / 1000;
+		int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), NUM_BUCKETS - 1);
+		buckets.incrementAndGet(bucket);
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+
+		long max;
+		while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos))
+			;
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public double getMeanMillis() {
+		long n = count.get();
+		return n == 0 ? 0 : totalNanos.get() / 1e6 / n;
+	}
+
+	public double getMaxMillis() {
+		return maxNanos.get() / 1e6;
+	}
+
+	/**
+	 * Returns an upper bound on the given percentile: the top of the bucket
+	 * the percentile falls into, or the maximum if that is lower.
+	 *
+	 * @param percentile - between 0 and 100
+	 * @return the percentile in milliseconds, or 0 if nothing was recorded
+	 */
+	public double getPercentileMillis(double percentile) {
+		long n = count.get();
+		if (n == 0)
+			return 0;
+
+		long rank = (long)Math.ceil(percentile / 100 * n);
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank && seen > 0)
+				return Math.min((1L << i) / 1e3, getMaxMillis());
+		}
+		return getMaxMillis();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%6d, mean %.2f ms, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms",
+				getCount(), getMeanMillis(), getPercentileMillis(50), getPercentileMillis(90),
+				getPercentileMillis(99), getMaxMillis());
+	}
+}
@@ -0,0 +1,51 @@
+package assignment;
+
+/**
+ * SeenSet that puts a Bloom filter in front of an exact fingerprint table.
+ * Most URLs a crawler checks are new, and for those the Bloom filter
+ * answers without probing the (larger, possibly off-heap) table. URLs the
+ * filter may have seen are confirmed against the table, so the set is as
+ * accurate as the table alone.
+ */
+public class LayeredSeenSet implements SeenSet {
+	private BloomFilter front;
+	private FingerprintSet back;
+	
+	public LayeredSeenSet(BloomFilter front, FingerprintSet back) {
+		this.front = front;
+		this.back = back;
+	}
+
+	@Override
+	public boolean add(String url) {
+		long fp = FingerprintSet.fingerprint(url);
+		synchronized (this) {
+			if (front.addFingerprint(fp)) {
+				back.addFingerprint(fp);
+				return true;
+			}
+			return back.addFingerprint(fp);
+		}
+	}
+
+	@Override
+	public boolean contains(String url) {
+		long fp = FingerprintSet.fingerprint(url);
+		return front.containsFingerprint(fp) && back.containsFingerprint(fp);
+	}
+
+	@Override
+	public long size() {
+		return back.size();
+	}
+
+	@Override
+	public long memoryBytes() {
+		return front.memoryBytes() + back.memoryBytes();
+	}
+
+	@Override
+	public double falsePositiveRate() {
+		return back.falsePositiveRate();
+	}
+}
@@ -0,0 +1,35 @@
+package assignment;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+
+/**
+ * Frontier that hands out the most recently added URL first,
+ * giving a depth-first crawl.
+ */
+public class LifoFrontier extends DedupFrontier {
+	private ArrayDeque<URL> stack = new ArrayDeque<URL>();
+
+	public LifoFrontier() {
+		super();
+	}
+	
+	public LifoFrontier(SeenSet seen) {
+		super(seen);
+	}
+
+	@Override
+	protected void enqueue(URL url) {
+		stack.addFirst(url);
+	}
+
+	@Override
+	protected URL dequeue() {
+		return stack.pollFirst();
+	}
+
+	@Override
+	public int size() {
+		return stack.size();
+	}
+}
@@ -0,0 +1,329 @@
+package assignment;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * A read-only index backed by an index file mapped into memory, for the
+ * query engine. Opening it reads only the header and the block index of
+ * the term dictionary; the terms are looked up in the mapped file, and the
+ * postings of a word are read from it when the word is queried. Startup
+ * time therefore hardly depends on the size of the index, and only the
+ * parts of the file that queries touch are paged in. The mapping is shared
+ * through the page cache by every process that opens the same file.
+ *
+ * It only offers the methods of QueryableIndex; use Index.load to get a
+ * WebIndex that can be added to, or merge this one into a WebIndex.
+ */
+public class MappedWebIndex extends Index implements QueryableIndex {
+	private static final long serialVersionUID = 1L;
+
+	private final transient Path file;
+	private final transient int numDocs;
+
+	// term ordinals, and where the data of each ordinal starts in its section
+	private final transient TermDictionary dictionary;
+	private final transient IndexFormat.TermTable table;
+
+	private final transient ByteBuffer postings;
+	private final transient ByteBuffer positions;
+	private final transient ByteBuffer documents;
+	private final transient ByteBuffer aliasSection;
+	private final transient int numAliases;
+
+	// built from the mapped sections when first needed
+	private transient int[] urlOffsets;
+	private transient ArrayList<String> urlList;
+	private transient HashMap<String, Integer> docIds;
+	private transient HashMap<String, String> aliases;
+
+	/**
+	 * Opens an index file written by WebIndex.save.
+	 *
+	 * @param file - the index file
+	 * @throws IOException if the file could not be read, or is not a valid
+	 * 					   index of the current version
+	 */
+	public MappedWebIndex(Path file) throws IOException {
+		this.file = file;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer headerBytes = ByteBuffer.allocate(IndexFormat.HEADER_SIZE);
+			while (headerBytes.hasRemaining()) {
+				if (channel.read(headerBytes) < 0)
+					throw new IOException("Not an index file");
+			}
+			IndexFormat.Header header = IndexFormat.Header.read(
+					new DataInputStream(new ByteArrayInputStream(headerBytes.array())));
+			if (header.version != IndexFormat.VERSION)
+				throw new IOException("Index version " + header.version + " cannot be mapped");
+			if (header.offsets[IndexFormat.SECTIONS] > channel.size())
+				throw new IOException("Corrupt index: file is truncated");
+
+			numDocs = header.numDocs;
+			numAliases = header.numAliases;
+			postings = map(channel, header, IndexFormat.POSTINGS);
+			positions = map(channel, header, IndexFormat.POSITIONS);
+			documents = map(channel, header, IndexFormat.DOCUMENTS);
+			aliasSection = map(channel, header, IndexFormat.ALIASES);
+
+			ByteBuffer section = map(channel, header, IndexFormat.DICTIONARY);
+			dictionary = TermDictionary.read(section);
+			if (dictionary.size() != header.numTerms)
+				throw new IOException("Corrupt index: dictionary does not match header");
+			table = new IndexFormat.TermTable(section, header.numTerms);
+			if (table.postingsStart(header.numTerms) != postings.capacity()
+					|| table.positionsStart(header.numTerms) != positions.capacity())
+				throw new IOException("Corrupt index: dictionary does not match postings");
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Corrupt index: dictionary ends early");
+		}
+	}
+
+	/**
+	 * Maps one section of the file, read-only.
+	 */
+	private static MappedByteBuffer map(FileChannel channel, IndexFormat.Header header,
+			int section) throws IOException {
+		long start = header.offsets[section];
+		long length = header.offsets[section + 1] - start;
+		if (length > Integer.MAX_VALUE)
+			throw new IOException("Index section too large to map: " + length + " bytes");
+		return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+	}
+
+	/**
+	 * Opens an index for querying: mapped if it is a local file in the
+	 * current binary format, and otherwise loaded whole with Index.load.
+	 *
+	 * @param url - location of the index
+	 * @return the index
+	 * @throws IOException if the index could not be read
+	 * @throws ClassNotFoundException if a serialized index could not be read
+	 */
+	public static QueryableIndex open(URL url) throws IOException, ClassNotFoundException {
+		if ("file".equals(url.getProtocol())) {
+			try {
+				Path path = Paths.get(url.toURI());
+				int version;
+				try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 16)) {
+					version = IndexFormat.version(in);
+				}
+				if (version == IndexFormat.VERSION)
+					return new MappedWebIndex(path);
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				// not a plain file path, so load it like any other URL
+			}
+		}
+		return (WebIndex)Index.load(url);
+	}
+
+	@Override
+	public Collection<String> getWords() {
+		return Arrays.asList(dictionary.terms());
+	}
+
+	@Override
+	public PostingList getWordPositions(String word) {
+		int ordinal = dictionary.lookup(word);
+		if (ordinal < 0)
+			return null;
+
+		try {
+			int[] docs = docs(ordinal);
+			int start = table.positionsStart(ordinal);
+			int end = table.positionsStart(ordinal + 1);
+			if (end < start || end > positions.capacity())
+				throw new IOException("Corrupt index: bad term table entry " + ordinal);
+			byte[] encoded = new byte[end - start];
+			positions.get(start, encoded);
+			return IndexFormat.postingList(word, docs, encoded);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Decodes the document ids of a term, without its positions.
+	 */
+	private int[] docs(int ordinal) throws IOException {
+		int start = table.postingsStart(ordinal);
+		int end = table.postingsStart(ordinal + 1);
+		if (end < start || end > postings.capacity() || table.numDocs(ordinal) < 0)
+			throw new IOException("Corrupt index: bad term table entry " + ordinal);
+		byte[] gaps = new byte[end - start];
+		postings.get(start, gaps);
+		return IndexFormat.decodeGaps(gaps, 0, table.numDocs(ordinal));
+	}
+
+	/**
+	 * Finds the pages containing a word that starts with a prefix, reading
+	 * only the document ids of the words in the dictionary range of the prefix.
+	 */
+	@Override
+	public int[] getDocsWithPrefix(String prefix) {
+		BitSet found = new BitSet(numDocs);
+		try {
+			PrimitiveIterator.OfInt ordinals = dictionary.prefix(prefix);
+			while (ordinals.hasNext()) {
+				for (int doc : docs(ordinals.nextInt())) {
+					found.set(doc);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return found.stream().toArray();
+	}
+
+	/**
+	 * Returns the words of the index.
+	 *
+	 * @return the term dictionary
+	 */
+	public TermDictionary getTermDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Returns the number of distinct words in the index.
+	 *
+	 * @return the size of the dictionary
+	 */
+	public int getNumTerms() {
+		return dictionary.size();
+	}
+
+	@Override
+	public int getNumDocs() {
+		return numDocs;
+	}
+
+	@Override
+	public synchronized String getURL(int docId) {
+		if (docId < 0 || docId >= numDocs)
+			throw new IndexOutOfBoundsException("No document " + docId);
+
+		try {
+			if (urlOffsets == null) {
+				// the URLs have different lengths, so find where each one starts
+				urlOffsets = new int[numDocs];
+				ByteBuffer in = documents.duplicate();
+				for (int i = 0; i < numDocs; i++) {
+					urlOffsets[i] = in.position();
+					int length = IndexFormat.readVarint(in);
+					in.position(in.position() + Math.max(length - 1, 0));
+				}
+			}
+
+			ByteBuffer in = documents.duplicate();
+			in.position(urlOffsets[docId]);
+			int length = IndexFormat.readVarint(in);
+			if (length == 0)
+				return null;
+			byte[] bytes = new byte[length - 1];
+			in.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		} catch (IOException | RuntimeException e) {
+			urlOffsets = null;
+			throw new UncheckedIOException(new IOException("Corrupt index: bad document table", e));
+		}
+	}
+
+	/**
+	 * Returns every URL of the index, decoding the whole document table the
+	 * first time. Queries use getURL instead.
+	 */
+	@Override
+	public synchronized ArrayList<String> getURLList() {
+		if (urlList == null) {
+			ArrayList<String> urls = new ArrayList<String>(numDocs);
+			for (int i = 0; i < numDocs; i++) {
+				urls.add(getURL(i));
+			}
+			urlList = urls;
+		}
+		return urlList;
+	}
+
+	@Override
+	public synchronized int getDocId(String URL) {
+		if (docIds == null) {
+			List<String> urls = getURLList();
+			docIds = new HashMap<String, Integer>(urls.size() * 2);
+			for (int i = 0; i < urls.size(); i++) {
+				// like WebIndex, the first slot of a URL wins; removed pages leave null
+				if (urls.get(i) != null)
+					docIds.putIfAbsent(urls.get(i), i);
+			}
+		}
+		Integer docId = docIds.get(URL);
+		return docId == null ? -1 : docId;
+	}
+
+	@Override
+	public synchronized HashMap<String, String> getAliases() {
+		if (aliases == null) {
+			HashMap<String, String> read = new HashMap<String, String>();
+			ByteBuffer in = aliasSection.duplicate();
+			try {
+				for (int i = 0; i < numAliases; i++) {
+					read.put(IndexFormat.readString(in), IndexFormat.readString(in));
+				}
+			} catch (IOException | BufferUnderflowException e) {
+				throw new UncheckedIOException(new IOException("Corrupt index: bad aliases", e));
+			}
+			aliases = read;
+		}
+		return aliases;
+	}
+
+	/**
+	 * Copies the index file, which already holds the whole index.
+	 */
+	@Override
+	public void save(String filename) throws IOException {
+		Path target = Paths.get(filename);
+		if (!Files.exists(target) || !Files.isSameFile(file, target))
+			Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Serializes the whole index, read from the file, rather than the mapping.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return IndexFormat.read(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "MappedWebIndex(" + file + ", " + dictionary.size() + " terms, " + numDocs + " pages)";
+	}
+}
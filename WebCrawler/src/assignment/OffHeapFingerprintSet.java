@@ -0,0 +1,55 @@
+package assignment;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * FingerprintSet whose table lives in a direct buffer outside the Java
+ * heap, so that very large seen-sets neither count against the heap size
+ * nor have to be scanned by the garbage collector. Limited to 2^27 slots
+ * by the maximum size of a direct buffer.
+ */
+public class OffHeapFingerprintSet extends FingerprintSet {
+	private static final int MAX_CAPACITY = 1 << 27;
+	
+	private LongBuffer table;
+	private LongBuffer previous;
+
+	@Override
+	protected void allocate(int capacity) {
+		if (capacity > MAX_CAPACITY)
+			throw new IllegalStateException("Off-heap fingerprint table is full");
+		
+		previous = table;
+		table = ByteBuffer.allocateDirect(8 * capacity)
+				.order(ByteOrder.nativeOrder())
+				.asLongBuffer();
+	}
+
+	@Override
+	protected long getPrevious(int slot) {
+		return previous.get(slot);
+	}
+
+	@Override
+	protected void dropPrevious() {
+		// the native memory is freed once the buffer is garbage collected
+		previous = null;
+	}
+
+	@Override
+	protected long get(int slot) {
+		return table.get(slot);
+	}
+
+	@Override
+	protected void set(int slot, long fingerprint) {
+		table.put(slot, fingerprint);
+	}
+
+	@Override
+	protected long tableBytes(int capacity) {
+		return 8L * capacity;
+	}
+}
@@ -1,18 +1,16 @@
 package assignment;
 
-import java.util.Set;
-
 /**
  *  Defines a single node in the parse tree.
  *  Contains flag to check if it has already been evaluated,
- *  left and right children, its token, and the list of URL indices if 
+ *  left and right children, its token, and the sorted URL indices if 
  *  they have already been calculated.
  * @author Aaron
  *
  */	
 public class PTreeNode {
 	PTreeNode left, right;
-	Set<Integer> urlIndices;
+	int[] urlIndices;
 	Token t;
 
 	public PTreeNode(Token t, PTreeNode left, PTreeNode right) {
@@ -22,7 +20,7 @@ public class PTreeNode {
 	}
 
 	public PTreeNode(Token t, PTreeNode left, PTreeNode right,
-			Set<Integer> indices) {
+			int[] indices) {
 		this(t, left, right);
 		urlIndices = indices;
 	}		
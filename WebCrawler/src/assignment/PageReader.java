@@ -0,0 +1,159 @@
+package assignment;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * A Reader over the decoded text of one page at a time, reused from page to
+ * page so that parsing a page does not allocate a new reader, decoder and
+ * buffer. Each WebCrawler owns one, so it is not safe for concurrent use.
+ * 
+ * It extends BufferedReader only because TagSoup wraps any other Reader in
+ * a new BufferedReader for every document; the inherited buffer is unused.
+ */
+class PageReader extends BufferedReader {
+	/** Encoding assumed for pages that declare none and are not valid UTF-8. */
+	static final Charset FALLBACK = Charset.forName("windows-1252");
+	
+	private static final Reader UNUSED = new StringReader("");
+	
+	private char[] chars;
+	private CharBuffer out;
+	private int length;
+	private int pos;
+	private HashMap<Charset, CharsetDecoder> decoders;
+	
+	PageReader() {
+		super(UNUSED, 1);
+		chars = new char[16384];
+		out = CharBuffer.wrap(chars);
+		decoders = new HashMap<Charset, CharsetDecoder>();
+	}
+	
+	/**
+	 * Makes the reader return the text of a new page.
+	 * 
+	 * @param body - the raw bytes of the page, from position to limit
+	 * @param charset - the declared encoding of the page, or null to use
+	 * 					UTF-8 if the page is valid UTF-8 and FALLBACK otherwise
+	 * @return the encoding used
+	 */
+	Charset setPage(ByteBuffer body, Charset charset) {
+		if (charset == null) {
+			try {
+				decode(body, StandardCharsets.UTF_8, CodingErrorAction.REPORT);
+				return StandardCharsets.UTF_8;
+			} catch (CharacterCodingException e) {
+				charset = FALLBACK;
+			}
+		}
+		
+		try {
+			decode(body, charset, CodingErrorAction.REPLACE);
+		} catch (CharacterCodingException e) {
+			// cannot happen when malformed input is replaced
+			throw new IllegalStateException(e);
+		}
+		return charset;
+	}
+	
+	private void decode(ByteBuffer body, Charset charset, CodingErrorAction onError)
+			throws CharacterCodingException {
+		CharsetDecoder decoder = decoders.get(charset);
+		if (decoder == null) {
+			decoder = charset.newDecoder();
+			decoders.put(charset, decoder);
+		}
+		decoder.reset();
+		decoder.onMalformedInput(onError);
+		decoder.onUnmappableCharacter(onError);
+		
+		int needed = (int)Math.ceil(body.remaining() * (double)decoder.maxCharsPerByte()) + 1;
+		if (needed > chars.length) {
+			chars = new char[Math.max(needed, chars.length * 2)];
+			out = CharBuffer.wrap(chars);
+		}
+		out.clear();
+		
+		ByteBuffer in = body.duplicate();
+		CoderResult result = decoder.decode(in, out, true);
+		if (result.isError())
+			result.throwException();
+		result = decoder.flush(out);
+		if (result.isError())
+			result.throwException();
+		
+		length = out.position();
+		pos = 0;
+	}
+	
+	@Override
+	public int read() {
+		return pos < length ? chars[pos++] : -1;
+	}
+	
+	@Override
+	public int read(char[] cbuf, int off, int len) {
+		if (len == 0)
+			return 0;
+		if (pos >= length)
+			return -1;
+		
+		int n = Math.min(len, length - pos);
+		System.arraycopy(chars, pos, cbuf, off, n);
+		pos += n;
+		return n;
+	}
+	
+	@Override
+	public String readLine() {
+		if (pos >= length)
+			return null;
+		
+		int start = pos;
+		while (pos < length && chars[pos] != '\n' && chars[pos] != '\r')
+			pos++;
+		String line = new String(chars, start, pos - start);
+		
+		if (pos < length && chars[pos] == '\r')
+			pos++;
+		if (pos < length && chars[pos] == '\n')
+			pos++;
+		return line;
+	}
+	
+	@Override
+	public long skip(long n) {
+		int skipped = (int)Math.min(n, length - pos);
+		pos += skipped;
+		return skipped;
+	}
+	
+	@Override
+	public boolean ready() {
+		return pos < length;
+	}
+	
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+	
+	/**
+	 * Does nothing, so the reader can be used for the next page after
+	 * TagSoup closes it.
+	 */
+	@Override
+	public void close() {
+	}
+}
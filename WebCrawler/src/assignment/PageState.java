@@ -0,0 +1,41 @@
+package assignment;
+
+import java.io.Serializable;
+
+/**
+ * What the crawler remembers about a page between crawls: a hash of its
+ * content, the validators needed for a conditional request, and the links
+ * it contained, so an unchanged page does not have to be parsed again to
+ * continue the crawl.
+ */
+public class PageState implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	private long contentHash;
+	private String etag;
+	private String lastModified;
+	private String[] links;
+	
+	public PageState(long contentHash, String etag, String lastModified, String[] links) {
+		this.contentHash = contentHash;
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.links = links;
+	}
+	
+	public long getContentHash() {
+		return contentHash;
+	}
+	
+	public String getETag() {
+		return etag;
+	}
+	
+	public String getLastModified() {
+		return lastModified;
+	}
+	
+	public String[] getLinks() {
+		return links;
+	}
+}
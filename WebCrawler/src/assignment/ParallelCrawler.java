@@ -0,0 +1,578 @@
+package assignment;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.FlightRecorder;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Runs a crawl with a fixed number of worker threads. Every worker owns
+ * its own WebCrawler (and therefore its own TagSoup parser and SAX handler
+ * state), while the frontier, the set of visited pages and the WebIndex
+ * are shared between all of them.
+ */
+public class ParallelCrawler {
+	private final int numThreads;
+	private final WebIndex webIndex;
+	private final SeenSet visitedPages;
+
+	// frontier and number of pages currently being parsed, guarded by this
+	private final Frontier frontier;
+	private int inFlight;
+
+	// while held open, running out of URLs waits for more to be offered instead of ending the crawl
+	private boolean open;
+
+	// robots.txt rules, or null to ignore them
+	private RobotsCache robots;
+	
+	// state of the pages from the previous crawl, or null to parse every page
+	private RecrawlStore recrawlStore;
+
+	// finds pages that duplicate one already indexed, or null to index every page
+	private DuplicateDetector duplicates;
+
+	// downloads pages for every worker, or null for the WebCrawler default
+	private Fetcher fetcher;
+
+	// limits enforced by a BudgetedFrontier, or null if the crawl is unlimited
+	private CrawlBudget budget;
+
+	// limit on pages worked on at once below the number of threads, or null for none
+	private AdaptiveConcurrency concurrency;
+
+	// latencies and totals of the crawl, or null to record none
+	private CrawlMetrics metrics;
+	private long progressMillis;
+
+	// optional checkpointing, also guarded by this
+	private Checkpointer checkpointer;
+	private int checkpointInterval;
+	private int pagesSinceCheckpoint;
+
+	/**
+	 * Creates a crawler that uses the given number of worker threads.
+	 *
+	 * @param numThreads - number of pages that may be fetched and parsed at once
+	 */
+	public ParallelCrawler(int numThreads) {
+		this(numThreads, new FifoFrontier(), new HeapFingerprintSet());
+	}
+
+	/**
+	 * Creates a crawler that uses the given number of worker threads and
+	 * hands out URLs in the order chosen by the given frontier.
+	 *
+	 * @param numThreads - number of pages that may be fetched and parsed at once
+	 * @param frontier - an empty frontier
+	 * @param visitedPages - an empty set to record the pages parsed
+	 */
+	public ParallelCrawler(int numThreads, Frontier frontier, SeenSet visitedPages) {
+		this(numThreads, frontier, visitedPages, new WebIndex());
+	}
+
+	/**
+	 * Creates a crawler that adds the pages it parses to an existing index,
+	 * such as the one built by a previous crawl.
+	 *
+	 * @param numThreads - number of pages that may be fetched and parsed at once
+	 * @param frontier - an empty frontier
+	 * @param visitedPages - an empty set to record the pages parsed
+	 * @param webIndex - the index to add pages to
+	 */
+	public ParallelCrawler(int numThreads, Frontier frontier, SeenSet visitedPages, WebIndex webIndex) {
+		if (numThreads < 1)
+			throw new IllegalArgumentException("Need at least one thread: " + numThreads);
+
+		this.numThreads = numThreads;
+		this.webIndex = webIndex;
+		this.visitedPages = visitedPages;
+		this.frontier = frontier;
+	}
+
+	/**
+	 * Crawls every page reachable from the seed URLs. Returns once the
+	 * frontier is empty and no worker is still parsing a page.
+	 *
+	 * @param seeds - URLs the crawl starts from
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	public void crawl(List<URL> seeds) throws InterruptedException {
+		synchronized (this) {
+			if (checkpointer != null)
+				webIndex.trackChanges();
+			enqueue(seeds);
+		}
+
+		Runnable progressEvent = null;
+		ScheduledExecutorService progress = null;
+		if (metrics != null) {
+			progressEvent = new Runnable() {
+				@Override
+				public void run() {
+					CrawlEvents.Progress event = new CrawlEvents.Progress();
+					metrics.fill(event, frontierSize(), dedupHits());
+					event.commit();
+				}
+			};
+			FlightRecorder.addPeriodicEvent(CrawlEvents.Progress.class, progressEvent);
+			if (progressMillis > 0)
+				progress = startProgress();
+		}
+
+		try {
+			runWorkers();
+		} finally {
+			if (progress != null)
+				progress.shutdownNow();
+			if (progressEvent != null)
+				FlightRecorder.removePeriodicEvent(progressEvent);
+		}
+
+		synchronized (this) {
+			if (checkpointer != null)
+				checkpoint();
+		}
+	}
+
+	/**
+	 * Runs the threads that crawl the pages and waits until they are done.
+	 * Each worker fetches, parses and indexes a page before taking the next.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	void runWorkers() throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		for (int i = 0; i < numThreads; i++) {
+			pool.execute(new Worker());
+		}
+
+		pool.shutdown();
+		while (!pool.awaitTermination(1, TimeUnit.SECONDS))
+			;
+	}
+
+	/**
+	 * Starts a thread printing a progress line at the interval set with
+	 * setMetrics.
+	 *
+	 * @return the executor running the thread, to be shut down after the crawl
+	 */
+	private ScheduledExecutorService startProgress() {
+		ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "crawl-progress");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		progress.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				System.out.println(metrics.progressLine(frontierSize(), dedupHits()));
+			}
+		}, progressMillis, progressMillis, TimeUnit.MILLISECONDS);
+		return progress;
+	}
+
+	/**
+	 * Creates the WebCrawler used by one worker thread, set up with the
+	 * shared index, visited pages and crawl options.
+	 *
+	 * @return a new WebCrawler
+	 */
+	WebCrawler createCrawler() {
+		WebCrawler crawler = new WebCrawler(webIndex, visitedPages);
+		crawler.setRecrawlStore(recrawlStore);
+		crawler.setDuplicateDetector(duplicates);
+		if (fetcher != null)
+			crawler.setFetcher(fetcher);
+		crawler.setCrawlBudget(budget);
+		crawler.setMetrics(metrics);
+		crawler.setConcurrency(concurrency);
+		return crawler;
+	}
+
+	/**
+	 * Returns whether a page may be crawled according to its host's robots.txt.
+	 *
+	 * @param url - the page
+	 * @return true if the page may be crawled or robots.txt is ignored
+	 */
+	boolean isAllowed(URL url) {
+		return robots == null || robots.isAllowed(url);
+	}
+
+	/**
+	 * Saves the state of the crawl every given number of pages, so that
+	 * it can later be resumed. Must be called before crawl.
+	 *
+	 * @param checkpointer - where to save the checkpoints
+	 * @param interval - number of pages crawled between checkpoints
+	 */
+	public synchronized void setCheckpointer(Checkpointer checkpointer, int interval) {
+		if (interval < 1)
+			throw new IllegalArgumentException("Invalid checkpoint interval: " + interval);
+
+		this.checkpointer = checkpointer;
+		this.checkpointInterval = interval;
+	}
+
+	/**
+	 * Makes the crawler skip pages disallowed by their host's robots.txt.
+	 * Must be called before crawl.
+	 *
+	 * @param robots - cache of robots.txt rules, shared with the frontier
+	 * 				   if it honors crawl delays
+	 */
+	public void setRobotsCache(RobotsCache robots) {
+		this.robots = robots;
+	}
+
+	/**
+	 * Makes the crawl incremental: pages that have not changed since they
+	 * were recorded in the store are not parsed again. Must be called
+	 * before crawl.
+	 *
+	 * @param recrawlStore - state of the pages from the previous crawl
+	 */
+	public void setRecrawlStore(RecrawlStore recrawlStore) {
+		this.recrawlStore = recrawlStore;
+	}
+
+	/**
+	 * Lets the crawl adjust how many pages it works on at once to the fetch
+	 * latencies it observes, up to the number of threads. Must be called
+	 * before crawl.
+	 *
+	 * @param concurrency - the limit, or null to keep every thread busy
+	 */
+	public synchronized void setConcurrency(AdaptiveConcurrency concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Sets how the workers download pages. Must be called before crawl.
+	 *
+	 * @param fetcher - fetcher shared by all workers, which must be safe for
+	 * 					concurrent use
+	 */
+	public void setFetcher(Fetcher fetcher) {
+		this.fetcher = fetcher;
+	}
+
+	/**
+	 * Makes the workers record how long each page takes to fetch, parse
+	 * and index, and prints a progress line while the crawl runs. The
+	 * totals are also emitted as JDK Flight Recorder events. Must be called
+	 * before crawl.
+	 *
+	 * @param metrics - where the workers record their latencies
+	 * @param progressMillis - time between progress lines, or 0 to print none
+	 */
+	public void setMetrics(CrawlMetrics metrics, long progressMillis) {
+		if (progressMillis < 0)
+			throw new IllegalArgumentException("Invalid progress interval: " + progressMillis);
+
+		this.metrics = metrics;
+		this.progressMillis = progressMillis;
+	}
+
+	/**
+	 * Makes the workers report the bytes they download to a budget, so the
+	 * BudgetedFrontier enforcing it can stop the crawl once the byte limit
+	 * is reached. Must be called before crawl.
+	 *
+	 * @param budget - the budget of the frontier
+	 */
+	public void setCrawlBudget(CrawlBudget budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Makes the workers record duplicate pages as aliases instead of
+	 * indexing them. Must be called before crawl.
+	 *
+	 * @param duplicates - detector shared by all workers
+	 */
+	public void setDuplicateDetector(DuplicateDetector duplicates) {
+		this.duplicates = duplicates;
+	}
+
+	/**
+	 * Restores the frontier, visited pages and index from the last
+	 * checkpoint. Must be called after setCheckpointer and before crawl.
+	 *
+	 * @return true if there was a checkpoint to resume from
+	 * @throws IOException if the checkpoint could not be read
+	 */
+	public synchronized boolean resume() throws IOException {
+		if (checkpointer == null)
+			throw new IllegalStateException("No checkpointer set.");
+		return checkpointer.restore(webIndex, frontier, visitedPages);
+	}
+
+	/**
+	 * Returns the WebIndex shared by all workers.
+	 *
+	 * @return the WebIndex covering all pages crawled so far
+	 */
+	public WebIndex getWebIndex() {
+		return webIndex;
+	}
+
+	/**
+	 * Returns the frontier, so its statistics can be reported.
+	 * Only safe to inspect once the crawl has finished.
+	 *
+	 * @return the frontier used by this crawl
+	 */
+	public Frontier getFrontier() {
+		return frontier;
+	}
+
+	/**
+	 * Returns the set of pages parsed so far.
+	 *
+	 * @return the visited-page set shared by all workers
+	 */
+	public SeenSet getVisitedPages() {
+		return visitedPages;
+	}
+
+	/**
+	 * Return total number of unique web pages crawled.
+	 * @return number of unique web pages crawled
+	 */
+	public int numPagesVisited() {
+		return (int)visitedPages.size();
+	}
+
+	/**
+	 * Removes the next URL from the frontier, waiting while the frontier is
+	 * empty but other workers may still add links to it, or while it holds
+	 * URLs that may not be crawled yet.
+	 *
+	 * @return the next URL to parse, or null if the crawl is finished
+	 */
+	synchronized URL take() throws InterruptedException {
+		URL url;
+		while (true) {
+			boolean checkpointDue = checkpointer != null
+					&& pagesSinceCheckpoint >= checkpointInterval;
+
+			// a checkpoint waits until no page is half-way through being indexed
+			if (checkpointDue && inFlight == 0) {
+				checkpoint();
+				continue;
+			}
+
+			if (!checkpointDue) {
+				if (concurrency != null && inFlight >= concurrency.getLimit()) {
+					// wait for a page to be done, which may also have changed the limit
+				} else if (!frontier.isEmpty()) {
+					long delay = frontier.delayMillis();
+					if (delay == 0) {
+						// a frontier may still drop the URL it was about to hand out
+						url = frontier.poll();
+						if (url != null)
+							break;
+						continue;
+					}
+					if (delay != Long.MAX_VALUE) {
+						wait(delay);
+						continue;
+					}
+				} else if (inFlight == 0 && !open) {
+					return null;
+				}
+			}
+			wait();
+		}
+
+		inFlight++;
+		if (checkpointer != null) {
+			checkpointer.done(url);
+			pagesSinceCheckpoint++;
+		}
+		return url;
+	}
+
+	/**
+	 * Writes a checkpoint. Must be called while holding the lock on this
+	 * crawler, with no page being parsed. A failed checkpoint is reported
+	 * but does not stop the crawl.
+	 */
+	private void checkpoint() {
+		try {
+			checkpointer.checkpoint(webIndex);
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+		pagesSinceCheckpoint = 0;
+	}
+
+	/**
+	 * Adds the links found on a page to the frontier and wakes up any
+	 * workers waiting for more work.
+	 *
+	 * @param url - the page that was just parsed
+	 * @param links - links found on the page
+	 */
+	private synchronized void finish(URL url, List<URL> links) {
+		fetched(url);
+		addLinks(url, links);
+		pageDone();
+	}
+
+	/**
+	 * Tells the frontier that a page has been downloaded, so another page
+	 * from the same host may be fetched.
+	 *
+	 * @param url - the page that was downloaded, or failed to be
+	 */
+	synchronized void fetched(URL url) {
+		frontier.done(url);
+		notifyAll();
+	}
+
+	/**
+	 * Adds the links found on a page to the frontier and wakes up any
+	 * workers waiting for more work. Must be called once for every URL
+	 * taken, with no links if the page could not be crawled.
+	 *
+	 * @param url - the page the links were found on
+	 * @param links - links found on the page
+	 */
+	synchronized void addLinks(URL url, List<URL> links) {
+		for (URL link : frontier.addLinks(url, links)) {
+			if (checkpointer != null)
+				checkpointer.queued(link);
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Records that a page taken from the frontier has been fully handled.
+	 * The crawl ends, and checkpoints are written, only when no page is
+	 * still being handled.
+	 */
+	synchronized void pageDone() {
+		inFlight--;
+		notifyAll();
+	}
+
+	/**
+	 * Keeps the crawl running when it runs out of URLs, until release is
+	 * called, so URLs found by other crawlers can still be offered to it.
+	 * Must be called before crawl.
+	 */
+	synchronized void holdOpen() {
+		open = true;
+	}
+
+	/**
+	 * Lets a crawl held open end once it runs out of URLs.
+	 */
+	synchronized void release() {
+		open = false;
+		notifyAll();
+	}
+
+	/**
+	 * Adds URLs found by another crawler to the frontier.
+	 *
+	 * @param urls - URLs to crawl
+	 */
+	synchronized void offer(List<URL> urls) {
+		enqueue(urls);
+		notifyAll();
+	}
+
+	/**
+	 * Returns whether the frontier is empty and no page is being handled,
+	 * so nothing more will be crawled unless URLs are offered.
+	 *
+	 * @return true if the crawler has no work
+	 */
+	synchronized boolean isIdle() {
+		return frontier.isEmpty() && inFlight == 0;
+	}
+
+	/**
+	 * Returns the number of URLs waiting in the frontier.
+	 *
+	 * @return the size of the frontier
+	 */
+	synchronized int frontierSize() {
+		return frontier.size();
+	}
+
+	/**
+	 * Returns the number of URLs the frontier dropped as duplicates.
+	 *
+	 * @return the frontier's dedup hits
+	 */
+	synchronized long dedupHits() {
+		return frontier.getDedupHits();
+	}
+
+	/**
+	 * Adds URLs to the frontier, which drops any that were seen before.
+	 * Must be called while holding the lock on this crawler.
+	 *
+	 * @param urls - URLs to crawl
+	 */
+	private void enqueue(List<URL> urls) {
+		for (URL url : urls) {
+			// the journal holds URLs as the frontier hands them out
+			if (frontier.add(url) && checkpointer != null)
+				checkpointer.queued(frontier.canonicalize(url));
+		}
+	}
+
+	/**
+	 * Pulls URLs from the shared frontier until the crawl is finished.
+	 */
+	private class Worker implements Runnable {
+		private final WebCrawler crawler = createCrawler();
+
+		@Override
+		public void run() {
+			try {
+				URL url;
+				while ((url = take()) != null) {
+					List<URL> links = new LinkedList<URL>();
+					try {
+						if (isAllowed(url))
+							links = crawler.parse(url);
+					} catch (MalformedURLException e) {
+						System.out.println(e);
+					} catch (IOException e) {
+						System.out.println(e);
+					} catch (RuntimeException e) {
+						System.out.println(e);
+					} catch (SAXException e) {
+						System.out.println(e);
+					} finally {
+						finish(url, links);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
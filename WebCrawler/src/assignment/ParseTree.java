@@ -1,20 +1,18 @@
 package assignment;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Set;
 import java.util.Stack;
 
 
 public class ParseTree {
-	private WebIndex webIndex;
+	private QueryableIndex webIndex;
 	private PTreeNode root;
 	private Tokenizer tokenizer;	
 	
-	public ParseTree(String query, WebIndex webIndex) {
+	public ParseTree(String query, QueryableIndex webIndex) {
 		this.webIndex = webIndex;
 		this.tokenizer = new Tokenizer(query);
 		root = parseQuery();
@@ -54,6 +52,7 @@ public class ParseTree {
 	/**
 	 * Creates a PTreeNode representing a word. Also finds all 
 	 * URL indices that contain the word and stores the data in the node. 
+	 * A word ending in * stands for every word that starts with it.
 	 * @param t the Token containing a word
 	 * @return the node representing the word and its URL indices
 	 */
@@ -67,15 +66,20 @@ public class ParseTree {
 			return null;
 		}
 		
+		// a word ending in * matches every word starting with the rest of it
+		if (t.wordToken.length() > 1 && t.wordToken.endsWith("*")) {
+			String prefix = t.wordToken.substring(0, t.wordToken.length() - 1);
+			return new PTreeNode(t, null, null, webIndex.getDocsWithPrefix(prefix));
+		}
+		
 		// grab all indices for this word
-		HashMap<Integer, HashSet<Integer>> wordPositions = 
-				webIndex.getWordPositions(t.wordToken);
+		PostingList wordPositions = webIndex.getWordPositions(t.wordToken);
 		// check if there is no entry
 		if (wordPositions == null)
-			return new PTreeNode(t, null, null, new HashSet<Integer>());
+			return new PTreeNode(t, null, null, new int[0]);
 		else {
 			// initialize node with the token and URL indices
-			return new PTreeNode(t, null, null, wordPositions.keySet());
+			return new PTreeNode(t, null, null, wordPositions.getDocs());
 		}
 	}
 	
@@ -98,19 +102,22 @@ public class ParseTree {
 		PTreeNode negation = makeWord(t);
 		t.negated = true;
 		
-		// construct negation indices
-		Set<Integer> currentIndices = negation.urlIndices;
-		Set<Integer> negatedIndices = new HashSet<Integer>();
-
-		int numURLs = webIndex.getURLList().size();
+		// construct negation indices, walking both sorted lists together
+		int[] currentIndices = negation.urlIndices;
+		int numURLs = webIndex.getNumDocs();
+		int[] negatedIndices = new int[numURLs];
+		int numNegated = 0;
+		int next = 0;
 		
 		for (int num = 0; num < numURLs; num++) {
-			if (!currentIndices.contains(num)) {
-				negatedIndices.add(num);
+			while (next < currentIndices.length && currentIndices[next] < num)
+				next++;
+			if (next == currentIndices.length || currentIndices[next] != num) {
+				negatedIndices[numNegated++] = num;
 			}
 		}		
 		
-		negation.urlIndices = negatedIndices;
+		negation.urlIndices = Arrays.copyOf(negatedIndices, numNegated);
 
 		// initialize node with the token and URL indices
 		return negation;
@@ -132,68 +139,53 @@ public class ParseTree {
 		
 		// check the phrase is non-empty
 		if (words == null || words.size() == 0) {
-			return new PTreeNode(t, null, null, new HashSet<Integer>());
-		}
-		
-		// grab indices of first word
-		HashMap<Integer, HashSet<Integer>> positions = webIndex.getWordPositions(words.get(0));
-		if (positions == null || positions.keySet() == null) {
-			return new PTreeNode(t, null, null, new HashSet<Integer>());
+			return new PTreeNode(t, null, null, new int[0]);
 		}
 		
-		Set<Integer> indices = webIndex.getWordPositions(words.get(0)).keySet();
-		
-		// check indices are non-empty
-		if (indices == null)
-			return new PTreeNode(t, null, null, new HashSet<Integer>());
-		else if (indices.isEmpty()) {
-			return new PTreeNode(t, null, null, new HashSet<Integer>());
+		// grab postings of each word, giving up if one is not in the WebIndex
+		PostingList[] postings = new PostingList[words.size()];
+		for (int wordIndex = 0; wordIndex < words.size(); wordIndex++) {
+			postings[wordIndex] = webIndex.getWordPositions(words.get(wordIndex));
+			if (postings[wordIndex] == null)
+				return new PTreeNode(t, null, null, new int[0]);
 		}
 		
 		// continually take intersection to find subset of indices that contain all words in phrase
-		for (int wordIndex = 1; wordIndex < words.size(); wordIndex++) {
-			HashMap<Integer, HashSet<Integer>> wordPosns = 
-					webIndex.getWordPositions(words.get(wordIndex));
-			// check that this word is in the WebIndex
-			if (wordPosns == null)
-				return new PTreeNode(t, null, null, new HashSet<Integer>());
-			else {
-				Set<Integer> tempIndices = webIndex.getWordPositions(words.get(wordIndex)).keySet();
-				indices.retainAll(tempIndices);
-			}
+		int[] indices = postings[0].getDocs();
+		for (int wordIndex = 1; wordIndex < words.size() && indices.length > 0; wordIndex++) {
+			indices = PostingList.intersect(indices, postings[wordIndex].getDocs());
 		}
 		
 		// store all indices corresponding to URLs that contain all the words in the 
 		// correct order
-		Set<Integer> phraseIndices = new HashSet<Integer>();
+		int[] phraseIndices = new int[indices.length];
+		int numPhrase = 0;
 		
 		// for each URL index, determine if it contains the phrase
 		for (int index: indices) {
-			// store first set of positions
-			Set<Integer> positionSet = webIndex.getWordPositions(words.get(0)).get(index);
+			// store first positions; the arrays are sorted, so each successive
+			// word is looked up by binary search at the shifted position
+			int[] positions = postings[0].getPositions(index);
+			int numPositions = positions.length;
 			
 			// go through and take positions of each successive word for this URL page		
-			for (int ind = 1; ind < words.size(); ind++) {
-				// decrement each successive position set by ind 
-				Set<Integer> tempSet = webIndex.getWordPositions(words.get(ind)).get(index);
-				Set<Integer> adjustedSet = new HashSet<Integer>();
-				Iterator<Integer> posnIter = tempSet.iterator();
-								
-				while (posnIter.hasNext()) {
-					adjustedSet.add(posnIter.next() - ind);
+			for (int ind = 1; ind < words.size() && numPositions > 0; ind++) {
+				int[] wordPositions = postings[ind].getPositions(index);
+				int kept = 0;
+				for (int p = 0; p < numPositions; p++) {
+					if (Arrays.binarySearch(wordPositions, positions[p] + ind) >= 0)
+						positions[kept++] = positions[p];
 				}
-
-				// continually take intersection of main set with each successive adjusted set
-				positionSet.retainAll(adjustedSet);
+				numPositions = kept;
 			}
 			
-			if (!positionSet.isEmpty()) {
-				phraseIndices.add(index);
+			if (numPositions > 0) {
+				phraseIndices[numPhrase++] = index;
 			}
 			
 		}
 				
-		return new PTreeNode(t, null, null, phraseIndices);
+		return new PTreeNode(t, null, null, Arrays.copyOf(phraseIndices, numPhrase));
 	}
 	
 	/**
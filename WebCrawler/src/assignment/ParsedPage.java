@@ -0,0 +1,95 @@
+package assignment;
+
+import java.net.URL;
+import java.util.List;
+
+/**
+ * A page that has been parsed but not yet added to the index: its words
+ * in order, the links found on it, and the hashes used to recognise it
+ * again. A page found unchanged since the previous crawl has links but no
+ * words, because it is already indexed.
+ */
+public class ParsedPage {
+	private URL url;
+	private List<String> words;
+	private List<URL> links;
+	
+	// hash of the raw bytes and validators from the fetch, for the recrawl store
+	private long contentHash;
+	private String etag;
+	private String lastModified;
+	
+	// hashes of the words, for duplicate detection
+	private long wordsHash;
+	private long simHash;
+	
+	/**
+	 * Creates a page that is unchanged since the previous crawl.
+	 * 
+	 * @param url - URL of the page
+	 * @param links - links stored by the previous crawl
+	 */
+	ParsedPage(URL url, List<URL> links) {
+		this.url = url;
+		this.links = links;
+	}
+	
+	ParsedPage(URL url, List<String> words, List<URL> links, long contentHash,
+			String etag, String lastModified, long wordsHash, long simHash) {
+		this.url = url;
+		this.words = words;
+		this.links = links;
+		this.contentHash = contentHash;
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.wordsHash = wordsHash;
+		this.simHash = simHash;
+	}
+	
+	public URL getURL() {
+		return url;
+	}
+	
+	/**
+	 * Returns the words of the page, in order.
+	 * 
+	 * @return the words, or null if the page is unchanged
+	 */
+	public List<String> getWords() {
+		return words;
+	}
+	
+	public List<URL> getLinks() {
+		return links;
+	}
+	
+	/**
+	 * Returns whether the page was found unchanged since the previous crawl,
+	 * so there is nothing to index.
+	 * 
+	 * @return true if the page is unchanged
+	 */
+	public boolean isUnchanged() {
+		return words == null;
+	}
+	
+	long getContentHash() {
+		return contentHash;
+	}
+	
+	String getETag() {
+		return etag;
+	}
+	
+	String getLastModified() {
+		return lastModified;
+	}
+	
+	long getWordsHash() {
+		return wordsHash;
+	}
+	
+	long getSimHash() {
+		return simHash;
+	}
+}
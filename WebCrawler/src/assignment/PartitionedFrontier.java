@@ -0,0 +1,113 @@
+package assignment;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Frontier of one node of a distributed crawl. URLs in the node's own
+ * partition go to another frontier; all other URLs are forwarded to the
+ * node that owns them, once each, and count as not queued here.
+ */
+public class PartitionedFrontier implements Frontier {
+	private Frontier frontier;
+	private CrawlNode node;
+
+	// URLs already forwarded, so a popular link is only sent once
+	private SeenSet forwarded;
+	private long numForwarded;
+
+	/**
+	 * @param frontier - the frontier for URLs owned by this node
+	 * @param node - the node this frontier belongs to
+	 */
+	public PartitionedFrontier(Frontier frontier, CrawlNode node) {
+		this.frontier = frontier;
+		this.node = node;
+		forwarded = new HeapFingerprintSet();
+	}
+
+	@Override
+	public boolean add(URL url) {
+		int owner = node.owner(url);
+		if (owner == node.getId())
+			return frontier.add(url);
+
+		forward(owner, url);
+		return false;
+	}
+
+	@Override
+	public List<URL> addLinks(URL source, List<URL> links) {
+		List<URL> own = new ArrayList<URL>(links.size());
+		for (URL link : links) {
+			int owner = node.owner(link);
+			if (owner == node.getId())
+				own.add(link);
+			else
+				forward(owner, link);
+		}
+		return frontier.addLinks(source, own);
+	}
+
+	private void forward(int owner, URL url) {
+		if (forwarded.add(url.toString())) {
+			node.forward(owner, url);
+			numForwarded++;
+		}
+	}
+
+	@Override
+	public URL canonicalize(URL url) {
+		return frontier.canonicalize(url);
+	}
+
+	@Override
+	public void markSeen(URL url) {
+		frontier.markSeen(url);
+	}
+
+	@Override
+	public URL poll() {
+		return frontier.poll();
+	}
+
+	@Override
+	public void done(URL url) {
+		frontier.done(url);
+	}
+
+	@Override
+	public long delayMillis() {
+		return frontier.delayMillis();
+	}
+
+	@Override
+	public int size() {
+		return frontier.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return frontier.isEmpty();
+	}
+
+	@Override
+	public long getDedupHits() {
+		return frontier.getDedupHits();
+	}
+
+	@Override
+	public long getNumQueued() {
+		return frontier.getNumQueued();
+	}
+
+	/**
+	 * Returns how many distinct URLs were sent to other nodes.
+	 *
+	 * @return number of URLs forwarded
+	 */
+	public long getForwarded() {
+		return numForwarded;
+	}
+}
@@ -0,0 +1,231 @@
+package assignment;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Runs a crawl as three stages, each with its own threads: fetching pages,
+ * parsing them into words and links, and inserting the words into the index.
+ * The stages are connected by bounded queues, so a stage that falls behind
+ * makes the stages before it wait instead of letting work pile up in memory.
+ * 
+ * A page counts as in flight from the moment it is taken from the frontier
+ * until it is indexed, so the crawl only ends, and checkpoints are only
+ * written, once every queue is empty.
+ */
+public class PipelineCrawler extends ParallelCrawler {
+	// marks the end of the input of a stage
+	private static final FetchResult NO_MORE_FETCHES = new FetchResult(null, (byte[])null, null, null, null);
+	private static final ParsedPage NO_MORE_PAGES = new ParsedPage(null, null);
+	
+	private final int fetchThreads;
+	private final int parseThreads;
+	private final int indexThreads;
+	
+	private final BlockingQueue<FetchResult> fetched;
+	private final BlockingQueue<ParsedPage> parsed;
+	
+	private final StageMetrics fetchMetrics = new StageMetrics("fetch");
+	private final StageMetrics parseMetrics = new StageMetrics("parse");
+	private final StageMetrics indexMetrics = new StageMetrics("index");
+	
+	/**
+	 * Creates a crawler with the given number of threads per stage.
+	 * 
+	 * @param fetchThreads - number of pages that may be downloaded at once
+	 * @param parseThreads - number of pages that may be parsed at once
+	 * @param indexThreads - number of pages that may be indexed at once
+	 * @param queueCapacity - number of pages that may wait between two stages
+	 * @param frontier - an empty frontier
+	 * @param visitedPages - an empty set to record the pages fetched
+	 * @param webIndex - the index to add pages to
+	 */
+	public PipelineCrawler(int fetchThreads, int parseThreads, int indexThreads, int queueCapacity,
+			Frontier frontier, SeenSet visitedPages, WebIndex webIndex) {
+		super(fetchThreads, frontier, visitedPages, webIndex);
+		if (parseThreads < 1 || indexThreads < 1)
+			throw new IllegalArgumentException("Need at least one thread per stage: "
+					+ parseThreads + ", " + indexThreads);
+		
+		this.fetchThreads = fetchThreads;
+		this.parseThreads = parseThreads;
+		this.indexThreads = indexThreads;
+		fetched = new ArrayBlockingQueue<FetchResult>(queueCapacity);
+		parsed = new ArrayBlockingQueue<ParsedPage>(queueCapacity);
+	}
+	
+	/**
+	 * Returns the metrics of every stage, in pipeline order.
+	 * 
+	 * @return metrics of the fetch, parse and index stages
+	 */
+	public List<StageMetrics> getStageMetrics() {
+		List<StageMetrics> metrics = new ArrayList<StageMetrics>();
+		metrics.add(fetchMetrics);
+		metrics.add(parseMetrics);
+		metrics.add(indexMetrics);
+		return metrics;
+	}
+	
+	/**
+	 * Starts every stage and waits until all of them are done. Each stage
+	 * is shut down once the stage before it has finished and its queue is
+	 * drained.
+	 */
+	@Override
+	void runWorkers() throws InterruptedException {
+		ExecutorService fetchers = startStage(fetchThreads, new FetchStage());
+		ExecutorService parsers = startStage(parseThreads, new ParseStage());
+		ExecutorService indexers = startStage(indexThreads, new IndexStage());
+		
+		awaitStage(fetchers);
+		for (int i = 0; i < parseThreads; i++) {
+			fetched.put(NO_MORE_FETCHES);
+		}
+		awaitStage(parsers);
+		for (int i = 0; i < indexThreads; i++) {
+			parsed.put(NO_MORE_PAGES);
+		}
+		awaitStage(indexers);
+	}
+	
+	private static ExecutorService startStage(int numThreads, Runnable stage) {
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		for (int i = 0; i < numThreads; i++) {
+			pool.execute(stage);
+		}
+		pool.shutdown();
+		return pool;
+	}
+	
+	private static void awaitStage(ExecutorService pool) throws InterruptedException {
+		while (!pool.awaitTermination(1, TimeUnit.SECONDS))
+			;
+	}
+	
+	/**
+	 * Takes URLs from the frontier and downloads them. Stops once the
+	 * frontier is empty and no page is in flight.
+	 */
+	private class FetchStage implements Runnable {
+		@Override
+		public void run() {
+			WebCrawler crawler = createCrawler();
+			try {
+				URL url;
+				while ((url = take()) != null) {
+					fetchMetrics.sampleQueue(frontierSize());
+					long start = System.nanoTime();
+					
+					FetchResult page = null;
+					try {
+						if (isAllowed(url))
+							page = crawler.fetch(url);
+					} catch (IOException e) {
+						System.out.println(e);
+					} catch (RuntimeException e) {
+						System.out.println(e);
+					} finally {
+						fetched(url);
+					}
+					fetchMetrics.record(start);
+					
+					if (page == null) {
+						addLinks(url, Collections.<URL>emptyList());
+						pageDone();
+					} else {
+						fetched.put(page);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Parses downloaded pages and hands their links back to the frontier
+	 * straight away, so fetching does not wait for indexing.
+	 */
+	private class ParseStage implements Runnable {
+		@Override
+		public void run() {
+			WebCrawler crawler = createCrawler();
+			try {
+				FetchResult page;
+				while ((page = fetched.take()) != NO_MORE_FETCHES) {
+					parseMetrics.sampleQueue(fetched.size());
+					long start = System.nanoTime();
+					
+					// the page is done here unless it is handed on to be indexed
+					boolean indexing = false;
+					try {
+						ParsedPage result = null;
+						try {
+							result = crawler.parse(page);
+						} catch (IOException e) {
+							System.out.println(e);
+						} catch (RuntimeException e) {
+							System.out.println(e);
+						} catch (SAXException e) {
+							System.out.println(e);
+						}
+						parseMetrics.record(start);
+						
+						if (result == null) {
+							addLinks(page.getURL(), Collections.<URL>emptyList());
+						} else {
+							addLinks(result.getURL(), result.getLinks());
+							parsed.put(result);
+							indexing = true;
+						}
+					} catch (RuntimeException e) {
+						System.out.println(e);
+					} finally {
+						if (!indexing)
+							pageDone();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Inserts parsed pages into the index.
+	 */
+	private class IndexStage implements Runnable {
+		@Override
+		public void run() {
+			WebCrawler crawler = createCrawler();
+			try {
+				ParsedPage page;
+				while ((page = parsed.take()) != NO_MORE_PAGES) {
+					indexMetrics.sampleQueue(parsed.size());
+					long start = System.nanoTime();
+					try {
+						crawler.index(page);
+					} catch (RuntimeException e) {
+						System.out.println(e);
+					} finally {
+						indexMetrics.record(start);
+						pageDone();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,563 @@
+package assignment;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The postings of one term: the documents it occurs in and its positions
+ * in each of them, in a compact form. Document ids are kept in a sorted
+ * int array. The positions of each document are a varint count followed
+ * by the varint-encoded gaps between successive positions, all packed
+ * into one byte array, so a typical position takes one or two bytes.
+ *
+ * Postings added while crawling are first appended to a buffer of
+ * (document, position) pairs, in any order. The buffer is folded into
+ * the compact form by freeze, which every read calls, and whenever it
+ * grows large compared to the compact form.
+ *
+ * Safe for concurrent use.
+ */
+public class PostingList implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final int[] NO_DOCS = new int[0];
+	private static final byte[] NO_BYTES = new byte[0];
+	private static final int MIN_PENDING = 64;
+
+	// frozen postings: sorted doc ids, and where each doc's positions start in positions
+	private int[] docs = NO_DOCS;
+	private int[] offsets = NO_DOCS;
+	private byte[] positions = NO_BYTES;
+
+	// postings not frozen yet, as doc << 32 | position, or null if there are none
+	private transient long[] pending;
+	private transient int numPending;
+
+	public PostingList() {
+	}
+
+	/**
+	 * Creates a posting list from its compact form, as stored in an index file.
+	 *
+	 * @param docs - ids of the documents, in ascending order
+	 * @param positions - the encoded positions of each document, one after the other
+	 * @throws IllegalArgumentException if the positions do not match the documents
+	 */
+	PostingList(int[] docs, byte[] positions) {
+		int[] offsets = new int[docs.length];
+		int[] at = {0};
+		try {
+			for (int i = 0; i < docs.length; i++) {
+				if (i > 0 && docs[i] <= docs[i - 1])
+					throw new IllegalArgumentException("Documents out of order: " + docs[i]);
+				offsets[i] = at[0];
+				int count = readVarint(positions, at);
+				for (int k = 0; k < count; k++) {
+					readVarint(positions, at);
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Positions end early");
+		}
+		if (at[0] != positions.length)
+			throw new IllegalArgumentException("Positions do not match the documents");
+
+		this.docs = docs;
+		this.offsets = offsets;
+		this.positions = positions;
+	}
+
+	/**
+	 * Adds an occurrence of the term.
+	 *
+	 * @param doc - id of the document
+	 * @param position - position of the term in the document, not negative
+	 */
+	synchronized void add(int doc, int position) {
+		if (position < 0)
+			throw new IllegalArgumentException("Invalid position: " + position);
+
+		if (pending == null) {
+			pending = new long[8];
+		} else if (numPending == pending.length) {
+			if (numPending >= Math.max(MIN_PENDING, positions.length / 2)) {
+				freeze();
+				pending = new long[8];
+			} else {
+				pending = Arrays.copyOf(pending, numPending * 2);
+			}
+		}
+		pending[numPending++] = (long)doc << 32 | position;
+	}
+
+	/**
+	 * Adds the positions of the term in one document at once.
+	 *
+	 * @param doc - id of the document
+	 * @param positions - positions of the term in the document, not negative
+	 * @param count - how many of the positions are used
+	 */
+	synchronized void addAll(int doc, int[] positions, int count) {
+		if (pending == null) {
+			pending = new long[Math.max(8, count)];
+		} else if (numPending + count > pending.length) {
+			if (numPending >= Math.max(MIN_PENDING, this.positions.length / 2)) {
+				freeze();
+				pending = new long[Math.max(8, count)];
+			} else {
+				pending = Arrays.copyOf(pending, Math.max(numPending * 2, numPending + count));
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			if (positions[i] < 0)
+				throw new IllegalArgumentException("Invalid position: " + positions[i]);
+			pending[numPending++] = (long)doc << 32 | positions[i];
+		}
+	}
+
+	/**
+	 * Folds the buffered postings into the compact form.
+	 */
+	synchronized void freeze() {
+		if (numPending == 0) {
+			pending = null;
+			return;
+		}
+
+		long[] added = pending;
+		int numAdded = numPending;
+		Arrays.sort(added, 0, numAdded);
+		pending = null;
+		numPending = 0;
+
+		Encoder out = new Encoder(docs.length + numAdded, positions.length + numAdded * 2);
+		int i = 0;
+		int j = 0;
+		while (i < docs.length || j < numAdded) {
+			int addedDoc = j < numAdded ? (int)(added[j] >>> 32) : Integer.MAX_VALUE;
+			if (i < docs.length && docs[i] < addedDoc) {
+				// an untouched document keeps its encoded positions
+				int end = i + 1 < docs.length ? offsets[i + 1] : positions.length;
+				out.copyDoc(docs[i], positions, offsets[i], end);
+				i++;
+				continue;
+			}
+
+			// positions of addedDoc, merged with those already frozen
+			int end = j;
+			while (end < numAdded && (int)(added[end] >>> 32) == addedDoc)
+				end++;
+			int[] old = i < docs.length && docs[i] == addedDoc ? decode(i) : NO_DOCS;
+			if (old.length > 0)
+				i++;
+			int[] merged = new int[old.length + end - j];
+			int n = 0;
+			int a = 0;
+			for (int k = j; k < end || a < old.length;) {
+				int next;
+				if (k < end && (a == old.length || (int)added[k] <= old[a]))
+					next = (int)added[k++];
+				else
+					next = old[a++];
+				if (n == 0 || merged[n - 1] != next)
+					merged[n++] = next;
+			}
+			out.encodeDoc(addedDoc, merged, n);
+			j = end;
+		}
+
+		docs = out.getDocs();
+		offsets = out.getOffsets();
+		positions = out.getPositions();
+	}
+
+	/**
+	 * Returns the number of documents the term occurs in.
+	 *
+	 * @return the number of documents
+	 */
+	public synchronized int size() {
+		freeze();
+		return docs.length;
+	}
+
+	/**
+	 * Returns the ids of the documents the term occurs in.
+	 *
+	 * @return a new array of document ids, in ascending order
+	 */
+	public synchronized int[] getDocs() {
+		freeze();
+		return docs.clone();
+	}
+
+	/**
+	 * Returns whether the term occurs in a document.
+	 *
+	 * @param doc - id of the document
+	 * @return true if it does
+	 */
+	public synchronized boolean containsDoc(int doc) {
+		freeze();
+		return Arrays.binarySearch(docs, doc) >= 0;
+	}
+
+	/**
+	 * Returns the positions of the term in a document.
+	 *
+	 * @param doc - id of the document
+	 * @return a new array of positions, in ascending order, or null if the
+	 * 		   term does not occur in the document
+	 */
+	public synchronized int[] getPositions(int doc) {
+		freeze();
+		int i = Arrays.binarySearch(docs, doc);
+		return i < 0 ? null : decode(i);
+	}
+
+	/**
+	 * Returns the document ids, without copying them. Used to save the index.
+	 */
+	synchronized int[] encodedDocs() {
+		freeze();
+		return docs;
+	}
+
+	/**
+	 * Returns the encoded positions, without copying them. Used to save the index.
+	 */
+	synchronized byte[] encodedPositions() {
+		freeze();
+		return positions;
+	}
+
+	/**
+	 * Returns the total number of positions of the term.
+	 *
+	 * @return the number of occurrences
+	 */
+	public synchronized long numPositions() {
+		freeze();
+		long total = 0;
+		for (int i = 0; i < docs.length; i++) {
+			total += readVarint(positions, offsets[i]);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns roughly how many bytes of heap the postings take.
+	 *
+	 * @return the size of the arrays, in bytes
+	 */
+	public synchronized long memoryBytes() {
+		long bytes = 16 + 3 * 16 + 8L * docs.length + positions.length;
+		if (pending != null)
+			bytes += 16 + 8L * pending.length;
+		return bytes;
+	}
+
+	/**
+	 * Returns the postings of the documents from a given id on, with their
+	 * ids shifted down so the first one would be 0.
+	 *
+	 * @param fromDoc - the first document id kept
+	 * @return a new posting list, empty if no document is that recent
+	 */
+	synchronized PostingList slice(int fromDoc) {
+		freeze();
+		int first = Arrays.binarySearch(docs, fromDoc);
+		if (first < 0)
+			first = -first - 1;
+
+		PostingList slice = new PostingList();
+		int n = docs.length - first;
+		if (n == 0)
+			return slice;
+
+		int start = offsets[first];
+		slice.docs = new int[n];
+		slice.offsets = new int[n];
+		for (int i = 0; i < n; i++) {
+			slice.docs[i] = docs[first + i] - fromDoc;
+			slice.offsets[i] = offsets[first + i] - start;
+		}
+		slice.positions = Arrays.copyOfRange(positions, start, positions.length);
+		return slice;
+	}
+
+	/**
+	 * Adds every posting of another list, with its document ids shifted
+	 * up. When the shifted ids all follow the ids here, the encoded
+	 * positions are copied as they are.
+	 *
+	 * @param other - the postings to add
+	 * @param offset - added to each document id of other
+	 */
+	synchronized void append(PostingList other, int offset) {
+		freeze();
+		PostingList source = other == this ? other.slice(0) : other;
+		synchronized (source) {
+			source.freeze();
+			if (source.docs.length == 0)
+				return;
+
+			if (docs.length == 0 || source.docs[0] + offset > docs[docs.length - 1]) {
+				int n = docs.length;
+				docs = Arrays.copyOf(docs, n + source.docs.length);
+				offsets = Arrays.copyOf(offsets, n + source.docs.length);
+				for (int i = 0; i < source.docs.length; i++) {
+					docs[n + i] = source.docs[i] + offset;
+					offsets[n + i] = source.offsets[i] + positions.length;
+				}
+				byte[] joined = Arrays.copyOf(positions, positions.length + source.positions.length);
+				System.arraycopy(source.positions, 0, joined, positions.length, source.positions.length);
+				positions = joined;
+				return;
+			}
+
+			for (int i = 0; i < source.docs.length; i++) {
+				for (int position : source.decode(i)) {
+					add(source.docs[i] + offset, position);
+				}
+			}
+		}
+		freeze();
+	}
+
+	/**
+	 * Deletes the postings of some documents and renumbers the others.
+	 * The new ids must keep the order of the old ones, so that the list
+	 * stays sorted.
+	 *
+	 * @param newIds - new id of each document, or -1 to delete its postings
+	 * @return true if the list is now empty
+	 */
+	synchronized boolean renumber(int[] newIds) {
+		freeze();
+		Encoder out = null;
+		for (int i = 0; i < docs.length; i++) {
+			if (newIds[docs[i]] < 0) {
+				if (out == null) {
+					out = new Encoder(docs.length, positions.length);
+					for (int k = 0; k < i; k++) {
+						out.copyDoc(docs[k], positions, offsets[k], offsets[k + 1]);
+					}
+				}
+			} else if (out != null) {
+				int end = i + 1 < docs.length ? offsets[i + 1] : positions.length;
+				out.copyDoc(docs[i], positions, offsets[i], end);
+			}
+		}
+
+		if (out != null) {
+			docs = out.getDocs();
+			offsets = out.getOffsets();
+			positions = out.getPositions();
+		}
+		// the array may be shared with whoever built this list
+		int[] renumbered = new int[docs.length];
+		for (int i = 0; i < docs.length; i++) {
+			renumbered[i] = newIds[docs[i]];
+		}
+		docs = renumbered;
+		return docs.length == 0;
+	}
+
+	/**
+	 * Decodes the positions of the i-th document.
+	 */
+	private int[] decode(int i) {
+		int[] at = {offsets[i]};
+		int count = readVarint(positions, at);
+		int[] result = new int[count];
+		int position = 0;
+		for (int k = 0; k < count; k++) {
+			position += readVarint(positions, at);
+			result[k] = position;
+		}
+		return result;
+	}
+
+	private static int readVarint(byte[] bytes, int offset) {
+		return readVarint(bytes, new int[] {offset});
+	}
+
+	/**
+	 * Reads an unsigned varint, advancing at[0] past it.
+	 */
+	private static int readVarint(byte[] bytes, int[] at) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[at[0]++];
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	/**
+	 * Returns the ids present in both sorted arrays.
+	 *
+	 * @param a - ids in ascending order
+	 * @param b - ids in ascending order
+	 * @return a new array, in ascending order
+	 */
+	public static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int n = 0;
+		for (int i = 0, j = 0; i < a.length && j < b.length;) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Returns the ids present in either sorted array.
+	 *
+	 * @param a - ids in ascending order
+	 * @param b - ids in ascending order
+	 * @return a new array, in ascending order
+	 */
+	public static int[] union(int[] a, int[] b) {
+		int[] result = new int[a.length + b.length];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				result[n++] = a[i++];
+			} else if (i == a.length || b[j] < a[i]) {
+				result[n++] = b[j++];
+			} else {
+				result[n++] = a[i++];
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		freeze();
+		out.defaultWriteObject();
+	}
+
+	@Override
+	public synchronized boolean equals(Object o) {
+		if (!(o instanceof PostingList))
+			return false;
+		PostingList other = (PostingList)o;
+		if (other == this)
+			return true;
+
+		freeze();
+		synchronized (other) {
+			other.freeze();
+			return Arrays.equals(docs, other.docs) && Arrays.equals(positions, other.positions);
+		}
+	}
+
+	@Override
+	public synchronized int hashCode() {
+		freeze();
+		return 31 * Arrays.hashCode(docs) + Arrays.hashCode(positions);
+	}
+
+	/**
+	 * Returns the postings as {doc=[positions], ...}.
+	 */
+	@Override
+	public synchronized String toString() {
+		freeze();
+		StringBuilder s = new StringBuilder("{");
+		for (int i = 0; i < docs.length; i++) {
+			if (i > 0)
+				s.append(", ");
+			s.append(docs[i]).append('=').append(Arrays.toString(decode(i)));
+		}
+		return s.append('}').toString();
+	}
+
+	/**
+	 * Builds the arrays of a compact posting list, one document at a time
+	 * in ascending order of id.
+	 */
+	private static class Encoder {
+		private int[] docs;
+		private int[] offsets;
+		private int numDocs;
+		private byte[] bytes;
+		private int length;
+
+		Encoder(int expectedDocs, int expectedBytes) {
+			docs = new int[Math.max(expectedDocs, 1)];
+			offsets = new int[docs.length];
+			bytes = new byte[Math.max(expectedBytes, 16)];
+		}
+
+		private void startDoc(int doc) {
+			if (numDocs == docs.length) {
+				docs = Arrays.copyOf(docs, numDocs * 2);
+				offsets = Arrays.copyOf(offsets, numDocs * 2);
+			}
+			docs[numDocs] = doc;
+			offsets[numDocs] = length;
+			numDocs++;
+		}
+
+		void copyDoc(int doc, byte[] source, int start, int end) {
+			startDoc(doc);
+			ensure(end - start);
+			System.arraycopy(source, start, bytes, length, end - start);
+			length += end - start;
+		}
+
+		void encodeDoc(int doc, int[] sorted, int count) {
+			startDoc(doc);
+			writeVarint(count);
+			int previous = 0;
+			for (int k = 0; k < count; k++) {
+				writeVarint(sorted[k] - previous);
+				previous = sorted[k];
+			}
+		}
+
+		private void writeVarint(int value) {
+			ensure(5);
+			while ((value & ~0x7f) != 0) {
+				bytes[length++] = (byte)((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte)value;
+		}
+
+		private void ensure(int n) {
+			if (length + n > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + n));
+		}
+
+		int[] getDocs() {
+			return numDocs == docs.length ? docs : Arrays.copyOf(docs, numDocs);
+		}
+
+		int[] getOffsets() {
+			return numDocs == offsets.length ? offsets : Arrays.copyOf(offsets, numDocs);
+		}
+
+		byte[] getPositions() {
+			return length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package assignment;
+
+import java.net.URL;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Frontier that hands out URLs in the order given by a Comparator.
+ * URLs that compare equal are handed out in the order they were added.
+ */
+public class PriorityFrontier extends DedupFrontier {
+	private PriorityQueue<Entry> queue;
+	private Comparator<URL> order;
+	private long nextSequence;
+	
+	/**
+	 * Orders URLs by the number of segments in their path, so pages
+	 * closer to the root of a site are crawled first.
+	 */
+	public static final Comparator<URL> SHALLOW_FIRST = new Comparator<URL>() {
+		@Override
+		public int compare(URL a, URL b) {
+			return Integer.compare(pathDepth(a), pathDepth(b));
+		}
+	};
+	
+	public PriorityFrontier() {
+		this(SHALLOW_FIRST);
+	}
+	
+	public PriorityFrontier(Comparator<URL> order) {
+		super();
+		this.order = order;
+		queue = new PriorityQueue<Entry>();
+	}
+	
+	public PriorityFrontier(Comparator<URL> order, SeenSet seen) {
+		super(seen);
+		this.order = order;
+		queue = new PriorityQueue<Entry>();
+	}
+
+	@Override
+	protected void enqueue(URL url) {
+		queue.add(new Entry(url, nextSequence++));
+	}
+
+	@Override
+	protected URL dequeue() {
+		Entry next = queue.poll();
+		return next == null ? null : next.url;
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+	
+	/**
+	 * Counts the '/' separated segments in the path of a URL.
+	 */
+	private static int pathDepth(URL url) {
+		String path = url.getPath();
+		int depth = 0;
+		for (int i = 0; i < path.length(); i++) {
+			if (path.charAt(i) == '/')
+				depth++;
+		}
+		return depth;
+	}
+	
+	/**
+	 * A queued URL along with the order in which it was added.
+	 */
+	private class Entry implements Comparable<Entry> {
+		URL url;
+		long sequence;
+		
+		Entry(URL url, long sequence) {
+			this.url = url;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int result = order.compare(url, other.url);
+			if (result == 0)
+				result = Long.compare(sequence, other.sequence);
+			return result;
+		}
+	}
+}
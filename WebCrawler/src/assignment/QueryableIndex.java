@@ -0,0 +1,88 @@
+package assignment;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The read-only view of an index that queries, merging and saving need.
+ * WebIndex, which the crawler builds in memory, and MappedWebIndex, which
+ * reads a saved index file in place, both provide it.
+ *
+ * Documents are numbered from 0 in the order they were added; the number
+ * of a document is its index in the URL list.
+ */
+public interface QueryableIndex {
+
+	/**
+	 * Returns the postings of a word: the documents it is found in, and
+	 * its positions within each of them.
+	 *
+	 * @param word - the word being searched for
+	 * @return the word's PostingList, or null if the word is not in the index
+	 */
+	public PostingList getWordPositions(String word);
+
+	/**
+	 * Finds the documents containing a word that starts with a prefix.
+	 *
+	 * @param prefix - the start of the words
+	 * @return the numbers of the documents, in ascending order
+	 */
+	public int[] getDocsWithPrefix(String prefix);
+
+	/**
+	 * Returns every word of the index.
+	 *
+	 * @return the words, in no particular order
+	 */
+	public Collection<String> getWords();
+
+	/**
+	 * Returns the number of documents, including the empty slots of pages
+	 * removed since the last purge. Document numbers range from 0 to this
+	 * number.
+	 *
+	 * @return the size of the URL list
+	 */
+	public int getNumDocs();
+
+	/**
+	 * Returns the URL of a document.
+	 *
+	 * @param docId - number of the document
+	 * @return its URL, or null if the page was removed
+	 */
+	public String getURL(int docId);
+
+	/**
+	 * Returns the number of the document with a URL.
+	 *
+	 * @param URL - URL of a page
+	 * @return its number, or -1 if the page is not in the index
+	 */
+	public int getDocId(String URL);
+
+	/**
+	 * Returns the URL of every document, in order. Must not be modified.
+	 *
+	 * @return the URL list
+	 */
+	public List<String> getURLList();
+
+	/**
+	 * Returns the duplicate pages that were not indexed.
+	 *
+	 * @return a map from the URL of each duplicate to the URL of its original
+	 */
+	public Map<String, String> getAliases();
+
+	/**
+	 * Saves the index in the binary format of IndexFormat.
+	 *
+	 * @param filename - the file to write
+	 * @throws IOException if the file could not be written
+	 */
+	public void save(String filename) throws IOException;
+}
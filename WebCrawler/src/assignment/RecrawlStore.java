@@ -0,0 +1,157 @@
+package assignment;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the state of every page crawled, so that a later crawl can
+ * skip pages that have not changed. Also counts how many pages were new,
+ * changed, unchanged or removed during the current crawl.
+ * 
+ * Safe for concurrent use.
+ */
+public class RecrawlStore implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	private ConcurrentHashMap<String, PageState> pages;
+	
+	private transient AtomicLong added;
+	private transient AtomicLong changed;
+	private transient AtomicLong unchanged;
+	private transient AtomicLong removed;
+	
+	public RecrawlStore() {
+		pages = new ConcurrentHashMap<String, PageState>();
+		resetCounts();
+	}
+	
+	private void resetCounts() {
+		added = new AtomicLong();
+		changed = new AtomicLong();
+		unchanged = new AtomicLong();
+		removed = new AtomicLong();
+	}
+	
+	/**
+	 * Loads a store saved by an earlier crawl, or creates an empty one if
+	 * the file does not exist.
+	 * 
+	 * @param file - file written by save
+	 * @return the store
+	 * @throws IOException if the file exists but cannot be read
+	 */
+	public static RecrawlStore load(Path file) throws IOException {
+		if (!Files.exists(file))
+			return new RecrawlStore();
+		
+		try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file))) {
+			RecrawlStore store = (RecrawlStore)in.readObject();
+			store.resetCounts();
+			return store;
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Corrupt recrawl store: " + file, e);
+		}
+	}
+	
+	/**
+	 * Writes the store to a file.
+	 * 
+	 * @param file - the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Path file) throws IOException {
+		try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+			out.writeObject(this);
+		}
+	}
+	
+	/**
+	 * Returns the state of a page after its last crawl.
+	 * 
+	 * @param url - the page
+	 * @return its state, or null if it was never crawled
+	 */
+	public PageState get(String url) {
+		return pages.get(url);
+	}
+	
+	/**
+	 * Records the state of a page that was just indexed.
+	 * 
+	 * @param url - the page
+	 * @param state - its new state
+	 */
+	public void put(String url, PageState state) {
+		if (pages.put(url, state) == null)
+			added.incrementAndGet();
+		else
+			changed.incrementAndGet();
+	}
+	
+	/**
+	 * Records that a page was found unchanged.
+	 */
+	public void countUnchanged() {
+		unchanged.incrementAndGet();
+	}
+	
+	/**
+	 * Forgets a page that no longer exists.
+	 * 
+	 * @param url - the page
+	 */
+	public void remove(String url) {
+		if (pages.remove(url) != null)
+			removed.incrementAndGet();
+	}
+	
+	/**
+	 * Forgets every page that was not visited by the crawl that just
+	 * finished, and removes it from the index: it is no longer linked to
+	 * from anywhere the crawl could reach.
+	 * 
+	 * @param visitedPages - the pages visited by the crawl
+	 * @param webIndex - the index the pages were added to
+	 */
+	public void removeUnvisited(SeenSet visitedPages, WebIndex webIndex) {
+		for (String url : getURLs()) {
+			if (!visitedPages.contains(url)) {
+				webIndex.removeDocument(url);
+				remove(url);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the URLs of every page in the store.
+	 * 
+	 * @return a snapshot of the URLs
+	 */
+	public List<String> getURLs() {
+		return new ArrayList<String>(pages.keySet());
+	}
+	
+	public long getAdded() {
+		return added.get();
+	}
+	
+	public long getChanged() {
+		return changed.get();
+	}
+	
+	public long getUnchanged() {
+		return unchanged.get();
+	}
+	
+	public long getRemoved() {
+		return removed.get();
+	}
+}
@@ -0,0 +1,127 @@
+package assignment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fetches and remembers the robots.txt rules of every host crawled.
+ * Each host's file is fetched once, the first time one of its pages is
+ * checked. Hosts without a robots.txt (a 4xx response) may be crawled
+ * freely; hosts whose robots.txt cannot be fetched (a 5xx response or a
+ * network error) are not crawled at all, as RFC 9309 requires. Local
+ * file: URLs have no robots.txt.
+ * 
+ * Safe for concurrent use.
+ */
+public class RobotsCache {
+	public static final String USER_AGENT = "WebCrawler";
+	
+	private static final int TIMEOUT_MILLIS = 10000;
+	
+	// robots.txt files larger than this are truncated, as RFC 9309 allows
+	private static final int MAX_SIZE = 500 * 1024;
+	
+	private ConcurrentHashMap<String, RobotsRules> rules;
+	private String userAgent;
+	
+	public RobotsCache() {
+		this(USER_AGENT);
+	}
+	
+	public RobotsCache(String userAgent) {
+		this.userAgent = userAgent;
+		rules = new ConcurrentHashMap<String, RobotsRules>();
+	}
+	
+	/**
+	 * Checks whether a URL may be crawled, fetching its host's robots.txt
+	 * if that has not been done yet.
+	 * 
+	 * @param url - the URL about to be crawled
+	 * @return true if robots.txt allows it
+	 */
+	public boolean isAllowed(URL url) {
+		String path = url.getFile();
+		return getRules(url).isAllowed(path);
+	}
+	
+	/**
+	 * Returns the crawl delay of a host if its robots.txt has already been
+	 * fetched. Never fetches anything.
+	 * 
+	 * @param host - a host key as returned by {@link #hostKey(URL)}
+	 * @return the crawl delay in milliseconds, or 0 if unknown or none
+	 */
+	public long getCrawlDelayMillis(String host) {
+		RobotsRules known = rules.get(host);
+		return known == null ? 0 : known.getCrawlDelayMillis();
+	}
+	
+	/**
+	 * Returns the rules for a URL's host, fetching them if needed. Two
+	 * threads asking for a new host at once may both fetch the file.
+	 */
+	private RobotsRules getRules(URL url) {
+		if (url.getHost() == null || url.getHost().isEmpty())
+			return RobotsRules.ALLOW_ALL;
+		
+		String host = hostKey(url);
+		RobotsRules known = rules.get(host);
+		if (known == null) {
+			known = fetch(url);
+			rules.put(host, known);
+		}
+		return known;
+	}
+	
+	/**
+	 * Downloads and parses the robots.txt file for a URL's host.
+	 */
+	private RobotsRules fetch(URL url) {
+		try {
+			URL robotsURL = new URL(url.getProtocol(), url.getHost(), url.getPort(), "/robots.txt");
+			URLConnection connection = robotsURL.openConnection();
+			connection.setConnectTimeout(TIMEOUT_MILLIS);
+			connection.setReadTimeout(TIMEOUT_MILLIS);
+			connection.setRequestProperty("User-Agent", userAgent);
+			
+			if (connection instanceof HttpURLConnection) {
+				int status = ((HttpURLConnection)connection).getResponseCode();
+				if (status >= 400 && status < 500)
+					return RobotsRules.ALLOW_ALL;
+				if (status >= 500)
+					return RobotsRules.DISALLOW_ALL;
+			}
+			
+			try (InputStream in = connection.getInputStream()) {
+				ByteArrayOutputStream body = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int read;
+				while (body.size() < MAX_SIZE && (read = in.read(buffer)) != -1) {
+					body.write(buffer, 0, read);
+				}
+				return RobotsRules.parse(new String(body.toByteArray(), StandardCharsets.UTF_8), userAgent);
+			}
+		} catch (IOException e) {
+			return RobotsRules.DISALLOW_ALL;
+		}
+	}
+	
+	/**
+	 * Returns the key used to group URLs by host: the scheme, host name
+	 * and port, since robots.txt applies to exactly that combination.
+	 * 
+	 * @param url - any URL
+	 * @return the host key, such as "http://www.superspoof.com:80"
+	 */
+	public static String hostKey(URL url) {
+		int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+		return url.getProtocol() + "://" + url.getHost().toLowerCase() + ":" + port;
+	}
+}
@@ -0,0 +1,171 @@
+package assignment;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * The rules from a robots.txt file that apply to one crawler, following
+ * RFC 9309: the group for the crawler's own user agent is used if there is
+ * one, otherwise the group for "*". A path is allowed unless the longest
+ * matching rule is a Disallow; an Allow wins a tie. Rules may use "*" to
+ * match any characters and may end in "$" to match the end of the path.
+ */
+public class RobotsRules {
+	/** Rules that allow every path, used when a host has no robots.txt. */
+	public static final RobotsRules ALLOW_ALL = new RobotsRules();
+	
+	/** Rules that disallow every path, used when robots.txt cannot be read. */
+	public static final RobotsRules DISALLOW_ALL = new RobotsRules();
+	static {
+		DISALLOW_ALL.disallow.add("/");
+	}
+	
+	private ArrayList<String> allow;
+	private ArrayList<String> disallow;
+	private long crawlDelayMillis;
+	
+	private RobotsRules() {
+		allow = new ArrayList<String>();
+		disallow = new ArrayList<String>();
+	}
+	
+	/**
+	 * Parses the contents of a robots.txt file.
+	 * 
+	 * @param text - contents of the file
+	 * @param userAgent - product token of this crawler, such as "WebCrawler"
+	 * @return the rules that apply to the crawler
+	 */
+	public static RobotsRules parse(String text, String userAgent) {
+		RobotsRules own = null;
+		RobotsRules any = null;
+		
+		// rules of the group being read, and whether it applies to us or "*"
+		RobotsRules group = null;
+		boolean groupIsOwn = false;
+		boolean groupIsAny = false;
+		boolean readingAgents = false;
+		
+		String agent = userAgent.toLowerCase(Locale.ROOT);
+		
+		for (String line : text.split("\r\n|\r|\n")) {
+			int comment = line.indexOf('#');
+			if (comment != -1)
+				line = line.substring(0, comment);
+			
+			int colon = line.indexOf(':');
+			if (colon == -1)
+				continue;
+			
+			String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+			String value = line.substring(colon + 1).trim();
+			
+			if (key.equals("user-agent")) {
+				// consecutive user-agent lines share one group
+				if (!readingAgents) {
+					group = new RobotsRules();
+					groupIsOwn = false;
+					groupIsAny = false;
+					readingAgents = true;
+				}
+				
+				String name = value.toLowerCase(Locale.ROOT);
+				if (name.equals("*"))
+					groupIsAny = true;
+				else if (!name.isEmpty() && agent.startsWith(name))
+					groupIsOwn = true;
+				
+				if (groupIsOwn && own == null)
+					own = group;
+				if (groupIsAny && any == null)
+					any = group;
+				continue;
+			}
+			
+			readingAgents = false;
+			if (group == null)
+				continue;
+			
+			if (key.equals("allow") && !value.isEmpty()) {
+				group.allow.add(value);
+			} else if (key.equals("disallow") && !value.isEmpty()) {
+				group.disallow.add(value);
+			} else if (key.equals("crawl-delay")) {
+				try {
+					group.crawlDelayMillis = (long)(Double.parseDouble(value) * 1000);
+				} catch (NumberFormatException e) {
+					// ignore malformed delays
+				}
+			}
+		}
+		
+		if (own != null)
+			return own;
+		if (any != null)
+			return any;
+		return ALLOW_ALL;
+	}
+	
+	/**
+	 * Checks whether the crawler may fetch a path.
+	 * 
+	 * @param path - the path of a URL, including its query if any
+	 * @return true if the path may be crawled
+	 */
+	public boolean isAllowed(String path) {
+		if (path.isEmpty())
+			path = "/";
+		
+		int allowLength = longestMatch(allow, path);
+		int disallowLength = longestMatch(disallow, path);
+		return allowLength >= disallowLength;
+	}
+	
+	/**
+	 * Returns the delay between requests asked for by the host.
+	 * 
+	 * @return the crawl delay in milliseconds, or 0 if none was given
+	 */
+	public long getCrawlDelayMillis() {
+		return crawlDelayMillis;
+	}
+	
+	/**
+	 * Returns the length of the longest rule matching the path, or -1.
+	 */
+	private static int longestMatch(ArrayList<String> rules, String path) {
+		int longest = -1;
+		for (String rule : rules) {
+			if (rule.length() > longest && matches(rule, 0, path, 0))
+				longest = rule.length();
+		}
+		return longest;
+	}
+	
+	/**
+	 * Matches a path against a rule with "*" wildcards and an optional
+	 * trailing "$". Without the "$" the rule only has to match a prefix.
+	 */
+	private static boolean matches(String rule, int r, String path, int p) {
+		while (r < rule.length()) {
+			char c = rule.charAt(r);
+			
+			if (c == '$' && r == rule.length() - 1)
+				return p == path.length();
+			
+			if (c == '*') {
+				for (int i = p; i <= path.length(); i++) {
+					if (matches(rule, r + 1, path, i))
+						return true;
+				}
+				return false;
+			}
+			
+			if (p >= path.length() || path.charAt(p) != c)
+				return false;
+			r++;
+			p++;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,51 @@
+package assignment;
+
+/**
+ * A set of URLs used to remember which pages have already been seen.
+ * Implementations may store a compact summary of each URL instead of the
+ * URL itself, in which case a URL that was never added can occasionally
+ * be reported as seen. They never report an added URL as unseen.
+ * 
+ * Implementations are safe for concurrent use.
+ */
+public interface SeenSet {
+	
+	/**
+	 * Marks a URL as seen.
+	 * 
+	 * @param url - the URL
+	 * @return true if the URL had not been seen before
+	 */
+	public boolean add(String url);
+	
+	/**
+	 * Checks whether a URL has been seen, without adding it.
+	 * 
+	 * @param url - the URL
+	 * @return true if the URL (or one indistinguishable from it) was added
+	 */
+	public boolean contains(String url);
+	
+	/**
+	 * Returns the number of distinct URLs added.
+	 * 
+	 * @return number of URLs in the set
+	 */
+	public long size();
+	
+	/**
+	 * Returns the approximate number of bytes used by this set, on and
+	 * off the Java heap.
+	 * 
+	 * @return memory used in bytes
+	 */
+	public long memoryBytes();
+	
+	/**
+	 * Estimates the probability that a URL that was never added is
+	 * reported as seen, given the current contents of the set.
+	 * 
+	 * @return the estimated false positive rate, between 0 and 1
+	 */
+	public double falsePositiveRate();
+}
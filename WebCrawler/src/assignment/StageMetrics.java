@@ -0,0 +1,85 @@
+package assignment;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the work done by one stage of a PipelineCrawler: how many items
+ * it handled, how long each took, and how many items were waiting in its
+ * input queue. The stage whose queue stays full is the bottleneck.
+ * 
+ * Safe for concurrent use.
+ */
+public class StageMetrics {
+	private final String name;
+	private final AtomicLong items = new AtomicLong();
+	private final AtomicLong busyNanos = new AtomicLong();
+	private final AtomicLong depthSamples = new AtomicLong();
+	private final AtomicLong depthTotal = new AtomicLong();
+	private final AtomicLong maxDepth = new AtomicLong();
+	
+	/**
+	 * @param name - name of the stage, used by toString
+	 */
+	public StageMetrics(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * Records the number of items waiting in the stage's input queue.
+	 * Called each time the stage takes an item.
+	 * 
+	 * @param depth - number of items in the queue
+	 */
+	public void sampleQueue(int depth) {
+		depthSamples.incrementAndGet();
+		depthTotal.addAndGet(depth);
+		
+		long max;
+		while (depth > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, depth))
+			;
+	}
+	
+	/**
+	 * Records that the stage finished an item.
+	 * 
+	 * @param startNanos - value of System.nanoTime() when the stage started on the item
+	 */
+	public void record(long startNanos) {
+		items.incrementAndGet();
+		busyNanos.addAndGet(System.nanoTime() - startNanos);
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public long getItems() {
+		return items.get();
+	}
+	
+	/**
+	 * Returns the average time the stage spent on an item, not counting time
+	 * spent waiting for input or for room in the next queue.
+	 * 
+	 * @return milliseconds per item
+	 */
+	public double getMillisPerItem() {
+		long n = items.get();
+		return n == 0 ? 0 : busyNanos.get() / 1e6 / n;
+	}
+	
+	public double getAverageQueueDepth() {
+		long n = depthSamples.get();
+		return n == 0 ? 0 : (double)depthTotal.get() / n;
+	}
+	
+	public long getMaxQueueDepth() {
+		return maxDepth.get();
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%-6s %6d items %8.3f ms/item, queue depth avg %.1f max %d",
+				name, getItems(), getMillisPerItem(), getAverageQueueDepth(), getMaxQueueDepth());
+	}
+}
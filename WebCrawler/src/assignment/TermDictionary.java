@@ -0,0 +1,425 @@
+package assignment;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable, sorted set of terms, numbered from 0 in sorted order. The
+ * number of a term, its ordinal, indexes the arrays that hold its postings.
+ *
+ * Terms are sorted by their UTF-8 bytes and stored front coded: in blocks
+ * of BLOCK_SIZE terms, where the first term of a block is stored whole and
+ * each other term as the length of the prefix it shares with the term
+ * before it, followed by the rest of its bytes. Since neighbouring terms
+ * share long prefixes this takes a fraction of the space of the strings.
+ * Only the start of each block is kept in an array; a lookup binary
+ * searches the blocks by their first term and then decodes one block.
+ *
+ * Because the terms are sorted, the terms starting with a prefix, or
+ * between two terms, have consecutive ordinals, so prefix and range
+ * queries find their first and last term and never scan the dictionary.
+ *
+ * Safe for concurrent use.
+ */
+public final class TermDictionary {
+	public static final int BLOCK_SIZE = 16;
+
+	private final int numTerms;
+	private final int[] blockOffsets;
+	private final ByteBuffer data;
+
+	private TermDictionary(int numTerms, int[] blockOffsets, ByteBuffer data) {
+		this.numTerms = numTerms;
+		this.blockOffsets = blockOffsets;
+		this.data = data;
+	}
+
+	/**
+	 * Creates a dictionary of some terms.
+	 *
+	 * @param terms - the terms, without duplicates, in the order given by sort;
+	 * 				  unpaired surrogates are not valid in terms
+	 * @throws IllegalArgumentException if the terms are not in that order
+	 */
+	public TermDictionary(String[] terms) {
+		numTerms = terms.length;
+		blockOffsets = new int[(terms.length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+
+		byte[] bytes = new byte[64];
+		int length = 0;
+		byte[] previous = new byte[0];
+		for (int i = 0; i < terms.length; i++) {
+			byte[] term = terms[i].getBytes(StandardCharsets.UTF_8);
+			if (i > 0 && compare(previous, term) >= 0)
+				throw new IllegalArgumentException("Terms out of order: " + terms[i - 1] + ", " + terms[i]);
+
+			int shared = 0;
+			if (i % BLOCK_SIZE == 0) {
+				blockOffsets[i / BLOCK_SIZE] = length;
+			} else {
+				int max = Math.min(previous.length, term.length);
+				while (shared < max && previous[shared] == term[shared])
+					shared++;
+			}
+
+			if (length + 10 + term.length > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10 + term.length));
+			length = putVarint(bytes, length, shared);
+			length = putVarint(bytes, length, term.length - shared);
+			System.arraycopy(term, shared, bytes, length, term.length - shared);
+			length += term.length - shared;
+			previous = term;
+		}
+		data = ByteBuffer.wrap(Arrays.copyOf(bytes, length));
+	}
+
+	/**
+	 * Sorts terms into dictionary order: by their UTF-8 bytes, which is also
+	 * the order of their code points.
+	 *
+	 * @param terms - distinct terms
+	 * @return a new array of the terms, sorted
+	 */
+	public static String[] sort(Collection<String> terms) {
+		String[] sorted = terms.toArray(new String[terms.size()]);
+		Arrays.sort(sorted, TermDictionary::compare);
+		return sorted;
+	}
+
+	/**
+	 * Compares terms by code point, which is the order of their UTF-8
+	 * bytes. String.compareTo differs where surrogate pairs meet the
+	 * characters from U+E000 on, so those are moved around before comparing.
+	 *
+	 * @param a - a term
+	 * @param b - another term
+	 * @return a negative number, zero or a positive number as a sorts before,
+	 * 		   with or after b
+	 */
+	public static int compare(String a, String b) {
+		int n = Math.min(a.length(), b.length());
+		for (int i = 0; i < n; i++) {
+			char ca = a.charAt(i);
+			char cb = b.charAt(i);
+			if (ca != cb) {
+				if (ca >= 0xd800 && cb >= 0xd800) {
+					ca += ca >= 0xe000 ? -0x800 : 0x2000;
+					cb += cb >= 0xe000 ? -0x800 : 0x2000;
+				}
+				return ca - cb;
+			}
+		}
+		return a.length() - b.length();
+	}
+
+	/**
+	 * Returns the number of terms.
+	 *
+	 * @return the size of the dictionary
+	 */
+	public int size() {
+		return numTerms;
+	}
+
+	/**
+	 * Finds a term.
+	 *
+	 * @param term - the term to look up
+	 * @return its ordinal, or -1 if the term is not in the dictionary
+	 */
+	public int lookup(String term) {
+		byte[] key = term.getBytes(StandardCharsets.UTF_8);
+		int ordinal = ceiling(key);
+		if (ordinal == numTerms || compare(bytesOf(ordinal), key) != 0)
+			return -1;
+		return ordinal;
+	}
+
+	/**
+	 * Returns the term with a given ordinal.
+	 *
+	 * @param ordinal - a number from 0 to size() - 1
+	 * @return the term
+	 */
+	public String term(int ordinal) {
+		if (ordinal < 0 || ordinal >= numTerms)
+			throw new IndexOutOfBoundsException("No term " + ordinal);
+		return new String(bytesOf(ordinal), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the ordinals of the terms starting with a prefix, in order.
+	 *
+	 * @param prefix - the prefix; the empty string matches every term
+	 * @return an iterator over the ordinals
+	 */
+	public PrimitiveIterator.OfInt prefix(String prefix) {
+		byte[] from = prefix.getBytes(StandardCharsets.UTF_8);
+		if (from.length == 0)
+			return IntStream.range(0, numTerms).iterator();
+
+		// the first byte string after every string starting with the prefix;
+		// UTF-8 never contains 0xff, so the last byte can be incremented
+		byte[] to = from.clone();
+		to[to.length - 1]++;
+		return IntStream.range(ceiling(from), ceiling(to)).iterator();
+	}
+
+	/**
+	 * Returns the ordinals of the terms in a range, in order.
+	 *
+	 * @param from - the first term of the range, or null to start at the first term
+	 * @param to - the term after the range, or null to go to the last term
+	 * @return an iterator over the ordinals of the terms t with from <= t < to
+	 */
+	public PrimitiveIterator.OfInt range(String from, String to) {
+		int first = from == null ? 0 : ceiling(from.getBytes(StandardCharsets.UTF_8));
+		int end = to == null ? numTerms : ceiling(to.getBytes(StandardCharsets.UTF_8));
+		return IntStream.range(first, Math.max(first, end)).iterator();
+	}
+
+	/**
+	 * Returns all terms, in order. Faster than calling term for each one.
+	 *
+	 * @return a new array of the terms
+	 */
+	public String[] terms() {
+		String[] terms = new String[numTerms];
+		BlockReader reader = new BlockReader(0);
+		for (int i = 0; i < numTerms; i++) {
+			if (i % BLOCK_SIZE == 0)
+				reader = new BlockReader(i / BLOCK_SIZE);
+			reader.next();
+			terms[i] = new String(reader.term, 0, reader.length, StandardCharsets.UTF_8);
+		}
+		return terms;
+	}
+
+	/**
+	 * Returns the ordinal of the first term not less than a key, or size()
+	 * if there is none.
+	 */
+	private int ceiling(byte[] key) {
+		if (numTerms == 0)
+			return 0;
+
+		// the last block whose first term is not greater than the key
+		int low = 0;
+		int high = blockOffsets.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (compareFirst(mid, key) <= 0)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+
+		BlockReader reader = new BlockReader(low);
+		int end = Math.min(numTerms, (low + 1) * BLOCK_SIZE);
+		for (int ordinal = low * BLOCK_SIZE; ordinal < end; ordinal++) {
+			reader.next();
+			if (compare(reader.term, reader.length, key) >= 0)
+				return ordinal;
+		}
+		return end;
+	}
+
+	/**
+	 * Compares the first term of a block, which is stored whole, to a key.
+	 */
+	private int compareFirst(int block, byte[] key) {
+		int at = blockOffsets[block];
+		at++; // no shared prefix
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data.get(at++);
+			length |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+
+		int n = Math.min(length, key.length);
+		for (int i = 0; i < n; i++) {
+			int c = (data.get(at + i) & 0xff) - (key[i] & 0xff);
+			if (c != 0)
+				return c;
+		}
+		return length - key.length;
+	}
+
+	private byte[] bytesOf(int ordinal) {
+		BlockReader reader = new BlockReader(ordinal / BLOCK_SIZE);
+		for (int i = ordinal - ordinal % BLOCK_SIZE; i <= ordinal; i++) {
+			reader.next();
+		}
+		return Arrays.copyOf(reader.term, reader.length);
+	}
+
+	/**
+	 * Returns roughly how many bytes of heap the dictionary takes. The
+	 * terms of a dictionary read from a mapped file are not on the heap.
+	 *
+	 * @return the size of the arrays, in bytes
+	 */
+	public long memoryBytes() {
+		return 16 + 4L * blockOffsets.length + (data.hasArray() ? data.capacity() : 0);
+	}
+
+	/**
+	 * Writes the dictionary: the number of terms, the number of blocks and
+	 * the offset of each, then the length of the blocks and the blocks.
+	 * All numbers are 4 byte integers.
+	 *
+	 * @param out - where to write
+	 * @throws IOException if writing fails
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(numTerms);
+		out.writeInt(blockOffsets.length);
+		for (int offset : blockOffsets) {
+			out.writeInt(offset);
+		}
+		out.writeInt(data.capacity());
+		if (data.hasArray()) {
+			out.write(data.array(), data.arrayOffset(), data.capacity());
+		} else {
+			for (int i = 0; i < data.capacity(); i++) {
+				out.writeByte(data.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Returns how many bytes write produces.
+	 *
+	 * @return the size of the written dictionary
+	 */
+	public int writtenLength() {
+		return 12 + 4 * blockOffsets.length + data.capacity();
+	}
+
+	/**
+	 * Reads a dictionary written by write.
+	 *
+	 * @param in - where to read from
+	 * @return the dictionary
+	 * @throws IOException if reading fails, or the dictionary is invalid
+	 */
+	public static TermDictionary read(DataInput in) throws IOException {
+		int numTerms = in.readInt();
+		int[] blockOffsets = readBlockOffsets(in.readInt(), numTerms);
+		for (int i = 0; i < blockOffsets.length; i++) {
+			blockOffsets[i] = in.readInt();
+		}
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return checked(numTerms, blockOffsets, ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Reads a dictionary written by write from a buffer, such as a mapped
+	 * file, and advances the buffer past it. Only the block offsets are
+	 * copied; the terms are read from the buffer when needed.
+	 *
+	 * @param in - where to read from
+	 * @return the dictionary
+	 * @throws IOException if the dictionary is invalid
+	 */
+	public static TermDictionary read(ByteBuffer in) throws IOException {
+		int numTerms = in.getInt();
+		int[] blockOffsets = readBlockOffsets(in.getInt(), numTerms);
+		for (int i = 0; i < blockOffsets.length; i++) {
+			blockOffsets[i] = in.getInt();
+		}
+		int length = in.getInt();
+		if (length < 0 || length > in.remaining())
+			throw new IOException("Corrupt term dictionary: blocks end early");
+		ByteBuffer data = in.slice();
+		data.limit(length);
+		in.position(in.position() + length);
+		return checked(numTerms, blockOffsets, data.slice());
+	}
+
+	private static int[] readBlockOffsets(int numBlocks, int numTerms) throws IOException {
+		if (numTerms < 0 || numBlocks != (numTerms + BLOCK_SIZE - 1) / BLOCK_SIZE)
+			throw new IOException("Corrupt term dictionary: " + numTerms + " terms in "
+					+ numBlocks + " blocks");
+		return new int[numBlocks];
+	}
+
+	private static TermDictionary checked(int numTerms, int[] blockOffsets, ByteBuffer data)
+			throws IOException {
+		for (int i = 0; i < blockOffsets.length; i++) {
+			if (blockOffsets[i] < 0 || blockOffsets[i] >= data.capacity()
+					|| (i > 0 && blockOffsets[i] <= blockOffsets[i - 1]))
+				throw new IOException("Corrupt term dictionary: bad block offset " + blockOffsets[i]);
+		}
+		return new TermDictionary(numTerms, blockOffsets, data);
+	}
+
+	/**
+	 * Compares byte strings as unsigned bytes, the order of the dictionary.
+	 */
+	static int compare(byte[] a, byte[] b) {
+		return compare(a, a.length, b);
+	}
+
+	private static int compare(byte[] a, int length, byte[] b) {
+		return Arrays.compareUnsigned(a, 0, length, b, 0, b.length);
+	}
+
+	private static int putVarint(byte[] bytes, int at, int value) {
+		while ((value & ~0x7f) != 0) {
+			bytes[at++] = (byte)((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		bytes[at++] = (byte)value;
+		return at;
+	}
+
+	/**
+	 * Decodes the terms of a block one after the other.
+	 */
+	private class BlockReader {
+		private int at;
+		byte[] term = new byte[32];
+		int length;
+
+		BlockReader(int block) {
+			at = block < blockOffsets.length ? blockOffsets[block] : 0;
+		}
+
+		void next() {
+			int shared = readVarint();
+			int suffix = readVarint();
+			if (shared > length || shared + suffix < 0)
+				throw new IllegalStateException("Corrupt term dictionary at byte " + at);
+			if (shared + suffix > term.length)
+				term = Arrays.copyOf(term, Math.max(term.length * 2, shared + suffix));
+			for (int i = 0; i < suffix; i++) {
+				term[shared + i] = data.get(at++);
+			}
+			length = shared + suffix;
+		}
+
+		private int readVarint() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data.get(at++);
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+	}
+}
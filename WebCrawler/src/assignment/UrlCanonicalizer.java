@@ -0,0 +1,305 @@
+package assignment;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Locale;
+
+/**
+ * Rewrites URLs into a canonical form, so that different spellings of the
+ * same page are only fetched and indexed once. Each rewrite is a separate
+ * Rule that can be switched on or off; they are always applied in the
+ * order they are declared.
+ */
+public class UrlCanonicalizer {
+
+	/**
+	 * The individual rewrites a canonicalizer can perform.
+	 */
+	public enum Rule {
+		/** Lowercases the scheme and host name: HTTP://WWW.A.COM/ -> http://www.a.com/ */
+		LOWERCASE_HOST {
+			@Override
+			void apply(Parts url) {
+				url.scheme = url.scheme.toLowerCase(Locale.ROOT);
+				url.host = url.host.toLowerCase(Locale.ROOT);
+			}
+		},
+
+		/** Drops a port that is the default for the scheme: http://a.com:80/ -> http://a.com/ */
+		DEFAULT_PORT {
+			@Override
+			void apply(Parts url) {
+				if ((url.port == 80 && url.scheme.equalsIgnoreCase("http"))
+						|| (url.port == 443 && url.scheme.equalsIgnoreCase("https"))
+						|| (url.port == 21 && url.scheme.equalsIgnoreCase("ftp")))
+					url.port = -1;
+			}
+		},
+
+		/** Gives a URL with a host but no path the root path: http://a.com -> http://a.com/ */
+		EMPTY_PATH {
+			@Override
+			void apply(Parts url) {
+				if (url.path.isEmpty() && !url.host.isEmpty())
+					url.path = "/";
+			}
+		},
+
+		/**
+		 * Decodes escaped characters that never need escaping, escapes characters
+		 * that always do, and uppercases the remaining escapes: /%7Ea%2fb c -> /~a%2Fb%20c
+		 */
+		PERCENT_ENCODING {
+			@Override
+			void apply(Parts url) {
+				url.path = normalizeEscapes(url.path);
+			}
+		},
+
+		/**
+		 * Resolves "." and ".." path segments: /a/./b/../c -> /a/c. Runs after
+		 * PERCENT_ENCODING, so escaped dots such as /a/%2E%2E/b are resolved too.
+		 */
+		DOT_SEGMENTS {
+			@Override
+			void apply(Parts url) {
+				url.path = removeDotSegments(url.path);
+			}
+		},
+
+		/**
+		 * Treats a directory and its index.html as the same page. For http and
+		 * other network schemes the index page is dropped: /a/index.html -> /a/.
+		 * A file: URL naming a directory cannot be fetched as a page, so there
+		 * the index page is added instead: /a/ -> /a/index.html
+		 */
+		DIRECTORY_INDEX {
+			@Override
+			void apply(Parts url) {
+				if (url.scheme.equalsIgnoreCase("file")) {
+					if (url.path.endsWith("/"))
+						url.path += "index.html";
+				} else {
+					for (String index : INDEX_PAGES) {
+						if (url.path.endsWith("/" + index)) {
+							url.path = url.path.substring(0, url.path.length() - index.length());
+							break;
+						}
+					}
+				}
+			}
+		},
+
+		/** Drops the fragment, which never changes the page fetched: /a#top -> /a */
+		FRAGMENT {
+			@Override
+			void apply(Parts url) {
+				url.fragment = null;
+			}
+		},
+
+		/** Drops the query string: /a?link=b -> /a */
+		QUERY {
+			@Override
+			void apply(Parts url) {
+				url.query = null;
+			}
+		};
+
+		abstract void apply(Parts url);
+	}
+
+	private static final String[] INDEX_PAGES = {"index.html", "index.htm"};
+
+	private EnumSet<Rule> rules;
+
+	/**
+	 * Creates a canonicalizer that applies every rule.
+	 */
+	public UrlCanonicalizer() {
+		this(EnumSet.allOf(Rule.class));
+	}
+
+	/**
+	 * Creates a canonicalizer that applies only the given rules.
+	 *
+	 * @param rules - the rules to apply
+	 */
+	public UrlCanonicalizer(EnumSet<Rule> rules) {
+		this.rules = EnumSet.copyOf(rules);
+	}
+
+	/**
+	 * Returns the rules applied by this canonicalizer.
+	 *
+	 * @return a copy of the set of rules
+	 */
+	public EnumSet<Rule> getRules() {
+		return EnumSet.copyOf(rules);
+	}
+
+	/**
+	 * Rewrites a URL into its canonical form.
+	 *
+	 * @param url - the URL to rewrite
+	 * @return the canonical URL, which may be the same object if nothing changed
+	 */
+	public URL canonicalize(URL url) {
+		Parts parts = new Parts(url);
+		for (Rule rule : rules) {
+			rule.apply(parts);
+		}
+
+		String canonical = parts.toString();
+		if (canonical.equals(url.toString()))
+			return url;
+
+		try {
+			return new URL(canonical);
+		} catch (MalformedURLException e) {
+			// the rules only ever produce valid URLs from valid ones, but if
+			// one slips through crawling the original is the safe choice
+			return url;
+		}
+	}
+
+	/**
+	 * Removes "." and ".." segments from a path as described in RFC 3986,
+	 * section 5.2.4. A ".." at the root is dropped.
+	 *
+	 * @param path - an absolute or relative path
+	 * @return the path without dot segments
+	 */
+	static String removeDotSegments(String path) {
+		if (path.indexOf('.') == -1)
+			return path;
+
+		StringBuilder output = new StringBuilder();
+		String input = path;
+
+		while (!input.isEmpty()) {
+			if (input.startsWith("../")) {
+				input = input.substring(3);
+			} else if (input.startsWith("./")) {
+				input = input.substring(2);
+			} else if (input.startsWith("/./")) {
+				input = input.substring(2);
+			} else if (input.equals("/.")) {
+				input = "/";
+			} else if (input.startsWith("/../") || input.equals("/..")) {
+				input = input.length() == 3 ? "/" : input.substring(3);
+
+				// remove the last segment written so far
+				int last = output.lastIndexOf("/");
+				output.setLength(last == -1 ? 0 : last);
+			} else if (input.equals(".") || input.equals("..")) {
+				input = "";
+			} else {
+				// move the first segment, with its leading slash, to the output
+				int next = input.indexOf('/', 1);
+				if (next == -1)
+					next = input.length();
+				output.append(input, 0, next);
+				input = input.substring(next);
+			}
+		}
+
+		return output.toString();
+	}
+
+	/**
+	 * Decodes escapes of unreserved characters (letters, digits and -._~),
+	 * uppercases the hex digits of all other escapes and escapes characters
+	 * that may not appear in a path, such as spaces.
+	 *
+	 * @param path - the path of a URL
+	 * @return the path with normalized escapes
+	 */
+	static String normalizeEscapes(String path) {
+		StringBuilder output = new StringBuilder(path.length());
+
+		for (int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+
+			if (c == '%' && i + 2 < path.length()
+					&& isHex(path.charAt(i + 1)) && isHex(path.charAt(i + 2))) {
+				char decoded = (char)Integer.parseInt(path.substring(i + 1, i + 3), 16);
+				if (isUnreserved(decoded)) {
+					output.append(decoded);
+				} else {
+					output.append('%').append(Character.toUpperCase(path.charAt(i + 1)))
+						.append(Character.toUpperCase(path.charAt(i + 2)));
+				}
+				i += 2;
+			} else if (c <= ' ' || c >= 0x7f || c == '"' || c == '<' || c == '>'
+					|| c == '\\' || c == '^' || c == '`' || c == '{' || c == '|' || c == '}') {
+				// escape every UTF-8 byte of the character
+				int end = Character.isHighSurrogate(c) && i + 1 < path.length() ? i + 2 : i + 1;
+				for (byte b : path.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+					output.append('%').append(String.format("%02X", b & 0xff));
+				}
+				i = end - 1;
+			} else {
+				output.append(c);
+			}
+		}
+
+		return output.toString();
+	}
+
+	private static boolean isHex(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+	}
+
+	private static boolean isUnreserved(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+				|| c == '-' || c == '.' || c == '_' || c == '~';
+	}
+
+	/**
+	 * The components of a URL, changed in place by the rules.
+	 */
+	static class Parts {
+		String scheme;
+		String userInfo;
+		String host;
+		int port;
+		String path;
+		String query;
+		String fragment;
+
+		Parts(URL url) {
+			scheme = url.getProtocol();
+			userInfo = url.getUserInfo();
+			host = url.getHost() == null ? "" : url.getHost();
+			port = url.getPort();
+			path = url.getPath();
+			query = url.getQuery();
+			fragment = url.getRef();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder url = new StringBuilder(scheme).append(':');
+
+			// file: URLs have an empty authority, written as file:/path
+			if (!host.isEmpty() || userInfo != null || port != -1) {
+				url.append("//");
+				if (userInfo != null)
+					url.append(userInfo).append('@');
+				url.append(host);
+				if (port != -1)
+					url.append(':').append(port);
+			}
+
+			url.append(path);
+			if (query != null)
+				url.append('?').append(query);
+			if (fragment != null)
+				url.append('#').append(fragment);
+			return url.toString();
+		}
+	}
+}
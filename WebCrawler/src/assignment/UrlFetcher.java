@@ -0,0 +1,117 @@
+package assignment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fetcher that uses the URLConnection built into Java, so it supports
+ * every scheme the JDK does. HTTP fetches are made conditional with
+ * If-None-Match and If-Modified-Since when a previous state is known.
+ * Like HttpFetcher it gives up on unresponsive servers, keeps only the
+ * first bytes of a large body and does not read HTTP responses that are
+ * not HTML.
+ */
+public class UrlFetcher implements Fetcher {
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
+	private final int maxBodyBytes;
+	
+	/**
+	 * Creates a fetcher with the default timeouts and maximum body size of HttpFetcher.
+	 */
+	public UrlFetcher() {
+		this(HttpFetcher.DEFAULT_CONNECT_TIMEOUT, HttpFetcher.DEFAULT_READ_TIMEOUT,
+				HttpFetcher.DEFAULT_MAX_BODY_BYTES);
+	}
+	
+	/**
+	 * @param connectTimeout - longest wait for a connection to be established
+	 * @param readTimeout - longest wait for any single read from the connection
+	 * @param maxBodyBytes - number of bytes of a body kept, the rest is not read
+	 */
+	public UrlFetcher(Duration connectTimeout, Duration readTimeout, int maxBodyBytes) {
+		if (maxBodyBytes < 1)
+			throw new IllegalArgumentException("Invalid maximum body size: " + maxBodyBytes);
+		
+		connectTimeoutMillis = (int)Math.min(connectTimeout.toMillis(), Integer.MAX_VALUE);
+		readTimeoutMillis = (int)Math.min(readTimeout.toMillis(), Integer.MAX_VALUE);
+		this.maxBodyBytes = maxBodyBytes;
+	}
+
+	@Override
+	public FetchResult fetch(URL url, PageState previous) throws IOException {
+		URLConnection connection = url.openConnection();
+		connection.setConnectTimeout(connectTimeoutMillis);
+		connection.setReadTimeout(readTimeoutMillis);
+		
+		if (connection instanceof HttpURLConnection) {
+			HttpURLConnection http = (HttpURLConnection)connection;
+			if (previous != null) {
+				if (previous.getETag() != null)
+					http.setRequestProperty("If-None-Match", previous.getETag());
+				if (previous.getLastModified() != null)
+					http.setRequestProperty("If-Modified-Since", previous.getLastModified());
+			}
+			
+			if (http.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED)
+				return FetchResult.notModified(url);
+			if (http.getResponseCode() < 300 && !HttpFetcher.isHtml(http.getContentType())) {
+				http.disconnect();
+				return new FetchResult(url, new byte[0], http.getContentType(), null, null);
+			}
+		}
+		
+		byte[] body;
+		try (InputStream in = connection.getInputStream()) {
+			body = readFully(in, connection.getContentLength(), maxBodyBytes);
+		}
+		
+		FetchResult page = new FetchResult(url, body, connection.getContentType(),
+				connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+		if (connection instanceof HttpURLConnection)
+			page.setResponseHeaders(connection.getHeaderField(0), headerLines(connection));
+		return page;
+	}
+	
+	/**
+	 * Returns the headers of a response as "Name: value" lines, in the
+	 * order they were received. Field 0 is the status line.
+	 */
+	private static List<String> headerLines(URLConnection connection) {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 1; connection.getHeaderField(i) != null; i++) {
+			if (connection.getHeaderFieldKey(i) != null)
+				lines.add(connection.getHeaderFieldKey(i) + ": " + connection.getHeaderField(i));
+		}
+		return lines;
+	}
+	
+	/**
+	 * Reads a stream to its end, or up to a maximum number of bytes.
+	 * 
+	 * @param in - the stream
+	 * @param expectedLength - number of bytes the stream is expected to hold,
+	 * 						   or -1 if unknown
+	 * @param maxBytes - most bytes read
+	 * @return every byte read
+	 * @throws IOException if reading fails
+	 */
+	static byte[] readFully(InputStream in, int expectedLength, int maxBytes) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(
+				expectedLength > 0 ? Math.min(expectedLength, maxBytes) : 8192);
+		byte[] buffer = new byte[8192];
+		int read;
+		while (out.size() < maxBytes
+				&& (read = in.read(buffer, 0, Math.min(buffer.length, maxBytes - out.size()))) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
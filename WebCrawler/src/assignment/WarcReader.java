@@ -0,0 +1,158 @@
+package assignment;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the response records of one WARC segment written by WarcWriter,
+ * in order, turning each back into the FetchResult it was made from.
+ * Records of other types are skipped. Also reads plain, uncompressed WARC
+ * files.
+ */
+public class WarcReader implements Closeable {
+	private InputStream in;
+
+	/**
+	 * @param segment - a .warc.gz or .warc file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public WarcReader(Path segment) throws IOException {
+		InputStream file = new BufferedInputStream(Files.newInputStream(segment), 1 << 16);
+		// GZIPInputStream reads one gzip member after another
+		if (segment.toString().endsWith(".gz"))
+			in = new BufferedInputStream(new GZIPInputStream(file, 1 << 16), 1 << 16);
+		else
+			in = file;
+	}
+
+	/**
+	 * Reads the next response record.
+	 *
+	 * @return the page it holds, or null at the end of the segment
+	 * @throws IOException if the segment is truncated or not a WARC file
+	 */
+	public FetchResult next() throws IOException {
+		while (true) {
+			String version = readLine();
+			while (version != null && version.isEmpty())
+				version = readLine();
+			if (version == null)
+				return null;
+			if (!version.startsWith("WARC/"))
+				throw new IOException("Not a WARC record: " + version);
+
+			HashMap<String, String> headers = readHeaders();
+			String length = headers.get("content-length");
+			if (length == null)
+				throw new IOException("WARC record without Content-Length");
+
+			byte[] block = new byte[Integer.parseInt(length.trim())];
+			readFully(block);
+
+			String type = headers.get("warc-type");
+			String uri = headers.get("warc-target-uri");
+			if ("response".equals(type) && uri != null)
+				return parseResponse(uri, block);
+		}
+	}
+
+	/**
+	 * Splits the HTTP response held by a record into headers and body.
+	 */
+	private static FetchResult parseResponse(String uri, byte[] block) throws IOException {
+		int bodyStart = -1;
+		for (int i = 0; i + 3 < block.length; i++) {
+			if (block[i] == '\r' && block[i + 1] == '\n' && block[i + 2] == '\r' && block[i + 3] == '\n') {
+				bodyStart = i + 4;
+				break;
+			}
+		}
+		if (bodyStart == -1)
+			throw new IOException("Response without headers: " + uri);
+
+		HashMap<String, String> headers = new HashMap<String, String>();
+		String[] lines = new String(block, 0, bodyStart, StandardCharsets.ISO_8859_1).split("\r\n");
+		List<String> headerLines = new ArrayList<String>();
+		for (int i = 1; i < lines.length; i++) {
+			addHeader(headers, lines[i]);
+			headerLines.add(lines[i]);
+		}
+
+		URL url;
+		try {
+			url = new URL(uri);
+		} catch (MalformedURLException e) {
+			throw new IOException("Invalid WARC-Target-URI: " + uri, e);
+		}
+		FetchResult page = new FetchResult(url, ByteBuffer.wrap(block, bodyStart, block.length - bodyStart).slice(),
+				headers.get("content-type"), headers.get("etag"), headers.get("last-modified"));
+		page.setResponseHeaders(lines[0], headerLines);
+		return page;
+	}
+
+	private HashMap<String, String> readHeaders() throws IOException {
+		HashMap<String, String> headers = new HashMap<String, String>();
+		String line;
+		while ((line = readLine()) != null && !line.isEmpty()) {
+			addHeader(headers, line);
+		}
+		if (line == null)
+			throw new EOFException("Truncated WARC record");
+		return headers;
+	}
+
+	/**
+	 * Adds a "Name: value" header line to a map keyed by lower case name.
+	 */
+	private static void addHeader(HashMap<String, String> headers, String line) {
+		int colon = line.indexOf(':');
+		if (colon > 0)
+			headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+	}
+
+	/**
+	 * Reads a line ending in CRLF or LF.
+	 *
+	 * @return the line without its ending, or null at the end of the stream
+	 */
+	private String readLine() throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = in.read()) != -1 && c != '\n') {
+			line.append((char)c);
+		}
+		if (c == -1 && line.length() == 0)
+			return null;
+		if (line.length() > 0 && line.charAt(line.length() - 1) == '\r')
+			line.setLength(line.length() - 1);
+		return line.toString();
+	}
+
+	private void readFully(byte[] bytes) throws IOException {
+		int read = 0;
+		while (read < bytes.length) {
+			int n = in.read(bytes, read, bytes.length - read);
+			if (n == -1)
+				throw new EOFException("Truncated WARC record");
+			read += n;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,207 @@
+package assignment;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends the raw responses of a crawl to an archive in the WARC format,
+ * so the pages can be indexed again, for example after a change to the
+ * tokenizer, without fetching them again.
+ *
+ * A page fetched over HTTP is archived with the status line and headers
+ * its fetcher kept. The body is stored as the crawler received it, after
+ * gzip decoding and possibly cut off at the maximum body size, so the
+ * Content-Encoding and Transfer-Encoding headers are left out and
+ * Content-Length is set to the stored length. The status line may lack
+ * its reason phrase, and HttpFetcher keeps the headers grouped by name
+ * rather than in the order they were sent. Pages from other sources, such
+ * as files or an HTTrack mirror, get a synthetic "HTTP/1.1 200 OK"
+ * response with only the Content-Type, ETag and Last-Modified headers.
+ *
+ * The archive is a directory of segments named crawl-00000.warc.gz,
+ * crawl-00001.warc.gz and so on. Each record is compressed as a gzip member
+ * of its own, as is usual for WARC files, and a new segment is started once
+ * the current one reaches a set size. A new writer continues after the
+ * segments already in the directory.
+ *
+ * Safe for concurrent use: records are compressed by the calling thread
+ * and only appended under the lock.
+ */
+public class WarcWriter implements Closeable {
+	/** Segments are closed once they reach this many bytes, unless set otherwise. */
+	public static final long DEFAULT_SEGMENT_BYTES = 1L << 30;
+
+	private static final String PREFIX = "crawl-";
+	private static final String SUFFIX = ".warc.gz";
+
+	private Path dir;
+	private long maxSegmentBytes;
+	private int nextSegment;
+
+	// the segment being written, guarded by this
+	private OutputStream out;
+	private long segmentBytes;
+	private long records;
+
+	/**
+	 * @param dir - directory holding the segments, created if needed
+	 * @param maxSegmentBytes - size at which a segment is closed and the next started
+	 * @throws IOException if the directory cannot be created or listed
+	 */
+	public WarcWriter(Path dir, long maxSegmentBytes) throws IOException {
+		if (maxSegmentBytes < 1)
+			throw new IllegalArgumentException("Invalid segment size: " + maxSegmentBytes);
+
+		this.dir = dir;
+		this.maxSegmentBytes = maxSegmentBytes;
+		Files.createDirectories(dir);
+
+		List<Path> existing = segments(dir);
+		if (!existing.isEmpty()) {
+			String last = existing.get(existing.size() - 1).getFileName().toString();
+			nextSegment = Integer.parseInt(last.substring(PREFIX.length(), last.length() - SUFFIX.length())) + 1;
+		}
+	}
+
+	/**
+	 * Appends a downloaded page as a WARC response record. Pages without
+	 * content, such as unchanged pages of an incremental crawl, are skipped.
+	 *
+	 * @param page - the downloaded page
+	 * @throws IOException if the record could not be written
+	 */
+	public void write(FetchResult page) throws IOException {
+		ByteBuffer content = page.getContent();
+		if (content == null)
+			return;
+
+		StringBuilder http = new StringBuilder();
+		if (page.getStatusLine() != null) {
+			http.append(page.getStatusLine()).append("\r\n");
+			for (String line : page.getHeaderLines()) {
+				if (!describesRawBody(line))
+					http.append(line).append("\r\n");
+			}
+		} else {
+			// the HTTP response as far as the crawler knows it
+			http.append("HTTP/1.1 200 OK\r\n");
+			header(http, "Content-Type", page.getContentType());
+			header(http, "ETag", page.getETag());
+			header(http, "Last-Modified", page.getLastModified());
+		}
+		header(http, "Content-Length", Integer.toString(content.remaining()));
+		http.append("\r\n");
+		byte[] httpHeaders = http.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+		StringBuilder warc = new StringBuilder("WARC/1.0\r\n");
+		header(warc, "WARC-Type", "response");
+		header(warc, "WARC-Target-URI", page.getURL().toString());
+		header(warc, "WARC-Date", Instant.now().truncatedTo(ChronoUnit.SECONDS).toString());
+		header(warc, "WARC-Record-ID", "<urn:uuid:" + UUID.randomUUID() + ">");
+		header(warc, "Content-Type", "application/http; msgtype=response");
+		header(warc, "Content-Length", Integer.toString(httpHeaders.length + content.remaining()));
+		warc.append("\r\n");
+
+		ByteArrayOutputStream record = new ByteArrayOutputStream(content.remaining() / 3 + 512);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(record)) {
+			gzip.write(warc.toString().getBytes(StandardCharsets.ISO_8859_1));
+			gzip.write(httpHeaders);
+			if (content.hasArray()) {
+				gzip.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+			} else {
+				byte[] body = new byte[content.remaining()];
+				content.duplicate().get(body);
+				gzip.write(body);
+			}
+			gzip.write(new byte[] { '\r', '\n', '\r', '\n' });
+		}
+		append(record);
+	}
+
+	/**
+	 * Returns how many records were written by this writer.
+	 *
+	 * @return number of records
+	 */
+	public synchronized long getRecords() {
+		return records;
+	}
+
+	private synchronized void append(ByteArrayOutputStream record) throws IOException {
+		if (out == null) {
+			Path segment = dir.resolve(String.format("%s%05d%s", PREFIX, nextSegment++, SUFFIX));
+			out = new BufferedOutputStream(Files.newOutputStream(segment,
+					StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 1 << 16);
+			segmentBytes = 0;
+		}
+
+		record.writeTo(out);
+		segmentBytes += record.size();
+		records++;
+		if (segmentBytes >= maxSegmentBytes) {
+			out.close();
+			out = null;
+		}
+	}
+
+	/**
+	 * Finishes the current segment.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (out != null) {
+			out.close();
+			out = null;
+		}
+	}
+
+	/**
+	 * Returns whether a header line describes the body as it was sent,
+	 * rather than as it is stored.
+	 */
+	private static boolean describesRawBody(String line) {
+		int colon = line.indexOf(':');
+		String name = colon < 0 ? line : line.substring(0, colon).trim();
+		return name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Content-Encoding")
+				|| name.equalsIgnoreCase("Transfer-Encoding");
+	}
+
+	private static void header(StringBuilder headers, String name, String value) {
+		if (value != null)
+			headers.append(name).append(": ").append(value).append("\r\n");
+	}
+
+	/**
+	 * Lists the segments of an archive.
+	 *
+	 * @param dir - the archive directory
+	 * @return the segment files, in the order they were written
+	 * @throws IOException if the directory cannot be listed
+	 */
+	public static List<Path> segments(Path dir) throws IOException {
+		List<Path> segments = new ArrayList<Path>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "[0-9]*" + SUFFIX)) {
+			for (Path file : files) {
+				segments.add(file);
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+}
@@ -1,13 +1,21 @@
 package assignment;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
@@ -15,16 +23,32 @@ import org.xml.sax.SAXException;
 
 public class WebCrawler extends Crawler {
 	private WebIndex webIndex;
-	private HashSet<String> visitedPages;
+	private SeenSet visitedPages;
+	private Fetcher fetcher;
+	private RecrawlStore recrawlStore;
+	private DuplicateDetector duplicates;
+	private CrawlBudget budget;
+	private CrawlMetrics metrics;
+	private AdaptiveConcurrency concurrency;
 	private static final HashSet<String> tagsAvoid;
 	private static final HashSet<String> extnsAvoid;
 	private boolean printText;
 	
-	private String pageText;
+	private String pageURL;
+	private char[] word;
+	private int wordLength;
 	private boolean shouldAvoid;
 	private URL context;
 	private LinkedList<URL> links;
-	private int pos;
+	
+	// words of the page being parsed, handed over to the index once it is finished
+	private ArrayList<String> pageWords;
+	
+	// reusable source of the text of each page
+	private PageReader pageReader;
+	private InputSource input;
+	private long wordsHash;
+	private int[] simHashWeights;
 	
 	static {
 		tagsAvoid = new HashSet<String>();
@@ -36,44 +60,331 @@ public class WebCrawler extends Crawler {
 		tagsAvoid.add("option");
 		tagsAvoid.add("meta");
 		
-		extnsAvoid = new HashSet<String>();
-		extnsAvoid.add(".jpg");
-		extnsAvoid.add(".png");
-		extnsAvoid.add(".gif");
+		// links to binaries are not even fetched
+		extnsAvoid = new HashSet<String>(Arrays.asList(
+				".jpg", ".jpeg", ".png", ".gif", ".bmp", ".ico", ".svg", ".tif", ".tiff",
+				".swf", ".flv", ".mov", ".mp3", ".mp4", ".mpg", ".mpeg", ".avi", ".wmv", ".wav",
+				".pdf", ".zip", ".gz", ".tgz", ".tar", ".rar", ".exe", ".dmg", ".iso", ".jar",
+				".css", ".js"));
 	}
 	
     public WebCrawler() {
+        this(new WebIndex(), new HeapFingerprintSet());
+    }
+
+    /**
+     * Creates a crawler that adds pages to an existing index. Several
+     * crawlers may share the same index and set of visited pages.
+     *
+     * @param webIndex - index the parsed pages are inserted into
+     * @param visitedPages - URLs of pages that have already been parsed
+     */
+    public WebCrawler(WebIndex webIndex, SeenSet visitedPages) {
         parser.setContentHandler(this);
-        webIndex = new WebIndex();
-        visitedPages = new HashSet<String>();
+        this.webIndex = webIndex;
+        this.visitedPages = visitedPages;
+        fetcher = new FileFetcher(HttpFetcher.getShared());
+        word = new char[64];
+        pageWords = new ArrayList<String>();
+        simHashWeights = new int[64];
+        pageReader = new PageReader();
+        input = new InputSource(pageReader);
         printText = false;
     }
 
     public static void main(String[] args) throws Exception {
-        if (args.length == 0) {
-            System.out.println("No URLs specified.");
+        int numThreads = 1;
+        boolean adaptive = false;
+        String order = "bfs";
+        String seenKind = "heap";
+        boolean bloom = false;
+        boolean canonicalize = true;
+        String checkpointDir = null;
+        int checkpointInterval = 500;
+        boolean resume = false;
+        int perHost = 0;
+        long hostDelay = 0;
+        boolean useRobots = false;
+        boolean incremental = false;
+        boolean dedup = true;
+        int[] pipeline = null;
+        int queueCapacity = 64;
+        List<Path> walkDirs = new ArrayList<Path>();
+        Path httrackCache = null;
+        Path archiveDir = null;
+        Path reindexDir = null;
+        Duration connectTimeout = HttpFetcher.DEFAULT_CONNECT_TIMEOUT;
+        Duration requestTimeout = HttpFetcher.DEFAULT_REQUEST_TIMEOUT;
+        Duration readTimeout = HttpFetcher.DEFAULT_READ_TIMEOUT;
+        int maxBodyBytes = HttpFetcher.DEFAULT_MAX_BODY_BYTES;
+        int breakerFailures = CircuitBreakerFetcher.DEFAULT_MAX_FAILURES;
+        Duration slowFetch = CircuitBreakerFetcher.DEFAULT_SLOW;
+        CrawlBudget budget = new CrawlBudget();
+        boolean budgeted = false;
+        long progressSeconds = 10;
+        String metricsFile = null;
+        int nodeId = -1;
+        List<InetSocketAddress> nodes = null;
+        String[] shards = null;
+        List<URL> remaining = new LinkedList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--threads") && i + 1 < args.length) {
+                String threads = args[++i];
+                if (threads.equals("auto")) {
+                    numThreads = 64;
+                    adaptive = true;
+                } else {
+                    numThreads = Integer.parseInt(threads);
+                }
+            } else if (arg.equals("--adaptive")) {
+                adaptive = true;
+            } else if (arg.equals("--order") && i + 1 < args.length) {
+                order = args[++i];
+            } else if (arg.equals("--seen") && i + 1 < args.length) {
+                seenKind = args[++i];
+            } else if (arg.equals("--bloom")) {
+                bloom = true;
+            } else if (arg.equals("--no-canonicalize")) {
+                canonicalize = false;
+            } else if (arg.equals("--checkpoint") && i + 1 < args.length) {
+                checkpointDir = args[++i];
+            } else if (arg.equals("--checkpoint-every") && i + 1 < args.length) {
+                checkpointInterval = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--resume")) {
+                resume = true;
+            } else if (arg.equals("--per-host") && i + 1 < args.length) {
+                perHost = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--host-delay") && i + 1 < args.length) {
+                hostDelay = Long.parseLong(args[++i]);
+            } else if (arg.equals("--robots")) {
+                useRobots = true;
+            } else if (arg.equals("--incremental")) {
+                incremental = true;
+            } else if (arg.equals("--no-dedup")) {
+                dedup = false;
+            } else if (arg.equals("--pipeline") && i + 1 < args.length) {
+                String[] counts = args[++i].split(",");
+                if (counts.length != 3) {
+                    System.out.println("--pipeline needs three thread counts: fetch,parse,index");
+                    System.exit(0);
+                }
+                pipeline = new int[3];
+                for (int j = 0; j < 3; j++) {
+                    pipeline[j] = Integer.parseInt(counts[j]);
+                }
+            } else if (arg.equals("--queue") && i + 1 < args.length) {
+                queueCapacity = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--walk") && i + 1 < args.length) {
+                walkDirs.add(Paths.get(args[++i]));
+            } else if (arg.equals("--archive") && i + 1 < args.length) {
+                archiveDir = Paths.get(args[++i]);
+            } else if (arg.equals("--reindex") && i + 1 < args.length) {
+                reindexDir = Paths.get(args[++i]);
+            } else if (arg.equals("--httrack") && i + 1 < args.length) {
+                httrackCache = Paths.get(args[++i]);
+            } else if (arg.equals("--connect-timeout") && i + 1 < args.length) {
+                connectTimeout = Duration.ofMillis(Long.parseLong(args[++i]));
+            } else if (arg.equals("--request-timeout") && i + 1 < args.length) {
+                requestTimeout = Duration.ofMillis(Long.parseLong(args[++i]));
+            } else if (arg.equals("--read-timeout") && i + 1 < args.length) {
+                readTimeout = Duration.ofMillis(Long.parseLong(args[++i]));
+            } else if (arg.equals("--max-body") && i + 1 < args.length) {
+                maxBodyBytes = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--breaker") && i + 1 < args.length) {
+                breakerFailures = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--slow") && i + 1 < args.length) {
+                slowFetch = Duration.ofMillis(Long.parseLong(args[++i]));
+            } else if (arg.equals("--progress") && i + 1 < args.length) {
+                progressSeconds = Long.parseLong(args[++i]);
+            } else if (arg.equals("--metrics") && i + 1 < args.length) {
+                metricsFile = args[++i];
+            } else if (arg.equals("--max-depth") && i + 1 < args.length) {
+                budget.setMaxDepth(Integer.parseInt(args[++i]));
+                budgeted = true;
+            } else if (arg.equals("--max-pages") && i + 1 < args.length) {
+                budget.setMaxPages(Long.parseLong(args[++i]));
+                budgeted = true;
+            } else if (arg.equals("--max-pages-per-host") && i + 1 < args.length) {
+                budget.setMaxPagesPerHost(Integer.parseInt(args[++i]));
+                budgeted = true;
+            } else if (arg.equals("--max-bytes") && i + 1 < args.length) {
+                budget.setMaxBytes(Long.parseLong(args[++i]));
+                budgeted = true;
+            } else if (arg.equals("--node") && i + 1 < args.length) {
+                nodeId = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--nodes") && i + 1 < args.length) {
+                nodes = new ArrayList<InetSocketAddress>();
+                for (String address : args[++i].split(",")) {
+                    int colon = address.lastIndexOf(':');
+                    nodes.add(new InetSocketAddress(address.substring(0, colon),
+                            Integer.parseInt(address.substring(colon + 1))));
+                }
+            } else if (arg.equals("--merge-shards") && i + 1 < args.length) {
+                shards = args[++i].split(",");
+            } else {
+                remaining.add(new URL(arg));
+            }
+        }
+
+        // rebuilding the index from an archive replaces the crawl entirely
+        if (reindexDir != null) {
+        	long start = System.nanoTime();
+        	int cores = numThreads > 1 ? numThreads : Runtime.getRuntime().availableProcessors();
+        	ArchiveIndexer indexer = new ArchiveIndexer(cores);
+        	WebIndex rebuilt = indexer.reindex(reindexDir);
+        	System.out.printf("Reindexed %d archived pages in %.2f s \n", indexer.getRecords(),
+        			(System.nanoTime() - start) / 1e9);
+        	rebuilt.save("index.db");
+        	return;
+        }
+        // the shards of a distributed crawl are merged into one index
+        if (shards != null) {
+        	WebIndex merged = new WebIndex();
+        	for (String shard : shards) {
+        		merged.merge(MappedWebIndex.open(new File(shard).toURI().toURL()));
+        	}
+        	merged.save("index.db");
+        	System.out.println("Merged " + shards.length + " shards, "
+        			+ merged.getURLList().size() + " pages");
+        	return;
+        }
+        if ((nodeId < 0) != (nodes == null)) {
+            System.out.println("--node and --nodes must be given together.");
+            System.exit(0);
+        }
+        if (nodes != null && (checkpointDir != null || incremental)) {
+            System.out.println("A distributed crawl cannot be checkpointed or incremental.");
+            System.exit(0);
+        }
+        if ((perHost > 0 || hostDelay > 0 || useRobots) && !order.equals("bfs")) {
+            System.out.println("--order cannot be combined with --per-host, --host-delay or --robots.");
             System.exit(0);
         }
+        if (resume && checkpointDir == null) {
+            System.out.println("--resume needs a --checkpoint directory.");
+            System.exit(0);
+        }
+        if (incremental && checkpointDir != null) {
+            System.out.println("--incremental cannot be combined with --checkpoint.");
+            System.exit(0);
+        }
+        for (Path dir : walkDirs) {
+            remaining.addAll(FileFetcher.walk(dir));
+        }
         
-        List<URL> remaining = new LinkedList<>();
-        for (int i = 0; i < args.length; i++) {
-            String url = args[i];
-            remaining.add(new URL(url));
+        // a replayed crawl only sees the captured pages, seeded with all of them by default
+        HttrackFetcher httrack = null;
+        if (httrackCache != null) {
+        	httrack = new HttrackFetcher(httrackCache, null);
+        	if (remaining.isEmpty() && !resume)
+        		remaining.addAll(httrack.getURLs());
+        }
+        if (remaining.isEmpty() && !resume) {
+            System.out.println("No URLs specified.");
+            System.exit(0);
         }
         
         long beginTime = System.nanoTime();
                 
-        WebCrawler crawler = new WebCrawler();
-        while (!remaining.isEmpty()) {
-            try {
-                remaining.addAll(crawler.parse(remaining.remove(0)));
-            } catch (MalformedURLException e) {
-                System.out.println(e);
-            } catch (IOException e) {
-                System.out.println(e);
-            } catch (IllegalArgumentException e) {
-            	System.out.println(e);
-            }
+        RobotsCache robots = useRobots ? new RobotsCache() : null;
+        DedupFrontier queue;
+        if (perHost > 0 || hostDelay > 0 || useRobots) {
+        	queue = new HostScheduler(Math.max(perHost, 1), hostDelay, robots,
+        			FingerprintSet.create(seenKind, bloom));
+        } else {
+        	queue = DedupFrontier.create(order, FingerprintSet.create(seenKind, bloom));
+        }
+        Frontier frontier = queue;
+        BudgetedFrontier budgetedFrontier = null;
+        if (budgeted)
+        	frontier = budgetedFrontier = new BudgetedFrontier(frontier, budget);
+        
+        // a node of a distributed crawl keeps its own hosts and sends the others on
+        CrawlNode node = null;
+        PartitionedFrontier partition = null;
+        if (nodes != null) {
+        	node = new CrawlNode(nodeId, nodes);
+        	frontier = partition = node.partition(frontier);
+        }
+        if (canonicalize)
+        	frontier = new CanonicalizingFrontier(frontier, new UrlCanonicalizer(),
+        			FingerprintSet.create(seenKind, bloom));
+        
+        // an incremental crawl updates the index and page states left by the last one
+        WebIndex webIndex = new WebIndex();
+        RecrawlStore recrawlStore = null;
+        if (incremental) {
+        	if (new File("index.db").exists())
+        		webIndex = (WebIndex)Index.load(new File("index.db").toURI().toURL());
+        	recrawlStore = RecrawlStore.load(Paths.get("recrawl.db"));
+        }
+        
+        ParallelCrawler crawler;
+        if (pipeline != null) {
+        	crawler = new PipelineCrawler(pipeline[0], pipeline[1], pipeline[2], queueCapacity,
+        			frontier, FingerprintSet.create(seenKind, bloom), webIndex);
+        } else {
+        	crawler = new ParallelCrawler(numThreads, frontier,
+        			FingerprintSet.create(seenKind, bloom), webIndex);
+        }
+        crawler.setRobotsCache(robots);
+        Fetcher fetcher;
+        HttpFetcher http = null;
+        CircuitBreakerFetcher breaker = null;
+        if (httrack != null) {
+        	fetcher = httrack;
+        } else {
+        	http = new HttpFetcher(connectTimeout, requestTimeout, readTimeout, maxBodyBytes,
+        			new UrlFetcher(connectTimeout, readTimeout, maxBodyBytes));
+        	fetcher = new FileFetcher(http);
+        	
+        	// a host that keeps failing or answering slowly is skipped for a while
+        	if (breakerFailures > 0) {
+        		fetcher = breaker = new CircuitBreakerFetcher(fetcher, breakerFailures, slowFetch,
+        				CircuitBreakerFetcher.DEFAULT_COOL_DOWN);
+        		queue.setCircuitBreaker(breaker);
+        	}
+        }
+        WarcWriter archive = null;
+        if (archiveDir != null) {
+        	archive = new WarcWriter(archiveDir, WarcWriter.DEFAULT_SEGMENT_BYTES);
+        	fetcher = new ArchivingFetcher(fetcher, archive);
+        }
+        crawler.setFetcher(fetcher);
+        crawler.setRecrawlStore(recrawlStore);
+        if (budgeted)
+        	crawler.setCrawlBudget(budget);
+        CrawlMetrics metrics = new CrawlMetrics();
+        crawler.setMetrics(metrics, progressSeconds * 1000);
+        
+        // the most pages crawled at once is what the threads, and a pipeline's queues, can hold
+        if (adaptive) {
+        	int maxPages = numThreads;
+        	if (pipeline != null)
+        		maxPages = pipeline[0] + pipeline[1] + pipeline[2] + 2 * queueCapacity;
+        	AdaptiveConcurrency concurrency = new AdaptiveConcurrency(1, maxPages);
+        	crawler.setConcurrency(concurrency);
+        	metrics.setConcurrency(concurrency);
+        }
+        DuplicateDetector duplicates = dedup ? new DuplicateDetector() : null;
+        crawler.setDuplicateDetector(duplicates);
+        if (checkpointDir != null) {
+        	crawler.setCheckpointer(new Checkpointer(Paths.get(checkpointDir)), checkpointInterval);
+        	if (resume && !crawler.resume())
+        		System.out.println("No checkpoint found in " + checkpointDir + ", starting over.");
+        }
+        if (node != null) {
+        	node.crawl(crawler, remaining);
+        	node.close();
+        } else {
+        	crawler.crawl(remaining);
+        }
+        if (archive != null)
+        	archive.close();
+        if (incremental) {
+        	recrawlStore.removeUnvisited(crawler.getVisitedPages(), webIndex);
+        	webIndex.purgeRemoved();
         }
         
         double elapsedTime = System.nanoTime() - beginTime;
@@ -84,8 +395,60 @@ public class WebCrawler extends Crawler {
         System.out.printf("Elapsed time: %2d min %2.2f s \n", 
         		(int)(elapsedTime / 60), elapsedTime % 60);
         System.out.println("Number of web pages: " + crawler.numPagesVisited());
+        System.out.println("Frontier: " + crawler.getFrontier().getNumQueued() + " URLs queued, "
+        		+ crawler.getFrontier().getDedupHits() + " duplicates dropped");
+        if (canonicalize) {
+        	CanonicalizingFrontier canonical = (CanonicalizingFrontier)frontier;
+        	System.out.println("Canonicalizer: " + canonical.getRewrites() + " URLs rewritten, "
+        			+ canonical.getSavedFetches() + " fetches saved");
+        }
+        System.out.printf("Throughput: %.1f pages/s, %.1f KB/s \n",
+        		metrics.getPages() / elapsedTime, metrics.getBytes() / 1024.0 / elapsedTime);
+        System.out.println(metrics);
+        if (metricsFile != null) {
+        	metrics.save(Paths.get(metricsFile), crawler.getFrontier().size(),
+        			crawler.getFrontier().getDedupHits());
+        }
+        if (node != null) {
+        	System.out.println("Node " + nodeId + " of " + nodes.size() + ": "
+        			+ partition.getForwarded() + " URLs forwarded, " + node.getSent() + " sent, "
+        			+ node.getReceived() + " received");
+        }
+        if (http != null && (http.getTruncated() > 0 || http.getSkipped() > 0)) {
+        	System.out.println("HTTP: " + http.getTruncated() + " bodies truncated, "
+        			+ http.getSkipped() + " non-HTML responses skipped");
+        }
+        if (breaker != null && breaker.getTrips() > 0) {
+        	System.out.println("Circuit breaker: " + breaker.getTrips() + " hosts tripped, "
+        			+ breaker.getRejected() + " fetches rejected or deferred");
+        }
+        if (archive != null)
+        	System.out.println("Archive: " + archive.getRecords() + " responses written to " + archiveDir);
+        if (budgeted) {
+        	System.out.println("Budget: " + budgetedFrontier.getPagesTaken() + " pages, "
+        			+ budget.getBytes() + " bytes, " + budgetedFrontier.getDropped() + " URLs dropped");
+        }
+        if (incremental) {
+        	System.out.println("Incremental: " + recrawlStore.getAdded() + " new, "
+        			+ recrawlStore.getChanged() + " changed, " + recrawlStore.getUnchanged()
+        			+ " unchanged, " + recrawlStore.getRemoved() + " removed pages");
+        }
+        if (pipeline != null) {
+        	for (StageMetrics stage : ((PipelineCrawler)crawler).getStageMetrics()) {
+        		System.out.println(stage);
+        	}
+        }
+        if (dedup) {
+        	System.out.println("Duplicates: " + duplicates.getExactDuplicates() + " exact, "
+        			+ duplicates.getNearDuplicates() + " near, recorded as aliases");
+        }
+        SeenSet visited = crawler.getVisitedPages();
+        System.out.printf("Seen-set: %d bytes, estimated false positive rate %.3g \n",
+        		visited.memoryBytes(), visited.falsePositiveRate());
         
-        crawler.getWebIndex().save("index.db");
+        crawler.getWebIndex().save(node == null ? "index.db" : "index-" + nodeId + ".db");
+        if (incremental)
+        	recrawlStore.save(Paths.get("recrawl.db"));
     }
 
     /**
@@ -98,43 +461,259 @@ public class WebCrawler extends Crawler {
      */
     public List<URL> parse(URL url) throws IOException, SAXException {
     	// if already visited, return empty list
-    	String urlString = url.toString();
-    	if (visitedPages.contains(urlString)) {
+    	FetchResult page = fetch(url);
+    	if (page == null)
     		return new LinkedList<URL>();
-    	} else {
-    		visitedPages.add(url.toString());
-    		context = url;
+    	
+    	ParsedPage parsed = parse(page);
+    	index(parsed);
+    	return parsed.getLinks();
+    }
+    
+    /**
+     * Downloads a page, unless it was visited before. The first step of
+     * parse(URL), which may also be run on its own by a staged crawl.
+     * 
+     * @param url - the page to download
+     * @return the downloaded page, or null if it was already visited
+     * @throws IOException if the page could not be downloaded
+     */
+    public FetchResult fetch(URL url) throws IOException {
+    	String urlString = url.toString();
+    	if (!visitedPages.add(urlString))
+    		return null;
+    	
+    	PageState previous = recrawlStore == null ? null : recrawlStore.get(urlString);
+    	long start = System.nanoTime();
+    	CrawlEvents.Fetch event = new CrawlEvents.Fetch();
+    	event.begin();
+    	FetchResult page = null;
+    	try {
+    		page = fetcher.fetch(url, previous);
+    		return page;
+    	} catch (FileNotFoundException e) {
+    		// the page was deleted since the last crawl
+    		if (previous != null) {
+    			webIndex.removeDocument(urlString);
+    			recrawlStore.remove(urlString);
+    		}
+    		throw e;
+    	} finally {
+    		long numBytes = page == null || page.getContent() == null ? 0 : page.getContent().remaining();
+    		if (budget != null)
+    			budget.addBytes(numBytes);
+    		if (metrics != null)
+    			metrics.recordFetch(url, start, numBytes);
+    		if (concurrency != null)
+    			concurrency.record(System.nanoTime() - start);
+    		if (event.shouldCommit()) {
+    			event.url = urlString;
+    			event.host = url.getHost();
+    			event.bytes = numBytes;
+    			event.commit();
+    		}
     	}
-
+    }
+    
+    /**
+     * Splits a downloaded page into words and links, without touching the
+     * index. The second step of parse(URL).
+     * 
+     * @param page - the downloaded page
+     * @return the words and links of the page
+     * @throws IOException if the page could not be read
+     * @throws SAXException if the page could not be parsed
+     */
+    public ParsedPage parse(FetchResult page) throws IOException, SAXException {
+    	long start = System.nanoTime();
+    	CrawlEvents.Parse event = new CrawlEvents.Parse();
+    	event.begin();
+    	ParsedPage parsed = null;
+    	try {
+    		parsed = parsePage(page);
+    		return parsed;
+    	} finally {
+    		if (metrics != null)
+    			metrics.record(CrawlMetrics.Phase.PARSE, page.getURL(), start);
+    		if (event.shouldCommit()) {
+    			event.url = page.getURL().toString();
+    			if (parsed != null) {
+    				event.words = parsed.isUnchanged() ? 0 : parsed.getWords().size();
+    				event.links = parsed.getLinks().size();
+    			}
+    			event.commit();
+    		}
+    	}
+    }
+    
+    private ParsedPage parsePage(FetchResult page) throws IOException, SAXException {
+    	URL url = page.getURL();
+    	String urlString = url.toString();
+    	context = url;
+    	
     	// construct list of all hyperlinks for single page
     	links = new LinkedList<URL>();
     	
-    	pageText = "";
-    	pos = 0;
+    	PageState previous = recrawlStore == null ? null : recrawlStore.get(urlString);
+    	long hash = 0;
+    	if (recrawlStore != null && !page.isNotModified())
+    		hash = FingerprintSet.fingerprint(page.getContent());
     	
-    	//System.out.println(numPagesVisited());
+    	// an unchanged page is already indexed, only its links are needed
+    	if (previous != null && (page.isNotModified() || previous.getContentHash() == hash)) {
+    		recrawlStore.countUnchanged();
+    		for (String link : previous.getLinks()) {
+    			links.add(new URL(link));
+    		}
+    		return new ParsedPage(url, links);
+    	}
+    	
+    	pageURL = urlString;
+    	wordLength = 0;
+    	pageWords = new ArrayList<String>();
+    	wordsHash = 0;
+    	Arrays.fill(simHashWeights, 0);
     	
     	if (printText)
     		System.out.println("STARTED PARSING " + url + " ...");
     	
-    	// begin parsing the page
-    	InputSource in = null;
-    	in = new InputSource(new InputStreamReader(url.openStream()));
-    	parser.parse(in);
-
-    	// parse the entire text and store into index
-    	String[] words = pageText.split("\\s+");    	
-    	for (String word: words) {
-    		if (word.length() > 0) {
-    			webIndex.insert(word, urlString, pos);
-    			pos++;
-    		}
+    	// begin parsing the page, decoded by the reader reused for every page,
+    	// unless it is binary data that happens to be linked to
+    	if (!CharsetSniffer.looksBinary(page.getContent())) {
+    		Charset charset = CharsetSniffer.detect(page.getContent(), page.getContentType());
+    		pageReader.setPage(page.getContent(), charset);
+    		parser.parse(input);
+    		
+    		// store the last word in case the document ended in the middle of it
+    		endWord();
+    	}
+    	
+    	return new ParsedPage(url, pageWords, links, hash, page.getETag(), page.getLastModified(),
+    			wordsHash, DuplicateDetector.simHash(simHashWeights));
+    }
+    
+    /**
+     * Inserts the words of a parsed page into the index, replacing the page's
+     * old postings if it changed since the previous crawl. If the page
+     * duplicates one already indexed, it is recorded as an alias of that page
+     * instead. The last step of parse(URL).
+     * 
+     * @param page - the parsed page
+     */
+    public void index(ParsedPage page) {
+    	if (page.isUnchanged())
+    		return;
+    	
+    	long start = System.nanoTime();
+    	CrawlEvents.Index event = new CrawlEvents.Index();
+    	event.begin();
+    	indexPage(page);
+    	if (metrics != null)
+    		metrics.record(CrawlMetrics.Phase.INDEX, page.getURL(), start);
+    	if (event.shouldCommit()) {
+    		event.url = page.getURL().toString();
+    		event.words = page.getWords().size();
+    		event.commit();
+    	}
+    }
+    
+    private void indexPage(ParsedPage page) {
+    	String urlString = page.getURL().toString();
+    	List<String> words = page.getWords();
+    	if (recrawlStore != null && recrawlStore.get(urlString) != null)
+    		webIndex.removeDocument(urlString);
+    	
+    	String original = null;
+    	if (duplicates != null && !words.isEmpty()) {
+    		original = duplicates.register(urlString, page.getWordsHash(),
+    				page.getSimHash(), words.size());
     	}
-    	    	
-    	if (printText)
-    		System.out.println("Text: " + Arrays.toString(words));
     	
-    	return links;         
+    	if (original != null) {
+    		webIndex.addAlias(urlString, original);
+    	} else {
+    		webIndex.addDocument(urlString, words);
+    	}
+    	
+    	if (recrawlStore != null) {
+    		String[] linkStrings = new String[page.getLinks().size()];
+    		int i = 0;
+    		for (URL link : page.getLinks()) {
+    			linkStrings[i++] = link.toString();
+    		}
+    		// a duplicate is parsed again next time, in case its original changed
+    		if (original == null)
+    			recrawlStore.put(urlString, new PageState(page.getContentHash(), page.getETag(),
+    					page.getLastModified(), linkStrings));
+    		else
+    			recrawlStore.put(urlString, new PageState(0, null, null, linkStrings));
+    	}
+    }
+    
+    /**
+     * Makes the crawler record pages that duplicate a page already indexed
+     * as aliases, instead of indexing them again.
+     * 
+     * @param duplicates - detector shared by every crawler adding to the same
+     * 					   index, or null to index every page
+     */
+    public void setDuplicateDetector(DuplicateDetector duplicates) {
+    	this.duplicates = duplicates;
+    }
+    
+    /**
+     * Makes the crawler count the bytes it downloads against a budget.
+     * 
+     * @param budget - budget shared by every crawler of the same crawl, or
+     * 				   null if downloads are not limited
+     */
+    public void setCrawlBudget(CrawlBudget budget) {
+    	this.budget = budget;
+    }
+    
+    /**
+     * Makes the crawler record how long it takes to fetch, parse and index
+     * each page.
+     * 
+     * @param metrics - metrics shared by every crawler of the same crawl, or
+     * 					null to record none
+     */
+    public void setMetrics(CrawlMetrics metrics) {
+    	this.metrics = metrics;
+    }
+    
+    /**
+     * Makes the crawler report how long each fetch takes to the limit
+     * deciding how many pages are crawled at once.
+     * 
+     * @param concurrency - limit shared by every crawler of the same crawl,
+     * 						or null if the number of threads is fixed
+     */
+    public void setConcurrency(AdaptiveConcurrency concurrency) {
+    	this.concurrency = concurrency;
+    }
+    
+    /**
+     * Sets how pages are downloaded. The default fetcher reads file: URLs
+     * directly, fetches http: and https: URLs with a shared HttpFetcher and
+     * uses URLConnection for the rest.
+     * 
+     * @param fetcher - the fetcher to use
+     */
+    public void setFetcher(Fetcher fetcher) {
+    	this.fetcher = fetcher;
+    }
+    
+    /**
+     * Makes the crawler skip pages that have not changed since they were
+     * recorded in the given store, replaying their stored links instead.
+     * Changed pages replace their old postings in the index.
+     * 
+     * @param recrawlStore - state of the pages from the previous crawl, or null
+     * 						 to always parse every page
+     */
+    public void setRecrawlStore(RecrawlStore recrawlStore) {
+    	this.recrawlStore = recrawlStore;
     }
 
     /**
@@ -158,6 +737,7 @@ public class WebCrawler extends Crawler {
      * Called when the parser finishes reading a document.
      */
     public void endDocument() {
+        endWord();
         if (printText)
         	System.out.println("End of document");
     }
@@ -169,6 +749,9 @@ public class WebCrawler extends Crawler {
      * (for regular HTML).
      */
     public void startElement(String uri, String name, String qName, Attributes atts) {
+    	// take care of bold, italic, etc. tags separation
+    	endWord();
+    	
     	if (tagsAvoid.contains(qName)) {
     		shouldAvoid = true;
     	} else {
@@ -202,10 +785,17 @@ public class WebCrawler extends Crawler {
 				return;    				
 			}
 			
-			// disallow certain file extensions
+			// disallow certain file extensions, whatever their case or query string
+			String path = relative;
+			int end = path.length();
+			if (path.indexOf('?') != -1)
+				end = path.indexOf('?');
+			if (path.indexOf('#') != -1)
+				end = Math.min(end, path.indexOf('#'));
+			path = path.substring(0, end);
 			int dotIndex = 0;
-			if ((dotIndex = relative.lastIndexOf('.')) != -1) {
-				String ext = relative.substring(dotIndex);
+			if ((dotIndex = path.lastIndexOf('.')) != -1) {
+				String ext = path.substring(dotIndex).toLowerCase(Locale.ROOT);
 				if (extnsAvoid.contains(ext)) {
 					shouldAvoid = true;
 					return;
@@ -239,6 +829,8 @@ public class WebCrawler extends Crawler {
      * (for regular HTML).
      */
     public void endElement(String uri, String name, String qName) {
+    	endWord();
+    	
     	//if (!tagsAvoid.contains(qName) && printText)
     	//	System.out.println("End element:   " + qName + "\n");
     }
@@ -251,9 +843,6 @@ public class WebCrawler extends Crawler {
     public void characters(char ch[], int start, int length) {
     	if (printText)
     		System.out.print("Characters:    \"");
-    	
-    	// take care of bold, italic, etc. tags separation
-    	pageText += " ";
         
         for(int i = start; i < start + length; i++) {
             switch(ch[i]) {
@@ -272,7 +861,7 @@ public class WebCrawler extends Crawler {
                     if (printText)
                     	System.out.print("\\r");
                     if (!shouldAvoid)
-                    	pageText += " ";
+                    	endWord();
                     break;
                 case '\t':
                     if (printText)
@@ -283,9 +872,9 @@ public class WebCrawler extends Crawler {
                     	System.out.print(ch[i]);
                     if (!shouldAvoid) {
                     	if (Character.isLetterOrDigit(ch[i]) || ch[i] == '\'')
-                    		pageText += Character.toLowerCase(ch[i]);
+                    		appendToWord(Character.toLowerCase(ch[i]));
                     	else {
-                    		pageText += " ";
+                    		endWord();
                     	}
                     }
                     break;
@@ -296,11 +885,45 @@ public class WebCrawler extends Crawler {
         	System.out.print("\"\n");        
     }    
     
+    /**
+     * Adds a character to the word currently being read, growing the
+     * reusable word buffer if needed.
+     * 
+     * @param c - the (lowercase) character to append
+     */
+    private void appendToWord(char c) {
+    	if (wordLength == word.length)
+    		word = Arrays.copyOf(word, word.length * 2);
+    	word[wordLength++] = c;
+    }
+    
+    /**
+     * Adds the word currently being read to the words of the page, then
+     * clears the buffer. Does nothing if no word is being read.
+     */
+    private void endWord() {
+    	if (wordLength == 0)
+    		return;
+    	
+    	String finished = new String(word, 0, wordLength);
+    	pageWords.add(finished);
+    	wordLength = 0;
+    	
+    	if (duplicates != null) {
+    		long fingerprint = FingerprintSet.fingerprint(finished);
+    		wordsHash = (wordsHash ^ fingerprint) * 0x100000001b3L;
+    		DuplicateDetector.addToSimHash(simHashWeights, fingerprint);
+    	}
+    	
+    	if (printText)
+    		System.out.println("Word: " + finished);
+    }
+    
     /**
      * Return total number of unique web pages crawled.
      * @return number of unique web pages crawled
      */
     public int numPagesVisited() {
-    	return visitedPages.size();
+    	return (int)visitedPages.size();
     }
 }
@@ -1,99 +1,437 @@
 package assignment;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
 
 /**
  * WebIndex stores the web pages accessed by the crawler.
  * The index is then used to handle the search queries made by the client.
  * It is implemented as a inverted index, where keywords are mapped 
- * to their relative positions in each document. 
+ * to their relative positions in each document. The postings of each
+ * keyword are a compact PostingList rather than boxed maps and sets.
  * 
  * @author Aaron Zou
  *
  */
-public class WebIndex extends Index {
+public class WebIndex extends Index implements QueryableIndex {
     private static final long serialVersionUID = 1L;
        
-    private HashMap<String, HashMap<Integer, HashSet<Integer>>> index;
+    private HashMap<String, PostingList> index;
     private ArrayList<String> urlList;
     
+    // index of each URL in urlList, rebuilt from the list after loading
+    private transient HashMap<String, Integer> docIds;
+    
+    // URLs of duplicate pages, mapped to the URL of the page that was indexed
+    private HashMap<String, String> aliases;
+    
+    // words and aliases added since the last call to drainChanges, when tracking
+    private transient HashSet<String> changes;
+    private transient HashMap<String, String> aliasChanges;
+    private transient int changesFrom;
+    
+    // URL indices of removed pages whose postings have not been purged yet
+    private transient BitSet removed;
+    
     /**
      * Instantiate list of URLs and the index itself.
      */
     public WebIndex() {
     	urlList = new ArrayList<String>();
-    	index = new HashMap<String, HashMap<Integer, HashSet<Integer>>>();
+    	index = new HashMap<String, PostingList>();
+    	aliases = new HashMap<String, String>();
+    }
+    
+    /**
+     * Creates an index from its parts, as read from an index file.
+     */
+    WebIndex(HashMap<String, PostingList> index, ArrayList<String> urlList,
+    		HashMap<String, String> aliases) {
+    	this.index = index;
+    	this.urlList = urlList;
+    	this.aliases = aliases;
     }
     
     /*
      * Return reference to the index, used for testing.
      */
-    public HashMap<String, HashMap<Integer, HashSet<Integer>>> getIndex() {
+    public HashMap<String, PostingList> getIndex() {
     	return index;
     }
     
     /*
-     * Return reference to the url list, used for testing
+     * Return reference to the url list, used for testing.
+     * Must not be modified: the index keeps its own map of it.
      */
     public ArrayList<String> getURLList() {
     	return urlList;
     }
+    
+    @Override
+    public Collection<String> getWords() {
+    	return index.keySet();
+    }
        
     /**
      * For a word found in a page by the crawler, insert it into
      * the index. Updates the HashMap, mapping the word to
      * a URL and int position within the page's text. 
+     * Safe to call from several crawler threads at once.
      * 
      * @param word - word found by WebCrawler
      * @param URL - URL of page being crawled
      * @param pos - relative position of the word
      */
-    public void insert(String word, String URL, int pos) {
-    	// add URL to list if not already visited
-    	if (!urlList.contains(URL)) 
+    public synchronized void insert(String word, String URL, int pos) {
+    	int urlPos = assignDocId(URL);
+    	postings(word).add(urlPos, pos);
+    	recordChange(word, urlPos);
+    }
+    
+    /**
+     * Inserts every word of a page into the index. The words are grouped
+     * by term before the index is locked, so the index is updated with a
+     * single lookup per distinct word, and other crawler threads are only
+     * held up for that one pass.
+     * 
+     * @param URL - URL of page being crawled
+     * @param words - words of the page, in order; the position of each word
+     * 				  is its index in the list; a page without words is not added
+     */
+    public void addDocument(String URL, List<String> words) {
+    	if (words.isEmpty())
+    		return;
+    	
+    	HashMap<String, Positions> terms = new HashMap<String, Positions>();
+    	for (int pos = 0; pos < words.size(); pos++) {
+    		Positions positions = terms.get(words.get(pos));
+    		if (positions == null) {
+    			positions = new Positions();
+    			terms.put(words.get(pos), positions);
+    		}
+    		positions.add(pos);
+    	}
+    	
+    	synchronized (this) {
+    		int urlPos = assignDocId(URL);
+    		for (Map.Entry<String, Positions> term : terms.entrySet()) {
+    			Positions positions = term.getValue();
+    			postings(term.getKey()).addAll(urlPos, positions.values, positions.size);
+    			recordChange(term.getKey(), urlPos);
+    		}
+    	}
+    }
+    
+    /**
+     * Returns the number of pages in the URL list, including the empty
+     * slots of pages removed since the last purge. Page indices range
+     * from 0 to this number.
+     * 
+     * @return the size of the URL list
+     */
+    public synchronized int getNumDocs() {
+    	return urlList.size();
+    }
+    
+    /**
+     * Returns the URL of a page.
+     * 
+     * @param docId - index of the page in the URL list
+     * @return its URL, or null if the page was removed
+     */
+    public synchronized String getURL(int docId) {
+    	return urlList.get(docId);
+    }
+    
+    /**
+     * Returns the index of a URL in the URL list.
+     * 
+     * @param URL - URL of a page
+     * @return its index, or -1 if the page is not in the index
+     */
+    public synchronized int getDocId(String URL) {
+    	Integer urlPos = docIds().get(URL);
+    	return urlPos == null ? -1 : urlPos;
+    }
+    
+    /**
+     * Returns the index of a URL, adding it to the URL list if not already visited.
+     */
+    private int assignDocId(String URL) {
+    	Integer urlPos = docIds().get(URL);
+    	if (urlPos == null) {
+    		urlPos = urlList.size();
     		urlList.add(URL);
+    		docIds.put(URL, urlPos);
+    	}
+    	return urlPos;
+    }
+    
+    private HashMap<String, Integer> docIds() {
+    	if (docIds == null) {
+    		docIds = new HashMap<String, Integer>(urlList.size() * 2);
+    		for (int i = 0; i < urlList.size(); i++) {
+    			// like indexOf, the first slot of a URL wins; removed pages leave null
+    			if (urlList.get(i) != null)
+    				docIds.putIfAbsent(urlList.get(i), i);
+    		}
+    	}
+    	return docIds;
+    }
+    
+    /**
+     * Returns the posting list of a word, adding an empty one if the word is new.
+     */
+    private PostingList postings(String word) {
+    	PostingList postings = index.get(word);
+    	if (postings == null) {
+    		postings = new PostingList();
+    		index.put(word, postings);
+    	}
+    	return postings;
+    }
+    
+    /**
+     * Records that a page has the same content as a page already in the
+     * index, so it is not indexed itself. Queries only return the original.
+     * 
+     * @param alias - URL of the duplicate page
+     * @param original - URL of the indexed page
+     */
+    public synchronized void addAlias(String alias, String original) {
+    	getAliases().put(alias, original);
+    	if (aliasChanges != null)
+    		aliasChanges.put(alias, original);
+    }
+    
+    /**
+     * Returns the duplicate pages that were not indexed.
+     * 
+     * @return a map from the URL of each duplicate to the URL of its original
+     */
+    public synchronized HashMap<String, String> getAliases() {
+    	// indexes saved before aliases existed have none
+    	if (aliases == null)
+    		aliases = new HashMap<String, String>();
+    	return aliases;
+    }
+    
+    /**
+     * Removes a page or alias from the index, for instance because the page
+     * changed and is about to be indexed again. The page's slot in the URL list is set to
+     * null, so the indices of other pages stay valid, and its postings are
+     * ignored from now on. They are only deleted, and the slot reclaimed, by
+     * purgeRemoved, which keeps the cost of removing a page independent of
+     * the size of the index.
+     * 
+     * @param URL - URL of the page to remove
+     * @return true if the page was in the index
+     */
+    public synchronized boolean removeDocument(String URL) {
+    	if (getAliases().remove(URL) != null)
+    		return true;
     	
-    	int urlPos = urlList.indexOf(URL);
-    	HashMap<Integer, HashSet<Integer>> urlWordPosns;
+    	Integer urlPos = docIds().remove(URL);
+    	if (urlPos == null)
+    		return false;
     	
-    	// add new entry for keyword if not already there
-    	if (index.get(word) == null) {
-    		urlWordPosns = new HashMap<Integer, HashSet<Integer>>();
-        	index.put(word, urlWordPosns); 
-      	} else {
-      		urlWordPosns = index.get(word);
-      	}
+    	urlList.set(urlPos, null);
+    	if (removed == null)
+    		removed = new BitSet();
+    	removed.set(urlPos);
+    	return true;
+    }
+    
+    /**
+     * Deletes the postings of every page removed since the last purge, and
+     * closes the gaps they left in the URL list. The remaining pages keep
+     * their order but move down to fill the gaps, so doc ids obtained
+     * before the purge are no longer valid.
+     * Takes a single pass over the index, so it is meant to be called once,
+     * before saving, rather than after every removal.
+     */
+    public synchronized void purgeRemoved() {
+    	// indexes saved before purging compacted may hold gaps without removals
+    	if ((removed == null || removed.isEmpty()) && !urlList.contains(null))
+    		return;
+    	
+    	int[] newIds = new int[urlList.size()];
+    	ArrayList<String> kept = new ArrayList<String>(urlList.size());
+    	int newChangesFrom = 0;
+    	for (int i = 0; i < urlList.size(); i++) {
+    		if (urlList.get(i) == null) {
+    			newIds[i] = -1;
+    		} else {
+    			newIds[i] = kept.size();
+    			kept.add(urlList.get(i));
+    		}
+    		if (i + 1 == changesFrom)
+    			newChangesFrom = kept.size();
+    	}
+    	
+    	Iterator<PostingList> terms = index.values().iterator();
+    	while (terms.hasNext()) {
+    		if (terms.next().renumber(newIds))
+    			terms.remove();
+    	}
+    	
+    	urlList = kept;
+    	docIds = null;
+    	changesFrom = newChangesFrom;
+    	if (removed != null)
+    		removed.clear();
+    }
+    
+    /**
+     * Starts recording which postings are added to the index, so that they
+     * can later be extracted with drainChanges.
+     */
+    public synchronized void trackChanges() {
+    	changes = new HashSet<String>();
+    	aliasChanges = new HashMap<String, String>();
+    	changesFrom = urlList.size();
+    }
+    
+    /**
+     * Remembers that a word was found in a page.
+     * Only pages added since the last drain are tracked.
+     */
+    private void recordChange(String word, int urlPos) {
+    	if (changes == null || urlPos < changesFrom)
+    		return;
     	
-    	Set<Integer> existingURLs = urlWordPosns.keySet();
-    	HashSet<Integer> wordPosns;
+    	changes.add(word);
+    }
+    
+    /**
+     * Returns a new index holding only the pages and aliases added since change tracking
+     * started or since the last call to this method, and starts tracking
+     * afresh. The work done is proportional to the size of those pages, not
+     * to the size of the whole index. Pages must not receive more words
+     * after they have been drained.
+     * 
+     * @return an index of the new pages, with URL indices starting at 0
+     */
+    public synchronized WebIndex drainChanges() {
+    	if (changes == null)
+    		throw new IllegalStateException("Changes are not being tracked.");
+    	
+    	WebIndex delta = new WebIndex();
+    	delta.urlList.addAll(urlList.subList(changesFrom, urlList.size()));
     	
-    	// check if this word has already been found in this web page
-    	if (existingURLs == null || !existingURLs.contains(urlPos)) {
-    		wordPosns = new HashSet<Integer>(); 
-    		urlWordPosns.put(urlPos, wordPosns); 
-    	} else {
-    		wordPosns = urlWordPosns.get(urlPos);
+    	// the new pages have the highest indices, so they are at the end of each posting list
+    	for (String word : changes) {
+    		delta.index.put(word, index.get(word).slice(changesFrom));
     	}
     	
-    	wordPosns.add(pos);
+    	delta.aliases.putAll(aliasChanges);
+    	
+    	changes.clear();
+    	aliasChanges.clear();
+    	changesFrom = urlList.size();
+    	return delta;
     }
     
     /**
-     * Returns a HashMap for a given word mapping each URL it is found at to 
-     * the relative locations of the word within the page.
+     * Appends every page of another index to this one. The pages keep their
+     * order, and their URL indices are shifted past the pages already here.
+     * 
+     * @param other - the index to copy pages from, in memory or mapped
+     */
+    public synchronized void merge(QueryableIndex other) {
+    	int offset = urlList.size();
+    	docIds();
+    	for (String url : other.getURLList()) {
+    		if (url != null)
+    			docIds.putIfAbsent(url, urlList.size());
+    		urlList.add(url);
+    	}
+    	for (Map.Entry<String, String> alias : other.getAliases().entrySet()) {
+    		addAlias(alias.getKey(), alias.getValue());
+    	}
+    	
+    	for (String word : other.getWords()) {
+    		postings(word).append(other.getWordPositions(word), offset);
+    		recordChange(word, offset);
+    	}
+    }
+    
+    /**
+     * Folds the postings buffered during the crawl into their compact form.
+     * Reads do this on demand, so calling it is only needed to measure or
+     * save the index.
+     */
+    public synchronized void freeze() {
+    	for (PostingList postings : index.values()) {
+    		postings.freeze();
+    	}
+    }
+    
+    /**
+     * Returns roughly how many bytes of heap the postings take, not counting
+     * the words themselves.
+     * 
+     * @return the size of the posting lists, in bytes
+     */
+    public synchronized long postingsBytes() {
+    	long bytes = 0;
+    	for (PostingList postings : index.values()) {
+    		bytes += postings.memoryBytes();
+    	}
+    	return bytes;
+    }
+    
+    /**
+     * Returns the postings of a given word: the indices of the URLs it is
+     * found at, and the relative locations of the word within each page.
      * 
      * @param word - The word being searched for.
-     * @return a HashMap<K, V> where K is the URL's index and V is all the relative
-     * positions of the word in that page.
+     * @return the word's PostingList, or null if the word is not in the index
      */
-    public HashMap<Integer, HashSet<Integer>> getWordPositions(String word) {
+    public PostingList getWordPositions(String word) {
     	return index.get(word);
     }
     
+    /**
+     * Saves the index in the binary format of IndexFormat. Index.load reads
+     * it back.
+     * 
+     * @param filename - the file to write
+     * @throws IOException if the file could not be written
+     */
+    @Override
+    public synchronized void save(String filename) throws IOException {
+    	IndexFormat.write(this, Paths.get(filename));
+    }
+    
+    /**
+     * Finds the pages containing a word that starts with a prefix.
+     * 
+     * @param prefix - the start of the words
+     * @return the indices of the pages, in ascending order
+     */
+    public synchronized int[] getDocsWithPrefix(String prefix) {
+    	BitSet found = new BitSet(urlList.size());
+    	for (Map.Entry<String, PostingList> entry : index.entrySet()) {
+    		if (entry.getKey().startsWith(prefix)) {
+    			for (int doc : entry.getValue().getDocs()) {
+    				found.set(doc);
+    			}
+    		}
+    	}
+    	return found.stream().toArray();
+    }
+    
     /**
      * Returns a String representation of the index. 
      * Format is: keyword: [[URL posns], [URL posns]]
@@ -110,5 +448,39 @@ public class WebIndex extends Index {
     	return output;
     }
     
+    /**
+     * Growable list of the positions of one word in a page.
+     */
+    private static class Positions {
+    	int[] values = new int[4];
+    	int size;
+    	
+    	void add(int pos) {
+    		if (size == values.length)
+    			values = Arrays.copyOf(values, size * 2);
+    		values[size++] = pos;
+    	}
+    }
     
+    /**
+     * Converts the nested maps of indexes saved before posting lists existed.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    	in.defaultReadObject();
+    	for (Map.Entry<String, ?> entry : ((Map<String, ?>)(Map<String, ?>)index).entrySet()) {
+    		if (entry.getValue() instanceof PostingList)
+    			continue;
+    		
+    		PostingList postings = new PostingList();
+    		for (Map.Entry<Integer, ? extends Iterable<Integer>> posns :
+    				((Map<Integer, ? extends Iterable<Integer>>)entry.getValue()).entrySet()) {
+    			for (int pos : posns.getValue()) {
+    				postings.add(posns.getKey(), pos);
+    			}
+    		}
+    		postings.freeze();
+    		((Map<String, Object>)(Map<String, ?>)index).put(entry.getKey(), postings);
+    	}
+    }
 }
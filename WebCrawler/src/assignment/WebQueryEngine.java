@@ -1,20 +1,16 @@
 package assignment;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
-import java.util.Set;
 import java.util.Stack;
 
 import javax.sound.midi.SysexMessage;
 
 public class WebQueryEngine {
-	private WebIndex webIndex;
-	private ArrayList<String> urlList;
+	private QueryableIndex webIndex;
 	private ParseTree pTree;	
 	
     /**
@@ -22,9 +18,8 @@ public class WebQueryEngine {
      *
      * @param index    the WebIndex this WebQueryEngine should use
      */
-    public void useWebIndex(WebIndex index) {
+    public void useWebIndex(QueryableIndex index) {
     	webIndex = index;
-    	urlList = webIndex.getURLList();
     }
 
     /**
@@ -82,11 +77,11 @@ public class WebQueryEngine {
 				}				
 				
 				// perform correct operation
-				Set<Integer> indices;				
+				int[] indices;				
 				switch (token.charToken) {
 				case And: indices = evaluateAnd(before, next);  break;
 				case Or: indices = evaluateOr(before, next); break;
-				default: indices = new HashSet<Integer>(); break;
+				default: indices = new int[0]; break;
 				}
 				
 				// push new node containing the result
@@ -107,15 +102,17 @@ public class WebQueryEngine {
 		
 		// pop final result off of the stack
 		PTreeNode result = evalStack.pop();
-		Set<Integer> finalIndices = result.urlIndices;
+		int[] finalIndices = result.urlIndices;
 		
 		LinkedList<URL> indices = new LinkedList<URL>();
 		
 		// add each URL that satisfies the query
-		Iterator<Integer> iter = finalIndices.iterator();
-		while (iter.hasNext()) {
-			int urlIndex = iter.next();
-			String url = urlList.get(urlIndex);
+		for (int urlIndex : finalIndices) {
+			String url = webIndex.getURL(urlIndex);
+			
+			// pages removed by an incremental crawl leave an empty slot
+			if (url == null)
+				continue;
 			try {
 				indices.add(new URL(url));
 			} catch (MalformedURLException e) {
@@ -133,15 +130,13 @@ public class WebQueryEngine {
 	 * @param right the second Node containing a list of URL indices
 	 * @return the intersection of the two lists
 	 */
-	private Set<Integer> evaluateAnd(PTreeNode left, PTreeNode right) {
+	private int[] evaluateAnd(PTreeNode left, PTreeNode right) {
 		if (left.t.isOperator() || right.t.isOperator())
 			return null;
 		else if (left.urlIndices == null || right.urlIndices == null)
 			return null;
 		
-		Set<Integer> indices = left.urlIndices;
-		indices.retainAll(right.urlIndices);
-		return indices;
+		return PostingList.intersect(left.urlIndices, right.urlIndices);
 	}
 	
 	/**
@@ -151,27 +146,12 @@ public class WebQueryEngine {
 	 * @param right the second Node containing a list of URL indices
 	 * @return the union of the two lists
 	 */
-	private Set<Integer> evaluateOr(PTreeNode left, PTreeNode right) {
+	private int[] evaluateOr(PTreeNode left, PTreeNode right) {
 		if (left.t.isOperator() || right.t.isOperator())
 			return null;
 		else if (left.urlIndices == null || right.urlIndices == null)
 			return null;
 		
-		// explicitly perform union operation
-		Set<Integer> indices = new HashSet<Integer>();
-		Iterator<Integer> leftIter = left.urlIndices.iterator();
-		while (leftIter.hasNext()) {
-			indices.add(leftIter.next());
-		}
-		
-		Set<Integer> rightIndices = right.urlIndices;
-		
-		Iterator<Integer> rightIter = rightIndices.iterator();
-		while (rightIter.hasNext()) {
-			int urlIndex = rightIter.next();
-			if (!indices.contains(urlIndex))
-				indices.add(urlIndex);
-		}
-		return indices;
+		return PostingList.union(left.urlIndices, right.urlIndices);
 	}
 }
@@ -32,7 +32,7 @@ import javax.swing.event.HyperlinkListener;
 public class WebQueryEngineApp extends JFrame implements Runnable {
     private static final long serialVersionUID = 1486773007936651954L;
 
-    protected WebIndex index = null;
+    protected QueryableIndex index = null;
     protected WebQueryEngine engine;
 
     private URL indexURL;
@@ -135,7 +135,7 @@ public class WebQueryEngineApp extends JFrame implements Runnable {
         long s = System.currentTimeMillis();
         String result = query(queryText.getText());
         long e = System.currentTimeMillis();
-        resultsPane.setText("<html><b>Query time: "+(e-s)+"ms</b> (includes load time on first query)<br>"+result+"</html>");
+        resultsPane.setText("<html><b>Query time: "+(e-s)+"ms</b><br>"+result+"</html>");
         //scroller.scrollRectToVisible(new Rectangle(0, 0, 0, 0));
     }
 
@@ -172,9 +172,13 @@ public class WebQueryEngineApp extends JFrame implements Runnable {
         }
     }
 
+    /**
+     * Opens the index, unless already open. A local index file is mapped
+     * rather than read, so this is fast however large the index is.
+     */
     private void loadIndex() throws IOException, ClassNotFoundException {
         if (index == null) {
-            index = (WebIndex)Index.load(indexURL);
+            index = MappedWebIndex.open(indexURL);
             if (index == null)
                 throw new IllegalStateException("Unable to load index: "
                         + indexURL);
@@ -190,7 +194,18 @@ public class WebQueryEngineApp extends JFrame implements Runnable {
         else
             indexName = "index.db";
         URL baseURL = new File(System.getProperty("user.dir")).toURI().toURL();
-        EventQueue.invokeLater(new WebQueryEngineApp(new URL(baseURL, indexName)));
+        WebQueryEngineApp app = new WebQueryEngineApp(new URL(baseURL, indexName));
+        
+        // open the index at startup, so the first query is not slowed down
+        try {
+            long start = System.nanoTime();
+            app.loadIndex();
+            System.out.printf("Opened %s in %.1f ms \n", indexName, (System.nanoTime() - start) / 1e6);
+        } catch (IOException | ClassNotFoundException | IllegalStateException e) {
+            // the first query tries again and shows the error
+            System.out.println(e);
+        }
+        EventQueue.invokeLater(app);
     }
 
     @Override
@@ -0,0 +1,72 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import assignment.AdaptiveConcurrency;
+
+public class AdaptiveConcurrencyTest {
+
+	/**
+	 * Records one window of fetches taking the given time, spread over
+	 * a little more than the shortest window.
+	 */
+	private static void window(AdaptiveConcurrency concurrency, long latencyMillis) throws InterruptedException {
+		int n = Math.max(concurrency.getLimit(), 5);
+		for (int i = 0; i < n; i++) {
+			if (i == n - 1)
+				Thread.sleep(110);
+			concurrency.record(latencyMillis * 1000000);
+		}
+	}
+
+	@Test
+	public void testGrowsWhileLatencyIsFlat() throws Exception {
+		AdaptiveConcurrency concurrency = new AdaptiveConcurrency(1, 10);
+		assertEquals(1, concurrency.getLimit());
+
+		// slow start doubles the limit, up to the maximum
+		window(concurrency, 20);
+		assertEquals(2, concurrency.getLimit());
+		window(concurrency, 20);
+		window(concurrency, 20);
+		assertEquals(8, concurrency.getLimit());
+		window(concurrency, 20);
+		window(concurrency, 20);
+		assertEquals(10, concurrency.getLimit());
+		assertEquals(4, concurrency.getIncreases());
+		assertEquals(0, concurrency.getDecreases());
+	}
+
+	@Test
+	public void testBacksOffWhenLatencyRises() throws Exception {
+		AdaptiveConcurrency concurrency = new AdaptiveConcurrency(2, 64);
+		window(concurrency, 10);
+		window(concurrency, 10);
+		window(concurrency, 10);
+		assertEquals(16, concurrency.getLimit());
+
+		window(concurrency, 50);
+		assertEquals(12, concurrency.getLimit());
+		assertEquals(1, concurrency.getDecreases());
+		assertEquals(10.0, concurrency.getBaselineMillis(), 5.0);
+
+		// after backing off, the limit only grows by one at a time
+		window(concurrency, 10);
+		assertEquals(13, concurrency.getLimit());
+
+		// never below the minimum
+		for (int i = 0; i < 10; i++) {
+			window(concurrency, 1000);
+		}
+		assertEquals(2, concurrency.getLimit());
+		assertTrue(concurrency.toString().startsWith("concurrency 2 of 64"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLimits() {
+		new AdaptiveConcurrency(4, 2);
+	}
+}
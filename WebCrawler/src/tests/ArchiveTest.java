@@ -0,0 +1,117 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import assignment.ArchiveIndexer;
+import assignment.FetchResult;
+import assignment.WarcReader;
+import assignment.WarcWriter;
+import assignment.WebIndex;
+
+public class ArchiveTest {
+
+	private static FetchResult page(String url, String html) throws Exception {
+		return new FetchResult(new URL(url), html.getBytes(StandardCharsets.UTF_8),
+				"text/html; charset=UTF-8", "\"abc\"", null);
+	}
+
+	private static String text(FetchResult page) {
+		ByteBuffer content = page.getContent();
+		byte[] bytes = new byte[content.remaining()];
+		content.duplicate().get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Path dir = Files.createTempDirectory("archive");
+		try (WarcWriter writer = new WarcWriter(dir, WarcWriter.DEFAULT_SEGMENT_BYTES)) {
+			writer.write(page("http://a.com/", "<html><body>caf\u00e9\r\n\r\nline</body></html>"));
+			writer.write(FetchResult.notModified(new URL("http://a.com/same")));
+			ByteBuffer direct = ByteBuffer.allocateDirect(5);
+			direct.put("hello".getBytes(StandardCharsets.UTF_8)).flip();
+			writer.write(new FetchResult(new URL("http://b.com/x"), direct, null, null, "yesterday"));
+			assertEquals(2, writer.getRecords());
+		}
+
+		assertEquals(1, WarcWriter.segments(dir).size());
+		try (WarcReader reader = new WarcReader(WarcWriter.segments(dir).get(0))) {
+			FetchResult first = reader.next();
+			assertEquals(new URL("http://a.com/"), first.getURL());
+			assertEquals("<html><body>caf\u00e9\r\n\r\nline</body></html>", text(first));
+			assertEquals("text/html; charset=UTF-8", first.getContentType());
+			assertEquals("\"abc\"", first.getETag());
+
+			FetchResult second = reader.next();
+			assertEquals("hello", text(second));
+			assertNull(second.getContentType());
+			assertEquals("yesterday", second.getLastModified());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	public void testResponseHeaders() throws Exception {
+		Path dir = Files.createTempDirectory("archive");
+		FetchResult fetched = page("http://a.com/", "<html><body>short</body></html>");
+		fetched.setResponseHeaders("HTTP/1.1 200 OK", Arrays.asList("Server: test",
+				"Content-Type: text/html; charset=UTF-8", "ETag: \"abc\"",
+				"Content-Encoding: gzip", "content-length: 12", "Set-Cookie: a=1", "Set-Cookie: b=2"));
+		try (WarcWriter writer = new WarcWriter(dir, WarcWriter.DEFAULT_SEGMENT_BYTES)) {
+			writer.write(fetched);
+		}
+
+		// the headers are kept, except those describing the body as it was sent
+		try (WarcReader reader = new WarcReader(WarcWriter.segments(dir).get(0))) {
+			FetchResult page = reader.next();
+			assertEquals("HTTP/1.1 200 OK", page.getStatusLine());
+			assertEquals(Arrays.asList("Server: test", "Content-Type: text/html; charset=UTF-8",
+					"ETag: \"abc\"", "Set-Cookie: a=1", "Set-Cookie: b=2", "Content-Length: 31"),
+					page.getHeaderLines());
+			assertEquals("<html><body>short</body></html>", text(page));
+			assertEquals("\"abc\"", page.getETag());
+		}
+	}
+
+	@Test
+	public void testSegmentsAndReindex() throws Exception {
+		Path dir = Files.createTempDirectory("archive");
+
+		// every record fills a segment of its own
+		try (WarcWriter writer = new WarcWriter(dir, 1)) {
+			writer.write(page("http://a.com/1", "<html><body>first version</body></html>"));
+			writer.write(page("http://a.com/2", "<html><body>second page</body></html>"));
+		}
+
+		// a later crawl appends after the existing segments
+		try (WarcWriter writer = new WarcWriter(dir, WarcWriter.DEFAULT_SEGMENT_BYTES)) {
+			writer.write(page("http://a.com/1", "<html><body>changed page</body></html>"));
+		}
+		assertEquals(3, WarcWriter.segments(dir).size());
+		assertTrue(WarcWriter.segments(dir).get(2).toString().endsWith("crawl-00002.warc.gz"));
+
+		ArchiveIndexer indexer = new ArchiveIndexer(3);
+		WebIndex index = indexer.reindex(dir);
+		assertEquals(3, indexer.getRecords());
+
+		HashSet<String> urls = new HashSet<String>(index.getURLList());
+		urls.remove(null);
+		assertEquals(2, urls.size());
+		assertFalse(index.getIndex().containsKey("first"));
+		assertEquals(2, index.getWordPositions("page").size());
+		assertTrue(index.getIndex().containsKey("changed"));
+	}
+}
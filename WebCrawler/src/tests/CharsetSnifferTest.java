@@ -0,0 +1,92 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import assignment.CharsetSniffer;
+import assignment.WebCrawler;
+import assignment.WebIndex;
+
+public class CharsetSnifferTest {
+	
+	private static ByteBuffer ascii(String s) {
+		return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+	}
+	
+	@Test
+	public void testContentType() {
+		assertEquals(StandardCharsets.ISO_8859_1,
+				CharsetSniffer.fromContentType("text/html; charset=ISO-8859-1"));
+		assertEquals(StandardCharsets.UTF_8,
+				CharsetSniffer.fromContentType("text/html; Charset=\"utf-8\"; q=1"));
+		assertNull(CharsetSniffer.fromContentType("text/html"));
+		assertNull(CharsetSniffer.fromContentType("text/html; charset=no-such-charset"));
+	}
+	
+	@Test
+	public void testMeta() {
+		assertEquals(StandardCharsets.ISO_8859_1, CharsetSniffer.fromMeta(
+				ascii("<html><head><META CHARSET=\"iso-8859-1\"></head>")));
+		assertEquals(StandardCharsets.UTF_8, CharsetSniffer.fromMeta(ascii("<html><head>"
+				+ "<meta name=x><meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\" />")));
+		assertNull(CharsetSniffer.fromMeta(ascii("<html><body>charset=utf-8</body>")));
+	}
+	
+	@Test
+	public void testPrecedence() {
+		ByteBuffer page = ascii("<meta charset=utf-8>");
+		assertEquals(StandardCharsets.ISO_8859_1, CharsetSniffer.detect(page, "text/html; charset=latin1"));
+		assertEquals(StandardCharsets.UTF_8, CharsetSniffer.detect(page, null));
+		
+		byte[] bom = {(byte)0xfe, (byte)0xff, 0, '<'};
+		assertEquals(StandardCharsets.UTF_16BE,
+				CharsetSniffer.detect(ByteBuffer.wrap(bom), "text/html; charset=latin1"));
+	}
+	
+	@Test
+	public void testBinary() {
+		assertTrue(CharsetSniffer.looksBinary(ByteBuffer.wrap(new byte[] {'F', 'W', 'S', 6, 0, 0})));
+		assertFalse(CharsetSniffer.looksBinary(ascii("<html>\t\r\n</html>")));
+		assertFalse(CharsetSniffer.looksBinary(ByteBuffer.wrap(new byte[] {(byte)0xff, (byte)0xfe, '<', 0})));
+	}
+	
+	@Test
+	public void testPagesDecoded() throws Exception {
+		Charset latin1 = StandardCharsets.ISO_8859_1;
+		String declared = "<html><head><meta charset=iso-8859-1></head><body>d\u00e9j\u00e0 vu</body></html>";
+		String undeclared = "<html><body>na\u00efve caf\u00e9</body></html>";
+		String utf8 = "<html><body>cr\u00e8me br\u00fbl\u00e9e</body></html>";
+		
+		WebCrawler crawler = new WebCrawler();
+		crawler.parse(page(declared.getBytes(latin1)));
+		crawler.parse(page(undeclared.getBytes(latin1)));
+		crawler.parse(page(utf8.getBytes(StandardCharsets.UTF_8)));
+		crawler.parse(page(new byte[] {'F', 'W', 'S', 6, 0, 'x', 'y', 'z'}));
+		
+		WebIndex index = crawler.getWebIndex();
+		assertNotNull(index.getWordPositions("d\u00e9j\u00e0"));
+		assertNotNull(index.getWordPositions("caf\u00e9"));
+		assertNotNull(index.getWordPositions("br\u00fbl\u00e9e"));
+		assertNull(index.getWordPositions("xyz"));
+		assertEquals(3, index.getURLList().size());
+	}
+	
+	private static URL page(byte[] content) throws Exception {
+		File file = File.createTempFile("page", ".html");
+		file.deleteOnExit();
+		Files.write(file.toPath(), content);
+		return file.toURI().toURL();
+	}
+}
@@ -0,0 +1,135 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import assignment.CanonicalizingFrontier;
+import assignment.Checkpointer;
+import assignment.FifoFrontier;
+import assignment.HeapFingerprintSet;
+import assignment.ParallelCrawler;
+import assignment.UrlCanonicalizer;
+
+public class CheckpointerTest {
+	private static final int NUM_PAGES = 12;
+
+	/**
+	 * Writes a chain of pages, each linking to the next one, and returns
+	 * the URL of the first page.
+	 */
+	private URL createWeb(Path dir) throws IOException {
+		for (int i = 0; i < NUM_PAGES; i++) {
+			String page = "<html><body>chain page" + i + "\n"
+					+ "<a href=page" + (i + 1) + ".html>next</a></body></html>";
+			if (i == NUM_PAGES - 1)
+				page = "<html><body>chain end</body></html>";
+
+			File file = dir.resolve("page" + i + ".html").toFile();
+			Files.write(file.toPath(), page.getBytes(StandardCharsets.UTF_8));
+			file.deleteOnExit();
+		}
+		return dir.resolve("page0.html").toUri().toURL();
+	}
+
+	private static ParallelCrawler newCrawler(Path checkpoints, int interval) throws IOException {
+		ParallelCrawler crawler = new ParallelCrawler(1, new FifoFrontier(), new HeapFingerprintSet());
+		crawler.setCheckpointer(new Checkpointer(checkpoints), interval);
+		return crawler;
+	}
+
+	private static ParallelCrawler newCanonicalCrawler(Path checkpoints) throws IOException {
+		ParallelCrawler crawler = new ParallelCrawler(1,
+				new CanonicalizingFrontier(new FifoFrontier(), new UrlCanonicalizer()),
+				new HeapFingerprintSet());
+		crawler.setCheckpointer(new Checkpointer(checkpoints), 3);
+		return crawler;
+	}
+
+	@Test
+	public void testResumeAfterInterruption() throws Exception {
+		Path dir = Files.createTempDirectory("testweb");
+		Path checkpoints = dir.resolve("checkpoints");
+		List<URL> seeds = new ArrayList<URL>();
+		seeds.add(createWeb(dir));
+
+		ParallelCrawler full = newCrawler(checkpoints, 3);
+		full.crawl(seeds);
+		assertEquals(NUM_PAGES, full.getWebIndex().getURLList().size());
+
+		// cut the journal after its second commit, leaving half a checkpoint behind
+		Path journal = checkpoints.resolve("journal.log");
+		List<String> lines = Files.readAllLines(journal, StandardCharsets.UTF_8);
+		List<String> kept = new ArrayList<String>();
+		int commits = 0;
+		for (String line : lines) {
+			if (commits == 2 && line.equals("C"))
+				break;
+			kept.add(line);
+			if (line.equals("C"))
+				commits++;
+		}
+		Files.write(journal, kept, StandardCharsets.UTF_8);
+
+		ParallelCrawler resumed = newCrawler(checkpoints, 3);
+		assertTrue(resumed.resume());
+
+		// the first two checkpoints covered six pages
+		assertEquals(6, resumed.getWebIndex().getURLList().size());
+		assertEquals(6, resumed.numPagesVisited());
+
+		resumed.crawl(Collections.<URL>emptyList());
+		assertEquals(full.getWebIndex().getURLList(), resumed.getWebIndex().getURLList());
+		assertEquals(full.getWebIndex().getIndex(), resumed.getWebIndex().getIndex());
+	}
+
+	@Test
+	public void testResumeWithNonCanonicalSeed() throws Exception {
+		Path dir = Files.createTempDirectory("testweb");
+		Path checkpoints = dir.resolve("checkpoints");
+		URL seed = new URL(createWeb(dir).toString().replace("/page0.html", "/./page0.html"));
+
+		ParallelCrawler full = newCanonicalCrawler(checkpoints);
+		full.crawl(Collections.singletonList(seed));
+		assertEquals(NUM_PAGES, full.getWebIndex().getURLList().size());
+
+		// the journal holds the seed as the frontier handed it out
+		List<String> lines = Files.readAllLines(checkpoints.resolve("journal.log"),
+				StandardCharsets.UTF_8);
+		assertTrue(lines.contains("Q " + dir.resolve("page0.html").toUri().toURL()));
+		assertFalse(lines.contains("Q " + seed));
+
+		// an older journal with the seed as typed resumes the same way
+		for (int i = 0; i < lines.size(); i++) {
+			if (lines.get(i).startsWith("Q ") && lines.get(i).endsWith("/page0.html"))
+				lines.set(i, "Q " + seed);
+		}
+		Files.write(checkpoints.resolve("journal.log"), lines, StandardCharsets.UTF_8);
+
+		// the crawled seed is not queued again
+		ParallelCrawler resumed = newCanonicalCrawler(checkpoints);
+		assertTrue(resumed.resume());
+		assertEquals(NUM_PAGES, resumed.numPagesVisited());
+		assertTrue(resumed.getFrontier().isEmpty());
+		resumed.crawl(Collections.<URL>emptyList());
+		assertEquals(full.getWebIndex().getURLList(), resumed.getWebIndex().getURLList());
+	}
+
+	@Test
+	public void testNothingToResume() throws Exception {
+		Path checkpoints = Files.createTempDirectory("checkpoints");
+		assertFalse(newCrawler(checkpoints, 10).resume());
+	}
+}
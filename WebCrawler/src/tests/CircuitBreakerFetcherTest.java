@@ -0,0 +1,209 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import assignment.CircuitBreakerFetcher;
+import assignment.FetchResult;
+import assignment.Fetcher;
+import assignment.FifoFrontier;
+import assignment.PageState;
+
+public class CircuitBreakerFetcherTest {
+
+	/**
+	 * Fails every fetch from bad.com, answers 404 for missing pages and
+	 * returns an empty page otherwise, counting the requests it gets.
+	 */
+	private static class StubFetcher implements Fetcher {
+		final AtomicInteger requests = new AtomicInteger();
+		volatile boolean badHostUp;
+
+		@Override
+		public FetchResult fetch(URL url, PageState previous) throws IOException {
+			requests.incrementAndGet();
+			if (url.getHost().equals("bad.com") && !badHostUp)
+				throw new IOException("Connection refused");
+			if (url.getPath().startsWith("/missing"))
+				throw new FileNotFoundException(url.toString());
+			return new FetchResult(url, new byte[0], "text/html", null, null);
+		}
+	}
+
+	private static boolean fetches(Fetcher fetcher, String url) throws Exception {
+		try {
+			fetcher.fetch(new URL(url), null);
+			return true;
+		} catch (FileNotFoundException e) {
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void testOpensAfterFailures() throws Exception {
+		StubFetcher stub = new StubFetcher();
+		CircuitBreakerFetcher fetcher = new CircuitBreakerFetcher(stub, 3,
+				Duration.ofSeconds(10), Duration.ofMillis(200));
+
+		for (int i = 0; i < 3; i++) {
+			assertFalse(fetches(fetcher, "http://bad.com/" + i));
+		}
+		assertTrue(fetcher.isOpen("bad.com"));
+		assertEquals(1, fetcher.getTrips());
+
+		// no request reaches the broken host, other hosts are unaffected
+		assertFalse(fetches(fetcher, "http://bad.com/4"));
+		assertEquals(3, stub.requests.get());
+		assertEquals(1, fetcher.getRejected());
+		assertTrue(fetches(fetcher, "http://good.com/"));
+
+		// a failed trial keeps the circuit open, a successful one closes it
+		Thread.sleep(250);
+		assertFalse(fetches(fetcher, "http://bad.com/5"));
+		assertTrue(fetcher.isOpen("bad.com"));
+		assertFalse(fetches(fetcher, "http://bad.com/6"));
+		assertEquals(5, stub.requests.get());
+
+		stub.badHostUp = true;
+		Thread.sleep(250);
+		assertTrue(fetches(fetcher, "http://bad.com/7"));
+		assertFalse(fetcher.isOpen("bad.com"));
+		assertTrue(fetches(fetcher, "http://bad.com/8"));
+	}
+
+	@Test
+	public void testFrontierDefersOpenHosts() throws Exception {
+		StubFetcher stub = new StubFetcher();
+		CircuitBreakerFetcher fetcher = new CircuitBreakerFetcher(stub, 2,
+				Duration.ofSeconds(10), Duration.ofMillis(200));
+		FifoFrontier frontier = new FifoFrontier();
+		frontier.setCircuitBreaker(fetcher);
+
+		// a page handed out before the circuit opens is still fetched
+		for (int i = 1; i <= 3; i++) {
+			frontier.add(new URL("http://bad.com/" + i));
+		}
+		URL[] taken = {frontier.poll(), frontier.poll(), frontier.poll()};
+		assertFalse(fetches(fetcher, taken[0].toString()));
+		assertFalse(fetches(fetcher, taken[1].toString()));
+		assertTrue(fetcher.isOpen("bad.com"));
+		assertFalse(fetches(fetcher, taken[2].toString()));
+		assertEquals(3, stub.requests.get());
+		assertEquals(0, fetcher.getRejected());
+
+		// pages of the open host wait for the cool-down instead of failing
+		frontier.add(new URL("http://bad.com/4"));
+		frontier.add(new URL("http://good.com/"));
+		assertEquals(new URL("http://good.com/").toString(), frontier.poll().toString());
+		assertNull(frontier.poll());
+		assertFalse(frontier.isEmpty());
+		long delay = frontier.delayMillis();
+		assertTrue(delay > 0 && delay <= 200);
+		assertEquals(1, frontier.getNumDeferred());
+
+		stub.badHostUp = true;
+		Thread.sleep(delay);
+		assertEquals(0, frontier.delayMillis());
+		URL trial = frontier.poll();
+		assertEquals("http://bad.com/4", trial.toString());
+		assertTrue(fetches(fetcher, trial.toString()));
+		assertFalse(fetcher.isOpen("bad.com"));
+		assertTrue(frontier.isEmpty());
+	}
+
+	@Test
+	public void testSkippedPagesKeepNoAdmission() throws Exception {
+		StubFetcher stub = new StubFetcher();
+		CircuitBreakerFetcher fetcher = new CircuitBreakerFetcher(stub, 1,
+				Duration.ofSeconds(10), Duration.ofSeconds(60));
+		FifoFrontier frontier = new FifoFrontier();
+		frontier.setCircuitBreaker(fetcher);
+
+		// two pages are handed out but skipped, say by robots.txt
+		frontier.add(new URL("http://bad.com/1"));
+		frontier.add(new URL("http://bad.com/2"));
+		URL skipped = frontier.poll();
+		frontier.done(skipped);
+		frontier.poll();
+
+		// their admissions do not let other pages through the open circuit
+		assertFalse(fetches(fetcher, "http://bad.com/3"));
+		assertTrue(fetcher.isOpen("bad.com"));
+		assertFalse(fetches(fetcher, "http://bad.com/4"));
+		assertFalse(fetches(fetcher, skipped.toString()));
+		assertEquals(1, stub.requests.get());
+		assertEquals(2, fetcher.getRejected());
+	}
+
+	@Test
+	public void testLocalFilesAreNotBroken() throws Exception {
+		Fetcher failing = new Fetcher() {
+			@Override
+			public FetchResult fetch(URL url, PageState previous) throws IOException {
+				throw new IOException("Unreadable " + url);
+			}
+		};
+		CircuitBreakerFetcher fetcher = new CircuitBreakerFetcher(failing, 2,
+				Duration.ofSeconds(10), Duration.ofSeconds(60));
+		for (int i = 0; i < 5; i++) {
+			try {
+				fetcher.fetch(new URL("file:/site/page" + i + ".html"), null);
+				fail();
+			} catch (IOException e) {
+				assertTrue(e.getMessage().startsWith("Unreadable"));
+			}
+		}
+		assertFalse(fetcher.isOpen(""));
+		assertEquals(0, fetcher.getTrips());
+		assertEquals(0, fetcher.admit(new URL("file:/site/other.html")));
+	}
+
+	@Test
+	public void testMissingPagesAreNotFailures() throws Exception {
+		CircuitBreakerFetcher fetcher = new CircuitBreakerFetcher(new StubFetcher(), 2,
+				Duration.ofSeconds(10), Duration.ofSeconds(60));
+		for (int i = 0; i < 5; i++) {
+			try {
+				fetcher.fetch(new URL("http://good.com/missing" + i), null);
+				fail();
+			} catch (FileNotFoundException e) {
+				// expected
+			}
+		}
+		assertFalse(fetcher.isOpen("good.com"));
+	}
+
+	@Test
+	public void testSlowResponsesOpen() throws Exception {
+		Fetcher slow = new Fetcher() {
+			@Override
+			public FetchResult fetch(URL url, PageState previous) throws IOException {
+				try {
+					Thread.sleep(30);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return new FetchResult(url, new byte[0], "text/html", null, null);
+			}
+		};
+		CircuitBreakerFetcher fetcher = new CircuitBreakerFetcher(slow, 2,
+				Duration.ofMillis(10), Duration.ofSeconds(60));
+		assertTrue(fetches(fetcher, "http://slow.com/1"));
+		assertTrue(fetches(fetcher, "http://slow.com/2"));
+		assertFalse(fetches(fetcher, "http://slow.com/3"));
+		assertTrue(fetcher.isOpen("slow.com"));
+	}
+}
@@ -0,0 +1,78 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import assignment.CrawlMetrics;
+import assignment.CrawlMetrics.Phase;
+import assignment.LatencyHistogram;
+
+public class CrawlMetricsTest {
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 98; i++) {
+			histogram.record(1500000);
+		}
+		histogram.record(100000000);
+		histogram.record(300000000);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(5.47, histogram.getMeanMillis(), 1e-9);
+		assertEquals(300, histogram.getMaxMillis(), 1e-9);
+
+		// 1.5 ms falls in the bucket ending at 2^11 microseconds
+		assertEquals(2.048, histogram.getPercentileMillis(50), 1e-9);
+		assertEquals(2.048, histogram.getPercentileMillis(98), 1e-9);
+		assertEquals(131.072, histogram.getPercentileMillis(99), 1e-9);
+		assertEquals(300, histogram.getPercentileMillis(100), 1e-9);
+		assertEquals(0, new LatencyHistogram().getPercentileMillis(50), 0);
+	}
+
+	@Test
+	public void testPerHost() throws Exception {
+		CrawlMetrics metrics = new CrawlMetrics();
+		long start = System.nanoTime();
+		metrics.recordFetch(new URL("http://a.com/1"), start, 100);
+		metrics.recordFetch(new URL("http://a.com/2"), start, 200);
+		metrics.recordFetch(new URL("http://b.com/1"), start, 0);
+		metrics.record(Phase.PARSE, new URL("http://a.com/1"), start);
+
+		assertEquals(3, metrics.getPages());
+		assertEquals(300, metrics.getBytes());
+		assertEquals(3, metrics.getLatencies(Phase.FETCH).getCount());
+		assertEquals(2, metrics.getLatencies("a.com", Phase.FETCH).getCount());
+		assertEquals(1, metrics.getLatencies("a.com", Phase.PARSE).getCount());
+		assertEquals(0, metrics.getLatencies("b.com", Phase.PARSE).getCount());
+		assertNull(metrics.getLatencies("c.com", Phase.FETCH));
+
+		assertTrue(metrics.progressLine(7, 12).contains("3 pages"));
+		assertTrue(metrics.progressLine(7, 12).contains("0.0 pages/s"));
+	}
+
+	@Test
+	public void testSave() throws Exception {
+		CrawlMetrics metrics = new CrawlMetrics();
+		metrics.recordFetch(new URL("http://a.com/\"x\""), System.nanoTime(), 10);
+
+		Path file = Files.createTempFile("metrics", ".json");
+		file.toFile().deleteOnExit();
+		metrics.save(file, 5, 2);
+
+		String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		assertTrue(json.contains("\"pages\": 1,"));
+		assertTrue(json.contains("\"frontierSize\": 5,"));
+		assertTrue(json.contains("\"dedupHits\": 2,"));
+		assertTrue(json.contains("\"a.com\": {\"pages\": 1, \"bytes\": 10"));
+		assertTrue(json.contains("\"fetch\": {\"count\": 1,"));
+	}
+}
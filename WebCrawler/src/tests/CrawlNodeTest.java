@@ -0,0 +1,143 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import assignment.CrawlNode;
+import assignment.FifoFrontier;
+import assignment.HeapFingerprintSet;
+import assignment.ParallelCrawler;
+import assignment.WebIndex;
+
+public class CrawlNodeTest {
+
+	/**
+	 * Writes pages spread over several directories, every page linking to
+	 * the same page of every directory, and returns the first page.
+	 */
+	private URL createWeb(int numDirs, int pagesPerDir) throws IOException {
+		Path root = Files.createTempDirectory("nodeweb");
+		for (int d = 0; d < numDirs; d++) {
+			Path dir = Files.createDirectory(root.resolve("dir" + d));
+			for (int i = 0; i < pagesPerDir; i++) {
+				StringBuilder page = new StringBuilder("<html><body>page" + d + "x" + i + " shared\n");
+				for (int j = 0; j < numDirs; j++) {
+					page.append("<a href=../dir" + j + "/page" + i + ".html>same</a>\n");
+				}
+				page.append("<a href=page" + ((i + 1) % pagesPerDir) + ".html>next</a>\n");
+				page.append("</body></html>");
+				Files.write(dir.resolve("page" + i + ".html"),
+						page.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		return root.resolve("dir0/page0.html").toUri().toURL();
+	}
+
+	private static List<InetSocketAddress> addresses(int n) throws IOException {
+		List<InetSocketAddress> nodes = new ArrayList<InetSocketAddress>();
+		for (int i = 0; i < n; i++) {
+			try (ServerSocket socket = new ServerSocket(0)) {
+				nodes.add(new InetSocketAddress("127.0.0.1", socket.getLocalPort()));
+			}
+		}
+		return nodes;
+	}
+
+	@Test
+	public void testOwner() throws Exception {
+		URL a = new URL("http://www.example.com/a");
+		assertEquals(CrawlNode.owner(a, 4), CrawlNode.owner(new URL("http://WWW.example.com/b/c"), 4));
+		assertEquals(CrawlNode.owner(new URL("file:/x/y/a.html"), 4),
+				CrawlNode.owner(new URL("file:/x/y/b.html"), 4));
+
+		HashSet<Integer> owners = new HashSet<Integer>();
+		for (int i = 0; i < 50; i++) {
+			int owner = CrawlNode.owner(new URL("http://host" + i + ".com/"), 4);
+			assertTrue(owner >= 0 && owner < 4);
+			owners.add(owner);
+		}
+		assertEquals(4, owners.size());
+	}
+
+	@Test(timeout = 60000)
+	public void testSameResultAsOneNode() throws Exception {
+		crawlAndCompare(0);
+	}
+
+	@Test(timeout = 60000)
+	public void testCoordinatorStartsLast() throws Exception {
+		// the other nodes are still retrying their connection to node 0
+		// when its first status requests reach them
+		crawlAndCompare(300);
+	}
+
+	/**
+	 * Crawls a web with three nodes, starting node 0 after the others,
+	 * and checks the result against a crawl on one node.
+	 */
+	private void crawlAndCompare(final long coordinatorDelayMillis) throws Exception {
+		final List<URL> seeds = new ArrayList<URL>();
+		seeds.add(createWeb(8, 10));
+
+		ParallelCrawler single = new ParallelCrawler(2);
+		single.crawl(seeds);
+		assertEquals(80, single.numPagesVisited());
+
+		final int numNodes = 3;
+		final List<InetSocketAddress> nodes = addresses(numNodes);
+		final ParallelCrawler[] crawlers = new ParallelCrawler[numNodes];
+		final Exception[] errors = new Exception[numNodes];
+		Thread[] threads = new Thread[numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			final int id = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						if (id == 0)
+							Thread.sleep(coordinatorDelayMillis);
+						CrawlNode node = new CrawlNode(id, nodes);
+						crawlers[id] = new ParallelCrawler(2, node.partition(new FifoFrontier()),
+								new HeapFingerprintSet(), new WebIndex());
+						node.crawl(crawlers[id], seeds);
+						node.close();
+					} catch (Exception e) {
+						errors[id] = e;
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		HashSet<String> urls = new HashSet<String>();
+		WebIndex merged = new WebIndex();
+		int visited = 0;
+		for (int i = 0; i < numNodes; i++) {
+			threads[i].join();
+			if (errors[i] != null)
+				throw errors[i];
+			visited += crawlers[i].numPagesVisited();
+			urls.addAll(crawlers[i].getWebIndex().getURLList());
+			merged.merge(crawlers[i].getWebIndex());
+		}
+
+		// every page is crawled by exactly one node
+		assertEquals(80, visited);
+		assertEquals(80, urls.size());
+		assertEquals(single.getWebIndex().getIndex().keySet(), merged.getIndex().keySet());
+		assertEquals(80, merged.getWordPositions("shared").size());
+	}
+}
@@ -0,0 +1,99 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import assignment.DuplicateDetector;
+import assignment.FingerprintSet;
+import assignment.ParallelCrawler;
+import assignment.WebIndex;
+import assignment.WebQueryEngine;
+
+public class DuplicateDetectorTest {
+	
+	/**
+	 * Returns some text of the given number of distinct words.
+	 */
+	private static String words(String prefix, int count) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			text.append(prefix).append(i).append(' ');
+		}
+		return text.toString();
+	}
+	
+	private static long simHash(String text) {
+		int[] weights = new int[64];
+		for (String word : text.split(" ")) {
+			DuplicateDetector.addToSimHash(weights, FingerprintSet.fingerprint(word));
+		}
+		return DuplicateDetector.simHash(weights);
+	}
+	
+	@Test
+	public void testExactAndNear() {
+		DuplicateDetector detector = new DuplicateDetector();
+		String text = words("word", 200);
+		
+		assertNull(detector.register("a", 1, simHash(text), 200));
+		assertEquals("a", detector.register("b", 1, simHash(text), 200));
+		
+		// one word out of 200 changed
+		String changed = text.replace("word17 ", "other ");
+		assertEquals("a", detector.register("c", 2, simHash(changed), 200));
+		
+		assertNull(detector.register("d", 3, simHash(words("unrelated", 200)), 200));
+		assertEquals(1, detector.getExactDuplicates());
+		assertEquals(1, detector.getNearDuplicates());
+	}
+	
+	@Test
+	public void testShortPagesOnlyExact() {
+		DuplicateDetector detector = new DuplicateDetector();
+		assertNull(detector.register("a", 1, simHash("hello world"), 2));
+		assertNull(detector.register("b", 2, simHash("hello world"), 2));
+	}
+	
+	@Test
+	public void testCrawlRecordsAliases() throws Exception {
+		Path dir = Files.createTempDirectory("testweb");
+		String copy = "<html><body>" + words("copy", 50) + "</body></html>";
+		write(dir, "index.html", "<html><body>start <a href=a/page.html>a</a>"
+				+ "<a href=b/page.html>b</a></body></html>");
+		Files.createDirectory(dir.resolve("a"));
+		Files.createDirectory(dir.resolve("b"));
+		write(dir, "a/page.html", copy);
+		write(dir, "b/page.html", copy);
+		
+		ParallelCrawler crawler = new ParallelCrawler(1);
+		crawler.setDuplicateDetector(new DuplicateDetector());
+		List<URL> seeds = new ArrayList<URL>();
+		seeds.add(dir.resolve("index.html").toUri().toURL());
+		crawler.crawl(seeds);
+		
+		WebIndex index = crawler.getWebIndex();
+		assertEquals(2, index.getURLList().size());
+		assertEquals(1, index.getAliases().size());
+		
+		WebQueryEngine engine = new WebQueryEngine();
+		engine.useWebIndex(index);
+		assertEquals(1, engine.query("copy7").size());
+	}
+	
+	private static void write(Path dir, String name, String page) throws IOException {
+		File file = dir.resolve(name).toFile();
+		Files.write(file.toPath(), page.getBytes(StandardCharsets.UTF_8));
+		file.deleteOnExit();
+	}
+}
@@ -0,0 +1,99 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import assignment.FetchResult;
+import assignment.FileFetcher;
+import assignment.PageState;
+import assignment.WebCrawler;
+
+public class FileFetcherTest {
+	
+	private static Path write(Path file, String content) throws Exception {
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		file.toFile().deleteOnExit();
+		return file;
+	}
+	
+	private static String text(FetchResult result) {
+		ByteBuffer content = result.getContent().duplicate();
+		byte[] bytes = new byte[content.remaining()];
+		content.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	@Test
+	public void testSmallAndLargeFiles() throws Exception {
+		Path dir = Files.createTempDirectory("testweb");
+		Path small = write(dir.resolve("small.html"), "<html>hello</html>");
+		
+		char[] filler = new char[FileFetcher.MAP_THRESHOLD];
+		Arrays.fill(filler, 'x');
+		Path large = write(dir.resolve("large.html"), "<html>" + new String(filler) + "</html>");
+		
+		FileFetcher fetcher = new FileFetcher();
+		FetchResult result = fetcher.fetch(small.toUri().toURL(), null);
+		assertEquals("<html>hello</html>", text(result));
+		assertEquals("text/html", result.getContentType());
+		assertNotNull(result.getLastModified());
+		
+		result = fetcher.fetch(large.toUri().toURL(), null);
+		assertFalse(result.getContent().hasArray());
+		assertEquals(FileFetcher.MAP_THRESHOLD + 13, result.getContent().remaining());
+		
+		// a mapped page is parsed like any other
+		WebCrawler crawler = new WebCrawler();
+		crawler.parse(large.toUri().toURL());
+		assertEquals(1, crawler.getWebIndex().getURLList().size());
+	}
+	
+	@Test
+	public void testUnchangedFileNotRead() throws Exception {
+		Path dir = Files.createTempDirectory("testweb");
+		Path page = write(dir.resolve("page.html"), "<html>one</html>");
+		URL url = page.toUri().toURL();
+		
+		FileFetcher fetcher = new FileFetcher();
+		FetchResult first = fetcher.fetch(url, null);
+		PageState state = new PageState(1, first.getETag(), first.getLastModified(), new String[0]);
+		assertTrue(fetcher.fetch(url, state).isNotModified());
+		
+		// a different size gives a different ETag
+		write(page, "<html>one two</html>");
+		assertFalse(fetcher.fetch(url, state).isNotModified());
+	}
+	
+	@Test(expected = FileNotFoundException.class)
+	public void testMissingFile() throws Exception {
+		Path dir = Files.createTempDirectory("testweb");
+		new FileFetcher().fetch(dir.resolve("missing.html").toUri().toURL(), null);
+	}
+	
+	@Test
+	public void testWalk() throws Exception {
+		Path dir = Files.createTempDirectory("testweb");
+		write(dir.resolve("b.html"), "b");
+		write(dir.resolve("a/index.htm"), "a");
+		write(dir.resolve("a/logo.gif"), "gif");
+		
+		List<URL> urls = FileFetcher.walk(dir);
+		assertEquals(2, urls.size());
+		assertEquals(dir.resolve("a/index.htm").toUri().toURL(), urls.get(0));
+		assertEquals(dir.resolve("b.html").toUri().toURL(), urls.get(1));
+	}
+}
@@ -0,0 +1,291 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import assignment.BestFirstFrontier;
+import assignment.BestFirstFrontier.Scoring;
+import assignment.BudgetedFrontier;
+import assignment.CircuitBreakerFetcher;
+import assignment.CrawlBudget;
+import assignment.DedupFrontier;
+import assignment.FetchResult;
+import assignment.Fetcher;
+import assignment.FifoFrontier;
+import assignment.Frontier;
+import assignment.HeapFingerprintSet;
+import assignment.LifoFrontier;
+import assignment.PageState;
+import assignment.PriorityFrontier;
+
+public class FrontierTest {
+
+	private static URL url(String path) throws MalformedURLException {
+		return new URL("http://www.example.com" + path);
+	}
+
+	@Test
+	public void testDedupQueuedAndPolled() throws Exception {
+		Frontier frontier = new FifoFrontier();
+		assertTrue(frontier.add(url("/a")));
+		assertFalse(frontier.add(url("/a")));
+		assertEquals(1, frontier.size());
+
+		// a URL that was already handed out is still a duplicate
+		assertEquals(url("/a"), frontier.poll());
+		assertFalse(frontier.add(url("/a")));
+		assertTrue(frontier.isEmpty());
+
+		assertEquals(2, frontier.getDedupHits());
+		assertEquals(1, frontier.getNumQueued());
+	}
+
+	@Test
+	public void testBreadthFirst() throws Exception {
+		Frontier frontier = new FifoFrontier();
+		frontier.add(url("/a"));
+		frontier.add(url("/b"));
+		frontier.add(url("/c"));
+
+		assertEquals(url("/a"), frontier.poll());
+		assertEquals(url("/b"), frontier.poll());
+		assertEquals(url("/c"), frontier.poll());
+		assertNull(frontier.poll());
+	}
+
+	@Test
+	public void testDepthFirst() throws Exception {
+		Frontier frontier = new LifoFrontier();
+		frontier.add(url("/a"));
+		frontier.add(url("/b"));
+		frontier.add(url("/c"));
+
+		assertEquals(url("/c"), frontier.poll());
+		assertEquals(url("/b"), frontier.poll());
+		assertEquals(url("/a"), frontier.poll());
+		assertNull(frontier.poll());
+	}
+
+	@Test
+	public void testShallowFirst() throws Exception {
+		Frontier frontier = new PriorityFrontier();
+		frontier.add(url("/x/y/z.html"));
+		frontier.add(url("/x/y.html"));
+		frontier.add(url("/a.html"));
+		frontier.add(url("/b.html"));
+
+		// ties keep insertion order
+		assertEquals(url("/a.html"), frontier.poll());
+		assertEquals(url("/b.html"), frontier.poll());
+		assertEquals(url("/x/y.html"), frontier.poll());
+		assertEquals(url("/x/y/z.html"), frontier.poll());
+	}
+
+	@Test
+	public void testCreate() {
+		assertTrue(DedupFrontier.create("BFS", new HeapFingerprintSet()) instanceof FifoFrontier);
+		assertTrue(DedupFrontier.create("dfs", new HeapFingerprintSet()) instanceof LifoFrontier);
+		assertTrue(DedupFrontier.create("priority", new HeapFingerprintSet()) instanceof PriorityFrontier);
+		assertTrue(DedupFrontier.create("opic", new HeapFingerprintSet()) instanceof BestFirstFrontier);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreateUnknown() {
+		DedupFrontier.create("random", new HeapFingerprintSet());
+	}
+
+	@Test
+	public void testMostLinkedFirst() throws Exception {
+		Frontier frontier = new BestFirstFrontier(Scoring.IN_LINKS);
+		frontier.add(url("/"));
+		assertEquals(url("/"), frontier.poll());
+		frontier.addLinks(url("/"), Arrays.asList(url("/a"), url("/b"), url("/c")));
+
+		// /c is linked from /a and /b before it is crawled, twice by /b
+		assertEquals(url("/a"), frontier.poll());
+		frontier.addLinks(url("/a"), Arrays.asList(url("/c"), url("/d")));
+		assertEquals(url("/c"), frontier.poll());
+		frontier.addLinks(url("/c"), Collections.<URL>emptyList());
+		assertEquals(url("/b"), frontier.poll());
+		assertEquals(1, frontier.addLinks(url("/b"), Arrays.asList(url("/d"), url("/d"), url("/e"))).size());
+
+		// /d now has two in-links, /e one
+		assertEquals(url("/d"), frontier.poll());
+		assertEquals(url("/e"), frontier.poll());
+		assertNull(frontier.poll());
+	}
+
+	@Test
+	public void testOpicCash() throws Exception {
+		BestFirstFrontier frontier = new BestFirstFrontier(Scoring.OPIC);
+		frontier.add(url("/"));
+		frontier.add(url("/seed"));
+		assertEquals(1.0, frontier.getScore(url("/seed")), 0);
+
+		assertEquals(url("/"), frontier.poll());
+		frontier.addLinks(url("/"), Arrays.asList(url("/a"), url("/b"), url("/seed"), url("/")));
+		assertEquals(4.0 / 3, frontier.getScore(url("/seed")), 1e-9);
+		assertEquals(1.0 / 3, frontier.getScore(url("/a")), 1e-9);
+
+		assertEquals(url("/seed"), frontier.poll());
+		frontier.addLinks(url("/seed"), Arrays.asList(url("/b")));
+		assertEquals(url("/b"), frontier.poll());
+		assertEquals(url("/a"), frontier.poll());
+	}
+
+	@Test
+	public void testHeapOrderAfterRaises() throws Exception {
+		BestFirstFrontier frontier = new BestFirstFrontier(Scoring.IN_LINKS);
+		Random random = new Random(14);
+		int[] inLinks = new int[500];
+		frontier.add(url("/seed"));
+		frontier.poll();
+
+		List<URL> all = new ArrayList<URL>();
+		for (int i = 0; i < inLinks.length; i++) {
+			all.add(url("/" + i));
+		}
+		frontier.addLinks(url("/seed"), all);
+
+		// links from pages that are never queued themselves
+		for (int page = 0; page < 2000; page++) {
+			int target = random.nextInt(inLinks.length);
+			inLinks[target]++;
+			frontier.markSeen(url("/source" + page));
+			frontier.addLinks(url("/source" + page), Arrays.asList(url("/" + target)));
+		}
+
+		int previous = Integer.MAX_VALUE;
+		URL next;
+		while ((next = frontier.poll()) != null) {
+			int count = inLinks[Integer.parseInt(next.getPath().substring(1))];
+			assertTrue(count <= previous);
+			previous = count;
+		}
+	}
+
+	@Test
+	public void testDeferredUrlKeepsScore() throws Exception {
+		CircuitBreakerFetcher breaker = new CircuitBreakerFetcher(new Fetcher() {
+			@Override
+			public FetchResult fetch(URL url, PageState previous) throws IOException {
+				throw new IOException("Connection refused");
+			}
+		}, 1, Duration.ofSeconds(10), Duration.ofMillis(100));
+		BestFirstFrontier frontier = new BestFirstFrontier(Scoring.IN_LINKS);
+		frontier.setCircuitBreaker(breaker);
+
+		URL broken = new URL("http://bad.com/");
+		frontier.add(url("/a"));
+		frontier.add(url("/b"));
+		assertEquals(url("/a"), frontier.poll());
+		assertEquals(url("/b"), frontier.poll());
+		frontier.addLinks(url("/a"), Arrays.asList(broken, url("/c")));
+		frontier.addLinks(url("/b"), Arrays.asList(broken, url("/d")));
+
+		// the most linked URL comes up while its host is broken
+		try {
+			breaker.fetch(new URL("http://bad.com/other"), null);
+		} catch (IOException e) {
+		}
+		assertEquals(url("/c"), frontier.poll());
+		assertEquals(1, frontier.getNumDeferred());
+
+		// once the host may be tried, it still goes ahead of /d
+		Thread.sleep(150);
+		assertEquals(broken, frontier.poll());
+		assertEquals(url("/d"), frontier.poll());
+	}
+
+	@Test
+	public void testDepthBudget() throws Exception {
+		CrawlBudget budget = new CrawlBudget();
+		budget.setMaxDepth(1);
+		BudgetedFrontier frontier = new BudgetedFrontier(new FifoFrontier(), budget);
+		frontier.add(url("/"));
+		assertEquals(url("/"), frontier.poll());
+		assertEquals(1, frontier.addLinks(url("/"), Arrays.asList(url("/a"))).size());
+		assertEquals(url("/a"), frontier.poll());
+
+		// links two steps from the seed are dropped without being marked seen
+		assertTrue(frontier.addLinks(url("/a"), Arrays.asList(url("/b"))).isEmpty());
+		assertTrue(frontier.isEmpty());
+		assertEquals(1, frontier.getDropped());
+		assertTrue(frontier.add(url("/b")));
+	}
+
+	@Test
+	public void testPageAndHostBudgets() throws Exception {
+		CrawlBudget budget = new CrawlBudget();
+		budget.setMaxPages(3);
+		budget.setMaxPagesPerHost(2);
+		BudgetedFrontier frontier = new BudgetedFrontier(new FifoFrontier(), budget);
+		frontier.add(url("/a"));
+		frontier.add(url("/b"));
+		frontier.add(url("/c"));
+		frontier.add(new URL("http://other.com/a"));
+		frontier.add(new URL("http://other.com/b"));
+
+		assertEquals(url("/a"), frontier.poll());
+		assertEquals(url("/b"), frontier.poll());
+
+		// www.example.com is used up, its third page is skipped
+		assertEquals(new URL("http://other.com/a"), frontier.poll());
+		assertTrue(frontier.isExhausted());
+		assertTrue(frontier.isEmpty());
+		assertEquals(Long.MAX_VALUE, frontier.delayMillis());
+		assertNull(frontier.poll());
+		assertFalse(frontier.add(url("/d")));
+	}
+
+	@Test
+	public void testHostBudgetUsedUpWhileQueued() throws Exception {
+		CrawlBudget budget = new CrawlBudget();
+		budget.setMaxPagesPerHost(1);
+		BudgetedFrontier frontier = new BudgetedFrontier(new FifoFrontier(), budget);
+		frontier.add(url("/a"));
+		frontier.add(url("/b"));
+		frontier.add(url("/c"));
+
+		// once the host is used up, its queued pages are not reported as ready
+		assertEquals(url("/a"), frontier.poll());
+		assertTrue(frontier.isEmpty());
+		assertEquals(0, frontier.size());
+		assertEquals(2, frontier.getDropped());
+		assertNull(frontier.poll());
+
+		frontier.add(new URL("http://other.com/a"));
+		assertFalse(frontier.isEmpty());
+		assertEquals(0, frontier.delayMillis());
+		assertEquals(1, frontier.size());
+		assertEquals(new URL("http://other.com/a"), frontier.poll());
+		assertTrue(frontier.isEmpty());
+	}
+
+	@Test
+	public void testByteBudget() throws Exception {
+		CrawlBudget budget = new CrawlBudget();
+		budget.setMaxBytes(1000);
+		BudgetedFrontier frontier = new BudgetedFrontier(new FifoFrontier(), budget);
+		frontier.add(url("/a"));
+		frontier.add(url("/b"));
+		assertEquals(url("/a"), frontier.poll());
+		budget.addBytes(1000);
+		assertTrue(frontier.isEmpty());
+		assertNull(frontier.poll());
+	}
+}
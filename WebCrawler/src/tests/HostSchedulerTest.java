@@ -0,0 +1,210 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import assignment.HeapFingerprintSet;
+import assignment.HostScheduler;
+import assignment.ParallelCrawler;
+import assignment.RobotsCache;
+import assignment.RobotsRules;
+
+public class HostSchedulerTest {
+	
+	// milliseconds on the fake clock of the scheduler under test
+	private long now;
+	
+	private HostScheduler newScheduler(int maxPerHost, long delayMillis) {
+		return new HostScheduler(maxPerHost, delayMillis, null) {
+			@Override
+			protected long currentTimeNanos() {
+				return now * 1000000;
+			}
+		};
+	}
+
+	@Test
+	public void testPerHostConcurrency() throws Exception {
+		HostScheduler scheduler = newScheduler(1, 0);
+		URL a1 = new URL("http://a.com/1");
+		URL a2 = new URL("http://a.com/2");
+		URL b1 = new URL("http://b.com/1");
+		scheduler.add(a1);
+		scheduler.add(a2);
+		scheduler.add(b1);
+		
+		assertEquals(a1, scheduler.poll());
+		
+		// a.com is busy, but b.com is not held up by it
+		assertEquals(b1, scheduler.poll());
+		assertNull(scheduler.poll());
+		assertEquals(Long.MAX_VALUE, scheduler.delayMillis());
+		
+		scheduler.done(a1);
+		assertEquals(0, scheduler.delayMillis());
+		assertEquals(a2, scheduler.poll());
+	}
+	
+	@Test
+	public void testMinimumDelay() throws Exception {
+		HostScheduler scheduler = newScheduler(2, 1000);
+		URL a1 = new URL("http://a.com/1");
+		URL a2 = new URL("http://a.com/2");
+		scheduler.add(a1);
+		scheduler.add(a2);
+		
+		assertEquals(a1, scheduler.poll());
+		assertNull(scheduler.poll());
+		assertEquals(1000, scheduler.delayMillis());
+		
+		now += 400;
+		assertEquals(600, scheduler.delayMillis());
+		assertNull(scheduler.poll());
+		
+		now += 600;
+		assertEquals(a2, scheduler.poll());
+		assertTrue(scheduler.isEmpty());
+	}
+	
+	@Test
+	public void testLocalFilesNotLimited() throws Exception {
+		HostScheduler scheduler = newScheduler(1, 1000);
+		scheduler.add(new URL("file:/mirror/a.html"));
+		scheduler.add(new URL("file:/mirror/b.html"));
+		
+		assertEquals(new URL("file:/mirror/a.html"), scheduler.poll());
+		assertEquals(new URL("file:/mirror/b.html"), scheduler.poll());
+	}
+	
+	@Test
+	public void testRobotsRules() {
+		String robots = "User-agent: OtherBot\n"
+				+ "Disallow: /\n"
+				+ "\n"
+				+ "User-agent: *\n"
+				+ "Disallow: /private\n"
+				+ "Allow: /private/public\n"
+				+ "Disallow: /*.cgi$\n"
+				+ "Crawl-delay: 2.5\n";
+		RobotsRules rules = RobotsRules.parse(robots, RobotsCache.USER_AGENT);
+		
+		assertTrue(rules.isAllowed("/index.html"));
+		assertFalse(rules.isAllowed("/private/secret.html"));
+		assertTrue(rules.isAllowed("/private/public/page.html"));
+		assertFalse(rules.isAllowed("/bin/search.cgi"));
+		assertTrue(rules.isAllowed("/bin/search.cgi?q=1"));
+		assertEquals(2500, rules.getCrawlDelayMillis());
+		
+		RobotsRules own = RobotsRules.parse(robots.replace("OtherBot", "WebCrawler"),
+				RobotsCache.USER_AGENT);
+		assertFalse(own.isAllowed("/index.html"));
+	}
+	
+	/**
+	 * Serves the same small site for every virtual host, recording the
+	 * largest number of requests any single host received at once.
+	 */
+	private static class VirtualHosts implements HttpHandler {
+		HashMap<String, Integer> active = new HashMap<String, Integer>();
+		int maxActive;
+		
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			String host = exchange.getRequestHeaders().getFirst("Host");
+			String path = exchange.getRequestURI().getPath();
+			
+			synchronized (this) {
+				int count = active.containsKey(host) ? active.get(host) + 1 : 1;
+				active.put(host, count);
+				maxActive = Math.max(maxActive, count);
+			}
+			
+			try {
+				Thread.sleep(20);
+				
+				String body;
+				int status = 200;
+				if (path.equals("/robots.txt")) {
+					body = host.startsWith("localhost") ? "User-agent: *\nDisallow: /private\n" : "";
+				} else if (path.equals("/index.html")) {
+					body = "<html><body>home of " + host.replace(':', ' ') + "\n";
+					for (int i = 0; i < 5; i++) {
+						body += "<a href=page" + i + ".html>page</a>\n";
+					}
+					body += "<a href=private.html>secret</a></body></html>";
+				} else if (path.startsWith("/page") || path.equals("/private.html")) {
+					body = "<html><body>content of " + path.substring(1, path.indexOf('.'))
+							+ "</body></html>";
+				} else {
+					body = "not found";
+					status = 404;
+				}
+				
+				byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(status, bytes.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(bytes);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				synchronized (this) {
+					active.put(host, active.get(host) - 1);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testPoliteCrawl() throws Exception {
+		HttpServer server = HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		VirtualHosts site = new VirtualHosts();
+		server.createContext("/", site);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		
+		try {
+			int port = server.getAddress().getPort();
+			List<URL> seeds = new ArrayList<URL>();
+			seeds.add(new URL("http://localhost:" + port + "/index.html"));
+			seeds.add(new URL("http://127.0.0.1:" + port + "/index.html"));
+			
+			RobotsCache robots = new RobotsCache();
+			ParallelCrawler crawler = new ParallelCrawler(4, new HostScheduler(1, 0, robots),
+					new HeapFingerprintSet());
+			crawler.setRobotsCache(robots);
+			crawler.crawl(seeds);
+			
+			// robots.txt hides one page of localhost only
+			List<String> urls = crawler.getWebIndex().getURLList();
+			assertEquals(13, urls.size());
+			assertFalse(urls.contains("http://localhost:" + port + "/private.html"));
+			assertTrue(urls.contains("http://127.0.0.1:" + port + "/private.html"));
+			
+			// one connection per host, even with four workers
+			assertEquals(1, site.maxActive);
+		} finally {
+			server.stop(0);
+		}
+	}
+}
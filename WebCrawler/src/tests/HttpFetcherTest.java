@@ -0,0 +1,218 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import assignment.FetchResult;
+import assignment.HttpFetcher;
+import assignment.PageState;
+import assignment.UrlFetcher;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpFetcherTest {
+	private static final String PAGE = "<html><body>compressed page text</body></html>";
+	
+	private HttpServer server;
+	private Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+	private volatile boolean gzipped;
+	
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+	}
+	
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		clientPorts.add(exchange.getRemoteAddress().getPort());
+		String path = exchange.getRequestURI().getPath();
+		
+		try {
+			if (path.equals("/slow.html"))
+				Thread.sleep(2000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		if (path.equals("/missing.html")) {
+			exchange.sendResponseHeaders(404, -1);
+		} else if (path.equals("/movie.swf")) {
+			exchange.getResponseHeaders().set("Content-Type", "application/x-shockwave-flash");
+			exchange.sendResponseHeaders(200, 0);
+			writeSlowly(exchange, 1000, 0);
+		} else if (path.equals("/large.html")) {
+			exchange.getResponseHeaders().set("Content-Type", "text/html");
+			exchange.sendResponseHeaders(200, 0);
+			writeSlowly(exchange, 10000, 0);
+		} else if (path.equals("/drip.html")) {
+			exchange.getResponseHeaders().set("Content-Type", "text/html");
+			exchange.sendResponseHeaders(200, 0);
+			writeSlowly(exchange, 50, 100);
+		} else if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			exchange.sendResponseHeaders(304, -1);
+		} else {
+			byte[] body = PAGE.getBytes(StandardCharsets.UTF_8);
+			String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			if (accept != null && accept.contains("gzip")) {
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+				try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+					gzip.write(body);
+				}
+				body = compressed.toByteArray();
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				gzipped = true;
+			}
+			exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+			exchange.getResponseHeaders().set("ETag", "\"v1\"");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+		exchange.close();
+	}
+	
+	/**
+	 * Writes a body in chunks of a kilobyte, pausing between them, until
+	 * the client goes away or all chunks are written.
+	 */
+	private static void writeSlowly(HttpExchange exchange, int chunks, long pauseMillis) {
+		byte[] chunk = new byte[1024];
+		Arrays.fill(chunk, (byte)'x');
+		try (OutputStream out = exchange.getResponseBody()) {
+			for (int i = 0; i < chunks; i++) {
+				out.write(chunk);
+				out.flush();
+				if (pauseMillis > 0)
+					Thread.sleep(pauseMillis);
+			}
+		} catch (IOException e) {
+			// the client stopped reading
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private URL url(String path) throws IOException {
+		return new URL("http://localhost:" + server.getAddress().getPort() + path);
+	}
+	
+	private static HttpFetcher newFetcher(Duration requestTimeout) {
+		return new HttpFetcher(Duration.ofSeconds(5), requestTimeout, new UrlFetcher());
+	}
+	
+	@Test
+	public void testGzipAndConnectionReuse() throws Exception {
+		HttpFetcher fetcher = newFetcher(Duration.ofSeconds(5));
+		for (int i = 0; i < 20; i++) {
+			FetchResult result = fetcher.fetch(url("/page" + i + ".html"), null);
+			ByteBuffer content = result.getContent();
+			assertEquals(PAGE, new String(content.array(), content.position(), content.remaining(),
+					StandardCharsets.UTF_8));
+			assertEquals("\"v1\"", result.getETag());
+		}
+		
+		assertTrue(gzipped);
+		// one kept-alive connection served every request
+		assertEquals(1, clientPorts.size());
+	}
+	
+	@Test
+	public void testConditionalRequest() throws Exception {
+		PageState state = new PageState(1, "\"v1\"", null, new String[0]);
+		assertTrue(newFetcher(Duration.ofSeconds(5)).fetch(url("/page.html"), state).isNotModified());
+	}
+	
+	@Test
+	public void testResponseHeaders() throws Exception {
+		FetchResult result = newFetcher(Duration.ofSeconds(5)).fetch(url("/page.html"), null);
+		assertEquals("HTTP/1.1 200", result.getStatusLine());
+		assertTrue(hasHeader(result, "ETag: \"v1\""));
+		assertTrue(hasHeader(result, "Content-Encoding: gzip"));
+		
+		// the fallback keeps the status line as the server sent it
+		result = new UrlFetcher().fetch(url("/page.html"), null);
+		assertEquals("HTTP/1.1 200 OK", result.getStatusLine());
+		assertTrue(hasHeader(result, "ETag: \"v1\""));
+	}
+	
+	private static boolean hasHeader(FetchResult result, String header) {
+		for (String line : result.getHeaderLines()) {
+			if (line.equalsIgnoreCase(header))
+				return true;
+		}
+		return false;
+	}
+	
+	@Test(expected = FileNotFoundException.class)
+	public void testNotFound() throws Exception {
+		newFetcher(Duration.ofSeconds(5)).fetch(url("/missing.html"), null);
+	}
+	
+	@Test(expected = HttpTimeoutException.class)
+	public void testRequestTimeout() throws Exception {
+		newFetcher(Duration.ofMillis(200)).fetch(url("/slow.html"), null);
+	}
+	
+	@Test
+	public void testBodyLimits() throws Exception {
+		HttpFetcher fetcher = new HttpFetcher(Duration.ofSeconds(5), Duration.ofSeconds(5),
+				Duration.ofSeconds(5), 64 * 1024, new UrlFetcher());
+		
+		// only the first bytes of a 10 MB page are downloaded
+		FetchResult large = fetcher.fetch(url("/large.html"), null);
+		assertEquals(64 * 1024, large.getContent().remaining());
+		assertEquals(1, fetcher.getTruncated());
+		
+		// a movie is dropped as soon as its headers arrive
+		long start = System.nanoTime();
+		FetchResult movie = fetcher.fetch(url("/movie.swf"), null);
+		assertEquals(0, movie.getContent().remaining());
+		assertEquals(1, fetcher.getSkipped());
+		assertTrue(System.nanoTime() - start < 2000000000L);
+		
+		assertTrue(HttpFetcher.isHtml(null));
+		assertTrue(HttpFetcher.isHtml("TEXT/HTML; charset=utf-8"));
+		assertTrue(HttpFetcher.isHtml("application/xhtml+xml"));
+		assertFalse(HttpFetcher.isHtml("application/pdf"));
+	}
+	
+	@Test(expected = HttpTimeoutException.class)
+	public void testReadTimeout() throws Exception {
+		// the headers arrive at once, but the body takes 5 s
+		HttpFetcher fetcher = new HttpFetcher(Duration.ofSeconds(5), Duration.ofMillis(200),
+				Duration.ofMillis(300), HttpFetcher.DEFAULT_MAX_BODY_BYTES, new UrlFetcher());
+		fetcher.fetch(url("/drip.html"), null);
+	}
+}
@@ -0,0 +1,130 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import assignment.FetchResult;
+import assignment.HttrackFetcher;
+import assignment.PageState;
+import assignment.ParallelCrawler;
+
+public class HttrackFetcherTest {
+
+	private static void write(ByteArrayOutputStream out, String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.ISO_8859_1);
+		out.write((bytes.length + "\n").getBytes(StandardCharsets.ISO_8859_1), 0,
+				(bytes.length + "\n").length());
+		out.write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Writes one cache entry, declaring the given body length.
+	 */
+	private static void entry(ByteArrayOutputStream out, int status, String type, String etag,
+			String location, String path, String localFile, String body, int declaredLength) {
+		String[] header = { Integer.toString(status), Integer.toString(body.length()), "OK", type,
+				"", "Mon, 22 Nov 2004 19:38:43 GMT", etag, location, "", "www.example.com", path,
+				localFile, "HTS", Integer.toString(declaredLength) };
+		for (String field : header) {
+			write(out, field);
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.ISO_8859_1);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static String text(FetchResult page) {
+		ByteBuffer content = page.getContent();
+		byte[] bytes = new byte[content.remaining()];
+		content.duplicate().get(bytes);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	private Path createCache() throws Exception {
+		Path mirror = Files.createTempDirectory("mirror");
+		Path cache = Files.createDirectory(mirror.resolve("hts-cache"));
+		Files.createDirectories(mirror.resolve("www.example.com"));
+		Files.write(mirror.resolve("www.example.com/logo.gif"), "GIF89a".getBytes(StandardCharsets.ISO_8859_1));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(out, "CACHE-1.4");
+		entry(out, 200, "text/html", "\"1\"", "", "/", "./www.example.com/index.html",
+				"<html><body><a href=a.html>home page</a></body></html>", 53);
+
+		// a body shorter than declared, followed by a checksum
+		entry(out, 200, "text/html", "", "", "/a.html", "./www.example.com/a.html",
+				"<html>converted line endings</html>2\n320123456789abcdef0123456789abcdef", 60);
+		entry(out, 200, "image/gif", "", "", "/logo.gif", "./www.example.com/logo.gif", "", 0);
+		entry(out, 301, "text/html", "", "/a.html", "/old.html", "", "", 0);
+		entry(out, 404, "text/html", "", "", "/missing.html", "", "not here", 8);
+
+		// the mirror was updated, this entry replaces the first
+		entry(out, 200, "text/html", "\"2\"", "", "/", "./www.example.com/index.html",
+				"<html><body><a href=a.html>new home</a></body></html>", 52);
+		Files.write(cache.resolve("new.dat"), out.toByteArray());
+		return cache;
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		HttrackFetcher fetcher = new HttrackFetcher(createCache(), null);
+		assertEquals(5, fetcher.size());
+
+		FetchResult home = fetcher.fetch(new URL("http://WWW.example.com"), null);
+		assertEquals("<html><body><a href=a.html>new home</a></body></html>", text(home));
+		assertEquals("\"2\"", home.getETag());
+		assertEquals("text/html", home.getContentType());
+
+		assertEquals("<html>converted line endings</html>",
+				text(fetcher.fetch(new URL("http://www.example.com/a.html"), null)));
+		assertEquals("GIF89a", text(fetcher.fetch(new URL("http://www.example.com/logo.gif"), null)));
+
+		FetchResult moved = fetcher.fetch(new URL("http://www.example.com/old.html#top"), null);
+		assertEquals(new URL("http://www.example.com/old.html#top"), moved.getURL());
+		assertEquals("<html>converted line endings</html>", text(moved));
+
+		List<URL> pages = fetcher.getURLs();
+		assertEquals(2, pages.size());
+		assertEquals(new URL("http://www.example.com/"), pages.get(0));
+	}
+
+	@Test
+	public void testNotFoundAndNotModified() throws Exception {
+		HttrackFetcher fetcher = new HttrackFetcher(createCache(), null);
+		for (String path : new String[] { "/missing.html", "/never-captured.html" }) {
+			try {
+				fetcher.fetch(new URL("http://www.example.com" + path), null);
+				fail(path);
+			} catch (FileNotFoundException e) {
+				// expected
+			}
+		}
+
+		PageState previous = new PageState(0, "\"2\"", null, new String[0]);
+		assertTrue(fetcher.fetch(new URL("http://www.example.com/"), previous).isNotModified());
+	}
+
+	@Test
+	public void testCrawlFromCache() throws Exception {
+		ParallelCrawler crawler = new ParallelCrawler(2);
+		crawler.setFetcher(new HttrackFetcher(createCache(), null));
+		List<URL> seeds = new ArrayList<URL>();
+		seeds.add(new URL("http://www.example.com/"));
+		crawler.crawl(seeds);
+
+		assertEquals(2, crawler.getWebIndex().getURLList().size());
+		assertTrue(crawler.getWebIndex().getIndex().containsKey("converted"));
+	}
+}
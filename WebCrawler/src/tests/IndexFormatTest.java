@@ -0,0 +1,108 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import assignment.Index;
+import assignment.IndexFormat;
+import assignment.WebIndex;
+
+public class IndexFormatTest {
+	
+	private static WebIndex createIndex() {
+		WebIndex index = new WebIndex();
+		index.addDocument("http://a.com", Arrays.asList("caf\u00e9", "au", "lait"));
+		index.addDocument("http://b.com", Arrays.asList("lait", "et", "lait"));
+		index.addDocument("http://c.com", Arrays.asList("gone"));
+		index.insert("far", "http://a.com", 70000);
+		index.addAlias("http://b.com/index.html", "http://b.com");
+		index.removeDocument("http://c.com");
+		return index;
+	}
+	
+	private static Path tempFile() throws IOException {
+		File file = File.createTempFile("index", ".db");
+		file.deleteOnExit();
+		return file.toPath();
+	}
+	
+	@Test
+	public void testRoundTrip() throws Exception {
+		WebIndex index = createIndex();
+		Path file = tempFile();
+		index.save(file.toString());
+		
+		WebIndex loaded = (WebIndex)Index.load(file.toUri().toURL());
+		assertEquals(index.getURLList(), loaded.getURLList());
+		assertNull(loaded.getURLList().get(2));
+		assertEquals(index.getIndex(), loaded.getIndex());
+		assertEquals(index.getAliases(), loaded.getAliases());
+		assertEquals(0, loaded.getDocId("http://a.com"));
+		assertEquals(-1, loaded.getDocId("http://c.com"));
+		
+		// the loaded index keeps growing like the original
+		loaded.addDocument("http://d.com", Arrays.asList("lait"));
+		assertEquals(3, loaded.getWordPositions("lait").size());
+	}
+	
+	@Test
+	public void testSerializedIndex() throws Exception {
+		// indexes saved before the binary format are still loaded
+		WebIndex index = createIndex();
+		Path file = tempFile();
+		try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+			out.writeObject(index);
+		}
+		
+		WebIndex loaded = (WebIndex)Index.load(file.toUri().toURL());
+		assertEquals(index.getURLList(), loaded.getURLList());
+		assertEquals(index.getIndex(), loaded.getIndex());
+	}
+	
+	@Test
+	public void testInvalidFiles() throws Exception {
+		Path file = tempFile();
+		createIndex().save(file.toString());
+		byte[] bytes = Files.readAllBytes(file);
+		
+		// a newer version is refused rather than misread
+		byte[] newer = bytes.clone();
+		ByteBuffer.wrap(newer).putInt(4, IndexFormat.VERSION + 1);
+		assertLoadFails(newer, "Unsupported index version");
+		
+		// so is a file cut short
+		assertLoadFails(Arrays.copyOf(bytes, bytes.length - 10), "");
+	}
+	
+	private static void assertLoadFails(byte[] bytes, String message) throws Exception {
+		Path file = tempFile();
+		try (OutputStream out = Files.newOutputStream(file)) {
+			out.write(bytes);
+		}
+		try {
+			Index.load(file.toUri().toURL());
+			fail("Loaded an invalid index");
+		} catch (IOException e) {
+			assertTrue(e.toString(), String.valueOf(e.getMessage()).startsWith(message));
+		}
+	}
+	
+	@Test(expected = IOException.class)
+	public void testSaveFailure() throws Exception {
+		// errors are no longer swallowed
+		createIndex().save(tempFile().resolve("missing").resolve("index.db").toString());
+	}
+}
@@ -0,0 +1,124 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import assignment.Index;
+import assignment.IndexFormat;
+import assignment.MappedWebIndex;
+import assignment.PostingList;
+import assignment.QueryableIndex;
+import assignment.WebIndex;
+import assignment.WebQueryEngine;
+
+public class MappedWebIndexTest {
+	
+	private static WebIndex createIndex() {
+		WebIndex index = new WebIndex();
+		index.addDocument("http://a.com", Arrays.asList("the", "quick", "brown", "fox"));
+		index.addDocument("http://b.com", Arrays.asList("the", "lazy", "dog"));
+		index.addDocument("http://c.com", Arrays.asList("quick", "brown", "dog"));
+		index.addDocument("http://d.com", Arrays.asList("gone"));
+		index.addAlias("http://b.com/index.html", "http://b.com");
+		index.removeDocument("http://d.com");
+		index.purgeRemoved();
+		return index;
+	}
+	
+	private static Path save(WebIndex index) throws IOException {
+		File file = File.createTempFile("index", ".db");
+		file.deleteOnExit();
+		index.save(file.toString());
+		return file.toPath();
+	}
+	
+	@Test
+	public void testSameAsLoaded() throws Exception {
+		WebIndex index = createIndex();
+		MappedWebIndex mapped = new MappedWebIndex(save(index));
+		
+		assertEquals(index.getIndex().size(), mapped.getNumTerms());
+		for (Map.Entry<String, PostingList> term : index.getIndex().entrySet()) {
+			assertEquals(term.getValue(), mapped.getWordPositions(term.getKey()));
+		}
+		assertNull(mapped.getWordPositions("cat"));
+		// the removed page leaves no gap behind
+		assertEquals(3, mapped.getNumDocs());
+		assertEquals("http://c.com", mapped.getURL(2));
+		assertEquals(index.getURLList(), mapped.getURLList());
+		assertEquals(index.getAliases(), mapped.getAliases());
+		
+		// queries give the same answers
+		WebQueryEngine memory = new WebQueryEngine();
+		memory.useWebIndex(index);
+		WebQueryEngine engine = new WebQueryEngine();
+		engine.useWebIndex(mapped);
+		for (String query : new String[] {"quick", "\"quick brown\"", "(the & dog)", "(fox | dog)", "!the", "gone",
+				"qu*", "!b*", "(d* & the)", "zz*", "*"}) {
+			assertEquals(query, memory.query(query).toString(), engine.query(query).toString());
+		}
+		assertEquals(2, engine.query("\"quick brown\"").size());
+		assertEquals(3, engine.query("(b* | l*)").size());
+		assertArrayEquals(new int[] {0, 1}, mapped.getDocsWithPrefix("th"));
+		assertArrayEquals(new int[] {0, 1}, index.getDocsWithPrefix("th"));
+	}
+	
+	@Test
+	public void testMergeAndWrite() throws Exception {
+		WebIndex index = createIndex();
+		MappedWebIndex mapped = new MappedWebIndex(save(index));
+		assertEquals(2, mapped.getDocId("http://c.com"));
+		assertEquals(-1, mapped.getDocId("http://d.com"));
+		
+		WebIndex merged = new WebIndex();
+		merged.merge(mapped);
+		assertEquals(index.getURLList(), merged.getURLList());
+		assertEquals(index.getIndex(), merged.getIndex());
+		assertEquals(index.getAliases(), merged.getAliases());
+		
+		Path copy = Files.createTempFile("index", ".db");
+		copy.toFile().deleteOnExit();
+		IndexFormat.write(mapped, copy);
+		WebIndex loaded = (WebIndex)Index.load(copy.toUri().toURL());
+		assertEquals(index.getURLList(), loaded.getURLList());
+		assertEquals(index.getIndex(), loaded.getIndex());
+	}
+	
+	@Test
+	public void testOpen() throws Exception {
+		WebIndex index = createIndex();
+		URL binary = save(index).toUri().toURL();
+		assertTrue(MappedWebIndex.open(binary) instanceof MappedWebIndex);
+		
+		// a serialized index is loaded whole
+		File file = File.createTempFile("index", ".db");
+		file.deleteOnExit();
+		try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file.toPath()))) {
+			out.writeObject(index);
+		}
+		QueryableIndex loaded = MappedWebIndex.open(file.toURI().toURL());
+		assertTrue(loaded instanceof WebIndex);
+		assertEquals(index.getIndex(), ((WebIndex)loaded).getIndex());
+	}
+	
+	@Test(expected = IOException.class)
+	public void testTruncated() throws Exception {
+		Path file = save(createIndex());
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+		new MappedWebIndex(file);
+	}
+}
@@ -0,0 +1,122 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import assignment.AdaptiveConcurrency;
+import assignment.BudgetedFrontier;
+import assignment.CrawlBudget;
+import assignment.FetchResult;
+import assignment.Fetcher;
+import assignment.FifoFrontier;
+import assignment.FileFetcher;
+import assignment.HeapFingerprintSet;
+import assignment.PageState;
+import assignment.ParallelCrawler;
+
+public class ParallelCrawlerTest {
+
+	private Path dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("testweb");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		WebGenerator.deleteTree(dir);
+	}
+
+	@Test
+	public void testSameResultAsOneThread() throws Exception {
+		URL seed = WebGenerator.createLinkedWeb(dir, 20);
+		List<URL> seeds = new ArrayList<URL>();
+		seeds.add(seed);
+
+		ParallelCrawler single = new ParallelCrawler(1);
+		single.crawl(seeds);
+
+		ParallelCrawler parallel = new ParallelCrawler(4);
+		parallel.crawl(seeds);
+
+		assertEquals(20, single.numPagesVisited());
+		assertEquals(single.numPagesVisited(), parallel.numPagesVisited());
+		assertEquals(single.getWebIndex().getURLList().size(),
+				parallel.getWebIndex().getURLList().size());
+		assertEquals(single.getWebIndex().getIndex().keySet(),
+				parallel.getWebIndex().getIndex().keySet());
+		assertEquals(20, parallel.getWebIndex().getWordPositions("shared").size());
+	}
+
+	@Test
+	public void testAdaptiveConcurrency() throws Exception {
+		List<URL> seeds = new ArrayList<URL>();
+		seeds.add(WebGenerator.createLinkedWeb(dir, 20));
+
+		ParallelCrawler crawler = new ParallelCrawler(8);
+		AdaptiveConcurrency concurrency = new AdaptiveConcurrency(1, 8);
+		crawler.setConcurrency(concurrency);
+		crawler.crawl(seeds);
+
+		assertEquals(20, crawler.numPagesVisited());
+		assertEquals(20, crawler.getWebIndex().getWordPositions("shared").size());
+		assertTrue(concurrency.getLimit() >= 1 && concurrency.getLimit() <= 8);
+	}
+
+	@Test(timeout = 30000)
+	public void testWorkersSurviveBadPages() throws Exception {
+		List<URL> seeds = new ArrayList<URL>();
+		seeds.add(WebGenerator.createLinkedWeb(dir, 20));
+
+		// every other page breaks the fetcher in a way no worker expects
+		Fetcher files = new FileFetcher();
+		ParallelCrawler crawler = new ParallelCrawler(2);
+		crawler.setFetcher(new Fetcher() {
+			@Override
+			public FetchResult fetch(URL url, PageState previous) throws IOException {
+				if (url.getPath().matches(".*page[0-9]*[13579]\\.html"))
+					throw new IllegalStateException("Broken fetch of " + url);
+				return files.fetch(url, previous);
+			}
+		});
+		crawler.crawl(seeds);
+
+		assertEquals(10, crawler.getWebIndex().getURLList().size());
+		assertEquals(10, crawler.getWebIndex().getWordPositions("shared").size());
+	}
+
+	@Test(timeout = 30000)
+	public void testHostBudget() throws Exception {
+		List<URL> seeds = new ArrayList<URL>();
+		seeds.add(WebGenerator.createLinkedWeb(dir, 20));
+
+		// the host runs out of budget while its other pages are still queued
+		CrawlBudget budget = new CrawlBudget();
+		budget.setMaxPagesPerHost(3);
+		BudgetedFrontier frontier = new BudgetedFrontier(new FifoFrontier(), budget);
+		ParallelCrawler crawler = new ParallelCrawler(4, frontier, new HeapFingerprintSet());
+		crawler.setCrawlBudget(budget);
+		crawler.crawl(seeds);
+
+		assertEquals(3, crawler.numPagesVisited());
+		assertEquals(3, frontier.getPagesTaken());
+		assertTrue(frontier.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoThreads() {
+		new ParallelCrawler(0);
+	}
+}
@@ -0,0 +1,98 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import assignment.FetchResult;
+import assignment.Fetcher;
+import assignment.FifoFrontier;
+import assignment.FileFetcher;
+import assignment.HeapFingerprintSet;
+import assignment.PageState;
+import assignment.ParallelCrawler;
+import assignment.PipelineCrawler;
+import assignment.StageMetrics;
+import assignment.WebIndex;
+
+public class PipelineCrawlerTest {
+
+	private Path dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("testweb");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		WebGenerator.deleteTree(dir);
+	}
+
+	@Test
+	public void testSameResultAsOneThread() throws Exception {
+		List<URL> seeds = new ArrayList<URL>();
+		seeds.add(WebGenerator.createLinkedWeb(dir, 30));
+
+		ParallelCrawler single = new ParallelCrawler(1);
+		single.crawl(seeds);
+
+		// a queue of one page forces every stage to wait on the next
+		PipelineCrawler pipeline = new PipelineCrawler(4, 2, 2, 1,
+				new FifoFrontier(), new HeapFingerprintSet(), new WebIndex());
+		pipeline.crawl(seeds);
+
+		assertEquals(30, pipeline.numPagesVisited());
+		assertEquals(single.getWebIndex().getURLList().size(),
+				pipeline.getWebIndex().getURLList().size());
+		assertEquals(single.getWebIndex().getIndex().keySet(),
+				pipeline.getWebIndex().getIndex().keySet());
+		assertEquals(30, pipeline.getWebIndex().getWordPositions("shared").size());
+
+		for (StageMetrics stage : pipeline.getStageMetrics()) {
+			assertEquals(stage.getName(), 30, stage.getItems());
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testStagesSurviveBadPages() throws Exception {
+		List<URL> seeds = new ArrayList<URL>();
+		seeds.add(WebGenerator.createLinkedWeb(dir, 30));
+
+		// one page breaks the fetcher and one, without a body, breaks the parser
+		Fetcher files = new FileFetcher();
+		Fetcher broken = new Fetcher() {
+			@Override
+			public FetchResult fetch(URL url, PageState previous) throws IOException {
+				if (url.getPath().endsWith("/page3.html"))
+					throw new IllegalStateException("Broken fetch of " + url);
+				if (url.getPath().endsWith("/page5.html"))
+					return new FetchResult(url, (byte[])null, "text/html", null, null);
+				return files.fetch(url, previous);
+			}
+		};
+
+		// with one thread per stage, a stage that died would stop the crawl
+		PipelineCrawler pipeline = new PipelineCrawler(1, 1, 1, 1,
+				new FifoFrontier(), new HeapFingerprintSet(), new WebIndex());
+		pipeline.setFetcher(broken);
+		pipeline.crawl(seeds);
+
+		assertEquals(28, pipeline.getWebIndex().getURLList().size());
+		assertEquals(28, pipeline.getWebIndex().getWordPositions("shared").size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoIndexThreads() {
+		new PipelineCrawler(1, 1, 0, 10, new FifoFrontier(), new HeapFingerprintSet(), new WebIndex());
+	}
+}
@@ -0,0 +1,75 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import assignment.PostingList;
+import assignment.WebIndex;
+
+public class PostingListTest {
+	
+	@Test
+	public void testUnorderedInserts() {
+		// postings arrive out of order and repeated, and across many freezes
+		Random random = new Random(42);
+		TreeMap<Integer, TreeSet<Integer>> expected = new TreeMap<Integer, TreeSet<Integer>>();
+		WebIndex index = new WebIndex();
+		for (int i = 0; i < 20000; i++) {
+			int doc = random.nextInt(50);
+			int pos = random.nextInt(i % 7 == 0 ? 1000000 : 300);
+			index.insert("word", "http://site.com/page" + doc, pos);
+			
+			int urlPos = index.getURLList().indexOf("http://site.com/page" + doc);
+			if (!expected.containsKey(urlPos))
+				expected.put(urlPos, new TreeSet<Integer>());
+			expected.get(urlPos).add(pos);
+		}
+		
+		PostingList postings = index.getWordPositions("word");
+		assertEquals(expected.size(), postings.size());
+		long total = 0;
+		for (int doc : postings.getDocs()) {
+			int[] positions = postings.getPositions(doc);
+			assertEquals(expected.get(doc).size(), positions.length);
+			int i = 0;
+			for (int pos : expected.get(doc)) {
+				assertEquals(pos, positions[i++]);
+			}
+			total += positions.length;
+		}
+		assertEquals(total, postings.numPositions());
+		assertNull(postings.getPositions(50));
+		assertFalse(postings.containsDoc(-1));
+	}
+	
+	@Test
+	public void testSetOperations() {
+		int[] a = {1, 3, 5, 7};
+		int[] b = {3, 4, 7, 9};
+		assertArrayEquals(new int[] {3, 7}, PostingList.intersect(a, b));
+		assertArrayEquals(new int[] {1, 3, 4, 5, 7, 9}, PostingList.union(a, b));
+		assertArrayEquals(new int[0], PostingList.intersect(a, new int[0]));
+		assertArrayEquals(a, PostingList.union(new int[0], a));
+	}
+	
+	@Test
+	public void testCompactness() {
+		// a long page of repeated words takes a byte or two per position
+		WebIndex index = new WebIndex();
+		for (int pos = 0; pos < 100000; pos++) {
+			index.insert(pos % 2 == 0 ? "even" : "odd", "http://site.com", pos);
+		}
+		index.freeze();
+		assertTrue(index.postingsBytes() < 2 * 100000 + 1000);
+		assertEquals(50000, index.getWordPositions("odd").numPositions());
+	}
+}
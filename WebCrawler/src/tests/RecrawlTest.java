@@ -0,0 +1,136 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import assignment.FetchResult;
+import assignment.FifoFrontier;
+import assignment.HeapFingerprintSet;
+import assignment.PageState;
+import assignment.ParallelCrawler;
+import assignment.RecrawlStore;
+import assignment.UrlFetcher;
+import assignment.WebIndex;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class RecrawlTest {
+	
+	private static void writePage(Path dir, String name, String text, String link) throws IOException {
+		String page = "<html><body>" + text;
+		if (link != null)
+			page += "\n<a href=" + link + ">next</a>";
+		page += "</body></html>";
+		
+		File file = dir.resolve(name).toFile();
+		Files.write(file.toPath(), page.getBytes(StandardCharsets.UTF_8));
+		file.deleteOnExit();
+	}
+	
+	private static void crawl(WebIndex index, RecrawlStore store, URL seed) throws Exception {
+		ParallelCrawler crawler = new ParallelCrawler(2, new FifoFrontier(), new HeapFingerprintSet(), index);
+		crawler.setRecrawlStore(store);
+		List<URL> seeds = new ArrayList<URL>();
+		seeds.add(seed);
+		crawler.crawl(seeds);
+		store.removeUnvisited(crawler.getVisitedPages(), index);
+		index.purgeRemoved();
+	}
+	
+	@Test
+	public void testOnlyChangedPagesReindexed() throws Exception {
+		Path dir = Files.createTempDirectory("testweb");
+		writePage(dir, "a.html", "alpha", "b.html");
+		writePage(dir, "b.html", "bravo", "c.html");
+		writePage(dir, "c.html", "charlie", "d.html");
+		writePage(dir, "d.html", "delta", null);
+		URL seed = dir.resolve("a.html").toUri().toURL();
+		String c = dir.resolve("c.html").toUri().toURL().toString();
+		String d = dir.resolve("d.html").toUri().toURL().toString();
+		
+		WebIndex index = new WebIndex();
+		RecrawlStore store = new RecrawlStore();
+		crawl(index, store, seed);
+		assertEquals(4, store.getAdded());
+		assertEquals(4, index.getURLList().size());
+		
+		// change c, which no longer links to d
+		writePage(dir, "c.html", "cobalt", null);
+		store = reload(store, dir);
+		crawl(index, store, seed);
+		
+		assertEquals(0, store.getAdded());
+		assertEquals(1, store.getChanged());
+		assertEquals(2, store.getUnchanged());
+		assertEquals(1, store.getRemoved());
+		
+		// the old postings of c and d are gone, the new ones are found
+		assertNull(index.getWordPositions("charlie"));
+		assertNull(index.getWordPositions("delta"));
+		int cPos = index.getURLList().indexOf(c);
+		assertTrue(index.getWordPositions("cobalt").containsDoc(cPos));
+		assertFalse(index.getURLList().contains(d));
+		assertTrue(index.getWordPositions("alpha").containsDoc(index.getURLList().indexOf(
+				seed.toString())));
+	}
+	
+	/**
+	 * Saves and loads the store, as between two runs of the crawler.
+	 */
+	private static RecrawlStore reload(RecrawlStore store, Path dir) throws IOException {
+		Path file = dir.resolve("recrawl.db");
+		store.save(file);
+		file.toFile().deleteOnExit();
+		return RecrawlStore.load(file);
+	}
+	
+	@Test
+	public void testConditionalRequest() throws Exception {
+		HttpServer server = HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", exchange -> {
+			byte[] bytes = "<html><body>same</body></html>".getBytes(StandardCharsets.UTF_8);
+			if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+			exchange.getResponseHeaders().set("ETag", "\"v1\"");
+			exchange.sendResponseHeaders(200, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		});
+		server.start();
+		
+		try {
+			URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/index.html");
+			UrlFetcher fetcher = new UrlFetcher();
+			
+			FetchResult first = fetcher.fetch(url, null);
+			assertFalse(first.isNotModified());
+			assertEquals("\"v1\"", first.getETag());
+			
+			PageState state = new PageState(1, first.getETag(), null, new String[0]);
+			assertTrue(fetcher.fetch(url, state).isNotModified());
+		} finally {
+			server.stop(0);
+		}
+	}
+}
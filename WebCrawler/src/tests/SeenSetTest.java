@@ -0,0 +1,107 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import assignment.BloomFilter;
+import assignment.FingerprintSet;
+import assignment.HeapFingerprintSet;
+import assignment.LayeredSeenSet;
+import assignment.OffHeapFingerprintSet;
+import assignment.SeenSet;
+
+public class SeenSetTest {
+	
+	// enough URLs to make the tables grow several times
+	private static final int NUM_URLS = 100000;
+	
+	private static String url(int i) {
+		return "http://www.example.com/page" + i + ".html";
+	}
+	
+	/**
+	 * Adds NUM_URLS distinct URLs to the set and checks that every one of
+	 * them is reported as seen afterwards.
+	 */
+	private void checkAddAll(SeenSet set) {
+		for (int i = 0; i < NUM_URLS; i++) {
+			assertTrue(set.add(url(i)));
+		}
+		
+		for (int i = 0; i < NUM_URLS; i++) {
+			assertTrue(set.contains(url(i)));
+			assertFalse(set.add(url(i)));
+		}
+		
+		assertEquals(NUM_URLS, set.size());
+	}
+
+	@Test
+	public void testHeapFingerprintSet() {
+		SeenSet set = new HeapFingerprintSet();
+		checkAddAll(set);
+		assertFalse(set.contains(url(-1)));
+		
+		// one long per slot at a load factor of at least a third
+		assertTrue(set.memoryBytes() <= 3 * 8 * NUM_URLS + 16);
+		assertTrue(set.falsePositiveRate() < 1e-12);
+	}
+	
+	@Test
+	public void testOffHeapFingerprintSet() {
+		SeenSet set = new OffHeapFingerprintSet();
+		checkAddAll(set);
+		assertFalse(set.contains(url(-1)));
+	}
+	
+	@Test
+	public void testLayeredSeenSet() {
+		SeenSet set = new LayeredSeenSet(new BloomFilter(NUM_URLS, 0.01), 
+				new HeapFingerprintSet());
+		checkAddAll(set);
+		assertFalse(set.contains(url(-1)));
+	}
+	
+	@Test
+	public void testBloomFilterRate() {
+		BloomFilter bloom = new BloomFilter(NUM_URLS, 0.01);
+		for (int i = 0; i < NUM_URLS; i++) {
+			bloom.add(url(i));
+		}
+		
+		// no false negatives
+		for (int i = 0; i < NUM_URLS; i++) {
+			assertTrue(bloom.contains(url(i)));
+		}
+		
+		// measured false positive rate is close to the estimate
+		int falsePositives = 0;
+		for (int i = NUM_URLS; i < 2 * NUM_URLS; i++) {
+			if (bloom.contains(url(i)))
+				falsePositives++;
+		}
+		double measured = (double)falsePositives / NUM_URLS;
+		assertTrue("Measured rate " + measured, measured < 0.02);
+		assertTrue(bloom.falsePositiveRate() < 0.02);
+		assertTrue(bloom.memoryBytes() < 2 * NUM_URLS);
+	}
+	
+	@Test
+	public void testFingerprint() {
+		assertEquals(FingerprintSet.fingerprint("http://a.com/"), 
+				FingerprintSet.fingerprint(new StringBuilder("http://a.com/")));
+		assertTrue(FingerprintSet.fingerprint("http://a.com/") != 
+				FingerprintSet.fingerprint("http://a.com"));
+		assertTrue(FingerprintSet.fingerprint("") != 0);
+	}
+	
+	@Test
+	public void testCreate() {
+		assertTrue(FingerprintSet.create("heap", false) instanceof HeapFingerprintSet);
+		assertTrue(FingerprintSet.create("offheap", false) instanceof OffHeapFingerprintSet);
+		assertTrue(FingerprintSet.create("heap", true) instanceof LayeredSeenSet);
+	}
+}
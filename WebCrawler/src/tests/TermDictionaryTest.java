@@ -0,0 +1,146 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import assignment.TermDictionary;
+
+public class TermDictionaryTest {
+	
+	private static final String[] WORDS = {"apple", "applet", "application", "apply", "banana",
+			"band", "bandana", "can", "cane", "canon", "canonical", "dog", "door", "dot", "e",
+			"ear", "earl", "early", "earn", "east", "easy", "eat", "fox"};
+	
+	private static List<Integer> toList(PrimitiveIterator.OfInt ordinals) {
+		List<Integer> list = new ArrayList<Integer>();
+		ordinals.forEachRemaining((int i) -> list.add(i));
+		return list;
+	}
+	
+	private static List<Integer> ordinals(int from, int to) {
+		List<Integer> list = new ArrayList<Integer>();
+		for (int i = from; i < to; i++) {
+			list.add(i);
+		}
+		return list;
+	}
+	
+	@Test
+	public void testLookup() {
+		String[] terms = TermDictionary.sort(Arrays.asList(WORDS));
+		TermDictionary dictionary = new TermDictionary(terms);
+		assertEquals(WORDS.length, dictionary.size());
+		for (int i = 0; i < terms.length; i++) {
+			assertEquals(i, dictionary.lookup(terms[i]));
+			assertEquals(terms[i], dictionary.term(i));
+		}
+		assertEquals(-1, dictionary.lookup("appl"));
+		assertEquals(-1, dictionary.lookup("aardvark"));
+		assertEquals(-1, dictionary.lookup("zebra"));
+		assertEquals(-1, dictionary.lookup(""));
+		assertArrayEquals(terms, dictionary.terms());
+	}
+	
+	@Test
+	public void testPrefixAndRange() {
+		TermDictionary dictionary = new TermDictionary(TermDictionary.sort(Arrays.asList(WORDS)));
+		assertEquals(ordinals(0, 4), toList(dictionary.prefix("appl")));
+		assertEquals(ordinals(15, 19), toList(dictionary.prefix("ear")));
+		assertEquals(ordinals(14, 22), toList(dictionary.prefix("e")));
+		assertEquals(ordinals(0, WORDS.length), toList(dictionary.prefix("")));
+		assertEquals(ordinals(0, 0), toList(dictionary.prefix("cat")));
+		assertEquals(ordinals(0, 0), toList(dictionary.prefix("zzz")));
+		
+		assertEquals(ordinals(4, 7), toList(dictionary.range("b", "c")));
+		assertEquals(ordinals(7, 11), toList(dictionary.range("can", "canonicals")));
+		assertEquals(ordinals(0, 4), toList(dictionary.range(null, "b")));
+		assertEquals(ordinals(22, 23), toList(dictionary.range("f", null)));
+		assertEquals(ordinals(0, 0), toList(dictionary.range("z", "a")));
+		
+		TermDictionary empty = new TermDictionary(new String[0]);
+		assertEquals(-1, empty.lookup("a"));
+		assertEquals(ordinals(0, 0), toList(empty.prefix("a")));
+		assertEquals(ordinals(0, 0), toList(empty.range(null, null)));
+	}
+	
+	@Test
+	public void testUnicodeOrder() {
+		// U+00E9 and U+FFE0 sort after ASCII; the surrogate pair for
+		// U+1F600 sorts after U+FFE0 in UTF-8 but before it as a String
+		List<String> words = Arrays.asList("caf\u00e9", "cafe", "caf\uffe0", "caf\ud83d\ude00", "cafes");
+		String[] terms = TermDictionary.sort(words);
+		assertArrayEquals(new String[] {"cafe", "cafes", "caf\u00e9", "caf\uffe0", "caf\ud83d\ude00"}, terms);
+		for (int i = 1; i < terms.length; i++) {
+			assertTrue(Arrays.compareUnsigned(terms[i - 1].getBytes(StandardCharsets.UTF_8),
+					terms[i].getBytes(StandardCharsets.UTF_8)) < 0);
+		}
+		
+		TermDictionary dictionary = new TermDictionary(terms);
+		for (int i = 0; i < terms.length; i++) {
+			assertEquals(i, dictionary.lookup(terms[i]));
+		}
+		assertEquals(ordinals(0, 5), toList(dictionary.prefix("caf")));
+		assertEquals(ordinals(2, 3), toList(dictionary.prefix("caf\u00e9")));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsorted() {
+		new TermDictionary(new String[] {"b", "a"});
+	}
+	
+	@Test
+	public void testReadWrite() throws IOException {
+		TermDictionary dictionary = new TermDictionary(TermDictionary.sort(Arrays.asList(WORDS)));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		dictionary.write(new DataOutputStream(bytes));
+		assertEquals(dictionary.writtenLength(), bytes.size());
+		
+		TermDictionary read = TermDictionary.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertArrayEquals(dictionary.terms(), read.terms());
+		
+		// reading from a buffer leaves it just after the dictionary
+		ByteBuffer buffer = ByteBuffer.allocate(bytes.size() + 4);
+		buffer.put(bytes.toByteArray()).putInt(42).flip();
+		TermDictionary mapped = TermDictionary.read(buffer);
+		assertEquals(42, buffer.getInt());
+		assertArrayEquals(dictionary.terms(), mapped.terms());
+		assertEquals(ordinals(15, 19), toList(mapped.prefix("ear")));
+		assertEquals(11, mapped.lookup("dog"));
+	}
+	
+	@Test
+	public void testCompactness() {
+		// words sharing long prefixes, as in a crawled vocabulary
+		TreeSet<String> words = new TreeSet<String>();
+		for (int i = 0; i < 20000; i++) {
+			words.add("word" + Integer.toString(i * 7919, 36));
+		}
+		String[] terms = TermDictionary.sort(new HashSet<String>(words));
+		assertArrayEquals(words.toArray(), terms);
+		
+		TermDictionary dictionary = new TermDictionary(terms);
+		long strings = 0;
+		for (String term : terms) {
+			strings += 40 + 2 * term.length();
+		}
+		assertTrue(dictionary.memoryBytes() * 4 < strings);
+		assertEquals(12345, dictionary.lookup(terms[12345]));
+	}
+}
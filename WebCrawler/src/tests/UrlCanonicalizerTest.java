@@ -0,0 +1,125 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+import assignment.CanonicalizingFrontier;
+import assignment.FifoFrontier;
+import assignment.UrlCanonicalizer;
+import assignment.UrlCanonicalizer.Rule;
+
+public class UrlCanonicalizerTest {
+
+	/**
+	 * Applies a single rule to a URL and returns the result as a String.
+	 */
+	private static String apply(Rule rule, String url) throws MalformedURLException {
+		UrlCanonicalizer canonicalizer = new UrlCanonicalizer(EnumSet.of(rule));
+		return canonicalizer.canonicalize(new URL(url)).toString();
+	}
+
+	@Test
+	public void testLowercaseHost() throws Exception {
+		assertEquals("http://www.example.com/Page.html",
+				apply(Rule.LOWERCASE_HOST, "HTTP://WWW.Example.COM/Page.html"));
+	}
+
+	@Test
+	public void testDefaultPort() throws Exception {
+		assertEquals("http://a.com/x", apply(Rule.DEFAULT_PORT, "http://a.com:80/x"));
+		assertEquals("https://a.com/x", apply(Rule.DEFAULT_PORT, "https://a.com:443/x"));
+		assertEquals("http://a.com:8080/x", apply(Rule.DEFAULT_PORT, "http://a.com:8080/x"));
+	}
+
+	@Test
+	public void testEmptyPath() throws Exception {
+		assertEquals("http://a.com/", apply(Rule.EMPTY_PATH, "http://a.com"));
+	}
+
+	@Test
+	public void testDotSegments() throws Exception {
+		assertEquals("http://a.com/a/c", apply(Rule.DOT_SEGMENTS, "http://a.com/a/./b/../c"));
+		assertEquals("http://a.com/x.html", apply(Rule.DOT_SEGMENTS, "http://a.com/../../x.html"));
+		assertEquals("http://a.com/a/", apply(Rule.DOT_SEGMENTS, "http://a.com/a/b/.."));
+	}
+
+	@Test
+	public void testPercentEncoding() throws Exception {
+		assertEquals("http://a.com/~a%2Fb", apply(Rule.PERCENT_ENCODING, "http://a.com/%7ea%2fb"));
+		assertEquals("http://a.com/dixie%20saddam.jpg",
+				apply(Rule.PERCENT_ENCODING, "http://a.com/dixie saddam.jpg"));
+	}
+
+	@Test
+	public void testDirectoryIndex() throws Exception {
+		assertEquals("http://a.com/news/", apply(Rule.DIRECTORY_INDEX, "http://a.com/news/index.html"));
+		assertEquals("http://a.com/news/", apply(Rule.DIRECTORY_INDEX, "http://a.com/news/index.htm"));
+		assertEquals("http://a.com/news/myindex.html",
+				apply(Rule.DIRECTORY_INDEX, "http://a.com/news/myindex.html"));
+
+		// file: directories are fetched through their index page instead
+		assertEquals("file:/mirror/news/index.html", apply(Rule.DIRECTORY_INDEX, "file:/mirror/news/"));
+		assertEquals("file:/mirror/news/index.html",
+				apply(Rule.DIRECTORY_INDEX, "file:/mirror/news/index.html"));
+	}
+
+	@Test
+	public void testFragmentAndQuery() throws Exception {
+		assertEquals("http://a.com/x?y=1", apply(Rule.FRAGMENT, "http://a.com/x?y=1#top"));
+		assertEquals("http://a.com/x#top", apply(Rule.QUERY, "http://a.com/x?y=1#top"));
+	}
+
+	@Test
+	public void testAllRules() throws Exception {
+		UrlCanonicalizer canonicalizer = new UrlCanonicalizer();
+		String[] spellings = {
+				"http://www.superspoof.com/news/",
+				"HTTP://www.SuperSpoof.com:80/news/index.html",
+				"http://www.superspoof.com/art/../news/./index.html#top",
+				"http://www.superspoof.com/%6eews/?page=2",
+				"http://www.superspoof.com/art/%2E%2E/news/",
+		};
+
+		for (String spelling : spellings) {
+			assertEquals(spelling, "http://www.superspoof.com/news/",
+					canonicalizer.canonicalize(new URL(spelling)).toString());
+		}
+	}
+
+	@Test
+	public void testUnchangedIsSame() throws Exception {
+		URL url = new URL("http://www.superspoof.com/news/archive.html");
+		assertSame(url, new UrlCanonicalizer().canonicalize(url));
+	}
+
+	@Test
+	public void testSavedFetches() throws Exception {
+		CanonicalizingFrontier frontier =
+				new CanonicalizingFrontier(new FifoFrontier(), new UrlCanonicalizer());
+
+		assertTrue(frontier.add(new URL("http://a.com/news/")));
+		assertFalse(frontier.add(new URL("http://a.com/news/index.html")));
+		assertFalse(frontier.add(new URL("http://A.com/news/#top")));
+
+		// a repeated spelling would not have been fetched twice anyway
+		assertFalse(frontier.add(new URL("http://a.com/news/index.html")));
+		assertFalse(frontier.add(new URL("http://a.com/news/")));
+		frontier.poll();
+		frontier.addLinks(new URL("http://a.com/news/"), Arrays.asList(
+				new URL("http://A.com/news/#top"), new URL("http://a.com/news/./"),
+				new URL("http://a.com/news/./")));
+
+		assertEquals(0, frontier.size());
+		assertEquals(6, frontier.getRewrites());
+		assertEquals(3, frontier.getSavedFetches());
+	}
+}
@@ -1,9 +1,16 @@
 package tests;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -12,6 +19,7 @@ import java.util.List;
 import org.junit.Test;
 
 import assignment.WebCrawler;
+import assignment.WebIndex;
 
 public class WebCrawlerTest {
 	private WebGenerator wg;
@@ -80,9 +88,57 @@ public class WebCrawlerTest {
 		assertTrue(link.matches(".*#\\w+$"));
 	}
 
+	/**
+	 * Writes the given HTML to a temporary file and returns its URL.
+	 */
+	private URL createPage(String html) throws IOException {
+		File file = File.createTempFile("page", ".html");
+		file.deleteOnExit();
+		Files.write(file.toPath(), html.getBytes(StandardCharsets.UTF_8));
+		return file.toURI().toURL();
+	}
+
 	@Test
-	public void testCharacters() {
-		fail("Not yet implemented");
+	public void testCharacters() throws Exception {
+		// build a page long enough to be split over many characters() calls
+		StringBuilder html = new StringBuilder("<html><body><p>Hello, <b>big</b>World\n");
+		int repeats = 5000;
+		for (int i = 0; i < repeats; i++) {
+			html.append("don't stop ");
+		}
+		html.append("<script>var hidden = 1;</script><i>end</i></p></body></html>");
+		
+		URL url = createPage(html.toString());
+		WebCrawler crawler = new WebCrawler();
+		crawler.parse(url);
+		WebIndex index = crawler.getWebIndex();
+		
+		assertArrayEquals(new int[] {0}, index.getWordPositions("hello").getPositions(0));
+		
+		// tags separate words and text is lowercased
+		assertArrayEquals(new int[] {1}, index.getWordPositions("big").getPositions(0));
+		assertArrayEquals(new int[] {2}, index.getWordPositions("world").getPositions(0));
+		
+		// every repeated word keeps its own position
+		assertEquals(repeats, index.getWordPositions("don't").getPositions(0).length);
+		assertEquals(repeats, index.getWordPositions("stop").getPositions(0).length);
+		
+		// text in avoided tags is skipped without shifting positions
+		assertNull(index.getWordPositions("hidden"));
+		assertArrayEquals(new int[] {3 + 2 * repeats}, index.getWordPositions("end").getPositions(0));
+	}
+
+	@Test
+	public void testAvoidedExtensions() throws Exception {
+		URL url = createPage("<html><body><a href=movie.SWF>a</a><a href=spoof.swf?play=1>b</a>"
+				+ "<a href=photo.jpeg#top>c</a><a href=paper.pdf>d</a><a href=page.html>e</a>"
+				+ "<a href=list.php?sort=name>f</a></body></html>");
+		List<URL> links = new WebCrawler().parse(url);
+		
+		assertEquals(2, links.size());
+		assertEquals(new URL(url, "page.html"), links.get(0));
+		// query strings are dropped, as they always were
+		assertEquals(new URL(url, "list.php"), links.get(1));
 	}
 
 	@Test
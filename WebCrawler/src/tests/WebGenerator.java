@@ -116,6 +116,46 @@ public class WebGenerator {
 		directory.delete();
 	}
 	
+	/**
+	 * Writes a small web of pages that all link to each other and
+	 * returns the URL of the first page.
+	 * 
+	 * @param dir - an empty directory to write the pages to
+	 * @param numPages - number of pages
+	 * @return URL of page0.html
+	 * @throws IOException
+	 */
+	public static URL createLinkedWeb(Path dir, int numPages) throws IOException {
+		for (int i = 0; i < numPages; i++) {
+			String page = "<html><body>page number" + i + " shared words\n";
+			for (int j = 0; j < numPages; j++) {
+				page += "<a href=page" + j + ".html>link</a>\n";
+			}
+			page += "</body></html>";
+			
+			Files.write(dir.resolve("page" + i + ".html"), page.getBytes(Charset.forName("UTF-8")));
+		}
+		
+		return dir.resolve("page0.html").toUri().toURL();
+	}
+	
+	/**
+	 * Deletes a directory and everything below it.
+	 * 
+	 * @param dir - the directory to delete
+	 * @throws IOException
+	 */
+	public static void deleteTree(Path dir) throws IOException {
+		File[] files = dir.toFile().listFiles();
+		if (files != null) {
+			for (File f: files) {
+				deleteTree(f.toPath());
+			}
+		}
+		
+		Files.deleteIfExists(dir);
+	}
+	
 	/**
 	 * Attempts to create a String representation of an HTML page.
 	 * @return String representing an HTML page
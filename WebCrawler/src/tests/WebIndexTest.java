@@ -1,15 +1,21 @@
 package tests;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 
 import org.junit.Test;
 
+import assignment.PostingList;
 import assignment.WebIndex;
 
 public class WebIndexTest {
@@ -25,8 +31,8 @@ public class WebIndexTest {
 		webIndex.insert(word, url, pos);
 		
 		// extract the entry for this url
-		HashMap<String, HashMap<Integer, HashSet<Integer>>> index = webIndex.getIndex();
-		HashMap<Integer, HashSet<Integer>> urlWordPosns = index.get(word);
+		HashMap<String, PostingList> index = webIndex.getIndex();
+		PostingList urlWordPosns = index.get(word);
 		
 		// check value for first HashMap was created
 		if (urlWordPosns == null) {
@@ -44,7 +50,7 @@ public class WebIndexTest {
 		// check that correct position was added for this word
 		HashSet<Integer> expected = new HashSet<Integer>();
 		expected.add(pos);
-		HashSet<Integer> actual = urlWordPosns.get(urlList.indexOf(url));
+		HashSet<Integer> actual = toSet(urlWordPosns.getPositions(urlList.indexOf(url)));
 		
 		String message = "Expected: " + expected.toString() + 
 						 "\nActual: " + actual.toString(); 
@@ -66,8 +72,8 @@ public class WebIndexTest {
 			webIndex.insert(words[i], url, posns[i]);
 		
 		// extract the entry for this url
-		HashMap<String, HashMap<Integer, HashSet<Integer>>> index = webIndex.getIndex();
-		HashMap<Integer, HashSet<Integer>> urlWordPosns = index.get(words[0]);
+		HashMap<String, PostingList> index = webIndex.getIndex();
+		PostingList urlWordPosns = index.get(words[0]);
 		
 		// check value for first HashMap was created
 		if (urlWordPosns == null) {
@@ -88,7 +94,7 @@ public class WebIndexTest {
 			expected.add(pos);
 		}
 		
-		HashSet<Integer> actual = urlWordPosns.get(urlList.indexOf(url));
+		HashSet<Integer> actual = toSet(urlWordPosns.getPositions(urlList.indexOf(url)));
 		
 		String message = "Expected: " + expected.toString() + 
 						 "\nActual: " + actual.toString(); 
@@ -191,6 +197,94 @@ public class WebIndexTest {
 				"\nElapsed time: " + elapsedTime + " (s)");
 	}
 	
+	@Test
+	public void testDrainAndMerge() {
+		WebIndex webIndex = new WebIndex();
+		webIndex.insert("old", "http://a.com", 0);
+		webIndex.trackChanges();
+		webIndex.insert("new", "http://b.com", 1);
+		webIndex.insert("new", "http://b.com", 0);
+		webIndex.insert("old", "http://b.com", 2);
+		
+		// only the page added since tracking started is drained, at index 0
+		WebIndex delta = webIndex.drainChanges();
+		assertEquals(1, delta.getURLList().size());
+		assertArrayEquals(new int[] {0, 1}, delta.getWordPositions("new").getPositions(0));
+		assertArrayEquals(new int[] {0}, delta.getWordPositions("old").getDocs());
+		
+		// merging the delta into a copy of the old page gives the full index back
+		WebIndex base = new WebIndex();
+		base.insert("old", "http://a.com", 0);
+		base.merge(delta);
+		assertEquals(webIndex.getURLList(), base.getURLList());
+		assertEquals(webIndex.getIndex(), base.getIndex());
+	}
+	
+	@Test
+	public void testPurgeRemoved() {
+		WebIndex webIndex = new WebIndex();
+		webIndex.insert("shared", "http://a.com", 0);
+		webIndex.insert("only", "http://a.com", 1);
+		webIndex.insert("shared", "http://b.com", 0);
+		
+		webIndex.insert("shared", "http://c.com", 0);
+		webIndex.trackChanges();
+		webIndex.insert("new", "http://d.com", 0);
+		
+		webIndex.removeDocument("http://a.com");
+		webIndex.purgeRemoved();
+		assertNull(webIndex.getWordPositions("only"));
+		
+		// the other pages move down to fill the gap
+		assertEquals(Arrays.asList("http://b.com", "http://c.com", "http://d.com"), webIndex.getURLList());
+		assertArrayEquals(new int[] {0, 1}, webIndex.getWordPositions("shared").getDocs());
+		assertEquals(1, webIndex.getDocId("http://c.com"));
+		assertArrayEquals(new int[] {2}, webIndex.getWordPositions("new").getDocs());
+		
+		// pages added before the purge are still drained
+		WebIndex delta = webIndex.drainChanges();
+		assertEquals(Arrays.asList("http://d.com"), delta.getURLList());
+		assertArrayEquals(new int[] {0}, delta.getWordPositions("new").getDocs());
+	}
+	
+	@Test
+	public void testAddDocument() {
+		List<String> words = Arrays.asList("to", "be", "or", "not", "to", "be");
+		WebIndex bulk = new WebIndex();
+		WebIndex single = new WebIndex();
+		for (String url : new String[] {"http://a.com", "http://b.com"}) {
+			bulk.addDocument(url, words);
+			for (int i = 0; i < words.size(); i++)
+				single.insert(words.get(i), url, i);
+		}
+		
+		assertEquals(single.getURLList(), bulk.getURLList());
+		assertEquals(single.getIndex(), bulk.getIndex());
+		assertArrayEquals(new int[] {1, 5}, bulk.getWordPositions("be").getPositions(1));
+		
+		// doc ids follow removals and merges
+		assertEquals(1, bulk.getDocId("http://b.com"));
+		bulk.removeDocument("http://a.com");
+		assertEquals(-1, bulk.getDocId("http://a.com"));
+		bulk.merge(single);
+		assertEquals(2, bulk.getDocId("http://a.com"));
+		assertEquals(1, bulk.getDocId("http://b.com"));
+		bulk.addDocument("http://c.com", words);
+		assertEquals(4, bulk.getDocId("http://c.com"));
+		
+		// a page without words is not added
+		bulk.addDocument("http://d.com", new ArrayList<String>());
+		assertEquals(-1, bulk.getDocId("http://d.com"));
+	}
+	
+	private static HashSet<Integer> toSet(int[] positions) {
+		HashSet<Integer> set = new HashSet<Integer>();
+		for (int pos : positions) {
+			set.add(pos);
+		}
+		return set;
+	}
+	
 	// creates arbitrary number of random "words"
 	private static String[] generateRandomWords(int size) {
 		double duplicateFactor = 0.8;